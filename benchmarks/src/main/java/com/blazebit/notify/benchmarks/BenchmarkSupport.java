@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.actor.scheduler.executor.ExecutorServiceScheduler;
+import com.blazebit.job.ConfigurationSource;
+import com.blazebit.job.JobContext;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.job.Schedule;
+import com.blazebit.job.spi.ScheduleFactory;
+import com.blazebit.notify.Channel;
+import com.blazebit.notify.ChannelFactory;
+import com.blazebit.notify.ChannelKey;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationJobInstanceProcessor;
+import com.blazebit.notify.NotificationJobInstanceProcessorFactory;
+import com.blazebit.notify.NotificationJobProcessorFactory;
+import com.blazebit.notify.NotificationMessage;
+import com.blazebit.notify.NotificationMessageResolver;
+import com.blazebit.notify.NotificationMessageResolverFactory;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.testsuite.OnceSchedule;
+import com.blazebit.notify.testsuite.SimpleNotificationMessage;
+
+import java.time.Instant;
+import java.util.AbstractQueue;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates notification job contexts and processing contexts for driving the notification processors in benchmarks
+ * without the scheduler.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class BenchmarkSupport {
+
+    public static final String CHANNEL_TYPE = "benchmark";
+
+    private BenchmarkSupport() {
+    }
+
+    public static NotificationJobContext.Builder builder(Channel<?, ?> channel, NotificationRecipientResolver recipientResolver, NotificationJobInstanceProcessor<?, ?> jobInstanceProcessor) {
+        NotificationMessage message = new SimpleNotificationMessage();
+        return NotificationJobContext.builder()
+            .withJobProcessorFactory(NotificationJobProcessorFactory.of((jobTrigger, context) -> {
+                throw new UnsupportedOperationException("Benchmarks drive the processors directly");
+            }))
+            .withJobInstanceProcessorFactory(NotificationJobInstanceProcessorFactory.of(jobInstanceProcessor))
+            .withMessageResolverFactory(new NotificationMessageResolverFactory<NotificationMessage>() {
+                @Override
+                public Class<NotificationMessage> getNotificationMessageType() {
+                    return NotificationMessage.class;
+                }
+
+                @Override
+                public NotificationMessageResolver<NotificationMessage> createNotificationMessageResolver(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
+                    return notification -> message;
+                }
+            })
+            .withChannelFactory(new ChannelFactory<Channel<?, ?>>() {
+                @Override
+                public ChannelKey<Channel<?, ?>> getChannelType() {
+                    return (ChannelKey<Channel<?, ?>>) (ChannelKey<?>) ChannelKey.of(CHANNEL_TYPE, channel.getClass());
+                }
+
+                @Override
+                public Set<String> getConfigurationPropertyKeys() {
+                    return Collections.emptySet();
+                }
+
+                @Override
+                public Channel<?, ?> createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
+                    return channel;
+                }
+            })
+            .withRecipientResolver(recipientResolver)
+            .withScheduleFactory(new OnceScheduleFactory())
+            .withProperty(ExecutorServiceScheduler.EXECUTOR_SERVICE_PROPERTY, Executors.newScheduledThreadPool(1));
+    }
+
+    /**
+     * A processing context for driving processors outside of the scheduler.
+     *
+     * @param <T> The processing cursor type
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    public static final class BenchmarkProcessingContext<T> implements JobInstanceProcessingContext<T> {
+
+        private final JobContext jobContext;
+
+        public BenchmarkProcessingContext(JobContext jobContext) {
+            this.jobContext = jobContext;
+        }
+
+        @Override
+        public JobContext getJobContext() {
+            return jobContext;
+        }
+
+        @Override
+        public T getLastProcessed() {
+            return null;
+        }
+
+        @Override
+        public int getProcessCount() {
+            return 1;
+        }
+
+        @Override
+        public int getPartitionId() {
+            return 0;
+        }
+
+        @Override
+        public int getPartitionCount() {
+            return 1;
+        }
+
+        @Override
+        public PartitionKey getPartitionKey() {
+            return null;
+        }
+    }
+
+    /**
+     * A queue that discards elements so that sinks don't grow over the course of a benchmark.
+     *
+     * @param <E> The element type
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    public static final class DiscardingQueue<E> extends AbstractQueue<E> {
+
+        private long count;
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public boolean offer(E e) {
+            count++;
+            return true;
+        }
+
+        @Override
+        public E poll() {
+            return null;
+        }
+
+        @Override
+        public E peek() {
+            return null;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return Collections.emptyIterator();
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    /**
+     * A schedule factory that creates schedules which fire once.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class OnceScheduleFactory implements ScheduleFactory {
+
+        private final Schedule schedule = new OnceSchedule();
+
+        @Override
+        public String asCronExpression(Instant instant) {
+            return null;
+        }
+
+        @Override
+        public Schedule createSchedule(String cronExpression) {
+            return schedule;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobInstanceProcessor;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.benchmarks.BenchmarkSupport.BenchmarkProcessingContext;
+import com.blazebit.notify.benchmarks.BenchmarkSupport.DiscardingQueue;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import com.blazebit.notify.testsuite.OnceSchedule;
+import com.blazebit.notify.testsuite.SimpleNotification;
+import com.blazebit.notify.testsuite.SimpleNotificationJobInstance;
+import com.blazebit.notify.testsuite.SimpleNotificationJobTrigger;
+import com.blazebit.notify.testsuite.SimpleNotificationMessage;
+import com.blazebit.notify.testsuite.SimpleNotificationRecipient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the dispatch of a single notification through the {@link NotificationJobContext}, i.e. the lookup of the
+ * notification processor, channel and message resolver as well as the send to a {@link MemoryChannel}.
+ * Run with <code>-prof gc</code> to get the bytes allocated per notification.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private NotificationJobContext jobContext;
+    private JobInstanceProcessingContext<Object> processingContext;
+    private SimpleNotification notification;
+
+    @Setup
+    public void setup() {
+        MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage> channel = new MemoryChannel<>(new DiscardingQueue<>());
+        NotificationRecipientResolver recipientResolver = NotificationRecipientResolver.of();
+        jobContext = BenchmarkSupport.builder(channel, recipientResolver, new SimpleFanOutProcessor((context, n) -> { }))
+            .createContext();
+        processingContext = new BenchmarkProcessingContext<>(jobContext);
+        SimpleNotificationJobTrigger trigger = new SimpleNotificationJobTrigger(channel, recipientResolver, new OnceSchedule(), new OnceSchedule(), Collections.emptyMap());
+        notification = new SimpleNotification(new SimpleNotificationJobInstance(trigger));
+        notification.setChannelType(BenchmarkSupport.CHANNEL_TYPE);
+        notification.setRecipient(new SimpleNotificationRecipient(Locale.ENGLISH));
+    }
+
+    @TearDown
+    public void tearDown() {
+        jobContext.stop();
+    }
+
+    @Benchmark
+    public Object dispatch() {
+        JobInstanceProcessor<Object, SimpleNotification> processor = (JobInstanceProcessor<Object, SimpleNotification>) jobContext.getJobInstanceProcessor(notification);
+        return processor.process(notification, processingContext);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.benchmarks.BenchmarkSupport.DiscardingQueue;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import com.blazebit.notify.email.message.EmailNotificationMessageResolver;
+import com.blazebit.notify.email.message.EmailNotificationRecipient;
+import com.blazebit.notify.template.api.TemplateContext;
+import com.blazebit.notify.testsuite.SimpleNotification;
+import com.blazebit.notify.testsuite.SimpleNotificationMessage;
+import com.blazebit.notify.testsuite.SimpleNotificationRecipient;
+import com.blazebit.template.thymeleaf.ThymeleafTemplateEngines;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.TemplateEngine;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Sets up an order confirmation E-Mail with subject, text and html templates for the {@link TemplateContext template processors}
+ * <code>freemarker</code> and <code>thymeleaf</code> that share the resource bundle <code>templates/OrderConfirmation</code>.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class EmailBenchmarkSupport {
+
+    public static final String FREEMARKER = "freemarker";
+    public static final String THYMELEAF = "thymeleaf";
+
+    private static final String RESOURCE_BUNDLE = "templates.OrderConfirmation";
+    private static final String EMAIL = "john.doe@example.com";
+    private static final int ITEM_COUNT = 5;
+
+    private EmailBenchmarkSupport() {
+    }
+
+    public static NotificationJobContext createJobContext() {
+        MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage> channel = new MemoryChannel<>(new DiscardingQueue<>());
+        return BenchmarkSupport.builder(channel, NotificationRecipientResolver.of(), new SimpleFanOutProcessor((context, n) -> { }))
+            .withService(TemplateContext.class, TemplateContext.builder().createContext())
+            .withService(ITemplateEngine.class, createThymeleafTemplateEngine())
+            .createContext();
+    }
+
+    public static EmailNotificationMessageResolver createMessageResolver(NotificationJobContext jobContext, String templateProcessorType) {
+        String subjectTemplate;
+        String textTemplate;
+        String htmlTemplate;
+        switch (templateProcessorType) {
+            case FREEMARKER:
+                subjectTemplate = "templates/order-subject.ftl";
+                textTemplate = "templates/order-text.ftl";
+                htmlTemplate = "templates/order-html.ftl";
+                break;
+            case THYMELEAF:
+                subjectTemplate = "templates/order-subject.txt";
+                textTemplate = "templates/order-text.txt";
+                htmlTemplate = "templates/order-html.html";
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported template processor type: " + templateProcessorType);
+        }
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_FROM_PROPERTY, "shop@blazebit.com");
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_FROM_NAME_PROPERTY, "Blazebit Shop");
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_REPLY_TO_PROPERTY, "support@blazebit.com");
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_RESOURCE_BUNDLE_PROPERTY, RESOURCE_BUNDLE);
+        properties.put(EmailNotificationMessageResolver.EMAIL_TEMPLATE_PROCESSOR_TYPE_PROPERTY, templateProcessorType);
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_SUBJECT_TEMPLATE_PROPERTY, subjectTemplate);
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_TEXT_TEMPLATE_PROPERTY, textTemplate);
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_HTML_TEMPLATE_PROPERTY, htmlTemplate);
+        return new EmailNotificationMessageResolver(jobContext, properties::get, Collections.emptyList());
+    }
+
+    public static SimpleNotification createNotification(Locale locale) {
+        ArrayList<HashMap<String, Serializable>> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 1; i <= ITEM_COUNT; i++) {
+            HashMap<String, Serializable> item = new HashMap<>();
+            item.put("name", "Product " + i + " <Limited Edition>");
+            item.put("quantity", i);
+            item.put("price", "EUR " + (i * 10) + ".99");
+            items.add(item);
+        }
+        Map<String, Serializable> parameters = new HashMap<>();
+        parameters.put("orderNumber", "A-100234");
+        parameters.put("userName", "John Doe");
+        parameters.put("email", EMAIL);
+        parameters.put("total", "EUR 154.95");
+        parameters.put("items", items);
+        SimpleNotification notification = new SimpleNotification();
+        notification.getJobConfiguration().setParameters(parameters);
+        notification.setRecipient(new SimpleNotificationRecipient(locale));
+        return notification;
+    }
+
+    public static EmailNotificationRecipient<Long> createRecipient() {
+        return EmailNotificationRecipient.of(1L, Locale.ENGLISH, TimeZone.getTimeZone("UTC"), EMAIL);
+    }
+
+    private static ITemplateEngine createThymeleafTemplateEngine() {
+        TemplateEngine templateEngine = ThymeleafTemplateEngines.createTemplateEngine(EmailBenchmarkSupport.class.getClassLoader(), ThymeleafTemplateEngines.DEFAULT_TEMPLATE_CACHE_MAX_SIZE);
+        templateEngine.setMessageResolver(new ResourceBundleMessageResolver());
+        return templateEngine;
+    }
+}
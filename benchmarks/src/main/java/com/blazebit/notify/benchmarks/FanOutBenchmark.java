@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.benchmarks.BenchmarkSupport.BenchmarkProcessingContext;
+import com.blazebit.notify.benchmarks.BenchmarkSupport.DiscardingQueue;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import com.blazebit.notify.testsuite.OnceSchedule;
+import com.blazebit.notify.testsuite.SimpleNotificationJobInstance;
+import com.blazebit.notify.testsuite.SimpleNotificationJobTrigger;
+import com.blazebit.notify.testsuite.SimpleNotificationMessage;
+import com.blazebit.notify.testsuite.SimpleNotificationRecipient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fan-out of a notification job instance into notifications by the
+ * {@link com.blazebit.notify.processor.memory.AbstractMemoryNotificationJobInstanceProcessor} for different numbers of recipients.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int recipientCount;
+
+    private NotificationJobContext jobContext;
+    private BenchmarkProcessingContext<Long> processingContext;
+    private SimpleFanOutProcessor processor;
+    private SimpleNotificationJobInstance jobInstance;
+    private long notificationCount;
+
+    @Setup
+    public void setup() {
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[recipientCount];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.ENGLISH);
+        }
+        MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage> channel = new MemoryChannel<>(new DiscardingQueue<>());
+        NotificationRecipientResolver recipientResolver = NotificationRecipientResolver.of(recipients);
+        processor = new SimpleFanOutProcessor((context, notification) -> notificationCount++);
+        jobContext = BenchmarkSupport.builder(channel, recipientResolver, processor)
+            .createContext();
+        processingContext = new BenchmarkProcessingContext<>(jobContext);
+        jobInstance = new SimpleNotificationJobInstance(new SimpleNotificationJobTrigger(channel, recipientResolver, new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        jobContext.stop();
+    }
+
+    @Benchmark
+    public long fanOut() {
+        processor.process(jobInstance, processingContext);
+        return notificationCount;
+    }
+}
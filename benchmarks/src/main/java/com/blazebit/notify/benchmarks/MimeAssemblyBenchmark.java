@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.channel.ses.SesChannel;
+import com.blazebit.notify.channel.smtp.SmtpChannel;
+import com.blazebit.notify.email.message.Attachment;
+import com.blazebit.notify.email.message.EmailNotificationMessage;
+import com.blazebit.notify.email.message.EmailNotificationRecipient;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the MIME assembly and encoding of a rendered order confirmation E-Mail in the {@link SmtpChannel} and the
+ * {@link SesChannel}. The SMTP transport is replaced by the {@link StubTransport} and the SES client by the
+ * {@link StubSesClient}, so only the work done on our side is measured.
+ * Run with <code>-prof gc</code> to get the bytes allocated per E-Mail.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MimeAssemblyBenchmark {
+
+    private static final int ATTACHMENT_SIZE = 32 * 1024;
+
+    @Param({ "false", "true" })
+    public boolean attachment;
+
+    private SmtpChannel smtpChannel;
+    private SesChannel sesChannel;
+    private EmailNotificationRecipient<Long> recipient;
+    private EmailNotificationMessage message;
+
+    @Setup
+    public void setup() {
+        NotificationJobContext jobContext = EmailBenchmarkSupport.createJobContext();
+        EmailNotificationMessage renderedMessage;
+        try {
+            renderedMessage = EmailBenchmarkSupport.createMessageResolver(jobContext, EmailBenchmarkSupport.FREEMARKER)
+                .resolveNotificationMessage(EmailBenchmarkSupport.createNotification(Locale.ENGLISH));
+        } finally {
+            jobContext.stop();
+        }
+        Collection<Attachment> attachments = Collections.emptyList();
+        if (attachment) {
+            byte[] data = new byte[ATTACHMENT_SIZE];
+            new Random(0).nextBytes(data);
+            attachments = Collections.singletonList(new Attachment("invoice.pdf", new ByteArrayDataSource(data, "application/pdf")));
+        }
+        message = new EmailNotificationMessage(
+            renderedMessage.getFrom(),
+            renderedMessage.getFromDisplayName(),
+            renderedMessage.getReplyTo(),
+            renderedMessage.getReplyToDisplayName(),
+            renderedMessage.getEnvelopeFrom(),
+            renderedMessage.getSubject(),
+            renderedMessage.getTextBody(),
+            renderedMessage.getHtmlBody(),
+            attachments
+        );
+        recipient = EmailBenchmarkSupport.createRecipient();
+        smtpChannel = new SmtpChannel(SmtpChannel.Config.builder()
+            .withHost("localhost")
+            .withSessionProperties(Collections.singletonMap("mail.smtp.class", StubTransport.class.getName()))
+            .build());
+        sesChannel = new SesChannel(SesChannel.Config.builder().withClient(new StubSesClient()).build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        smtpChannel.close();
+        sesChannel.close();
+    }
+
+    @Benchmark
+    public Object smtp() {
+        return smtpChannel.sendNotificationMessage(recipient, message);
+    }
+
+    @Benchmark
+    public Object ses() {
+        return sesChannel.sendNotificationMessage(recipient, message);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.domain.Domain;
+import com.blazebit.domain.runtime.model.DomainModel;
+import com.blazebit.domain.runtime.model.DomainType;
+import com.blazebit.expression.ExpressionCompiler;
+import com.blazebit.expression.ExpressionService;
+import com.blazebit.expression.Expressions;
+import com.blazebit.expression.Predicate;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationJobInstance;
+import com.blazebit.notify.benchmarks.BenchmarkSupport.BenchmarkProcessingContext;
+import com.blazebit.notify.benchmarks.BenchmarkSupport.DiscardingQueue;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import com.blazebit.notify.recipient.resolver.expression.AbstractPredicatingExpressionNotificationRecipientResolver;
+import com.blazebit.notify.testsuite.SimpleNotificationJobInstance;
+import com.blazebit.notify.testsuite.SimpleNotificationMessage;
+import com.blazebit.notify.testsuite.SimpleNotificationRecipient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per chunk cost of obtaining the recipient predicate of a notification job instance,
+ * once compiled from scratch as before and once through the compiled predicate cache of the expression based recipient resolvers.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredicateCompilationBenchmark {
+
+    static final String RECIPIENT_PREDICATE = "user.age > 18 AND user.name <> 'admin' AND (user.email <> '' OR user.age < 100)";
+
+    private NotificationJobContext jobContext;
+    private ExpressionService expressionService;
+    private Map<String, DomainType> rootDomainTypes;
+    private JobInstanceProcessingContext<Long> processingContext;
+    private UserRecipientResolver recipientResolver;
+    private SimpleNotificationJobInstance jobInstance;
+
+    @Setup
+    public void setup() {
+        DomainModel domainModel = Domain.getDefaultProvider().createDefaultBuilder()
+            .createEntityType("User")
+                .addAttribute("name", "String")
+                .addAttribute("email", "String")
+                .addAttribute("age", "Integer")
+            .build()
+            .build();
+        expressionService = Expressions.forModel(domainModel);
+        rootDomainTypes = Collections.singletonMap("user", domainModel.getEntityType("User"));
+        recipientResolver = new UserRecipientResolver(rootDomainTypes);
+        MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage> channel = new MemoryChannel<>(new DiscardingQueue<>());
+        jobContext = BenchmarkSupport.builder(channel, recipientResolver, new SimpleFanOutProcessor((context, notification) -> { }))
+            .withService(ExpressionService.class, expressionService)
+            .createContext();
+        processingContext = new BenchmarkProcessingContext<>(jobContext);
+        jobInstance = new SimpleNotificationJobInstance();
+    }
+
+    @TearDown
+    public void tearDown() {
+        jobContext.stop();
+    }
+
+    @Benchmark
+    public Predicate compile() {
+        ExpressionCompiler compiler = expressionService.createCompiler();
+        return compiler.createPredicate(RECIPIENT_PREDICATE, compiler.createContext(rootDomainTypes));
+    }
+
+    @Benchmark
+    public Predicate cached() {
+        return recipientResolver.resolveNotificationRecipientPredicate(jobInstance, processingContext);
+    }
+
+    /**
+     * A resolver with a static recipient predicate for the user root.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    static class UserRecipientResolver extends AbstractPredicatingExpressionNotificationRecipientResolver {
+
+        private final Map<String, DomainType> rootDomainTypes;
+
+        UserRecipientResolver(Map<String, DomainType> rootDomainTypes) {
+            this.rootDomainTypes = rootDomainTypes;
+        }
+
+        @Override
+        protected Map<String, DomainType> getRootDomainTypes(JobInstanceProcessingContext<?> jobContext) {
+            return rootDomainTypes;
+        }
+
+        @Override
+        protected String getRecipientPredicateExpression(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
+            return RECIPIENT_PREDICATE;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.email.message.EmailNotificationMessage;
+import com.blazebit.notify.email.message.EmailNotificationMessageResolver;
+import com.blazebit.notify.testsuite.SimpleNotification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rendering of the subject, text and html body of an order confirmation E-Mail through the
+ * {@link EmailNotificationMessageResolver} for the Freemarker and Thymeleaf template processors.
+ * Run with <code>-prof gc</code> to get the bytes allocated per rendered E-Mail.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderingBenchmark {
+
+    @Param({ EmailBenchmarkSupport.FREEMARKER, EmailBenchmarkSupport.THYMELEAF })
+    public String templateProcessorType;
+
+    @Param({ "en", "de" })
+    public String locale;
+
+    private NotificationJobContext jobContext;
+    private EmailNotificationMessageResolver messageResolver;
+    private SimpleNotification notification;
+
+    @Setup
+    public void setup() {
+        jobContext = EmailBenchmarkSupport.createJobContext();
+        messageResolver = EmailBenchmarkSupport.createMessageResolver(jobContext, templateProcessorType);
+        notification = EmailBenchmarkSupport.createNotification(Locale.forLanguageTag(locale));
+    }
+
+    @TearDown
+    public void tearDown() {
+        jobContext.stop();
+    }
+
+    @Benchmark
+    public EmailNotificationMessage render() {
+        return messageResolver.resolveNotificationMessage(notification);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.messageresolver.IMessageResolver;
+
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+/**
+ * Resolves Thymeleaf messages from the resource bundle that the E-Mail message resolver puts into the model, like the
+ * <code>msg</code> method of the Freemarker template processor does.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class ResourceBundleMessageResolver implements IMessageResolver {
+
+    private static final String RESOURCE_BUNDLE_MODEL_KEY = "resourceBundle";
+
+    @Override
+    public String getName() {
+        return "resourceBundle";
+    }
+
+    @Override
+    public Integer getOrder() {
+        return 0;
+    }
+
+    @Override
+    public String resolveMessage(ITemplateContext context, Class<?> origin, String key, Object[] messageParameters) {
+        ResourceBundle resourceBundle = (ResourceBundle) context.getVariable(RESOURCE_BUNDLE_MODEL_KEY);
+        if (resourceBundle == null || !resourceBundle.containsKey(key)) {
+            return null;
+        }
+        String message = resourceBundle.getString(key);
+        if (messageParameters == null || messageParameters.length == 0) {
+            return message;
+        }
+        return new MessageFormat(message, context.getLocale()).format(messageParameters);
+    }
+
+    @Override
+    public String createAbsentMessageRepresentation(ITemplateContext context, Class<?> origin, String key, Object[] messageParameters) {
+        return "??" + key + "_" + context.getLocale() + "??";
+    }
+}
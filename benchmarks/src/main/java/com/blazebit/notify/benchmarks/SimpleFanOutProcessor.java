@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import com.blazebit.job.JobContext;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.notify.processor.memory.AbstractMemoryNotificationJobInstanceProcessor;
+import com.blazebit.notify.testsuite.SimpleNotification;
+import com.blazebit.notify.testsuite.SimpleNotificationJobInstance;
+import com.blazebit.notify.testsuite.SimpleNotificationRecipient;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A memory job instance processor that produces a {@link SimpleNotification} of the benchmark channel per recipient.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class SimpleFanOutProcessor extends AbstractMemoryNotificationJobInstanceProcessor<Long, SimpleNotification, SimpleNotificationJobInstance, SimpleNotificationRecipient> {
+
+    public SimpleFanOutProcessor(BiConsumer<JobContext, SimpleNotification> sink) {
+        super(sink);
+    }
+
+    @Override
+    protected SimpleNotification produceNotification(JobInstanceProcessingContext<Long> context, SimpleNotificationJobInstance notificationJobInstance, SimpleNotificationRecipient recipient) {
+        SimpleNotification notification = new SimpleNotification(notificationJobInstance);
+        notification.setChannelType(BenchmarkSupport.CHANNEL_TYPE);
+        notification.setRecipient(recipient);
+        return notification;
+    }
+
+    @Override
+    protected Long getProcessingResultId(SimpleNotification processingResult) {
+        return null;
+    }
+}
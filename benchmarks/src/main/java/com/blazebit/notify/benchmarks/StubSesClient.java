@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import software.amazon.awssdk.services.ses.SesClient;
+import software.amazon.awssdk.services.ses.model.SendRawEmailRequest;
+import software.amazon.awssdk.services.ses.model.SendRawEmailResponse;
+
+/**
+ * An SES client that accepts raw E-Mails without sending them anywhere.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class StubSesClient implements SesClient {
+
+    private final SendRawEmailResponse response = SendRawEmailResponse.builder()
+        .messageId("benchmark")
+        .build();
+
+    @Override
+    public SendRawEmailResponse sendRawEmail(SendRawEmailRequest sendRawEmailRequest) {
+        return response;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
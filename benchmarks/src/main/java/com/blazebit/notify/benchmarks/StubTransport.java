@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.benchmarks;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A transport that encodes messages like an SMTP transport does, but discards the bytes instead of talking to a relay.
+ * It is registered via <code>META-INF/javamail.providers</code> and selected with the session property <code>mail.smtp.class</code>.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class StubTransport extends Transport {
+
+    public StubTransport(Session session, URLName urlname) {
+        super(session, urlname);
+    }
+
+    @Override
+    protected boolean protocolConnect(String host, int port, String user, String password) {
+        return true;
+    }
+
+    @Override
+    public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        try {
+            message.writeTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new MessagingException("Failed to encode message", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+<!DOCTYPE html>
+<html>
+<head>
+    <meta charset="UTF-8">
+    <title>${msg("order.subject", orderNumber)?html}</title>
+</head>
+<body style="font-family: Arial, sans-serif; color: #333333;">
+    <p>${msg("order.greeting", userName)?html}</p>
+    <p>${msg("order.intro")?html}</p>
+    <table style="border-collapse: collapse; width: 100%;">
+        <thead>
+            <tr>
+                <th style="text-align: left;">${msg("order.item")?html}</th>
+                <th style="text-align: right;">${msg("order.quantity")?html}</th>
+                <th style="text-align: right;">${msg("order.price")?html}</th>
+            </tr>
+        </thead>
+        <tbody>
+        <#list items as item>
+            <tr>
+                <td>${item.name?html}</td>
+                <td style="text-align: right;">${item.quantity}</td>
+                <td style="text-align: right;">${item.price?html}</td>
+            </tr>
+        </#list>
+        </tbody>
+    </table>
+    <p><strong>${msg("order.total", total)?html}</strong></p>
+    <p>${msg("order.closing")?html}<br>${msg("order.signature")?html}</p>
+    <p style="font-size: 11px; color: #999999;">${msg("order.footer", email)?html}</p>
+</body>
+</html>
@@ -0,0 +1 @@
+${msg("order.subject", orderNumber)}
\ No newline at end of file
@@ -0,0 +1,15 @@
+${msg("order.greeting", userName)}
+
+${msg("order.intro")}
+
+<#list items as item>
+${item.quantity} x ${item.name} ${item.price}
+</#list>
+
+${msg("order.total", total)}
+
+${msg("order.closing")}
+${msg("order.signature")}
+
+--
+${msg("order.footer", email)}
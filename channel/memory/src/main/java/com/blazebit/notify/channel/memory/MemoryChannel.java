@@ -15,11 +15,13 @@
  */
 package com.blazebit.notify.channel.memory;
 
-import com.blazebit.notify.Channel;
+import com.blazebit.notify.BatchChannel;
 import com.blazebit.notify.ChannelKey;
 import com.blazebit.notify.NotificationMessage;
 import com.blazebit.notify.NotificationRecipient;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
@@ -31,7 +33,7 @@ import java.util.concurrent.ArrayBlockingQueue;
  * @author Christian Beikov
  * @since 1.0.0
  */
-public class MemoryChannel<R extends NotificationRecipient<?>, T extends NotificationMessage> implements Channel<R, T> {
+public class MemoryChannel<R extends NotificationRecipient<?>, T extends NotificationMessage> implements BatchChannel<R, T> {
 
     /**
      * The key for which the channel is registered.
@@ -85,6 +87,19 @@ public class MemoryChannel<R extends NotificationRecipient<?>, T extends Notific
         return null;
     }
 
+    @Override
+    public List<Object> sendNotificationMessages(List<R> recipients, List<T> messages) {
+        List<Object> results = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                results.add(sendNotificationMessage(recipients.get(i), messages.get(i)));
+            } catch (RuntimeException ex) {
+                results.add(ex);
+            }
+        }
+        return results;
+    }
+
     @Override
     public void close() {
     }
@@ -23,6 +23,9 @@ import com.blazebit.notify.NotificationJobContext;
 import com.blazebit.notify.NotificationMessage;
 import com.blazebit.notify.NotificationRecipient;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * A factory for in-memory channels.
  *
@@ -36,6 +39,11 @@ public class MemoryChannelFactory implements ChannelFactory<MemoryChannel<Notifi
         return MemoryChannel.KEY;
     }
 
+    @Override
+    public Set<String> getConfigurationPropertyKeys() {
+        return Collections.emptySet();
+    }
+
     @Override
     public MemoryChannel<NotificationRecipient<?>, NotificationMessage> createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
         return new MemoryChannel<>();
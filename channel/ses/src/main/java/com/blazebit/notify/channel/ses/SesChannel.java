@@ -20,11 +20,11 @@ import com.blazebit.job.JobRateLimitException;
 import com.blazebit.notify.Channel;
 import com.blazebit.notify.ChannelKey;
 import com.blazebit.notify.NotificationException;
-import com.blazebit.notify.email.message.Attachment;
-import com.blazebit.notify.email.message.EmailBody;
+import com.blazebit.notify.RateLimiter;
 import com.blazebit.notify.email.message.EmailNotificationMessage;
 import com.blazebit.notify.email.message.EmailNotificationRecipient;
-import com.sun.mail.smtp.SMTPMessage;
+import com.blazebit.notify.email.message.EncodedMimeBodyCache;
+import com.blazebit.notify.email.message.EncodedMimeMessage;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
@@ -36,20 +36,18 @@ import software.amazon.awssdk.services.ses.model.SendRawEmailRequest;
 import software.amazon.awssdk.services.ses.model.SendRawEmailResponse;
 import software.amazon.awssdk.services.ses.model.SesException;
 
-import jakarta.activation.DataHandler;
-import jakarta.activation.DataSource;
 import jakarta.mail.Address;
 import jakarta.mail.MessagingException;
-import jakarta.mail.Multipart;
 import jakarta.mail.Session;
 import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeBodyPart;
-import jakarta.mail.internet.MimeMultipart;
-import jakarta.mail.internet.MimeUtility;
+import jakarta.mail.internet.MimeMessage;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -79,14 +77,31 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
      * The configuration property for the AWS SES region.
      */
     public static final String SES_REGION_PROPERTY = "channel.ses.region";
+    /**
+     * The configuration property for the sustained number of messages per second the channel may send.
+     */
+    public static final String SES_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY = "channel.ses.rate_limit.permits_per_second";
+    /**
+     * The configuration property for the number of messages the channel may send in a burst, defaults to the permits per second.
+     */
+    public static final String SES_RATE_LIMIT_BURST_PROPERTY = "channel.ses.rate_limit.burst";
+    /**
+     * The configuration property for the maximum number of encoded message bodies to cache for reuse across recipients, 0 disables the cache.
+     */
+    public static final String SES_MIME_BODY_CACHE_SIZE_PROPERTY = "channel.ses.mime_body_cache_size";
 
     private static final Logger LOG = Logger.getLogger(SesChannel.class.getName());
 
     private static final String CHARSET_UTF8 = "UTF-8";
-    private static final String HTML_MIME_TYPE = "text/html; charset=" + CHARSET_UTF8;
+    // The throttling response when the sending quota of the rolling 24 hour window is used up, as opposed to the sending rate
+    private static final String DAILY_QUOTA_EXCEEDED_MESSAGE = "daily message quota exceeded";
+    private static final long DAILY_QUOTA_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
 
     private final Session session = Session.getDefaultInstance(new Properties());
     private final SesClient client;
+    private final boolean closeClient;
+    private final RateLimiter rateLimiter;
+    private final EncodedMimeBodyCache mimeBodyCache;
 
     /**
      * Creates a new SES channel from the given configuration source.
@@ -103,25 +118,33 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
      * @param config The config
      */
     public SesChannel(Config config) {
-        AwsCredentialsProvider credentials;
-
-        if (config.accessKey != null && config.secretKey != null) {
-            credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create(config.accessKey, config.secretKey));
+        if (config.client != null) {
+            client = config.client;
+            closeClient = false;
         } else {
-            throw new IllegalArgumentException("No AWS access key and secret key given for SES channel!");
-        }
+            AwsCredentialsProvider credentials;
 
-        Region region;
-        if (config.region == null) {
-            throw new IllegalArgumentException("No AWS region given for SES channel!");
-        } else {
-            region = Region.of(config.region);
-        }
+            if (config.accessKey != null && config.secretKey != null) {
+                credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create(config.accessKey, config.secretKey));
+            } else {
+                throw new IllegalArgumentException("No AWS access key and secret key given for SES channel!");
+            }
 
-        client = SesClient.builder()
-            .credentialsProvider(credentials)
-            .region(region)
-            .build();
+            Region region;
+            if (config.region == null) {
+                throw new IllegalArgumentException("No AWS region given for SES channel!");
+            } else {
+                region = Region.of(config.region);
+            }
+
+            client = SesClient.builder()
+                .credentialsProvider(credentials)
+                .region(region)
+                .build();
+            closeClient = true;
+        }
+        this.rateLimiter = RateLimiter.of(config.rateLimitPermitsPerSecond, config.rateLimitBurst);
+        this.mimeBodyCache = new EncodedMimeBodyCache(config.mimeBodyCacheSize);
         LOG.log(Level.FINEST, "SES transport opened");
     }
 
@@ -129,14 +152,18 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
         Config.Builder builder = Config.builder()
             .withAccessKey(configurationSource.getPropertyOrFail(SES_ACCESS_KEY_PROPERTY, String.class, Function.identity()))
             .withSecretKey(configurationSource.getPropertyOrFail(SES_SECRET_KEY_PROPERTY, String.class, Function.identity()))
-            .withRegion(configurationSource.getPropertyOrFail(SES_REGION_PROPERTY, String.class, Function.identity()));
+            .withRegion(configurationSource.getPropertyOrFail(SES_REGION_PROPERTY, String.class, Function.identity()))
+            .withRateLimit(RateLimiter.getPermitsPerSecond(configurationSource, SES_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY), RateLimiter.getBurst(configurationSource, SES_RATE_LIMIT_BURST_PROPERTY))
+            .withMimeBodyCacheSize(configurationSource.getPropertyOrDefault(SES_MIME_BODY_CACHE_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> 64));
 
         return builder.build();
     }
 
     @Override
     public void close() {
-        client.close();
+        if (closeClient) {
+            client.close();
+        }
     }
 
     @Override
@@ -144,96 +171,70 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
         return EmailNotificationMessage.class;
     }
 
+    @Override
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     @Override
     public Object sendNotificationMessage(EmailNotificationRecipient<?> recipient, EmailNotificationMessage message) {
         try {
-            SMTPMessage msg = new SMTPMessage(session);
-
-            EmailBody textBody = message.getTextBody();
-            EmailBody htmlBody = message.getHtmlBody();
-            boolean hasAttachments = !message.getAttachments().isEmpty();
-            if (textBody != null && htmlBody != null || hasAttachments) {
-                Multipart multipart = new MimeMultipart("alternative");
-                if (textBody != null) {
-                    MimeBodyPart textPart = new MimeBodyPart();
-                    textPart.setText(textBody.getBody(), CHARSET_UTF8);
-                    multipart.addBodyPart(textPart);
-                }
-
-                if (htmlBody != null) {
-                    MimeBodyPart htmlPart = new MimeBodyPart();
-                    htmlPart.setContent(htmlBody.getBody(), HTML_MIME_TYPE);
-                    multipart.addBodyPart(htmlPart);
-                }
-
-                for (Attachment attachment : message.getAttachments()) {
-                    multipart.addBodyPart(createAttachmentBodyPart(attachment.getName(), attachment.getDataSource()));
-                }
-
-                msg.setContent(multipart);
-            } else if (textBody != null) {
-                msg.setText(textBody.getBody(), CHARSET_UTF8);
-            } else if (htmlBody != null) {
-                msg.setContent(htmlBody.getBody(), HTML_MIME_TYPE);
-            }
-
-            String from = message.getFrom();
-            String fromDisplayName = message.getFromDisplayName();
-            msg.setFrom(toInternetAddress(from, fromDisplayName));
+            return sendRawEmail(recipient, createRawMessage(recipient, message));
+        } catch (Throwable e) {
+            throw translateException(e);
+        }
+    }
 
-            String replyTo = message.getReplyTo();
-            if (replyTo != null && !replyTo.isEmpty()) {
-                msg.setReplyTo(new Address[]{toInternetAddress(replyTo, message.getReplyToDisplayName())});
-            }
-            String envelopeFrom = message.getEnvelopeFrom();
-            if (envelopeFrom != null && !envelopeFrom.isEmpty()) {
-                msg.setEnvelopeFrom(envelopeFrom);
-            }
+    private RawMessage createRawMessage(EmailNotificationRecipient<?> recipient, EmailNotificationMessage message) throws MessagingException, IOException {
+        MimeMessage msg = new EncodedMimeMessage(session, mimeBodyCache.get(message));
 
-            msg.setHeader("To", recipient.getEmail());
-            msg.setSubject(message.getSubject().getSubject(), CHARSET_UTF8);
+        String from = message.getFrom();
+        String fromDisplayName = message.getFromDisplayName();
+        msg.setFrom(toInternetAddress(from, fromDisplayName));
 
-            // Build the raw message
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            msg.writeTo(outputStream);
-            RawMessage rawMessage = RawMessage.builder()
-                .data(SdkBytes.fromByteArray(outputStream.toByteArray()))
-                .build();
+        String replyTo = message.getReplyTo();
+        if (replyTo != null && !replyTo.isEmpty()) {
+            msg.setReplyTo(new Address[]{toInternetAddress(replyTo, message.getReplyToDisplayName())});
+        }
+        msg.setHeader("To", recipient.getEmail());
+        msg.setSubject(message.getSubject().getSubject(), CHARSET_UTF8);
+
+        // Build the raw message
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        msg.writeTo(outputStream);
+        return RawMessage.builder()
+            .data(SdkBytes.fromByteArray(outputStream.toByteArray()))
+            .build();
+    }
 
-            // Send the email.
-            SendRawEmailRequest rawEmailRequest = SendRawEmailRequest.builder()
-                .rawMessage(rawMessage)
-                .build();
-            SendRawEmailResponse result = client.sendRawEmail(rawEmailRequest);
+    private Object sendRawEmail(EmailNotificationRecipient<?> recipient, RawMessage rawMessage) {
+        // Send the email.
+        SendRawEmailRequest rawEmailRequest = SendRawEmailRequest.builder()
+            .rawMessage(rawMessage)
+            .build();
+        SendRawEmailResponse result = client.sendRawEmail(rawEmailRequest);
 
-            if (LOG.isLoggable(Level.FINEST)) {
-                LOG.log(Level.FINEST, "SES notification sent to " + recipient + " with message id: " + result.messageId());
-            }
-            return result.messageId();
-        } catch (SesException e) {
-            if ("Throttling".equals(e.awsErrorDetails().errorCode())) {
-                LOG.log(Level.FINE, "Rate limit exceeded", e);
-                // TODO: parse if daily or second rate limit and adapt wait time
-                throw new JobRateLimitException(e);
-            }
-            LOG.log(Level.SEVERE, "Failed to send email", e);
-            throw new NotificationException(e);
-        } catch (Throwable e) {
-            LOG.log(Level.SEVERE, "Failed to send email", e);
-            throw new NotificationException(e);
+        if (LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "SES notification sent to " + recipient + " with message id: " + result.messageId());
         }
+        return result.messageId();
     }
 
-    private MimeBodyPart createAttachmentBodyPart(String attachmentFilename, DataSource dataSource) throws MessagingException {
-        try {
-            MimeBodyPart mimeBodyPart = new MimeBodyPart();
-            mimeBodyPart.setDisposition(MimeBodyPart.ATTACHMENT);
-            mimeBodyPart.setFileName(MimeUtility.encodeText(attachmentFilename));
-            mimeBodyPart.setDataHandler(new DataHandler(dataSource));
-            return mimeBodyPart;
-        } catch (UnsupportedEncodingException ex) {
-            throw new MessagingException("Failed to encode attachment filename", ex);
+    private RuntimeException translateException(Throwable e) {
+        if (e instanceof SesException && "Throttling".equals(((SesException) e).awsErrorDetails().errorCode())) {
+            LOG.log(Level.FINE, "Rate limit exceeded", e);
+            String errorMessage = ((SesException) e).awsErrorDetails().errorMessage();
+            if (errorMessage != null && errorMessage.toLowerCase(Locale.ROOT).contains(DAILY_QUOTA_EXCEEDED_MESSAGE)) {
+                // Waiting for the sending rate won't help when the quota of the rolling 24 hour window is used up
+                return new JobRateLimitException(e, DAILY_QUOTA_BACKOFF_MILLIS);
+            }
+            if (rateLimiter != null) {
+                return new JobRateLimitException(e, rateLimiter.onThrottled());
+            }
+            return new JobRateLimitException(e);
         }
+        LOG.log(Level.SEVERE, "Failed to send email", e);
+        return new NotificationException(e);
     }
 
     private InternetAddress toInternetAddress(String email, String displayName) throws UnsupportedEncodingException, AddressException {
@@ -256,6 +257,10 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
         private final String accessKey;
         private final String secretKey;
         private final String region;
+        private final double rateLimitPermitsPerSecond;
+        private final int rateLimitBurst;
+        private final SesClient client;
+        private final int mimeBodyCacheSize;
 
         /**
          * Create a new config.
@@ -263,11 +268,19 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
          * @param accessKey The AWS SES access key
          * @param secretKey The AWS SES secret key
          * @param region    The AWS SES region
+         * @param rateLimitPermitsPerSecond The sustained rate of sends per second of the client side rate limiter or 0 if sends are not rate limited
+         * @param rateLimitBurst The maximum number of sends of the client side rate limiter after a pause or 0 to use the rate
+         * @param client The SES client to use instead of creating one from the credentials
+         * @param mimeBodyCacheSize The maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable
          */
-        Config(String accessKey, String secretKey, String region) {
+        Config(String accessKey, String secretKey, String region, double rateLimitPermitsPerSecond, int rateLimitBurst, SesClient client, int mimeBodyCacheSize) {
             this.accessKey = accessKey;
             this.secretKey = secretKey;
             this.region = region;
+            this.rateLimitPermitsPerSecond = rateLimitPermitsPerSecond;
+            this.rateLimitBurst = rateLimitBurst;
+            this.client = client;
+            this.mimeBodyCacheSize = mimeBodyCacheSize;
         }
 
         /**
@@ -297,6 +310,42 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
             return region;
         }
 
+        /**
+         * Returns the sustained rate of sends per second of the client side rate limiter or 0 if sends are not rate limited.
+         *
+         * @return the sustained rate of sends per second or 0
+         */
+        public double getRateLimitPermitsPerSecond() {
+            return rateLimitPermitsPerSecond;
+        }
+
+        /**
+         * Returns the maximum number of sends of the client side rate limiter after a pause or 0 to use the rate.
+         *
+         * @return the maximum number of sends after a pause or 0
+         */
+        public int getRateLimitBurst() {
+            return rateLimitBurst;
+        }
+
+        /**
+         * Returns the SES client to use instead of creating one from the credentials.
+         *
+         * @return the SES client to use instead of creating one from the credentials
+         */
+        public SesClient getClient() {
+            return client;
+        }
+
+        /**
+         * Returns the maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable.
+         *
+         * @return the maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable
+         */
+        public int getMimeBodyCacheSize() {
+            return mimeBodyCacheSize;
+        }
+
         /**
          * Returns a new configuration builder.
          *
@@ -316,6 +365,10 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
             private String accessKey;
             private String secretKey;
             private String region;
+            private double rateLimitPermitsPerSecond;
+            private int rateLimitBurst;
+            private SesClient client;
+            private int mimeBodyCacheSize = 64;
 
             /**
              * Returns the configuration.
@@ -323,7 +376,7 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
              * @return the configuration
              */
             public Config build() {
-                return new Config(accessKey, secretKey, region);
+                return new Config(accessKey, secretKey, region, rateLimitPermitsPerSecond, rateLimitBurst, client, mimeBodyCacheSize);
             }
 
             /**
@@ -358,6 +411,42 @@ public class SesChannel implements Channel<EmailNotificationRecipient<?>, EmailN
                 this.region = region;
                 return this;
             }
+
+            /**
+             * Sets the given rate limit for the client side rate limiter that every channel creates for itself.
+             *
+             * @param permitsPerSecond The sustained rate of sends per second or 0 to disable rate limiting
+             * @param burst The maximum number of sends after a pause or 0 to use the rate
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRateLimit(double permitsPerSecond, int burst) {
+                this.rateLimitPermitsPerSecond = permitsPerSecond;
+                this.rateLimitBurst = burst;
+                return this;
+            }
+
+            /**
+             * Sets the given SES client to use instead of creating one from the credentials.
+             * The channel does not close a given client.
+             *
+             * @param client The SES client to use instead of creating one from the credentials
+             * @return <code>this</code> for chaining
+             */
+            public Builder withClient(SesClient client) {
+                this.client = client;
+                return this;
+            }
+
+            /**
+             * Sets the given maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable.
+             *
+             * @param mimeBodyCacheSize The maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable
+             * @return <code>this</code> for chaining
+             */
+            public Builder withMimeBodyCacheSize(int mimeBodyCacheSize) {
+                this.mimeBodyCacheSize = mimeBodyCacheSize;
+                return this;
+            }
         }
     }
 }
@@ -21,6 +21,11 @@ import com.blazebit.notify.ChannelFactory;
 import com.blazebit.notify.ChannelKey;
 import com.blazebit.notify.NotificationJobContext;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A factory for AWS SES channels.
  *
@@ -30,11 +35,25 @@ import com.blazebit.notify.NotificationJobContext;
 @ServiceProvider(ChannelFactory.class)
 public class SesChannelFactory implements ChannelFactory<SesChannel> {
 
+    private static final Set<String> CONFIGURATION_PROPERTY_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        SesChannel.SES_ACCESS_KEY_PROPERTY,
+        SesChannel.SES_SECRET_KEY_PROPERTY,
+        SesChannel.SES_REGION_PROPERTY,
+        SesChannel.SES_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY,
+        SesChannel.SES_RATE_LIMIT_BURST_PROPERTY,
+        SesChannel.SES_MIME_BODY_CACHE_SIZE_PROPERTY
+    )));
+
     @Override
     public ChannelKey<SesChannel> getChannelType() {
         return SesChannel.KEY;
     }
 
+    @Override
+    public Set<String> getConfigurationPropertyKeys() {
+        return CONFIGURATION_PROPERTY_KEYS;
+    }
+
     @Override
     public SesChannel createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
         return new SesChannel(configurationSource);
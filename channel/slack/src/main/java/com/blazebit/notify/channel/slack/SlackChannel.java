@@ -17,12 +17,12 @@ package com.blazebit.notify.channel.slack;
 
 import com.blazebit.job.ConfigurationSource;
 import com.blazebit.job.JobRateLimitException;
-import com.blazebit.notify.Channel;
+import com.blazebit.notify.AsyncChannel;
 import com.blazebit.notify.ChannelKey;
 import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.NotificationMessage;
+import com.blazebit.notify.RateLimiter;
 import com.blazebit.notify.email.message.EmailNotificationRecipient;
-import com.hubspot.algebra.Result;
 import com.hubspot.slack.client.SlackClient;
 import com.hubspot.slack.client.SlackClientFactory;
 import com.hubspot.slack.client.SlackClientRuntimeConfig;
@@ -33,7 +33,8 @@ import com.hubspot.slack.client.models.response.SlackErrorType;
 import com.hubspot.slack.client.models.response.chat.ChatPostMessageResponse;
 
 import java.io.IOException;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -53,7 +54,7 @@ import java.util.logging.Logger;
  * @author Christian Beikov
  * @since 1.0.0
  */
-public class SlackChannel implements Channel<EmailNotificationRecipient<?>, NotificationMessage> {
+public class SlackChannel implements AsyncChannel<EmailNotificationRecipient<?>, NotificationMessage> {
 
     /**
      * The key for which the channel is registered.
@@ -68,11 +69,20 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
      * The configuration property for the slack sender name.
      */
     public static final String SLACK_SENDER_NAME_PROPERTY = "channel.slack.sender_name";
+    /**
+     * The configuration property for the sustained number of messages per second the channel may send.
+     */
+    public static final String SLACK_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY = "channel.slack.rate_limit.permits_per_second";
+    /**
+     * The configuration property for the number of messages the channel may send in a burst, defaults to the permits per second.
+     */
+    public static final String SLACK_RATE_LIMIT_BURST_PROPERTY = "channel.slack.rate_limit.burst";
 
     private static final Logger LOG = Logger.getLogger(SlackChannel.class.getName());
 
     private final SlackClient slackClient;
     private final String senderName;
+    private final RateLimiter rateLimiter;
 
     /**
      * Creates a new slack channel from the given configuration source.
@@ -99,13 +109,15 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
                 .build()
         );
         this.senderName = config.senderName;
+        this.rateLimiter = RateLimiter.of(config.rateLimitPermitsPerSecond, config.rateLimitBurst);
         LOG.log(Level.FINEST, "Slack channel opened");
     }
 
     private static Config fromConfigurationSource(ConfigurationSource configurationSource) {
         Config.Builder builder = Config.builder()
             .withToken(configurationSource.getPropertyOrFail(SLACK_TOKEN_PROPERTY, String.class, Function.identity()))
-            .withSenderName(configurationSource.getPropertyOrFail(SLACK_SENDER_NAME_PROPERTY, String.class, Function.identity()));
+            .withSenderName(configurationSource.getPropertyOrFail(SLACK_SENDER_NAME_PROPERTY, String.class, Function.identity()))
+            .withRateLimit(RateLimiter.getPermitsPerSecond(configurationSource, SLACK_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY), RateLimiter.getBurst(configurationSource, SLACK_RATE_LIMIT_BURST_PROPERTY));
 
         return builder.build();
     }
@@ -125,36 +137,58 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
     }
 
     @Override
-    public Object sendNotificationMessage(EmailNotificationRecipient<?> recipient, NotificationMessage message) {
-        try {
-            String targetUserId = slackClient.lookupUserByEmail(UserEmailParams.builder().setEmail(recipient.getEmail()).build())
-                .get()
-                .unwrapOrElseThrow()
-                .getUser()
-                .getId();
-
-            String text = message.toString();
-            ChatPostMessageParams chatPostMessageParams = ChatPostMessageParams.builder()
-                .setUsername(senderName)
-                .setText(text)
-                .setChannelId(targetUserId)
-                .build();
-            CompletableFuture<Result<ChatPostMessageResponse, SlackError>> resultCompletableFuture = slackClient.postMessage(chatPostMessageParams);
-            Result<ChatPostMessageResponse, SlackError> result = resultCompletableFuture.get();
-            ChatPostMessageResponse chatPostMessageResponse = result.unwrapOrElseThrow(error -> {
-                if (error.getType() == SlackErrorType.RATE_LIMITED) {
-                    return new JobRateLimitException(error.getError());
-                } else {
-                    return new NotificationException("Couldn't send Slack notification: " + error.getError());
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    @Override
+    public CompletionStage<Object> sendNotificationMessageAsync(EmailNotificationRecipient<?> recipient, NotificationMessage message) {
+        String text = message.toString();
+        return slackClient.lookupUserByEmail(UserEmailParams.builder().setEmail(recipient.getEmail()).build())
+            .thenCompose(lookupResult -> {
+                String targetUserId = lookupResult.unwrapOrElseThrow(this::translateError)
+                    .getUser()
+                    .getId();
+                ChatPostMessageParams chatPostMessageParams = ChatPostMessageParams.builder()
+                    .setUsername(senderName)
+                    .setText(text)
+                    .setChannelId(targetUserId)
+                    .build();
+                return slackClient.postMessage(chatPostMessageParams);
+            })
+            .handle((result, throwable) -> {
+                if (throwable != null) {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                    if (cause instanceof JobRateLimitException) {
+                        // Rate limit responses are expected, the notification is deferred
+                        LOG.log(Level.FINE, "Rate limit exceeded", cause);
+                        throw (JobRateLimitException) cause;
+                    }
+                    LOG.log(Level.SEVERE, "Failed to send Slack notification", cause);
+                    if (cause instanceof NotificationException) {
+                        throw (NotificationException) cause;
+                    }
+                    throw new NotificationException(cause);
+                }
+                ChatPostMessageResponse chatPostMessageResponse = result.unwrapOrElseThrow(this::translateError);
+                if (!chatPostMessageResponse.isOk()) {
+                    NotificationException ex = new NotificationException("Couldn't send Slack notification: " + chatPostMessageResponse.getMessage());
+                    LOG.log(Level.SEVERE, "Failed to send Slack notification", ex);
+                    throw ex;
                 }
+                return null;
             });
-            if (!chatPostMessageResponse.isOk()) {
-                throw new NotificationException("Couldn't send Slack notification: " + chatPostMessageResponse.getMessage());
+    }
+
+    private RuntimeException translateError(SlackError error) {
+        if (error.getType() == SlackErrorType.RATE_LIMITED) {
+            // The Slack error doesn't expose the Retry-After header, so wait until the rate limiter has a full burst again
+            if (rateLimiter != null) {
+                return new JobRateLimitException(error.getError(), rateLimiter.onThrottled());
             }
-            return null;
-        } catch (Throwable e) {
-            LOG.log(Level.SEVERE, "Failed to send Slack notification", e);
-            throw new NotificationException(e);
+            return new JobRateLimitException(error.getError());
+        } else {
+            return new NotificationException("Couldn't send Slack notification: " + error.getError());
         }
     }
 
@@ -167,16 +201,22 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
     public static class Config {
         private final String token;
         private final String senderName;
+        private final double rateLimitPermitsPerSecond;
+        private final int rateLimitBurst;
 
         /**
          * Create a new config.
          *
          * @param token      The slack token
          * @param senderName The sender name
+         * @param rateLimitPermitsPerSecond The sustained rate of sends per second of the client side rate limiter or 0 if sends are not rate limited
+         * @param rateLimitBurst The maximum number of sends of the client side rate limiter after a pause or 0 to use the rate
          */
-        Config(String token, String senderName) {
+        Config(String token, String senderName, double rateLimitPermitsPerSecond, int rateLimitBurst) {
             this.token = token;
             this.senderName = senderName;
+            this.rateLimitPermitsPerSecond = rateLimitPermitsPerSecond;
+            this.rateLimitBurst = rateLimitBurst;
         }
 
         /**
@@ -197,6 +237,24 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
             return senderName;
         }
 
+        /**
+         * Returns the sustained rate of sends per second of the client side rate limiter or 0 if sends are not rate limited.
+         *
+         * @return the sustained rate of sends per second or 0
+         */
+        public double getRateLimitPermitsPerSecond() {
+            return rateLimitPermitsPerSecond;
+        }
+
+        /**
+         * Returns the maximum number of sends of the client side rate limiter after a pause or 0 to use the rate.
+         *
+         * @return the maximum number of sends after a pause or 0
+         */
+        public int getRateLimitBurst() {
+            return rateLimitBurst;
+        }
+
         /**
          * Returns a new configuration builder.
          *
@@ -215,6 +273,8 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
         public static class Builder {
             private String token;
             private String senderName;
+            private double rateLimitPermitsPerSecond;
+            private int rateLimitBurst;
 
             /**
              * Returns the configuration.
@@ -222,7 +282,7 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
              * @return the configuration
              */
             public Config build() {
-                return new Config(token, senderName);
+                return new Config(token, senderName, rateLimitPermitsPerSecond, rateLimitBurst);
             }
 
             /**
@@ -246,6 +306,19 @@ public class SlackChannel implements Channel<EmailNotificationRecipient<?>, Noti
                 this.senderName = senderName;
                 return this;
             }
+
+            /**
+             * Sets the given rate limit for the client side rate limiter that every channel creates for itself.
+             *
+             * @param permitsPerSecond The sustained rate of sends per second or 0 to disable rate limiting
+             * @param burst The maximum number of sends after a pause or 0 to use the rate
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRateLimit(double permitsPerSecond, int burst) {
+                this.rateLimitPermitsPerSecond = permitsPerSecond;
+                this.rateLimitBurst = burst;
+                return this;
+            }
         }
     }
 }
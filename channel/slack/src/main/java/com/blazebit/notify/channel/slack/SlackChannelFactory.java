@@ -21,6 +21,11 @@ import com.blazebit.notify.ChannelFactory;
 import com.blazebit.notify.ChannelKey;
 import com.blazebit.notify.NotificationJobContext;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A factory for Slack Webhook channels.
  *
@@ -30,11 +35,23 @@ import com.blazebit.notify.NotificationJobContext;
 @ServiceProvider(ChannelFactory.class)
 public class SlackChannelFactory implements ChannelFactory<SlackChannel> {
 
+    private static final Set<String> CONFIGURATION_PROPERTY_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        SlackChannel.SLACK_TOKEN_PROPERTY,
+        SlackChannel.SLACK_SENDER_NAME_PROPERTY,
+        SlackChannel.SLACK_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY,
+        SlackChannel.SLACK_RATE_LIMIT_BURST_PROPERTY
+    )));
+
     @Override
     public ChannelKey<SlackChannel> getChannelType() {
         return SlackChannel.KEY;
     }
 
+    @Override
+    public Set<String> getConfigurationPropertyKeys() {
+        return CONFIGURATION_PROPERTY_KEYS;
+    }
+
     @Override
     public SlackChannel createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
         return new SlackChannel(configurationSource);
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.channel.smtp;
+
+import java.util.List;
+
+/**
+ * Statistics that sum up the statistics of the connection pools of multiple relays.
+ * The counts are read from the pools on every call, so they reflect the current state of the pools.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class AggregateSmtpConnectionPoolStatistics implements SmtpConnectionPoolStatistics {
+
+    private final SmtpConnectionPoolStatistics[] statistics;
+
+    private AggregateSmtpConnectionPoolStatistics(List<? extends SmtpConnectionPoolStatistics> statistics) {
+        this.statistics = statistics.toArray(new SmtpConnectionPoolStatistics[0]);
+    }
+
+    /**
+     * Returns statistics that sum up the given statistics.
+     *
+     * @param statistics The statistics to sum up
+     * @return the aggregated statistics
+     */
+    static SmtpConnectionPoolStatistics of(List<? extends SmtpConnectionPoolStatistics> statistics) {
+        if (statistics.size() == 1) {
+            return statistics.get(0);
+        }
+        return new AggregateSmtpConnectionPoolStatistics(statistics);
+    }
+
+    @Override
+    public int getActiveCount() {
+        int count = 0;
+        for (SmtpConnectionPoolStatistics s : statistics) {
+            count += s.getActiveCount();
+        }
+        return count;
+    }
+
+    @Override
+    public int getIdleCount() {
+        int count = 0;
+        for (SmtpConnectionPoolStatistics s : statistics) {
+            count += s.getIdleCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getCreatedCount() {
+        long count = 0;
+        for (SmtpConnectionPoolStatistics s : statistics) {
+            count += s.getCreatedCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getClosedCount() {
+        long count = 0;
+        for (SmtpConnectionPoolStatistics s : statistics) {
+            count += s.getClosedCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getAcquireTimeoutCount() {
+        long count = 0;
+        for (SmtpConnectionPoolStatistics s : statistics) {
+            count += s.getAcquireTimeoutCount();
+        }
+        return count;
+    }
+}
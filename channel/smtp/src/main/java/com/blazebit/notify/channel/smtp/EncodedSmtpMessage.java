@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.channel.smtp;
+
+import com.blazebit.notify.email.message.EncodedMimeBody;
+import jakarta.activation.DataHandler;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import org.eclipse.angus.mail.smtp.SMTPMessage;
+
+/**
+ * An SMTP message with a pre-encoded {@link EncodedMimeBody}, so that sending the message only writes the headers and copies the encoded body.
+ * Setting new content, e.g. in a {@link SmtpChannelFilter}, replaces the encoded body.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class EncodedSmtpMessage extends SMTPMessage {
+
+    private final EncodedMimeBody body;
+    private boolean contentReplaced;
+
+    /**
+     * Creates a new message with the given body.
+     *
+     * @param session The session
+     * @param body    The encoded body
+     * @throws MessagingException if adding the content headers fails
+     */
+    EncodedSmtpMessage(Session session, EncodedMimeBody body) throws MessagingException {
+        super(session);
+        this.body = body;
+        body.addContentHeaders(this);
+    }
+
+    @Override
+    public void setDataHandler(DataHandler dh) throws MessagingException {
+        contentReplaced = true;
+        super.setDataHandler(dh);
+    }
+
+    @Override
+    protected void updateHeaders() throws MessagingException {
+        if (contentReplaced) {
+            super.updateHeaders();
+            return;
+        }
+        // The content headers are part of the encoded body, so only update the message headers
+        setHeader("MIME-Version", "1.0");
+        if (getHeader("Date") == null) {
+            setSentDate(new Date());
+        }
+        updateMessageID();
+    }
+
+    @Override
+    protected InputStream getContentStream() throws MessagingException {
+        if (contentReplaced) {
+            return super.getContentStream();
+        }
+        return body.getContentStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream os, String[] ignoreList) throws IOException, MessagingException {
+        if (contentReplaced) {
+            super.writeTo(os, ignoreList);
+            return;
+        }
+        if (!saved) {
+            saveChanges();
+        }
+        body.writeTo(this, os, ignoreList);
+    }
+}
@@ -15,46 +15,55 @@
  */
 package com.blazebit.notify.channel.smtp;
 
-import com.blazebit.exception.ExceptionUtils;
 import com.blazebit.job.ConfigurationSource;
 import com.blazebit.job.JobRateLimitException;
 import com.blazebit.job.JobTemporaryException;
+import com.blazebit.job.ServiceProvider;
+import com.blazebit.notify.AdaptiveConcurrencyLimiter;
+import com.blazebit.notify.BatchChannel;
 import com.blazebit.notify.Channel;
 import com.blazebit.notify.ChannelKey;
 import com.blazebit.notify.NotificationException;
-import com.blazebit.notify.email.message.Attachment;
-import com.blazebit.notify.email.message.EmailBody;
+import com.blazebit.notify.NotificationMetrics;
+import com.blazebit.notify.RateLimiter;
+import com.blazebit.notify.Warmable;
 import com.blazebit.notify.email.message.EmailNotificationMessage;
 import com.blazebit.notify.email.message.EmailNotificationRecipient;
+import com.blazebit.notify.email.message.EncodedMimeBodyCache;
 import com.blazebit.notify.security.HostnameVerificationPolicy;
 import com.blazebit.notify.security.JSSETruststoreConfigurator;
 import com.blazebit.notify.security.TruststoreProvider;
 import com.blazebit.notify.security.TruststoreProviderFactory;
 
-import jakarta.activation.DataHandler;
-import jakarta.activation.DataSource;
 import jakarta.mail.Address;
 import jakarta.mail.MessagingException;
-import jakarta.mail.Multipart;
-import jakarta.mail.NoSuchProviderException;
 import jakarta.mail.SendFailedException;
 import jakarta.mail.Session;
 import jakarta.mail.Transport;
 import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeBodyPart;
-import jakarta.mail.internet.MimeMultipart;
-import jakarta.mail.internet.MimeUtility;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.UnsupportedEncodingException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
 import org.eclipse.angus.mail.smtp.SMTPMessage;
 import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
 import org.eclipse.angus.mail.smtp.SMTPTransport;
@@ -65,7 +74,7 @@ import org.eclipse.angus.mail.smtp.SMTPTransport;
  * @author Christian Beikov
  * @since 1.0.0
  */
-public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, EmailNotificationMessage> {
+public class SmtpChannel implements BatchChannel<EmailNotificationRecipient<?>, EmailNotificationMessage>, Warmable {
 
     /**
      * The key for which the channel is registered.
@@ -82,15 +91,53 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
     public static final String SMTP_ENABLE_STARTTLS_PROPERTY = "channel.smtp.enable_starttls";
     public static final String SMTP_NODE_NAME_PROPERTY = "channel.smtp.node_name";
     public static final String SMTP_FILTER_PROPERTY = "channel.smtp.filter";
+    public static final String SMTP_CONNECTION_POOL_SIZE_PROPERTY = "channel.smtp.connection_pool_size";
+    public static final String SMTP_CONNECTION_POOL_MIN_SIZE_PROPERTY = "channel.smtp.connection_pool_min_size";
+    public static final String SMTP_CONNECTION_ACQUIRE_TIMEOUT_PROPERTY = "channel.smtp.connection_acquire_timeout";
+    public static final String SMTP_CONNECTION_MAX_IDLE_TIME_PROPERTY = "channel.smtp.connection_max_idle_time";
+    public static final String SMTP_CONNECTION_MAX_LIFETIME_PROPERTY = "channel.smtp.connection_max_lifetime";
+    public static final String SMTP_CONNECTION_VALIDATION_INTERVAL_PROPERTY = "channel.smtp.connection_validation_interval";
+    public static final String SMTP_ENVELOPE_BATCH_SIZE_PROPERTY = "channel.smtp.envelope_batch_size";
+    public static final String SMTP_MIME_BODY_CACHE_SIZE_PROPERTY = "channel.smtp.mime_body_cache_size";
+    public static final String SMTP_ADAPTIVE_CONCURRENCY_PROPERTY = "channel.smtp.adaptive_concurrency";
+    public static final String SMTP_ADAPTIVE_CONCURRENCY_MIN_LIMIT_PROPERTY = "channel.smtp.adaptive_concurrency.min_limit";
+    public static final String SMTP_ADAPTIVE_CONCURRENCY_MAX_LATENCY_PROPERTY = "channel.smtp.adaptive_concurrency.max_latency";
+    public static final String SMTP_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY = "channel.smtp.rate_limit.permits_per_second";
+    public static final String SMTP_RATE_LIMIT_BURST_PROPERTY = "channel.smtp.rate_limit.burst";
+    /**
+     * The configuration property for the routes of recipient domains to dedicated relays in the format
+     * <code>domain[,domain]*=host[:port[:connection_pool_size]][;...]</code> e.g. <code>gmail.com,*.google.com=relay1:587:4;yahoo.com=relay2</code>.
+     * Other settings of a route are the same as for the default relay given by {@link #SMTP_HOST_PROPERTY} and {@link #SMTP_PORT_PROPERTY}.
+     */
+    public static final String SMTP_ROUTES_PROPERTY = "channel.smtp.routes";
+    /**
+     * The configuration property for the weight of the relay given by {@link #SMTP_HOST_PROPERTY} and {@link #SMTP_PORT_PROPERTY} relative to the {@link #SMTP_RELAYS_PROPERTY}.
+     */
+    public static final String SMTP_WEIGHT_PROPERTY = "channel.smtp.weight";
+    /**
+     * The configuration property for additional relays that share the messages of the default route in the format
+     * <code>host[:port[:weight]][,...]</code> e.g. <code>relay2:587:2,relay3</code>.
+     * Other settings of a relay are the same as for the relay given by {@link #SMTP_HOST_PROPERTY} and {@link #SMTP_PORT_PROPERTY}.
+     */
+    public static final String SMTP_RELAYS_PROPERTY = "channel.smtp.relays";
+    public static final String SMTP_RELAY_FAILURE_THRESHOLD_PROPERTY = "channel.smtp.relay_failure_threshold";
+    public static final String SMTP_RELAY_EJECTION_TIME_PROPERTY = "channel.smtp.relay_ejection_time";
 
     private static final Logger LOG = Logger.getLogger(SmtpChannel.class.getName());
 
     private static final String CHARSET_UTF8 = "UTF-8";
-    private static final String HTML_MIME_TYPE = "text/html; charset=" + CHARSET_UTF8;
+    private static final String UNDISCLOSED_RECIPIENTS = "undisclosed-recipients:;";
+    // The throttling response when the sending quota of the rolling 24 hour window is used up, as opposed to the sending rate
+    private static final String DAILY_QUOTA_EXCEEDED_MESSAGE = "daily message quota exceeded";
+    private static final long DAILY_QUOTA_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(1);
 
     private final Config config;
-    private final Session session;
-    private final BlockingQueue<Transport> transports;
+    private final RateLimiter rateLimiter;
+    private final SmtpRelayGroup defaultRelayGroup;
+    private final List<SmtpRelay> relays;
+    private final Map<String, SmtpRelayGroup> domainRelayGroups;
+    private final SmtpConnectionPoolStatistics connectionPoolStatistics;
+    private final EncodedMimeBodyCache mimeBodyCache;
 
     /**
      * Creates a new SMTP channel from the given configuration source.
@@ -108,53 +155,177 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
      */
     public SmtpChannel(Config config) {
         this.config = config;
+        this.rateLimiter = RateLimiter.of(config.rateLimitPermitsPerSecond, config.rateLimitBurst);
+        List<SmtpRelay> relays = new ArrayList<>();
+        Map<String, SmtpRelayGroup> domainRelayGroups = new HashMap<>();
+        this.defaultRelayGroup = createRelayGroup(config, relays);
+        for (SmtpRoute route : config.routes) {
+            SmtpRelayGroup relayGroup = createRelayGroup(route.getConfig(), relays);
+            for (String domainPattern : route.getDomainPatterns()) {
+                if (domainRelayGroups.put(domainPattern, relayGroup) != null) {
+                    throw new IllegalArgumentException("Duplicate SMTP route for domain pattern: " + domainPattern);
+                }
+            }
+        }
+        this.relays = Collections.unmodifiableList(relays);
+        List<SmtpConnectionPoolStatistics> statistics = new ArrayList<>(relays.size());
+        for (SmtpRelay relay : relays) {
+            statistics.add(relay.getConnectionPool());
+        }
+        this.connectionPoolStatistics = AggregateSmtpConnectionPoolStatistics.of(statistics);
+        this.domainRelayGroups = domainRelayGroups;
+        this.mimeBodyCache = new EncodedMimeBodyCache(config.mimeBodyCacheSize);
+    }
+
+    private SmtpRelayGroup createRelayGroup(Config relayConfig, List<SmtpRelay> relays) {
+        // The default relay group is created first
+        boolean defaultRelayGroup = relays.isEmpty();
+        List<SmtpRelay> groupRelays = new ArrayList<>(relayConfig.relays.size() + 1);
+        groupRelays.add(createRelay(relayConfig));
+        for (Config additionalRelayConfig : relayConfig.relays) {
+            groupRelays.add(createRelay(additionalRelayConfig));
+        }
+        relays.addAll(groupRelays);
+        return new SmtpRelayGroup(groupRelays, config.relayFailureThreshold, config.relayEjectionTime, createConcurrencyLimiter(relayConfig, groupRelays, defaultRelayGroup));
+    }
 
+    private AdaptiveConcurrencyLimiter createConcurrencyLimiter(Config relayConfig, List<SmtpRelay> groupRelays, boolean defaultRelayGroup) {
+        if (!config.adaptiveConcurrency) {
+            return null;
+        }
+        int connectionPoolSize = 0;
+        for (SmtpRelay relay : groupRelays) {
+            connectionPoolSize += relay.getConfig().connectionPoolSize;
+        }
+        int minConcurrency = Math.min(config.minConcurrency, connectionPoolSize);
+        // Start in the middle of the range so the limit can move in both directions
+        int initialLimit = Math.max(minConcurrency, connectionPoolSize / 2);
+        // The limit gauge is reported per channel type, so only the limit of the default relays is reported
+        NotificationMetrics metrics = defaultRelayGroup ? config.metrics : NotificationMetrics.noop();
+        return new AdaptiveConcurrencyLimiter(minConcurrency, connectionPoolSize, initialLimit, AdaptiveConcurrencyLimiter.DEFAULT_BACKOFF_RATIO, config.maxSendLatency,
+            relayConfig.connectionAcquireTimeout, metrics, KEY.getChannelType());
+    }
+
+    private SmtpRelay createRelay(Config relayConfig) {
+        Session session = createSession(relayConfig);
+        return new SmtpRelay(relayConfig, session, new SmtpConnectionPool(session, relayConfig, config.metrics, KEY.getChannelType()));
+    }
+
+    private Session createSession(Config relayConfig) {
         Properties props = new Properties();
 
-        if (config.host != null) {
-            props.setProperty("mail.smtp.host", config.host);
+        if (relayConfig.host != null) {
+            props.setProperty("mail.smtp.host", relayConfig.host);
         }
 
-        if (config.port != null) {
-            props.setProperty("mail.smtp.port", config.port.toString());
+        if (relayConfig.port != null) {
+            props.setProperty("mail.smtp.port", relayConfig.port.toString());
         }
 
-        if (config.auth) {
+        if (relayConfig.auth) {
             props.setProperty("mail.smtp.auth", "true");
         }
 
-        if (config.enableSsl) {
+        if (relayConfig.enableSsl) {
             props.setProperty("mail.smtp.ssl.enable", "true");
         }
 
-        if (config.enableStartTls) {
+        if (relayConfig.enableStartTls) {
             props.setProperty("mail.smtp.starttls.enable", "true");
         }
 
-        if (config.enableSsl || config.enableStartTls) {
+        if (relayConfig.enableSsl || relayConfig.enableStartTls) {
             setupTruststore(props);
         }
 
-        props.setProperty("mail.smtp.timeout", Long.toString(config.timeout));
-        props.setProperty("mail.smtp.connectiontimeout", Long.toString(config.connectionTimeout));
+        props.setProperty("mail.smtp.timeout", Long.toString(relayConfig.timeout));
+        props.setProperty("mail.smtp.connectiontimeout", Long.toString(relayConfig.connectionTimeout));
 
-        if (config.nodeName != null) {
-            props.setProperty("mail.from", config.nodeName);
+        if (config.envelopeBatchSize > 1) {
+            // Deliver to the accepted recipients of an envelope even if some recipients are rejected
+            props.setProperty("mail.smtp.sendpartial", "true");
         }
 
-        session = Session.getInstance(props);
-        transports = new ArrayBlockingQueue<>(config.connectionPoolSize);
-        for (int i = 0; i < config.connectionPoolSize; i++) {
-            try {
-                transports.add(session.getTransport("smtp"));
-            } catch (NoSuchProviderException e) {
-                throw new RuntimeException(e);
-            }
+        if (relayConfig.nodeName != null) {
+            props.setProperty("mail.from", relayConfig.nodeName);
+        }
+
+        if (relayConfig.sessionProperties != null) {
+            props.putAll(relayConfig.sessionProperties);
         }
-        LOG.log(Level.FINEST, "SMTP transport opened");
+
+        return Session.getInstance(props);
     }
 
     private static Config fromConfigurationSource(ConfigurationSource configurationSource) {
+        Config.Builder builder = createBuilder(configurationSource)
+            .withWeight(configurationSource.getPropertyOrDefault(SMTP_WEIGHT_PROPERTY, Integer.class, Integer::valueOf, o -> 1))
+            .withRelayFailureThreshold(configurationSource.getPropertyOrDefault(SMTP_RELAY_FAILURE_THRESHOLD_PROPERTY, Integer.class, Integer::valueOf, o -> 3))
+            .withRelayEjectionTime(configurationSource.getPropertyOrDefault(SMTP_RELAY_EJECTION_TIME_PROPERTY, Long.class, Long::valueOf, o -> 30000L));
+        String relays = configurationSource.getPropertyOrDefault(SMTP_RELAYS_PROPERTY, String.class, Function.identity(), o -> null);
+        if (relays != null) {
+            for (String relay : relays.split(",")) {
+                if (!relay.trim().isEmpty()) {
+                    builder.withRelay(parseRelay(configurationSource, relay));
+                }
+            }
+        }
+        String routes = configurationSource.getPropertyOrDefault(SMTP_ROUTES_PROPERTY, String.class, Function.identity(), o -> null);
+        if (routes != null) {
+            for (String route : routes.split(";")) {
+                if (!route.trim().isEmpty()) {
+                    builder.withRoute(parseRoute(configurationSource, route));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static SmtpRoute parseRoute(ConfigurationSource configurationSource, String route) {
+        int separatorIndex = route.indexOf('=');
+        if (separatorIndex == -1) {
+            throw new IllegalArgumentException("Invalid SMTP route, expected domain[,domain]*=host[:port[:connection_pool_size]] but got: " + route);
+        }
+        String[] relay = route.substring(separatorIndex + 1).trim().split(":");
+        Config.Builder builder = createBuilder(configurationSource)
+            .withHost(relay[0]);
+        try {
+            if (relay.length > 1) {
+                builder.withPort(Integer.valueOf(relay[1]));
+            }
+            if (relay.length > 2) {
+                builder.withConnectionPoolSize(Integer.parseInt(relay[2]));
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid SMTP route, expected domain[,domain]*=host[:port[:connection_pool_size]] but got: " + route, ex);
+        }
+        if (relay[0].isEmpty() || relay.length > 3) {
+            throw new IllegalArgumentException("Invalid SMTP route, expected domain[,domain]*=host[:port[:connection_pool_size]] but got: " + route);
+        }
+        return new SmtpRoute(Arrays.asList(route.substring(0, separatorIndex).split(",")), builder.build());
+    }
+
+    private static Config parseRelay(ConfigurationSource configurationSource, String relay) {
+        String[] parts = relay.trim().split(":");
+        Config.Builder builder = createBuilder(configurationSource)
+            .withHost(parts[0]);
+        try {
+            if (parts.length > 1) {
+                builder.withPort(Integer.valueOf(parts[1]));
+            }
+            if (parts.length > 2) {
+                builder.withWeight(Integer.parseInt(parts[2]));
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid SMTP relay, expected host[:port[:weight]] but got: " + relay, ex);
+        }
+        if (parts[0].isEmpty() || parts.length > 3) {
+            throw new IllegalArgumentException("Invalid SMTP relay, expected host[:port[:weight]] but got: " + relay);
+        }
+        return builder.build();
+    }
+
+    private static Config.Builder createBuilder(ConfigurationSource configurationSource) {
         Config.Builder builder = Config.builder()
             .withHost(configurationSource.getPropertyOrFail(SMTP_HOST_PROPERTY, String.class, Function.identity()))
             .withPort(configurationSource.getPropertyOrFail(SMTP_PORT_PROPERTY, Integer.class, Integer::valueOf))
@@ -163,7 +334,27 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
             .withEnableSsl(configurationSource.getPropertyOrDefault(SMTP_ENABLE_SSL_PROPERTY, Boolean.class, Boolean::valueOf, o -> false))
             .withEnableStartTls(configurationSource.getPropertyOrDefault(SMTP_ENABLE_STARTTLS_PROPERTY, Boolean.class, Boolean::valueOf, o -> false))
             .withNodeName(configurationSource.getPropertyOrDefault(SMTP_NODE_NAME_PROPERTY, String.class, Function.identity(), o -> null))
-            .withFilter(configurationSource.getPropertyOrDefault(SMTP_FILTER_PROPERTY, SmtpChannelFilter.class, null, o -> null));
+            .withFilter(configurationSource.getPropertyOrDefault(SMTP_FILTER_PROPERTY, SmtpChannelFilter.class, null, o -> null))
+            .withConnectionPoolSize(configurationSource.getPropertyOrDefault(SMTP_CONNECTION_POOL_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> 1))
+            .withConnectionPoolMinSize(configurationSource.getPropertyOrDefault(SMTP_CONNECTION_POOL_MIN_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> 0))
+            .withConnectionAcquireTimeout(configurationSource.getPropertyOrDefault(SMTP_CONNECTION_ACQUIRE_TIMEOUT_PROPERTY, Long.class, Long::valueOf, o -> 30000L))
+            .withConnectionMaxIdleTime(configurationSource.getPropertyOrDefault(SMTP_CONNECTION_MAX_IDLE_TIME_PROPERTY, Long.class, Long::valueOf, o -> 60000L))
+            .withConnectionMaxLifetime(configurationSource.getPropertyOrDefault(SMTP_CONNECTION_MAX_LIFETIME_PROPERTY, Long.class, Long::valueOf, o -> 1800000L))
+            .withConnectionValidationInterval(configurationSource.getPropertyOrDefault(SMTP_CONNECTION_VALIDATION_INTERVAL_PROPERTY, Long.class, Long::valueOf, o -> 1000L))
+            .withEnvelopeBatchSize(configurationSource.getPropertyOrDefault(SMTP_ENVELOPE_BATCH_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> 1))
+            .withMimeBodyCacheSize(configurationSource.getPropertyOrDefault(SMTP_MIME_BODY_CACHE_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> 64))
+            .withAdaptiveConcurrency(configurationSource.getPropertyOrDefault(SMTP_ADAPTIVE_CONCURRENCY_PROPERTY, Boolean.class, Boolean::valueOf, o -> false))
+            .withMinConcurrency(configurationSource.getPropertyOrDefault(SMTP_ADAPTIVE_CONCURRENCY_MIN_LIMIT_PROPERTY, Integer.class, Integer::valueOf, o -> 1))
+            .withMaxSendLatency(configurationSource.getPropertyOrDefault(SMTP_ADAPTIVE_CONCURRENCY_MAX_LATENCY_PROPERTY, Long.class, Long::valueOf, o -> 0L))
+            .withRateLimit(RateLimiter.getPermitsPerSecond(configurationSource, SMTP_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY), RateLimiter.getBurst(configurationSource, SMTP_RATE_LIMIT_BURST_PROPERTY));
+
+        Object serviceProvider = configurationSource.getProperty(Channel.SERVICE_PROVIDER_PROPERTY);
+        if (serviceProvider instanceof ServiceProvider) {
+            NotificationMetrics metrics = ((ServiceProvider) serviceProvider).getService(NotificationMetrics.class);
+            if (metrics != null) {
+                builder.withMetrics(metrics);
+            }
+        }
 
         String user = configurationSource.getPropertyOrDefault(SMTP_USER_PROPERTY, String.class, Function.identity(), o -> null);
         String password = configurationSource.getPropertyOrDefault(SMTP_PASSWORD_PROPERTY, String.class, Function.identity(), o -> null);
@@ -174,148 +365,463 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
 
         // TODO: trust store config?
 
-        return builder.build();
+        return builder;
     }
 
     @Override
     public void close() {
-        Throwable firstThrowable = null;
-        for (Transport transport : transports) {
-            try {
-                transport.close();
-            } catch (MessagingException e) {
-                LOG.log(Level.WARNING, "Failed to close transport", e);
-            } catch (Throwable t) {
-                firstThrowable = firstThrowable == null ? t : firstThrowable;
-            }
+        for (SmtpRelay relay : relays) {
+            relay.getConnectionPool().close();
         }
         LOG.log(Level.FINEST, "SMTP transport closed");
-        if (firstThrowable != null) {
-            ExceptionUtils.doThrow(firstThrowable);
+    }
+
+    @Override
+    public void warmUp(Collection<Locale> locales) {
+        for (SmtpRelay relay : relays) {
+            relay.getConnectionPool().fill(Math.max(1, relay.getConfig().connectionPoolMinSize));
         }
     }
 
+    /**
+     * Returns the statistics of the connection pools of all relays, including the relays of the routes, summed up.
+     *
+     * @return the aggregated connection pool statistics
+     */
+    public SmtpConnectionPoolStatistics getConnectionPoolStatistics() {
+        return connectionPoolStatistics;
+    }
+
+    /**
+     * Returns the statistics of the connection pools of the relays to which messages for the given recipient domain are routed, summed up.
+     *
+     * @param domain The recipient domain
+     * @return the aggregated connection pool statistics
+     */
+    public SmtpConnectionPoolStatistics getConnectionPoolStatistics(String domain) {
+        return getRelayGroup(domain).getConnectionPoolStatistics();
+    }
+
     @Override
     public Class<EmailNotificationMessage> getNotificationMessageType() {
         return EmailNotificationMessage.class;
     }
 
+    @Override
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     @Override
     public Object sendNotificationMessage(EmailNotificationRecipient<?> recipient, EmailNotificationMessage message) {
-        Transport transport;
+        Object[] results = new Object[1];
+        sendNotificationMessages(getRelayGroup(SmtpRoute.getDomain(recipient.getEmail())), Collections.singletonList(recipient), Collections.singletonList(message), Collections.singletonList(0), results);
+        if (results[0] instanceof RuntimeException) {
+            throw (RuntimeException) results[0];
+        }
+        return results[0];
+    }
+
+    /**
+     * Sends the given messages over a single connection per route.
+     * Messages are grouped by the {@link SmtpRoute} of the recipient domain, so that a relay that is congested or refuses messages
+     * only fails the messages routed to it. If a route has multiple relays, a relay is selected by weight and latency
+     * and the next relay is tried if no connection to the selected relay can be opened.
+     * If the {@link Config#getEnvelopeBatchSize() envelope batch size} is greater than one, messages with identical content and sender
+     * are sent in a single SMTP transaction with one RCPT TO command per recipient and an undisclosed recipients <code>To</code> header.
+     * The {@link SmtpChannelFilter} is then consulted for every recipient with the shared SMTP message, so it must not modify it.
+     * With adaptive concurrency, the messages of a route are sent with a permit of the concurrency limiter of that route.
+     *
+     * @param recipients The recipients
+     * @param messages   The messages
+     * @return the per recipient results
+     */
+    @Override
+    public List<Object> sendNotificationMessages(List<EmailNotificationRecipient<?>> recipients, List<EmailNotificationMessage> messages) {
+        Object[] results = new Object[recipients.size()];
+        Map<SmtpRelayGroup, List<Integer>> relayIndexes = groupRelays(recipients);
+        for (Map.Entry<SmtpRelayGroup, List<Integer>> entry : relayIndexes.entrySet()) {
+            try {
+                sendNotificationMessages(entry.getKey(), recipients, messages, entry.getValue(), results);
+            } catch (RuntimeException e) {
+                if (relayIndexes.size() == 1) {
+                    throw e;
+                }
+                // Only fail the messages for the route that has no connection available
+                for (Integer index : entry.getValue()) {
+                    results[index] = e;
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void sendNotificationMessages(SmtpRelayGroup relayGroup, List<EmailNotificationRecipient<?>> recipients, List<EmailNotificationMessage> messages, List<Integer> indexes, Object[] results) {
+        AdaptiveConcurrencyLimiter concurrencyLimiter = relayGroup.getConcurrencyLimiter();
+        long start = acquireConcurrencyPermit(concurrencyLimiter);
         try {
-            transport = transports.take();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            sendThroughRelay(relayGroup, recipients, messages, indexes, results);
+        } catch (RuntimeException e) {
+            releaseConcurrencyPermit(concurrencyLimiter, start, indexes.size(), e);
+            throw e;
+        }
+        releaseConcurrencyPermit(concurrencyLimiter, start, indexes.size(), getSendException(indexes, results));
+    }
+
+    private void sendThroughRelay(SmtpRelayGroup relayGroup, List<EmailNotificationRecipient<?>> recipients, List<EmailNotificationMessage> messages, List<Integer> indexes, Object[] results) {
+        List<SmtpRelay> failedRelays = null;
+        SmtpRelayGroup.Selection selection;
+        SmtpRelay relay;
+        SmtpConnectionPool.PooledTransport transport;
+        while (true) {
+            selection = relayGroup.select(failedRelays);
+            relay = selection.getRelay();
+            try {
+                transport = relay.getConnectionPool().acquire();
+                break;
+            } catch (Throwable e) {
+                if (e instanceof MessagingException) {
+                    relayGroup.onFailure(selection);
+                } else {
+                    relayGroup.onIgnored(selection);
+                }
+                if (failedRelays == null) {
+                    failedRelays = new ArrayList<>(relayGroup.size());
+                }
+                failedRelays.add(relay);
+                if (failedRelays.size() == relayGroup.size()) {
+                    throw translateException(e);
+                }
+                LOG.log(Level.FINE, "Failing over from SMTP relay " + relay, e);
+            }
         }
+        long start = System.nanoTime();
+        boolean valid = true;
         try {
-            if (!transport.isConnected()) {
+            List<List<Integer>> envelopes = groupEnvelopes(messages, indexes);
+            for (int e = 0; e < envelopes.size(); e++) {
+                List<Integer> envelope = envelopes.get(e);
                 try {
-                    if (config.auth) {
-                        transport.connect(config.user, config.password);
+                    if (envelope.size() == 1) {
+                        int index = envelope.get(0);
+                        results[index] = sendNotificationMessage(relay, transport.getTransport(), recipients.get(index), messages.get(index));
                     } else {
-                        transport.connect();
+                        sendEnvelope(relay, transport.getTransport(), recipients, messages.get(envelope.get(0)), envelope, results);
+                    }
+                } catch (Throwable t) {
+                    RuntimeException exception = translateException(t);
+                    if (isTransportFailure(t)) {
+                        valid = false;
                     }
-                } catch (IllegalStateException e) {
-                    // Only rethrow when we are still not connected
-                    if (!transport.isConnected()) {
-                        throw e;
+                    for (Integer index : envelope) {
+                        results[index] = exception;
+                    }
+                }
+                JobRateLimitException rateLimitException = getRateLimitException(envelope, results);
+                if (rateLimitException != null) {
+                    // Don't bother sending the rest as the relay will refuse it anyway
+                    for (int i = e + 1; i < envelopes.size(); i++) {
+                        for (Integer index : envelopes.get(i)) {
+                            results[index] = rateLimitException;
+                        }
                     }
+                    break;
                 }
             }
+        } finally {
+            relay.getConnectionPool().release(transport, valid);
+            if (isRelayFailure(indexes, results)) {
+                relayGroup.onFailure(selection);
+            } else {
+                relayGroup.onSuccess(selection, (System.nanoTime() - start) / indexes.size());
+            }
+        }
+    }
 
-            SMTPMessage msg = new SMTPMessage(session);
-
-            EmailBody textBody = message.getTextBody();
-            EmailBody htmlBody = message.getHtmlBody();
-            boolean hasAttachments = !message.getAttachments().isEmpty();
-            if (textBody != null && htmlBody != null || hasAttachments) {
-                Multipart multipart = new MimeMultipart("alternative");
-                if (textBody != null) {
-                    MimeBodyPart textPart = new MimeBodyPart();
-                    textPart.setText(textBody.getBody(), CHARSET_UTF8);
-                    multipart.addBodyPart(textPart);
+    private static boolean isRelayFailure(List<Integer> indexes, Object[] results) {
+        for (Integer index : indexes) {
+            if (results[index] instanceof RuntimeException) {
+                RuntimeException exception = (RuntimeException) results[index];
+                // Temporary 4xx failures, timeouts and broken connections, but not rejected recipients or messages
+                if (isCongestion(exception) || exception.getCause() instanceof MessagingException && !(exception.getCause() instanceof SendFailedException)) {
+                    return true;
                 }
+            }
+        }
+        return false;
+    }
 
-                if (htmlBody != null) {
-                    MimeBodyPart htmlPart = new MimeBodyPart();
-                    htmlPart.setContent(htmlBody.getBody(), HTML_MIME_TYPE);
-                    multipart.addBodyPart(htmlPart);
-                }
+    private boolean isTransportFailure(Throwable t) {
+        if (t instanceof SendFailedException) {
+            // Rejected recipients or messages leave the connection usable unless the relay closes it
+            return Integer.valueOf(421).equals(getResponseCode((SendFailedException) t));
+        }
+        // Invalid addresses are detected before anything is sent, whereas other messaging failures may come from a broken connection
+        return t instanceof MessagingException && !(t instanceof AddressException) || t instanceof IllegalStateException;
+    }
 
-                for (Attachment attachment : message.getAttachments()) {
-                    multipart.addBodyPart(createAttachmentBodyPart(attachment.getName(), attachment.getDataSource()));
-                }
+    private SmtpRelayGroup getRelayGroup(String domain) {
+        if (domainRelayGroups.isEmpty()) {
+            return defaultRelayGroup;
+        }
+        SmtpRelayGroup relayGroup = domainRelayGroups.get(domain);
+        if (relayGroup != null) {
+            return relayGroup;
+        }
+        // Look for the most specific wildcard pattern
+        for (int dotIndex = domain.indexOf('.'); dotIndex != -1; dotIndex = domain.indexOf('.', dotIndex + 1)) {
+            relayGroup = domainRelayGroups.get("*" + domain.substring(dotIndex));
+            if (relayGroup != null) {
+                return relayGroup;
+            }
+        }
+        return defaultRelayGroup;
+    }
 
-                msg.setContent(multipart);
-            } else if (textBody != null) {
-                msg.setText(textBody.getBody(), CHARSET_UTF8);
-            } else if (htmlBody != null) {
-                msg.setContent(htmlBody.getBody(), HTML_MIME_TYPE);
+    private Map<SmtpRelayGroup, List<Integer>> groupRelays(List<EmailNotificationRecipient<?>> recipients) {
+        if (domainRelayGroups.isEmpty()) {
+            List<Integer> indexes = new ArrayList<>(recipients.size());
+            for (int i = 0; i < recipients.size(); i++) {
+                indexes.add(i);
             }
+            return Collections.singletonMap(defaultRelayGroup, indexes);
+        }
+        Map<SmtpRelayGroup, List<Integer>> relayIndexes = new LinkedHashMap<>();
+        for (int i = 0; i < recipients.size(); i++) {
+            relayIndexes.computeIfAbsent(getRelayGroup(SmtpRoute.getDomain(recipients.get(i).getEmail())), k -> new ArrayList<>()).add(i);
+        }
+        return relayIndexes;
+    }
 
-            String from = message.getFrom();
-            String fromDisplayName = message.getFromDisplayName();
-            msg.setFrom(toInternetAddress(from, fromDisplayName));
+    private List<List<Integer>> groupEnvelopes(List<EmailNotificationMessage> messages, List<Integer> indexes) {
+        List<List<Integer>> envelopes = new ArrayList<>(indexes.size());
+        if (config.envelopeBatchSize <= 1) {
+            for (Integer index : indexes) {
+                envelopes.add(Collections.singletonList(index));
+            }
+            return envelopes;
+        }
+        Map<EnvelopeKey, List<Integer>> openEnvelopes = new HashMap<>();
+        for (int i = 0; i < indexes.size(); i++) {
+            Integer index = indexes.get(i);
+            EnvelopeKey key = new EnvelopeKey(messages.get(index));
+            List<Integer> envelope = openEnvelopes.get(key);
+            if (envelope == null || envelope.size() == config.envelopeBatchSize) {
+                envelope = new ArrayList<>(Math.min(config.envelopeBatchSize, indexes.size() - i));
+                openEnvelopes.put(key, envelope);
+                envelopes.add(envelope);
+            }
+            envelope.add(index);
+        }
+        return envelopes;
+    }
 
-            String replyTo = message.getReplyTo();
-            if (replyTo != null && !replyTo.isEmpty()) {
-                msg.setReplyTo(new Address[]{toInternetAddress(replyTo, message.getReplyToDisplayName())});
+    private static JobRateLimitException getRateLimitException(List<Integer> envelope, Object[] results) {
+        for (Integer index : envelope) {
+            if (results[index] instanceof JobRateLimitException) {
+                return (JobRateLimitException) results[index];
             }
-            String envelopeFrom = message.getEnvelopeFrom();
-            if (envelopeFrom != null && !envelopeFrom.isEmpty()) {
-                msg.setEnvelopeFrom(envelopeFrom);
+        }
+        return null;
+    }
+
+    private static RuntimeException getSendException(List<Integer> indexes, Object[] results) {
+        // A congestion of any message cuts the limit, whereas failures of all messages for other reasons say nothing about the capacity
+        RuntimeException exception = null;
+        boolean succeeded = false;
+        for (Integer index : indexes) {
+            if (results[index] instanceof RuntimeException) {
+                RuntimeException result = (RuntimeException) results[index];
+                if (isCongestion(result)) {
+                    return result;
+                }
+                exception = result;
+            } else {
+                succeeded = true;
             }
+        }
+        return succeeded ? null : exception;
+    }
 
-            msg.setHeader("To", recipient.getEmail());
-            msg.setSubject(message.getSubject().getSubject(), CHARSET_UTF8);
+    private static long acquireConcurrencyPermit(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.acquire();
+        }
+        return System.nanoTime();
+    }
 
+    private static void releaseConcurrencyPermit(AdaptiveConcurrencyLimiter concurrencyLimiter, long start, int messageCount, RuntimeException exception) {
+        if (concurrencyLimiter == null) {
+            return;
+        }
+        if (exception == null) {
+            concurrencyLimiter.onSuccess((System.nanoTime() - start) / messageCount);
+        } else if (isCongestion(exception)) {
+            concurrencyLimiter.onDropped(System.nanoTime() - start);
+        } else {
+            concurrencyLimiter.onIgnored();
+        }
+    }
+
+    private static boolean isCongestion(RuntimeException exception) {
+        if (exception instanceof JobTemporaryException) {
+            return true;
+        }
+        for (Throwable t = exception.getCause(); t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object sendNotificationMessage(SmtpRelay relay, Transport transport, EmailNotificationRecipient<?> recipient, EmailNotificationMessage message) throws MessagingException, UnsupportedEncodingException {
+        SMTPMessage msg = createMessage(relay, message);
+        msg.setHeader("To", recipient.getEmail());
+
+        if (config.getFilter() == null || config.getFilter().filterSmtpMessage(recipient, message, msg)) {
+            transport.sendMessage(msg, new InternetAddress[]{new InternetAddress(recipient.getEmail())});
+            String messageId = getMessageId(relay, transport, msg);
+            if (LOG.isLoggable(Level.FINEST)) {
+                LOG.log(Level.FINEST, "SMTP notification sent to " + recipient + " with message id: " + messageId);
+            }
+            return messageId;
+        }
+        if (LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "SMTP notification to " + recipient + " skipped by filter");
+        }
+        config.metrics.recordOutcome(KEY.getChannelType(), NotificationMetrics.Outcome.FILTERED, 1);
+        return null;
+    }
+
+    private void sendEnvelope(SmtpRelay relay, Transport transport, List<EmailNotificationRecipient<?>> recipients, EmailNotificationMessage message, List<Integer> envelope, Object[] results) throws MessagingException, UnsupportedEncodingException {
+        SMTPMessage msg = createMessage(relay, message);
+        msg.setHeader("To", UNDISCLOSED_RECIPIENTS);
+
+        List<Integer> indexes = new ArrayList<>(envelope.size());
+        List<InternetAddress> addresses = new ArrayList<>(envelope.size());
+        for (Integer index : envelope) {
+            EmailNotificationRecipient<?> recipient = recipients.get(index);
             if (config.getFilter() == null || config.getFilter().filterSmtpMessage(recipient, message, msg)) {
-                transport.sendMessage(msg, new InternetAddress[]{new InternetAddress(recipient.getEmail())});
-                String messageId;
-                if (config.extractMessageId) {
-                    String response = getResponse(transport);
-                    messageId = response.substring(response.lastIndexOf(' ') + 1).trim();
-                } else {
-                    messageId = msg.getMessageID();
-                }
+                indexes.add(index);
+                addresses.add(new InternetAddress(recipient.getEmail()));
+            } else {
                 if (LOG.isLoggable(Level.FINEST)) {
-                    LOG.log(Level.FINEST, "SMTP notification sent to " + recipient + " with message id: " + messageId);
+                    LOG.log(Level.FINEST, "SMTP notification to " + recipient + " skipped by filter");
                 }
-                return messageId;
-            } else if (LOG.isLoggable(Level.FINEST)) {
-                LOG.log(Level.FINEST, "SMTP notification to " + recipient + " skipped by filter");
+                config.metrics.recordOutcome(KEY.getChannelType(), NotificationMetrics.Outcome.FILTERED, 1);
             }
-            return null;
+        }
+        if (addresses.isEmpty()) {
+            return;
+        }
+
+        try {
+            transport.sendMessage(msg, addresses.toArray(new InternetAddress[0]));
         } catch (SendFailedException e) {
-            Integer responseCode = getResponseCode(e);
+            Address[] validSentAddresses = e.getValidSentAddresses();
+            if (validSentAddresses == null || validSentAddresses.length == 0) {
+                throw e;
+            }
+            // The relay accepted the message for some recipients, so map the failures back onto the individual recipients
+            String messageId = getMessageId(relay, transport, msg);
+            Set<Address> sentAddresses = new HashSet<>(Arrays.asList(validSentAddresses));
+            Map<Address, RuntimeException> addressFailures = new HashMap<>();
+            for (Exception next = e.getNextException(); next != null; next = next instanceof MessagingException ? ((MessagingException) next).getNextException() : null) {
+                if (next instanceof SMTPAddressFailedException) {
+                    addressFailures.put(((SMTPAddressFailedException) next).getAddress(), translateException(next));
+                }
+            }
+            RuntimeException envelopeFailure = null;
+            for (int i = 0; i < addresses.size(); i++) {
+                InternetAddress address = addresses.get(i);
+                if (sentAddresses.contains(address)) {
+                    results[indexes.get(i)] = messageId;
+                } else if (addressFailures.containsKey(address)) {
+                    results[indexes.get(i)] = addressFailures.get(address);
+                } else {
+                    if (envelopeFailure == null) {
+                        envelopeFailure = translateException(e);
+                    }
+                    results[indexes.get(i)] = envelopeFailure;
+                }
+            }
+            return;
+        }
+        String messageId = getMessageId(relay, transport, msg);
+        if (LOG.isLoggable(Level.FINEST)) {
+            LOG.log(Level.FINEST, "SMTP notification sent to " + addresses.size() + " recipients with message id: " + messageId);
+        }
+        for (Integer index : indexes) {
+            results[index] = messageId;
+        }
+    }
+
+    private String getMessageId(SmtpRelay relay, Transport transport, SMTPMessage msg) throws MessagingException {
+        if (relay.getConfig().extractMessageId) {
+            String response = getResponse(transport);
+            return response.substring(response.lastIndexOf(' ') + 1).trim();
+        }
+        return msg.getMessageID();
+    }
+
+    private SMTPMessage createMessage(SmtpRelay relay, EmailNotificationMessage message) throws MessagingException, UnsupportedEncodingException {
+        SMTPMessage msg = new EncodedSmtpMessage(relay.getSession(), mimeBodyCache.get(message));
+
+        String from = message.getFrom();
+        String fromDisplayName = message.getFromDisplayName();
+        msg.setFrom(toInternetAddress(from, fromDisplayName));
+
+        String replyTo = message.getReplyTo();
+        if (replyTo != null && !replyTo.isEmpty()) {
+            msg.setReplyTo(new Address[]{toInternetAddress(replyTo, message.getReplyToDisplayName())});
+        }
+        String envelopeFrom = message.getEnvelopeFrom();
+        if (envelopeFrom != null && !envelopeFrom.isEmpty()) {
+            msg.setEnvelopeFrom(envelopeFrom);
+        }
+
+        msg.setSubject(message.getSubject().getSubject(), CHARSET_UTF8);
+        return msg;
+    }
+
+    private RuntimeException translateException(Throwable e) {
+        if (e instanceof JobTemporaryException) {
+            // E.g. a timeout while waiting for a pooled connection
+            return (JobTemporaryException) e;
+        }
+        if (e instanceof SendFailedException) {
+            Integer responseCode = getResponseCode((SendFailedException) e);
             if (responseCode != null) {
                 switch (responseCode) {
                     case 421: // Too many concurrent SMTP connections
                     case 451: // Temporary service failure
                         LOG.log(Level.FINE, "Temporary service failure", e);
-                        throw new JobTemporaryException(e);
+                        return new JobTemporaryException(e);
                     case 454: // Throttling failure
                         LOG.log(Level.FINE, "Rate limit exceeded", e);
-                        // TODO: parse if daily or second rate limit and adapt wait time
-                        throw new JobRateLimitException(e);
+                        if (e.getMessage() != null && e.getMessage().toLowerCase(Locale.ROOT).contains(DAILY_QUOTA_EXCEEDED_MESSAGE)) {
+                            // Waiting for the sending rate won't help when the quota of the rolling 24 hour window is used up
+                            return new JobRateLimitException(e, DAILY_QUOTA_BACKOFF_MILLIS);
+                        }
+                        if (rateLimiter != null) {
+                            return new JobRateLimitException(e, rateLimiter.onThrottled());
+                        }
+                        return new JobRateLimitException(e);
                     default:
                         break;
                 }
             }
-            LOG.log(Level.SEVERE, "Failed to send email", e);
-            throw new NotificationException(e);
-        } catch (Throwable e) {
-            LOG.log(Level.SEVERE, "Failed to send email", e);
-            throw new NotificationException(e);
-        } finally {
-            transports.add(transport);
         }
+        LOG.log(Level.SEVERE, "Failed to send email", e);
+        return new NotificationException(e);
     }
 
     private Integer getResponseCode(SendFailedException e) {
         if (e instanceof SMTPSendFailedException) {
             return ((SMTPSendFailedException) e).getReturnCode();
+        } else if (e instanceof SMTPAddressFailedException) {
+            return ((SMTPAddressFailedException) e).getReturnCode();
         }
         return null;
     }
@@ -327,18 +833,6 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
         return null;
     }
 
-    private MimeBodyPart createAttachmentBodyPart(String attachmentFilename, DataSource dataSource) throws MessagingException {
-        try {
-            MimeBodyPart mimeBodyPart = new MimeBodyPart();
-            mimeBodyPart.setDisposition(MimeBodyPart.ATTACHMENT);
-            mimeBodyPart.setFileName(MimeUtility.encodeText(attachmentFilename));
-            mimeBodyPart.setDataHandler(new DataHandler(dataSource));
-            return mimeBodyPart;
-        } catch (UnsupportedEncodingException ex) {
-            throw new MessagingException("Failed to encode attachment filename", ex);
-        }
-    }
-
     private InternetAddress toInternetAddress(String email, String displayName) throws UnsupportedEncodingException, AddressException {
         if (email == null || "".equals(email.trim())) {
             throw new IllegalArgumentException("Please provide a valid address", null);
@@ -367,6 +861,43 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
         return iter.hasNext() ? iter.next().create() : null;
     }
 
+    /**
+     * The part of a message that must be identical for messages to be sent in a single SMTP transaction.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class EnvelopeKey {
+        private final Object[] values;
+        private final int hashCode;
+
+        public EnvelopeKey(EmailNotificationMessage message) {
+            this.values = new Object[]{
+                message.getFrom(),
+                message.getFromDisplayName(),
+                message.getReplyTo(),
+                message.getReplyToDisplayName(),
+                message.getEnvelopeFrom(),
+                message.getSubject() == null ? null : message.getSubject().getSubject(),
+                message.getTextBody() == null ? null : message.getTextBody().getBody(),
+                message.getHtmlBody() == null ? null : message.getHtmlBody().getBody(),
+                // Attachments don't implement equals, so only messages sharing the very same attachments are grouped
+                new ArrayList<>(message.getAttachments())
+            };
+            this.hashCode = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EnvelopeKey && Arrays.equals(values, ((EnvelopeKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     /**
      * The configuration for the SMTP channel.
      *
@@ -385,40 +916,66 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
         private final long timeout;
         private final long connectionTimeout;
         private final int connectionPoolSize;
+        private final int connectionPoolMinSize;
+        private final long connectionAcquireTimeout;
+        private final long connectionMaxIdleTime;
+        private final long connectionMaxLifetime;
+        private final long connectionValidationInterval;
+        private final int envelopeBatchSize;
+        private final int mimeBodyCacheSize;
         private final String nodeName;
         private final SmtpChannelFilter filter;
+        private final double rateLimitPermitsPerSecond;
+        private final int rateLimitBurst;
+        private final boolean adaptiveConcurrency;
+        private final int minConcurrency;
+        private final long maxSendLatency;
+        private final NotificationMetrics metrics;
+        private final Map<String, String> sessionProperties;
+        private final List<SmtpRoute> routes;
+        private final int weight;
+        private final List<Config> relays;
+        private final int relayFailureThreshold;
+        private final long relayEjectionTime;
 
         /**
-         * Create a new config.
-         *
-         * @param host               The SMTP host
-         * @param port               The SMTP port
-         * @param auth               Whether to use authentication
-         * @param user               The SMTP user
-         * @param password           The SMTP password
-         * @param enableSsl          Whether to enable SSL/TLS
-         * @param enableStartTls     Whether to enable STARTTLS
-         * @param extractMessageId   Whether to try to extract the message id after a send
-         * @param timeout            The SMTP timeout in second
-         * @param connectionTimeout  The connection timeout in seconds
-         * @param connectionPoolSize The connection pool size
-         * @param nodeName           The name of this sender node
-         * @param filter             The SMTP channel filter
-         */
-        Config(String host, Integer port, boolean auth, String user, String password, boolean enableSsl, boolean enableStartTls, boolean extractMessageId, long timeout, long connectionTimeout, int connectionPoolSize, String nodeName, SmtpChannelFilter filter) {
-            this.host = host;
-            this.port = port;
-            this.auth = auth;
-            this.user = user;
-            this.password = password;
-            this.enableSsl = enableSsl;
-            this.enableStartTls = enableStartTls;
-            this.extractMessageId = extractMessageId;
-            this.timeout = timeout;
-            this.connectionTimeout = connectionTimeout;
-            this.connectionPoolSize = connectionPoolSize;
-            this.nodeName = nodeName;
-            this.filter = filter;
+         * Create a new config from the given builder.
+         *
+         * @param builder The builder
+         */
+        Config(Builder builder) {
+            this.host = builder.host;
+            this.port = builder.port;
+            this.auth = builder.auth;
+            this.user = builder.user;
+            this.password = builder.password;
+            this.enableSsl = builder.enableSsl;
+            this.enableStartTls = builder.enableStartTls;
+            this.extractMessageId = builder.extractMessageId;
+            this.timeout = builder.timeout;
+            this.connectionTimeout = builder.connectionTimeout;
+            this.connectionPoolSize = builder.connectionPoolSize;
+            this.connectionPoolMinSize = builder.connectionPoolMinSize;
+            this.connectionAcquireTimeout = builder.connectionAcquireTimeout;
+            this.connectionMaxIdleTime = builder.connectionMaxIdleTime;
+            this.connectionMaxLifetime = builder.connectionMaxLifetime;
+            this.connectionValidationInterval = builder.connectionValidationInterval;
+            this.envelopeBatchSize = builder.envelopeBatchSize;
+            this.mimeBodyCacheSize = builder.mimeBodyCacheSize;
+            this.nodeName = builder.nodeName;
+            this.filter = builder.filter;
+            this.rateLimitPermitsPerSecond = builder.rateLimitPermitsPerSecond;
+            this.rateLimitBurst = builder.rateLimitBurst;
+            this.adaptiveConcurrency = builder.adaptiveConcurrency;
+            this.minConcurrency = builder.minConcurrency;
+            this.maxSendLatency = builder.maxSendLatency;
+            this.metrics = builder.metrics;
+            this.sessionProperties = builder.sessionProperties;
+            this.routes = Collections.unmodifiableList(new ArrayList<>(builder.routes));
+            this.weight = builder.weight;
+            this.relays = Collections.unmodifiableList(new ArrayList<>(builder.relays));
+            this.relayFailureThreshold = builder.relayFailureThreshold;
+            this.relayEjectionTime = builder.relayEjectionTime;
         }
 
         /**
@@ -520,6 +1077,69 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
             return connectionPoolSize;
         }
 
+        /**
+         * Returns the minimum number of connections to keep open.
+         *
+         * @return the minimum number of connections to keep open
+         */
+        public int getConnectionPoolMinSize() {
+            return connectionPoolMinSize;
+        }
+
+        /**
+         * Returns the time in milliseconds to wait for a pooled connection or 0 to wait indefinitely.
+         *
+         * @return the time in milliseconds to wait for a pooled connection or 0 to wait indefinitely
+         */
+        public long getConnectionAcquireTimeout() {
+            return connectionAcquireTimeout;
+        }
+
+        /**
+         * Returns the time in milliseconds after which idle connections are closed or 0 to disable.
+         *
+         * @return the time in milliseconds after which idle connections are closed or 0 to disable
+         */
+        public long getConnectionMaxIdleTime() {
+            return connectionMaxIdleTime;
+        }
+
+        /**
+         * Returns the time in milliseconds after which connections are closed or 0 to disable.
+         *
+         * @return the time in milliseconds after which connections are closed or 0 to disable
+         */
+        public long getConnectionMaxLifetime() {
+            return connectionMaxLifetime;
+        }
+
+        /**
+         * Returns the idle time in milliseconds after which a pooled connection is validated before reuse.
+         *
+         * @return the idle time in milliseconds after which a pooled connection is validated before reuse
+         */
+        public long getConnectionValidationInterval() {
+            return connectionValidationInterval;
+        }
+
+        /**
+         * Returns the maximum number of recipients of identical messages to send in a single SMTP transaction or 1 to disable.
+         *
+         * @return the maximum number of recipients of identical messages to send in a single SMTP transaction or 1 to disable
+         */
+        public int getEnvelopeBatchSize() {
+            return envelopeBatchSize;
+        }
+
+        /**
+         * Returns the maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable.
+         *
+         * @return the maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable
+         */
+        public int getMimeBodyCacheSize() {
+            return mimeBodyCacheSize;
+        }
+
         /**
          * Returns the name of this sender node.
          *
@@ -538,6 +1158,114 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
             return filter;
         }
 
+        /**
+         * Returns the sustained rate of sends per second of the client side rate limiter or 0 if sends are not rate limited.
+         *
+         * @return the sustained rate of sends per second or 0
+         */
+        public double getRateLimitPermitsPerSecond() {
+            return rateLimitPermitsPerSecond;
+        }
+
+        /**
+         * Returns the maximum number of sends of the client side rate limiter after a pause or 0 to use the rate.
+         *
+         * @return the maximum number of sends after a pause or 0
+         */
+        public int getRateLimitBurst() {
+            return rateLimitBurst;
+        }
+
+        /**
+         * Returns whether to adapt the number of concurrent sends to the relay capacity.
+         *
+         * @return whether to adapt the number of concurrent sends to the relay capacity
+         */
+        public boolean isAdaptiveConcurrency() {
+            return adaptiveConcurrency;
+        }
+
+        /**
+         * Returns the minimum number of concurrent sends when adapting the concurrency.
+         *
+         * @return the minimum number of concurrent sends when adapting the concurrency
+         */
+        public int getMinConcurrency() {
+            return minConcurrency;
+        }
+
+        /**
+         * Returns the send latency in milliseconds above which the concurrency is reduced or 0 to disable.
+         *
+         * @return the send latency in milliseconds above which the concurrency is reduced or 0 to disable
+         */
+        public long getMaxSendLatency() {
+            return maxSendLatency;
+        }
+
+        /**
+         * Returns the notification metrics.
+         *
+         * @return the notification metrics
+         */
+        public NotificationMetrics getMetrics() {
+            return metrics;
+        }
+
+        /**
+         * Returns the additional JavaMail session properties.
+         *
+         * @return the additional JavaMail session properties
+         */
+        public Map<String, String> getSessionProperties() {
+            return sessionProperties;
+        }
+
+        /**
+         * Returns the routes of recipient domains to dedicated relays. Messages for other domains are sent through the relay of this configuration.
+         *
+         * @return the routes of recipient domains to dedicated relays
+         */
+        public List<SmtpRoute> getRoutes() {
+            return routes;
+        }
+
+        /**
+         * Returns the weight of this relay relative to the other relays of the route.
+         *
+         * @return the weight of this relay
+         */
+        public int getWeight() {
+            return weight;
+        }
+
+        /**
+         * Returns the additional relays that share the messages of the route with this relay.
+         *
+         * @return the additional relays
+         */
+        public List<Config> getRelays() {
+            return relays;
+        }
+
+        /**
+         * Returns the number of consecutive connection or temporary failures after which a relay is ejected from the load balancing.
+         *
+         * @return the number of consecutive failures after which a relay is ejected
+         */
+        public int getRelayFailureThreshold() {
+            return relayFailureThreshold;
+        }
+
+        /**
+         * Returns the time in milliseconds for which a relay is ejected before it is probed again.
+         *
+         * @return the time in milliseconds for which a relay is ejected
+         */
+        public long getRelayEjectionTime() {
+            return relayEjectionTime;
+        }
+
         /**
          * Returns a new configuration builder.
          *
@@ -565,8 +1293,27 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
             private long timeout = 10000;
             private long connectionTimeout = 10000;
             private int connectionPoolSize = 1;
+            private int connectionPoolMinSize;
+            private long connectionAcquireTimeout = 30000;
+            private long connectionMaxIdleTime = 60000;
+            private long connectionMaxLifetime = 1800000;
+            private long connectionValidationInterval = 1000;
+            private int envelopeBatchSize = 1;
+            private int mimeBodyCacheSize = 64;
             private String nodeName;
             private SmtpChannelFilter filter;
+            private double rateLimitPermitsPerSecond;
+            private int rateLimitBurst;
+            private boolean adaptiveConcurrency;
+            private int minConcurrency = 1;
+            private long maxSendLatency;
+            private NotificationMetrics metrics = NotificationMetrics.noop();
+            private Map<String, String> sessionProperties;
+            private List<SmtpRoute> routes = new ArrayList<>();
+            private int weight = 1;
+            private List<Config> relays = new ArrayList<>();
+            private int relayFailureThreshold = 3;
+            private long relayEjectionTime = 30000;
 
             /**
              * Returns the configuration.
@@ -574,7 +1321,7 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
              * @return the configuration
              */
             public Config build() {
-                return new Config(host, port, auth, user, password, enableSsl, enableStartTls, extractMessageId, timeout, connectionTimeout, connectionPoolSize, nodeName, filter);
+                return new Config(this);
             }
 
             /**
@@ -679,6 +1426,83 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
                 return this;
             }
 
+            /**
+             * Sets the given minimum number of connections to keep open.
+             *
+             * @param connectionPoolMinSize The minimum number of connections to keep open
+             * @return <code>this</code> for chaining
+             */
+            public Builder withConnectionPoolMinSize(int connectionPoolMinSize) {
+                this.connectionPoolMinSize = connectionPoolMinSize;
+                return this;
+            }
+
+            /**
+             * Sets the given time in milliseconds to wait for a pooled connection or 0 to wait indefinitely.
+             *
+             * @param connectionAcquireTimeout The time in milliseconds to wait for a pooled connection or 0 to wait indefinitely
+             * @return <code>this</code> for chaining
+             */
+            public Builder withConnectionAcquireTimeout(long connectionAcquireTimeout) {
+                this.connectionAcquireTimeout = connectionAcquireTimeout;
+                return this;
+            }
+
+            /**
+             * Sets the given time in milliseconds after which idle connections are closed or 0 to disable.
+             *
+             * @param connectionMaxIdleTime The time in milliseconds after which idle connections are closed or 0 to disable
+             * @return <code>this</code> for chaining
+             */
+            public Builder withConnectionMaxIdleTime(long connectionMaxIdleTime) {
+                this.connectionMaxIdleTime = connectionMaxIdleTime;
+                return this;
+            }
+
+            /**
+             * Sets the given time in milliseconds after which connections are closed or 0 to disable.
+             *
+             * @param connectionMaxLifetime The time in milliseconds after which connections are closed or 0 to disable
+             * @return <code>this</code> for chaining
+             */
+            public Builder withConnectionMaxLifetime(long connectionMaxLifetime) {
+                this.connectionMaxLifetime = connectionMaxLifetime;
+                return this;
+            }
+
+            /**
+             * Sets the given idle time in milliseconds after which a pooled connection is validated before reuse.
+             *
+             * @param connectionValidationInterval The idle time in milliseconds after which a pooled connection is validated before reuse
+             * @return <code>this</code> for chaining
+             */
+            public Builder withConnectionValidationInterval(long connectionValidationInterval) {
+                this.connectionValidationInterval = connectionValidationInterval;
+                return this;
+            }
+
+            /**
+             * Sets the given maximum number of recipients of identical messages to send in a single SMTP transaction or 1 to disable.
+             *
+             * @param envelopeBatchSize The maximum number of recipients of identical messages to send in a single SMTP transaction or 1 to disable
+             * @return <code>this</code> for chaining
+             */
+            public Builder withEnvelopeBatchSize(int envelopeBatchSize) {
+                this.envelopeBatchSize = envelopeBatchSize;
+                return this;
+            }
+
+            /**
+             * Sets the given maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable.
+             *
+             * @param mimeBodyCacheSize The maximum number of encoded message bodies to cache for reuse across recipients or 0 to disable
+             * @return <code>this</code> for chaining
+             */
+            public Builder withMimeBodyCacheSize(int mimeBodyCacheSize) {
+                this.mimeBodyCacheSize = mimeBodyCacheSize;
+                return this;
+            }
+
             /**
              * Sets the given node name.
              *
@@ -700,6 +1524,141 @@ public class SmtpChannel implements Channel<EmailNotificationRecipient<?>, Email
                 this.filter = filter;
                 return this;
             }
+
+            /**
+             * Sets the given rate limit for the client side rate limiter that every channel creates for itself.
+             *
+             * @param permitsPerSecond The sustained rate of sends per second or 0 to disable rate limiting
+             * @param burst The maximum number of sends after a pause or 0 to use the rate
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRateLimit(double permitsPerSecond, int burst) {
+                this.rateLimitPermitsPerSecond = permitsPerSecond;
+                this.rateLimitBurst = burst;
+                return this;
+            }
+
+            /**
+             * Sets whether to adapt the number of concurrent sends to the relay capacity.
+             *
+             * @param adaptiveConcurrency Whether to adapt the number of concurrent sends to the relay capacity
+             * @return <code>this</code> for chaining
+             */
+            public Builder withAdaptiveConcurrency(boolean adaptiveConcurrency) {
+                this.adaptiveConcurrency = adaptiveConcurrency;
+                return this;
+            }
+
+            /**
+             * Sets the given minimum number of concurrent sends when adapting the concurrency.
+             *
+             * @param minConcurrency The minimum number of concurrent sends when adapting the concurrency
+             * @return <code>this</code> for chaining
+             */
+            public Builder withMinConcurrency(int minConcurrency) {
+                this.minConcurrency = minConcurrency;
+                return this;
+            }
+
+            /**
+             * Sets the given send latency in milliseconds above which the concurrency is reduced or 0 to disable.
+             *
+             * @param maxSendLatency The send latency in milliseconds above which the concurrency is reduced or 0 to disable
+             * @return <code>this</code> for chaining
+             */
+            public Builder withMaxSendLatency(long maxSendLatency) {
+                this.maxSendLatency = maxSendLatency;
+                return this;
+            }
+
+            /**
+             * Sets the given notification metrics.
+             *
+             * @param metrics The notification metrics
+             * @return <code>this</code> for chaining
+             */
+            public Builder withMetrics(NotificationMetrics metrics) {
+                this.metrics = metrics;
+                return this;
+            }
+
+            /**
+             * Sets the given additional JavaMail session properties that override the properties derived from this configuration.
+             *
+             * @param sessionProperties The additional JavaMail session properties
+             * @return <code>this</code> for chaining
+             */
+            public Builder withSessionProperties(Map<String, String> sessionProperties) {
+                this.sessionProperties = sessionProperties;
+                return this;
+            }
+
+            /**
+             * Adds the given route of recipient domains to a dedicated relay.
+             *
+             * @param route The route
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRoute(SmtpRoute route) {
+                this.routes.add(route);
+                return this;
+            }
+
+            /**
+             * Sets the given routes of recipient domains to dedicated relays.
+             *
+             * @param routes The routes
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRoutes(List<SmtpRoute> routes) {
+                this.routes = new ArrayList<>(routes);
+                return this;
+            }
+
+            /**
+             * Sets the given weight of this relay relative to the other relays of the route.
+             *
+             * @param weight The weight of this relay
+             * @return <code>this</code> for chaining
+             */
+            public Builder withWeight(int weight) {
+                this.weight = weight;
+                return this;
+            }
+
+            /**
+             * Adds the given relay that shares the messages of the route with this relay.
+             * Only the connection related settings and the weight of the relay configuration are used.
+             *
+             * @param relay The relay configuration
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRelay(Config relay) {
+                this.relays.add(relay);
+                return this;
+            }
+
+            /**
+             * Sets the given number of consecutive connection or temporary failures after which a relay is ejected from the load balancing.
+             *
+             * @param relayFailureThreshold The number of consecutive failures after which a relay is ejected
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRelayFailureThreshold(int relayFailureThreshold) {
+                this.relayFailureThreshold = relayFailureThreshold;
+                return this;
+            }
+
+            /**
+             * Sets the given time in milliseconds for which a relay is ejected before it is probed again.
+             *
+             * @param relayEjectionTime The time in milliseconds for which a relay is ejected
+             * @return <code>this</code> for chaining
+             */
+            public Builder withRelayEjectionTime(long relayEjectionTime) {
+                this.relayEjectionTime = relayEjectionTime;
+                return this;
+            }
         }
     }
 }
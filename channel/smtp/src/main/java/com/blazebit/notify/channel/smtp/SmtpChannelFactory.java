@@ -21,6 +21,11 @@ import com.blazebit.notify.ChannelFactory;
 import com.blazebit.notify.ChannelKey;
 import com.blazebit.notify.NotificationJobContext;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * A factory for SMTP channels.
  *
@@ -30,11 +35,47 @@ import com.blazebit.notify.NotificationJobContext;
 @ServiceProvider(ChannelFactory.class)
 public class SmtpChannelFactory implements ChannelFactory<SmtpChannel> {
 
+    private static final Set<String> CONFIGURATION_PROPERTY_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        SmtpChannel.SMTP_HOST_PROPERTY,
+        SmtpChannel.SMTP_PORT_PROPERTY,
+        SmtpChannel.SMTP_USER_PROPERTY,
+        SmtpChannel.SMTP_PASSWORD_PROPERTY,
+        SmtpChannel.SMTP_CONNECTION_TIMEOUT_PROPERTY,
+        SmtpChannel.SMTP_TIMEOUT_PROPERTY,
+        SmtpChannel.SMTP_ENABLE_SSL_PROPERTY,
+        SmtpChannel.SMTP_ENABLE_STARTTLS_PROPERTY,
+        SmtpChannel.SMTP_NODE_NAME_PROPERTY,
+        SmtpChannel.SMTP_FILTER_PROPERTY,
+        SmtpChannel.SMTP_CONNECTION_POOL_SIZE_PROPERTY,
+        SmtpChannel.SMTP_CONNECTION_POOL_MIN_SIZE_PROPERTY,
+        SmtpChannel.SMTP_CONNECTION_ACQUIRE_TIMEOUT_PROPERTY,
+        SmtpChannel.SMTP_CONNECTION_MAX_IDLE_TIME_PROPERTY,
+        SmtpChannel.SMTP_CONNECTION_MAX_LIFETIME_PROPERTY,
+        SmtpChannel.SMTP_CONNECTION_VALIDATION_INTERVAL_PROPERTY,
+        SmtpChannel.SMTP_ENVELOPE_BATCH_SIZE_PROPERTY,
+        SmtpChannel.SMTP_MIME_BODY_CACHE_SIZE_PROPERTY,
+        SmtpChannel.SMTP_ADAPTIVE_CONCURRENCY_PROPERTY,
+        SmtpChannel.SMTP_ADAPTIVE_CONCURRENCY_MIN_LIMIT_PROPERTY,
+        SmtpChannel.SMTP_ADAPTIVE_CONCURRENCY_MAX_LATENCY_PROPERTY,
+        SmtpChannel.SMTP_RATE_LIMIT_PERMITS_PER_SECOND_PROPERTY,
+        SmtpChannel.SMTP_RATE_LIMIT_BURST_PROPERTY,
+        SmtpChannel.SMTP_ROUTES_PROPERTY,
+        SmtpChannel.SMTP_WEIGHT_PROPERTY,
+        SmtpChannel.SMTP_RELAYS_PROPERTY,
+        SmtpChannel.SMTP_RELAY_FAILURE_THRESHOLD_PROPERTY,
+        SmtpChannel.SMTP_RELAY_EJECTION_TIME_PROPERTY
+    )));
+
     @Override
     public ChannelKey<SmtpChannel> getChannelType() {
         return SmtpChannel.KEY;
     }
 
+    @Override
+    public Set<String> getConfigurationPropertyKeys() {
+        return CONFIGURATION_PROPERTY_KEYS;
+    }
+
     @Override
     public SmtpChannel createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
         return new SmtpChannel(configurationSource);
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.channel.smtp;
+
+import com.blazebit.job.JobTemporaryException;
+import com.blazebit.notify.NotificationMetrics;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pool of SMTP transports that opens connections on demand up to the maximum size.
+ * Idle connections are reused in LIFO order so that surplus connections become idle and are evicted after the maximum idle time,
+ * as long as the minimum number of connections stays open. Connections are validated with a NOOP before reuse,
+ * when they were idle for longer than the validation interval, and closed after reaching their maximum lifetime.
+ * The eviction of all pools runs on a single shared daemon thread, which only closes connections so that a slow relay can't delay other pools.
+ * When expired connections leave the pool below its minimum size, the next acquires open new connections instead of reusing idle ones.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class SmtpConnectionPool implements SmtpConnectionPoolStatistics, AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(SmtpConnectionPool.class.getName());
+
+    private final Session session;
+    private final SmtpChannel.Config config;
+    private final NotificationMetrics metrics;
+    private final String channelType;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledTransport> idle = new ArrayDeque<>();
+    private final ScheduledFuture<?> eviction;
+    private int size;
+    private int active;
+    private long createdCount;
+    private long closedCount;
+    private long acquireTimeoutCount;
+    private boolean closed;
+
+    /**
+     * Creates a new pool for the transports of the given session.
+     *
+     * @param session     The session
+     * @param config      The SMTP relay configuration
+     * @param metrics     The metrics to record the pool wait latency
+     * @param channelType The channel type for which to record metrics
+     */
+    SmtpConnectionPool(Session session, SmtpChannel.Config config, NotificationMetrics metrics, String channelType) {
+        this.session = session;
+        this.config = config;
+        this.metrics = metrics;
+        this.channelType = channelType;
+        if (config.getConnectionMaxIdleTime() > 0 || config.getConnectionMaxLifetime() > 0) {
+            long period = Math.max(1000L, Math.min(positiveOrMax(config.getConnectionMaxIdleTime()), positiveOrMax(config.getConnectionMaxLifetime())) / 2);
+            this.eviction = Evictor.EXECUTOR.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.eviction = null;
+        }
+    }
+
+    private static long positiveOrMax(long value) {
+        return value > 0 ? value : Long.MAX_VALUE;
+    }
+
+    /**
+     * Acquires a connected transport, opening a new connection if none is idle and the maximum size isn't reached yet.
+     *
+     * @return the pooled transport
+     * @throws MessagingException if connecting fails
+     * @throws JobTemporaryException if no connection becomes available within the acquire timeout
+     */
+    PooledTransport acquire() throws MessagingException {
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                PooledTransport transport = poll(start);
+                if (transport == null) {
+                    return open();
+                } else if (validate(transport)) {
+                    return transport;
+                }
+                discard(transport);
+            }
+        } finally {
+            metrics.recordLatency(channelType, NotificationMetrics.Stage.POOL_WAIT, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns an idle transport or <code>null</code> if a slot for a new connection was reserved.
+     */
+    private PooledTransport poll(long start) {
+        long remainingNanos = config.getConnectionAcquireTimeout() > 0 ? TimeUnit.MILLISECONDS.toNanos(config.getConnectionAcquireTimeout()) - (System.nanoTime() - start) : Long.MAX_VALUE;
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("The SMTP connection pool is closed");
+                }
+                // Refill the pool lazily after the evictor closed expired connections
+                if (size < config.getConnectionPoolMinSize() && size < config.getConnectionPoolSize()) {
+                    size++;
+                    active++;
+                    return null;
+                }
+                PooledTransport transport = idle.pollFirst();
+                if (transport != null) {
+                    active++;
+                    return transport;
+                }
+                if (size < config.getConnectionPoolSize()) {
+                    size++;
+                    active++;
+                    return null;
+                }
+                if (remainingNanos <= 0L) {
+                    acquireTimeoutCount++;
+                    throw new JobTemporaryException("Timed out after " + config.getConnectionAcquireTimeout() + "ms waiting for one of the " + size + " SMTP connections");
+                }
+                remainingNanos = available.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JobTemporaryException("Interrupted while waiting for an SMTP connection", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PooledTransport open() throws MessagingException {
+        Transport transport = null;
+        try {
+            transport = session.getTransport("smtp");
+            connect(transport);
+        } catch (MessagingException | RuntimeException e) {
+            close(transport);
+            lock.lock();
+            try {
+                size--;
+                active--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        lock.lock();
+        try {
+            createdCount++;
+        } finally {
+            lock.unlock();
+        }
+        return new PooledTransport(transport);
+    }
+
+    private void connect(Transport transport) throws MessagingException {
+        try {
+            if (config.isAuth()) {
+                transport.connect(config.getUser(), config.getPassword());
+            } else {
+                transport.connect();
+            }
+        } catch (IllegalStateException e) {
+            // Only rethrow when we are still not connected
+            if (!transport.isConnected()) {
+                throw e;
+            }
+        }
+    }
+
+    private boolean validate(PooledTransport transport) {
+        long now = System.currentTimeMillis();
+        if (isExpired(transport, now)) {
+            return false;
+        }
+        if (transport.valid && now - transport.lastUsed < config.getConnectionValidationInterval()) {
+            return true;
+        }
+        // For SMTP transports this issues a NOOP command
+        return transport.transport.isConnected();
+    }
+
+    private boolean isExpired(PooledTransport transport, long now) {
+        return config.getConnectionMaxLifetime() > 0 && now - transport.created >= config.getConnectionMaxLifetime();
+    }
+
+    /**
+     * Returns the given transport to the pool.
+     *
+     * @param transport The pooled transport
+     * @param valid     Whether the transport is known to be usable, or <code>false</code> if it should be validated before the next use
+     */
+    void release(PooledTransport transport, boolean valid) {
+        long now = System.currentTimeMillis();
+        if (isExpired(transport, now)) {
+            discard(transport);
+            return;
+        }
+        transport.valid = valid;
+        transport.lastUsed = now;
+        lock.lock();
+        try {
+            active--;
+            if (!closed) {
+                idle.addFirst(transport);
+                available.signal();
+                return;
+            }
+            size--;
+            closedCount++;
+        } finally {
+            lock.unlock();
+        }
+        close(transport.transport);
+    }
+
+    private void discard(PooledTransport transport) {
+        lock.lock();
+        try {
+            size--;
+            active--;
+            closedCount++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        close(transport.transport);
+    }
+
+    /**
+     * Opens connections until the pool contains the given number of connections.
+     *
+     * @param count The number of connections
+     */
+    void fill(int count) {
+        List<PooledTransport> transports = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                lock.lock();
+                try {
+                    if (closed || size >= count || size >= config.getConnectionPoolSize()) {
+                        break;
+                    }
+                    size++;
+                    active++;
+                } finally {
+                    lock.unlock();
+                }
+                transports.add(open());
+            }
+        } catch (MessagingException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to open SMTP connection", e);
+        } finally {
+            for (PooledTransport transport : transports) {
+                release(transport, true);
+            }
+        }
+    }
+
+    private void evict() {
+        try {
+            long now = System.currentTimeMillis();
+            List<PooledTransport> evicted = new ArrayList<>();
+            lock.lock();
+            try {
+                // Iterate from the least recently used connection
+                Iterator<PooledTransport> iterator = idle.descendingIterator();
+                while (iterator.hasNext()) {
+                    PooledTransport transport = iterator.next();
+                    boolean idleTooLong = config.getConnectionMaxIdleTime() > 0 && now - transport.lastUsed >= config.getConnectionMaxIdleTime() && size > config.getConnectionPoolMinSize();
+                    if (idleTooLong || isExpired(transport, now)) {
+                        iterator.remove();
+                        size--;
+                        closedCount++;
+                        evicted.add(transport);
+                    }
+                }
+                if (!evicted.isEmpty()) {
+                    available.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (PooledTransport transport : evicted) {
+                close(transport.transport);
+            }
+            if (!evicted.isEmpty() && LOG.isLoggable(Level.FINEST)) {
+                LOG.log(Level.FINEST, "Evicted " + evicted.size() + " SMTP connections");
+            }
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to evict SMTP connections", e);
+        }
+    }
+
+    private static void close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException | RuntimeException e) {
+                LOG.log(Level.FINE, "Failed to close transport", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+        List<PooledTransport> transports;
+        lock.lock();
+        try {
+            closed = true;
+            transports = new ArrayList<>(idle);
+            size -= idle.size();
+            closedCount += idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledTransport transport : transports) {
+            close(transport.transport);
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getCreatedCount() {
+        lock.lock();
+        try {
+            return createdCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getClosedCount() {
+        lock.lock();
+        try {
+            return closedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getAcquireTimeoutCount() {
+        lock.lock();
+        try {
+            return acquireTimeoutCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A transport managed by the pool.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    static final class PooledTransport {
+        private final long created = System.currentTimeMillis();
+        private final Transport transport;
+        private long lastUsed = created;
+        private boolean valid = true;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        /**
+         * Returns the connected transport.
+         *
+         * @return the transport
+         */
+        Transport getTransport() {
+            return transport;
+        }
+    }
+
+    /**
+     * Holds the executor on which the connections of all pools are evicted, which is only created when the first pool needs it.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class Evictor {
+
+        private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+        private Evictor() {
+        }
+
+        private static ScheduledThreadPoolExecutor createExecutor() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "smtp-connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Closed pools must not keep their eviction tasks in the queue
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
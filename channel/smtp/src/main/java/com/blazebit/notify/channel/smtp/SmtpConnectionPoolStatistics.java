@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.channel.smtp;
+
+/**
+ * Statistics of the connection pool of a {@link SmtpChannel}.
+ * The time spent waiting for a connection is recorded as {@link com.blazebit.notify.NotificationMetrics.Stage#POOL_WAIT} latency.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public interface SmtpConnectionPoolStatistics {
+
+    /**
+     * Returns the current number of connections that are in use.
+     *
+     * @return the number of active connections
+     */
+    int getActiveCount();
+
+    /**
+     * Returns the current number of connections that are open but not in use.
+     *
+     * @return the number of idle connections
+     */
+    int getIdleCount();
+
+    /**
+     * Returns the number of connections that were opened so far.
+     *
+     * @return the number of opened connections
+     */
+    long getCreatedCount();
+
+    /**
+     * Returns the number of connections that were closed so far because they were idle, expired, broken or the pool was closed.
+     *
+     * @return the number of closed connections
+     */
+    long getClosedCount();
+
+    /**
+     * Returns the number of connection acquisitions that timed out.
+     *
+     * @return the number of acquire timeouts
+     */
+    long getAcquireTimeoutCount();
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.channel.smtp;
+
+import jakarta.mail.Session;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An SMTP relay with its own session and connection pool, along with the health state that is used for load balancing in a {@link SmtpRelayGroup}.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class SmtpRelay {
+
+    // The health state is maintained by the SmtpRelayGroup
+    final AtomicInteger consecutiveFailures = new AtomicInteger();
+    final AtomicBoolean probing = new AtomicBoolean();
+    volatile long ejectedUntil;
+    volatile double latencyNanos;
+    private final SmtpChannel.Config config;
+    private final Session session;
+    private final SmtpConnectionPool connectionPool;
+
+    /**
+     * Creates a new relay.
+     *
+     * @param config         The SMTP relay configuration
+     * @param session        The session
+     * @param connectionPool The connection pool
+     */
+    SmtpRelay(SmtpChannel.Config config, Session session, SmtpConnectionPool connectionPool) {
+        this.config = config;
+        this.session = session;
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Returns the SMTP relay configuration.
+     *
+     * @return the SMTP relay configuration
+     */
+    SmtpChannel.Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the session.
+     *
+     * @return the session
+     */
+    Session getSession() {
+        return session;
+    }
+
+    /**
+     * Returns the connection pool.
+     *
+     * @return the connection pool
+     */
+    SmtpConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Returns whether the relay is currently ejected from the load balancing.
+     *
+     * @return whether the relay is ejected
+     */
+    boolean isEjected() {
+        return ejectedUntil != 0L;
+    }
+
+    @Override
+    public String toString() {
+        return config.getHost() + ":" + config.getPort();
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.channel.smtp;
+
+import com.blazebit.notify.AdaptiveConcurrencyLimiter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A group of SMTP relays that share the traffic of a route according to their {@link SmtpChannel.Config#getWeight() weights},
+ * adjusted by the observed send latency, so that a slower relay receives proportionally fewer messages.
+ * A relay is ejected for the ejection time after the configured number of consecutive connection failures or temporary 4xx failures.
+ * Once the ejection time passed, a single send is routed to the relay as probe, which re-admits the relay on success or ejects it again on failure.
+ * Only the outcome of the send that claimed the probe re-admits the relay, so a concurrent fallback send can't re-admit it by accident.
+ * If all relays are ejected, the relay with the earliest end of ejection is used, so that sending never stops completely.
+ * When adaptive concurrency is enabled, the group has its own {@link AdaptiveConcurrencyLimiter} sized by the connection pools of its relays,
+ * so that a congested route only limits the sends through that route.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class SmtpRelayGroup {
+
+    private static final Logger LOG = Logger.getLogger(SmtpRelayGroup.class.getName());
+    // The weight of a new latency sample in the exponentially weighted moving average
+    private static final double LATENCY_SMOOTHING_FACTOR = 0.2;
+
+    private final SmtpRelay[] relays;
+    private final int failureThreshold;
+    private final long ejectionTime;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final SmtpConnectionPoolStatistics connectionPoolStatistics;
+
+    /**
+     * Creates a new relay group.
+     *
+     * @param relays             The relays
+     * @param failureThreshold   The number of consecutive failures after which a relay is ejected
+     * @param ejectionTime       The time in milliseconds for which a relay is ejected before it is probed
+     * @param concurrencyLimiter The limiter for concurrent sends through the group or <code>null</code>
+     */
+    SmtpRelayGroup(List<SmtpRelay> relays, int failureThreshold, long ejectionTime, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.relays = relays.toArray(new SmtpRelay[0]);
+        this.failureThreshold = failureThreshold;
+        this.ejectionTime = ejectionTime;
+        this.concurrencyLimiter = concurrencyLimiter;
+        List<SmtpConnectionPoolStatistics> statistics = new ArrayList<>(relays.size());
+        for (SmtpRelay relay : relays) {
+            statistics.add(relay.getConnectionPool());
+        }
+        this.connectionPoolStatistics = AggregateSmtpConnectionPoolStatistics.of(statistics);
+    }
+
+    /**
+     * Returns the limiter for concurrent sends through the group.
+     *
+     * @return the concurrency limiter or <code>null</code> if the concurrency is not adapted
+     */
+    AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Returns the statistics of the connection pools of all relays of the group.
+     *
+     * @return the aggregated connection pool statistics
+     */
+    SmtpConnectionPoolStatistics getConnectionPoolStatistics() {
+        return connectionPoolStatistics;
+    }
+
+    /**
+     * Returns the number of relays.
+     *
+     * @return the number of relays
+     */
+    int size() {
+        return relays.length;
+    }
+
+    /**
+     * Selects the relay to use for the next send.
+     *
+     * @param excluded The relays to exclude because they failed already for the current send, or <code>null</code>
+     * @return the selection that must be passed to {@link #onSuccess(Selection, long)}, {@link #onFailure(Selection)} or {@link #onIgnored(Selection)} after the send
+     */
+    Selection select(Collection<SmtpRelay> excluded) {
+        if (relays.length == 1) {
+            return new Selection(relays[0], false);
+        }
+        long now = System.currentTimeMillis();
+        double[] scores = new double[relays.length];
+        double totalScore = 0;
+        double latencySum = 0;
+        int latencyCount = 0;
+        for (SmtpRelay relay : relays) {
+            if (relay.latencyNanos > 0) {
+                latencySum += relay.latencyNanos;
+                latencyCount++;
+            }
+        }
+        // Relays without latency samples are assumed to be as fast as the average
+        double defaultLatency = latencyCount == 0 ? 1 : latencySum / latencyCount;
+        SmtpRelay fallback = null;
+        for (int i = 0; i < relays.length; i++) {
+            SmtpRelay relay = relays[i];
+            if (excluded != null && excluded.contains(relay)) {
+                continue;
+            }
+            long ejectedUntil = relay.ejectedUntil;
+            if (ejectedUntil != 0L) {
+                if (ejectedUntil <= now && relay.probing.compareAndSet(false, true)) {
+                    return new Selection(relay, true);
+                }
+                if (fallback == null || ejectedUntil < fallback.ejectedUntil) {
+                    fallback = relay;
+                }
+                continue;
+            }
+            double latency = relay.latencyNanos > 0 ? relay.latencyNanos : defaultLatency;
+            scores[i] = relay.getConfig().getWeight() / latency;
+            totalScore += scores[i];
+        }
+        if (totalScore > 0) {
+            double random = ThreadLocalRandom.current().nextDouble(totalScore);
+            for (int i = 0; i < relays.length; i++) {
+                if (scores[i] > 0) {
+                    random -= scores[i];
+                    if (random < 0) {
+                        return new Selection(relays[i], false);
+                    }
+                }
+            }
+        }
+        if (fallback != null) {
+            return new Selection(fallback, false);
+        }
+        // All relays are excluded or have no weight
+        for (SmtpRelay relay : relays) {
+            if (excluded == null || !excluded.contains(relay)) {
+                return new Selection(relay, false);
+            }
+        }
+        return new Selection(relays[0], false);
+    }
+
+    /**
+     * Records a successful send through the selected relay and re-admits the relay if the send was its probe.
+     *
+     * @param selection    The selection of the relay
+     * @param latencyNanos The send latency per message in nanoseconds
+     */
+    void onSuccess(Selection selection, long latencyNanos) {
+        if (relays.length == 1) {
+            return;
+        }
+        SmtpRelay relay = selection.relay;
+        double latency = relay.latencyNanos;
+        relay.latencyNanos = latency == 0 ? latencyNanos : latency + LATENCY_SMOOTHING_FACTOR * (latencyNanos - latency);
+        relay.consecutiveFailures.set(0);
+        if (selection.probe) {
+            relay.ejectedUntil = 0L;
+            relay.probing.set(false);
+            LOG.log(Level.INFO, "Re-admitting SMTP relay " + relay + " after a successful probe");
+        }
+    }
+
+    /**
+     * Records a connection failure or temporary failure of the selected relay and ejects the relay if the failure threshold is reached.
+     *
+     * @param selection The selection of the relay
+     */
+    void onFailure(Selection selection) {
+        if (relays.length == 1) {
+            return;
+        }
+        SmtpRelay relay = selection.relay;
+        int failures = relay.consecutiveFailures.incrementAndGet();
+        if (relay.isEjected() || failures >= failureThreshold) {
+            relay.ejectedUntil = System.currentTimeMillis() + ejectionTime;
+            LOG.log(Level.WARNING, "Ejecting SMTP relay " + relay + " for " + ejectionTime + "ms after " + failures + " consecutive failures");
+        }
+        if (selection.probe) {
+            relay.probing.set(false);
+        }
+    }
+
+    /**
+     * Records a send through the selected relay that says nothing about the health of the relay.
+     *
+     * @param selection The selection of the relay
+     */
+    void onIgnored(Selection selection) {
+        if (selection.probe) {
+            selection.relay.probing.set(false);
+        }
+    }
+
+    /**
+     * A relay selected for a send along with whether the send claimed the probe of the ejected relay.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    static final class Selection {
+
+        private final SmtpRelay relay;
+        private final boolean probe;
+
+        private Selection(SmtpRelay relay, boolean probe) {
+            this.relay = relay;
+            this.probe = probe;
+        }
+
+        /**
+         * Returns the selected relay.
+         *
+         * @return the selected relay
+         */
+        SmtpRelay getRelay() {
+            return relay;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.channel.smtp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A route that sends the messages for recipients of certain domains through a dedicated SMTP relay with its own connection pool.
+ * A domain pattern is either a domain name like <code>example.com</code>, which matches exactly that domain,
+ * or a wildcard pattern like <code>*.example.com</code>, which matches all subdomains of <code>example.com</code>.
+ * An exact match is preferred over a wildcard match and a more specific wildcard is preferred over a less specific one.
+ * The relay is described by a {@link SmtpChannel.Config} of which only the connection related settings like host, port,
+ * credentials, timeouts and connection pool settings are used. The connection pool size caps the number of concurrent sends
+ * through the route, so a short connection acquire timeout lets sends to a congested route fail fast with a temporary error
+ * instead of occupying the sender.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class SmtpRoute {
+
+    private final List<String> domainPatterns;
+    private final SmtpChannel.Config config;
+
+    /**
+     * Creates a new route for the given domain patterns.
+     *
+     * @param domainPatterns The domain patterns
+     * @param config         The configuration of the relay
+     */
+    public SmtpRoute(Collection<String> domainPatterns, SmtpChannel.Config config) {
+        if (domainPatterns == null || domainPatterns.isEmpty()) {
+            throw new IllegalArgumentException("No domain patterns given for SMTP route!");
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("No relay configuration given for SMTP route!");
+        }
+        List<String> patterns = new ArrayList<>(domainPatterns.size());
+        for (String domainPattern : domainPatterns) {
+            String pattern = domainPattern.trim().toLowerCase(Locale.ROOT);
+            if (pattern.isEmpty() || pattern.indexOf('*') != pattern.lastIndexOf('*') || pattern.indexOf('*') > 0 || pattern.startsWith("*") && !pattern.startsWith("*.")) {
+                throw new IllegalArgumentException("Invalid domain pattern for SMTP route: " + domainPattern);
+            }
+            patterns.add(pattern);
+        }
+        this.domainPatterns = Collections.unmodifiableList(patterns);
+        this.config = config;
+    }
+
+    /**
+     * Returns the normalized domain patterns.
+     *
+     * @return the domain patterns
+     */
+    public List<String> getDomainPatterns() {
+        return domainPatterns;
+    }
+
+    /**
+     * Returns the configuration of the relay.
+     *
+     * @return the configuration of the relay
+     */
+    public SmtpChannel.Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the domain of the given email address in lower case.
+     *
+     * @param email The email address
+     * @return the domain
+     */
+    static String getDomain(String email) {
+        return email.substring(email.lastIndexOf('@') + 1).trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return domainPatterns + "=" + config.getHost() + ":" + config.getPort();
+    }
+}
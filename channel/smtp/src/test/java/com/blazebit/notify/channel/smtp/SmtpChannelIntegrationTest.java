@@ -15,6 +15,8 @@
  */
 package com.blazebit.notify.channel.smtp;
 
+import com.blazebit.job.JobTemporaryException;
+import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.email.message.Attachment;
 import com.blazebit.notify.email.message.EmailBody;
 import com.blazebit.notify.email.message.EmailNotificationMessage;
@@ -26,11 +28,14 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMultipart;
 import jakarta.mail.util.ByteArrayDataSource;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class SmtpChannelIntegrationTest extends AbstractSmtpChannelIntegrationTest {
 
@@ -61,4 +66,144 @@ public class SmtpChannelIntegrationTest extends AbstractSmtpChannelIntegrationTe
         assertTrue(msgContent.getBodyPart(1).getContentType().contains("name=" + attachmentName));
         assertEquals(attachmentContent, msgContent.getBodyPart(1).getContent());
     }
+
+    @Test
+    public void pooledConnectionIsReusedAndAcquireTimesOut() throws Exception {
+        SmtpChannel.Config config = SmtpChannel.Config.builder()
+                .withHost(TEST_MAIL_SERVER_DOMAIN)
+                .withPort(TEST_MAIL_SERVER_SMTP_PORT)
+                .withConnectionPoolSize(1)
+                .withConnectionAcquireTimeout(100)
+                .build();
+        EmailNotificationMessage message = new EmailNotificationMessage("no-reply@localhost", null, null, null, null, new EmailSubject("pooled"), new EmailBody("pooled body"), null, Collections.emptyList());
+        try (SmtpChannel channel = new SmtpChannel(config)) {
+            channel.sendNotificationMessage(new DefaultEmailNotificationRecipient(TEST_MAIL_USER), message);
+            channel.sendNotificationMessage(new DefaultEmailNotificationRecipient(TEST_MAIL_USER), message);
+
+            SmtpConnectionPool pool = (SmtpConnectionPool) channel.getConnectionPoolStatistics();
+            assertEquals(1, pool.getCreatedCount());
+            assertEquals(1, pool.getIdleCount());
+            assertEquals(0, pool.getActiveCount());
+
+            SmtpConnectionPool.PooledTransport transport = pool.acquire();
+            try {
+                channel.sendNotificationMessage(new DefaultEmailNotificationRecipient(TEST_MAIL_USER), message);
+                fail("Expected the acquire timeout to be exceeded");
+            } catch (JobTemporaryException expected) {
+                assertEquals(1, pool.getAcquireTimeoutCount());
+            } finally {
+                pool.release(transport, true);
+            }
+        }
+
+        assertEquals(2, mailClient.awaitIncomingEmails(5000, 2).length);
+    }
+
+    @Test
+    public void identicalMessagesAreSentInOneEnvelope() throws Exception {
+        SmtpChannel.Config config = SmtpChannel.Config.builder()
+                .withHost(TEST_MAIL_SERVER_DOMAIN)
+                .withPort(TEST_MAIL_SERVER_SMTP_PORT)
+                .withEnvelopeBatchSize(10)
+                .build();
+        EmailNotificationMessage broadcast = new EmailNotificationMessage("no-reply@localhost", null, null, null, null, new EmailSubject("broadcast"), new EmailBody("broadcast body"), null, Collections.emptyList());
+        EmailNotificationMessage other = new EmailNotificationMessage("no-reply@localhost", null, null, null, null, new EmailSubject("other"), new EmailBody("other body"), null, Collections.emptyList());
+        try (SmtpChannel channel = new SmtpChannel(config)) {
+            List<Object> results = channel.sendNotificationMessages(
+                Arrays.asList(new DefaultEmailNotificationRecipient(TEST_MAIL_USER), new DefaultEmailNotificationRecipient("unknown@localhost"), new DefaultEmailNotificationRecipient(TEST_MAIL_USER)),
+                Arrays.asList(broadcast, broadcast, other)
+            );
+            // The unknown recipient is rejected by the relay while the message is still delivered to the other recipient
+            assertTrue(results.get(0) instanceof String);
+            assertTrue(results.get(1) instanceof NotificationException);
+            assertTrue(results.get(2) instanceof String);
+            assertNotEquals(results.get(0), results.get(2));
+        }
+
+        Message[] receivedEmails = mailClient.awaitIncomingEmails(5000, 2);
+        assertEquals(2, receivedEmails.length);
+        for (Message msg : receivedEmails) {
+            if ("broadcast".equals(msg.getSubject())) {
+                assertEquals("undisclosed-recipients:;", msg.getHeader("To")[0]);
+            } else {
+                assertEquals(TEST_MAIL_USER, msg.getHeader("To")[0]);
+            }
+        }
+    }
+
+    @Test
+    public void encodedBodyIsReusedAcrossMessages() throws Exception {
+        String html = "<p>shared body</p>";
+        List<Attachment> attachments = Collections.singletonList(new Attachment("attachment", new ByteArrayDataSource("attachment content", "text/plain; charset=UTF-8")));
+        EmailNotificationMessage first = new EmailNotificationMessage("no-reply@localhost", null, null, null, null, new EmailSubject("first"), new EmailBody("shared body"), new EmailBody(html), attachments);
+        EmailNotificationMessage second = new EmailNotificationMessage("no-reply@localhost", null, null, null, null, new EmailSubject("second"), new EmailBody("shared body"), new EmailBody(html), attachments);
+        smtpChannel.sendNotificationMessages(
+            Arrays.asList(new DefaultEmailNotificationRecipient(TEST_MAIL_USER), new DefaultEmailNotificationRecipient(TEST_MAIL_USER)),
+            Arrays.asList(first, second)
+        );
+
+        Message[] receivedEmails = mailClient.awaitIncomingEmails(5000, 2);
+        assertEquals(2, receivedEmails.length);
+        assertNotEquals(receivedEmails[0].getSubject(), receivedEmails[1].getSubject());
+        assertNotEquals(receivedEmails[0].getHeader("Message-ID")[0], receivedEmails[1].getHeader("Message-ID")[0]);
+        for (Message msg : receivedEmails) {
+            assertTrue(msg.getContentType().toLowerCase().startsWith("multipart/alternative"));
+            MimeMultipart msgContent = (MimeMultipart) msg.getContent();
+            assertEquals(3, msgContent.getCount());
+            assertEquals(html, ((String) msgContent.getBodyPart(1).getContent()).trim());
+            assertEquals("attachment content", msgContent.getBodyPart(2).getContent());
+        }
+    }
+
+    @Test
+    public void recipientDomainIsRoutedToDedicatedRelay() throws Exception {
+        SmtpChannel.Config relayConfig = SmtpChannel.Config.builder()
+                .withHost(TEST_MAIL_SERVER_DOMAIN)
+                .withPort(TEST_MAIL_SERVER_SMTP_PORT)
+                .build();
+        // The default relay is unreachable, so only the routed recipient domain can be delivered
+        SmtpChannel.Config config = SmtpChannel.Config.builder()
+                .withHost(TEST_MAIL_SERVER_DOMAIN)
+                .withPort(1)
+                .withRoute(new SmtpRoute(Collections.singletonList(TEST_MAIL_SERVER_DOMAIN.toUpperCase()), relayConfig))
+                .build();
+        EmailNotificationMessage message = new EmailNotificationMessage("no-reply@localhost", null, null, null, null, new EmailSubject("routed"), new EmailBody("routed body"), null, Collections.emptyList());
+        try (SmtpChannel channel = new SmtpChannel(config)) {
+            List<Object> results = channel.sendNotificationMessages(
+                Arrays.asList(new DefaultEmailNotificationRecipient("someone@example.com"), new DefaultEmailNotificationRecipient(TEST_MAIL_USER)),
+                Arrays.asList(message, message)
+            );
+            assertTrue(results.get(0) instanceof NotificationException);
+            assertTrue(results.get(1) instanceof String);
+            assertEquals(1, channel.getConnectionPoolStatistics(TEST_MAIL_SERVER_DOMAIN).getCreatedCount());
+            assertEquals(0, channel.getConnectionPoolStatistics("example.com").getCreatedCount());
+            assertEquals(1, channel.getConnectionPoolStatistics().getCreatedCount());
+        }
+
+        assertEquals(1, mailClient.awaitIncomingEmails(5000, 1).length);
+    }
+
+    @Test
+    public void unreachableRelayIsFailedOverAndEjected() throws Exception {
+        // The primary relay is unreachable, so sends must fail over to the second relay
+        SmtpChannel.Config config = SmtpChannel.Config.builder()
+                .withHost(TEST_MAIL_SERVER_DOMAIN)
+                .withPort(1)
+                .withWeight(100)
+                .withRelay(SmtpChannel.Config.builder()
+                        .withHost(TEST_MAIL_SERVER_DOMAIN)
+                        .withPort(TEST_MAIL_SERVER_SMTP_PORT)
+                        .build())
+                .withRelayFailureThreshold(1)
+                .withRelayEjectionTime(60000)
+                .build();
+        EmailNotificationMessage message = new EmailNotificationMessage("no-reply@localhost", null, null, null, null, new EmailSubject("failover"), new EmailBody("failover body"), null, Collections.emptyList());
+        try (SmtpChannel channel = new SmtpChannel(config)) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(channel.sendNotificationMessage(new DefaultEmailNotificationRecipient(TEST_MAIL_USER), message) instanceof String);
+            }
+        }
+
+        assertEquals(3, mailClient.awaitIncomingEmails(5000, 3).length);
+    }
 }
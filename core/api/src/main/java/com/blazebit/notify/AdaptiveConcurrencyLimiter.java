@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+import com.blazebit.job.JobTemporaryException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A concurrency limiter that adapts the number of concurrent sends with an additive increase multiplicative decrease strategy.
+ * While sends succeed within the latency threshold, the limit grows by one per limit successful sends.
+ * Temporary, throttling or timeout errors and slow sends cut the limit multiplicatively, but only once per congestion event,
+ * i.e. sends that were already in flight when the limit was cut don't cut it again.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * The default ratio by which the limit is multiplied on congestion.
+     */
+    public static final double DEFAULT_BACKOFF_RATIO = 0.5;
+    /**
+     * The default amount of milliseconds to wait for a permit.
+     */
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30000L;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long maxLatencyNanos;
+    private final long acquireTimeoutNanos;
+    private final NotificationMetrics metrics;
+    private final String channelType;
+    private double limit;
+    private int inFlight;
+    private boolean backedOff;
+    private long lastBackoffNanos;
+
+    /**
+     * Creates a new limiter with the default backoff ratio and without a latency threshold.
+     *
+     * @param minLimit The minimum limit
+     * @param maxLimit The maximum limit
+     * @param initialLimit The initial limit
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit) {
+        this(minLimit, maxLimit, initialLimit, DEFAULT_BACKOFF_RATIO, 0L);
+    }
+
+    /**
+     * Creates a new limiter with the default acquire timeout that doesn't report metrics.
+     *
+     * @param minLimit The minimum limit
+     * @param maxLimit The maximum limit
+     * @param initialLimit The initial limit
+     * @param backoffRatio The ratio by which the limit is multiplied on congestion
+     * @param maxLatencyMillis The latency in milliseconds above which a send is considered a congestion signal or 0 to disable
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, double backoffRatio, long maxLatencyMillis) {
+        this(minLimit, maxLimit, initialLimit, backoffRatio, maxLatencyMillis, DEFAULT_ACQUIRE_TIMEOUT_MILLIS, NotificationMetrics.noop(), null);
+    }
+
+    /**
+     * Creates a new limiter.
+     *
+     * @param minLimit The minimum limit
+     * @param maxLimit The maximum limit
+     * @param initialLimit The initial limit
+     * @param backoffRatio The ratio by which the limit is multiplied on congestion
+     * @param maxLatencyMillis The latency in milliseconds above which a send is considered a congestion signal or 0 to disable
+     * @param acquireTimeoutMillis The amount of milliseconds to wait for a permit
+     * @param metrics The metrics to which the limit is reported
+     * @param channelType The channel type under which the limit is reported
+     */
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, double backoffRatio, long maxLatencyMillis, long acquireTimeoutMillis, NotificationMetrics metrics, String channelType) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit range: [" + minLimit + ", " + maxLimit + "]");
+        }
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("Invalid backoff ratio: " + backoffRatio);
+        }
+        if (acquireTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid acquire timeout: " + acquireTimeoutMillis);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        this.metrics = metrics == null ? NotificationMetrics.noop() : metrics;
+        this.channelType = channelType;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.metrics.recordGauge(channelType, NotificationMetrics.Gauge.CONCURRENCY_LIMIT, (int) limit);
+    }
+
+    /**
+     * Returns the current limit of concurrent sends.
+     *
+     * @return the current limit of concurrent sends
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the current number of concurrent sends.
+     *
+     * @return the current number of concurrent sends
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Waits until the number of concurrent sends is below the limit and acquires a permit.
+     * Every acquired permit must be released via {@link #onSuccess(long)}, {@link #onDropped(long)} or {@link #onIgnored()}.
+     *
+     * @throws JobTemporaryException If no permit became available within the acquire timeout
+     * @throws NotificationException If interrupted while waiting
+     */
+    public synchronized void acquire() {
+        long remainingNanos = acquireTimeoutNanos;
+        long deadline = System.nanoTime() + remainingNanos;
+        while (inFlight >= (int) limit) {
+            if (remainingNanos <= 0L) {
+                throw new JobTemporaryException("No concurrency permit became available within " + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos) + "ms");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new NotificationException("Interrupted while waiting for a concurrency permit", ex);
+            }
+            remainingNanos = deadline - System.nanoTime();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Releases a permit after a successful send which grows the limit if the latency was healthy.
+     *
+     * @param latencyNanos The latency of the send in nanoseconds
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        if (maxLatencyNanos > 0 && latencyNanos > maxLatencyNanos) {
+            backoff(latencyNanos);
+        } else if (inFlight * 2 >= limit) {
+            // Only grow when the limit was actually used, otherwise an idle channel would drift to the maximum
+            setLimit(Math.min(maxLimit, limit + 1 / limit));
+        }
+        release();
+    }
+
+    /**
+     * Releases a permit after a send failed due to congestion which cuts the limit,
+     * unless the limit was already cut after the send started.
+     *
+     * @param latencyNanos The latency of the send in nanoseconds
+     */
+    public synchronized void onDropped(long latencyNanos) {
+        backoff(latencyNanos);
+        release();
+    }
+
+    /**
+     * Releases a permit after a send failed for a reason unrelated to congestion without changing the limit.
+     */
+    public synchronized void onIgnored() {
+        release();
+    }
+
+    private void backoff(long latencyNanos) {
+        long now = System.nanoTime();
+        // Sends that started before the last cut observed the same congestion and must not cut the limit again
+        if (backedOff && now - latencyNanos - lastBackoffNanos < 0L) {
+            return;
+        }
+        backedOff = true;
+        lastBackoffNanos = now;
+        setLimit(Math.max(minLimit, limit * backoffRatio));
+    }
+
+    private void setLimit(double newLimit) {
+        int oldLimit = (int) limit;
+        limit = newLimit;
+        if ((int) newLimit != oldLimit) {
+            metrics.recordGauge(channelType, NotificationMetrics.Gauge.CONCURRENCY_LIMIT, (int) newLimit);
+        }
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A channel that sends notification messages without blocking the calling thread.
+ * This allows a single worker to have many sends in flight, so throughput is limited by the remote provider
+ * rather than by the amount of available worker threads.
+ *
+ * @param <R> The recipient type
+ * @param <M> The message type
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public interface AsyncChannel<R extends NotificationRecipient<?>, M extends NotificationMessage> extends Channel<R, M> {
+
+    /**
+     * Sends the given message to the given recipient asynchronously.
+     * The returned stage completes with the send identifier or exceptionally with
+     * a {@link com.blazebit.job.JobTemporaryException}, {@link com.blazebit.job.JobRateLimitException} or {@link NotificationException}.
+     *
+     * @param recipient The recipient
+     * @param message The message
+     * @return A stage that completes with the send identifier to track the progress of the send or <code>null</code>
+     */
+    CompletionStage<Object> sendNotificationMessageAsync(R recipient, M message);
+
+    @Override
+    default Object sendNotificationMessage(R recipient, M message) {
+        try {
+            return sendNotificationMessageAsync(recipient, message).toCompletableFuture().join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new NotificationException(cause);
+        }
+    }
+
+}
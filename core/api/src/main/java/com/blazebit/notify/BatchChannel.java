@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify;
+
+import java.util.List;
+
+/**
+ * A channel that is capable of sending multiple notification messages in one go,
+ * so that fixed costs per send like acquiring a connection are only paid once per batch.
+ *
+ * @param <R> The recipient type
+ * @param <M> The message type
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public interface BatchChannel<R extends NotificationRecipient<?>, M extends NotificationMessage> extends Channel<R, M> {
+
+    /**
+     * Sends the given messages to the recipients at the same list index.
+     * The returned list has the same size as the given lists and contains for every index either
+     * the send identifier, as returned by {@link #sendNotificationMessage(NotificationRecipient, NotificationMessage)},
+     * or the {@link Throwable} that caused the send for that index to fail.
+     *
+     * @param recipients The recipients
+     * @param messages The messages
+     * @return The send identifiers or failures per index
+     * @throws com.blazebit.job.JobTemporaryException If there is a temporary issue with the channel that affects the whole batch
+     * @throws com.blazebit.job.JobRateLimitException If the rate limit for the channel is reached for the whole batch
+     * @throws NotificationException If there is any other issue with sending that affects the whole batch
+     */
+    List<Object> sendNotificationMessages(List<R> recipients, List<M> messages);
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A concurrent cache that is bounded by size and idle time.
+ * Lookups of existing entries are lock free, whereas evictions happen when a new entry is added
+ * or when an access happens after the idle time check interval elapsed.
+ * Entries are evicted in approximate least recently used order by keeping them in a queue
+ * that is ordered by the last access known when an entry was queued. Entries that were accessed since are moved to the tail
+ * when they reach the head of the queue, so an eviction only looks at the entries it evicts or moves.
+ * Evicted values are handed to the eviction listener after a close delay, so that users which obtained a value
+ * right before its eviction can still finish using it. A value that is requested again within the close delay is put back into the cache.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class BoundedCache<K, V> implements CacheStatistics {
+
+    private static final Logger LOG = Logger.getLogger(BoundedCache.class.getName());
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ArrayDeque<Entry<K, V>> accessQueue = new ArrayDeque<>();
+    private final LinkedHashMap<K, Entry<K, V>> evictedEntries = new LinkedHashMap<>();
+    private final int maxSize;
+    private final long maxIdleNanos;
+    private final long closeDelayNanos;
+    private final Consumer<V> evictionListener;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private volatile long nextIdleCheck;
+    private volatile long nextClose = Long.MAX_VALUE;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize The maximum number of entries
+     * @param maxIdleMillis The maximum amount of milliseconds an entry may stay unused or a value lower than 1 to disable idle eviction
+     * @param closeDelayMillis The amount of milliseconds after which an evicted value is handed to the eviction listener
+     * @param evictionListener The listener to invoke with evicted values
+     */
+    public BoundedCache(int maxSize, long maxIdleMillis, long closeDelayMillis, Consumer<V> evictionListener) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum cache size: " + maxSize);
+        }
+        if (closeDelayMillis < 0) {
+            throw new IllegalArgumentException("Invalid close delay: " + closeDelayMillis);
+        }
+        this.maxSize = maxSize;
+        this.maxIdleNanos = maxIdleMillis < 1 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+        this.closeDelayNanos = TimeUnit.MILLISECONDS.toNanos(closeDelayMillis);
+        this.evictionListener = evictionListener;
+        this.nextIdleCheck = nextIdleCheck(System.nanoTime());
+    }
+
+    /**
+     * Returns the value for the given key, creating it with the given function if necessary.
+     *
+     * @param key The key
+     * @param valueFunction The function to create a value
+     * @return the value
+     */
+    public V computeIfAbsent(K key, Function<K, V> valueFunction) {
+        long now = System.nanoTime();
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            boolean[] created = new boolean[1];
+            entry = entries.computeIfAbsent(key, k -> {
+                created[0] = true;
+                Entry<K, V> evictedEntry;
+                synchronized (evictedEntries) {
+                    evictedEntry = evictedEntries.remove(k);
+                }
+                return new Entry<>(k, evictedEntry == null ? valueFunction.apply(k) : evictedEntry.value, now);
+            });
+            if (created[0]) {
+                missCount.increment();
+                synchronized (accessQueue) {
+                    accessQueue.add(entry);
+                }
+                evict(now);
+                return entry.value;
+            }
+        }
+        hitCount.increment();
+        entry.lastAccess = now;
+        if (now - nextIdleCheck >= 0) {
+            evict(now);
+        } else if (now - nextClose >= 0) {
+            closeEvicted(now, false);
+        }
+        return entry.value;
+    }
+
+    /**
+     * Evicts all entries and closes all evicted values right away.
+     */
+    public void clear() {
+        synchronized (accessQueue) {
+            accessQueue.clear();
+        }
+        for (Iterator<Map.Entry<K, Entry<K, V>>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<K, Entry<K, V>> entry = iterator.next();
+            if (entries.remove(entry.getKey(), entry.getValue())) {
+                notifyEviction(entry.getValue().value);
+            }
+        }
+        closeEvicted(System.nanoTime(), true);
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    private long nextIdleCheck(long now) {
+        if (maxIdleNanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return now + maxIdleNanos / 2;
+    }
+
+    private void evict(long now) {
+        nextIdleCheck = nextIdleCheck(now);
+        List<Entry<K, V>> evicted = null;
+        synchronized (accessQueue) {
+            // Every entry is moved at most once per eviction run, even if it is accessed concurrently
+            int remainingMoves = accessQueue.size();
+            Entry<K, V> entry;
+            while ((entry = accessQueue.peek()) != null) {
+                if (entries.get(entry.key) != entry) {
+                    // The entry was removed by clear
+                    accessQueue.poll();
+                } else if (entry.lastAccess - entry.queuedAccess > 0 && remainingMoves-- > 0) {
+                    accessQueue.poll();
+                    entry.queuedAccess = entry.lastAccess;
+                    accessQueue.add(entry);
+                } else if (now - entry.lastAccess > maxIdleNanos || entries.size() > maxSize) {
+                    accessQueue.poll();
+                    if (entries.remove(entry.key, entry)) {
+                        evictionCount.increment();
+                        if (evicted == null) {
+                            evicted = new ArrayList<>();
+                        }
+                        evicted.add(entry);
+                    }
+                } else {
+                    break;
+                }
+            }
+        }
+        if (evicted != null) {
+            if (closeDelayNanos == 0L) {
+                for (int i = 0; i < evicted.size(); i++) {
+                    notifyEviction(evicted.get(i).value);
+                }
+            } else {
+                List<V> replaced = null;
+                synchronized (evictedEntries) {
+                    for (int i = 0; i < evicted.size(); i++) {
+                        Entry<K, V> entry = evicted.get(i);
+                        entry.closeTime = now + closeDelayNanos;
+                        Entry<K, V> replacedEntry = evictedEntries.put(entry.key, entry);
+                        if (replacedEntry != null && replacedEntry.value != entry.value) {
+                            if (replaced == null) {
+                                replaced = new ArrayList<>();
+                            }
+                            replaced.add(replacedEntry.value);
+                        }
+                    }
+                    if (nextClose == Long.MAX_VALUE) {
+                        nextClose = evictedEntries.values().iterator().next().closeTime;
+                    }
+                }
+                if (replaced != null) {
+                    for (int i = 0; i < replaced.size(); i++) {
+                        notifyEviction(replaced.get(i));
+                    }
+                }
+            }
+        }
+        if (now - nextClose >= 0) {
+            closeEvicted(now, false);
+        }
+    }
+
+    private void closeEvicted(long now, boolean all) {
+        List<V> closed = new ArrayList<>();
+        synchronized (evictedEntries) {
+            for (Iterator<Entry<K, V>> iterator = evictedEntries.values().iterator(); iterator.hasNext(); ) {
+                Entry<K, V> entry = iterator.next();
+                if (!all && now - entry.closeTime < 0) {
+                    break;
+                }
+                iterator.remove();
+                closed.add(entry.value);
+            }
+            nextClose = evictedEntries.isEmpty() ? Long.MAX_VALUE : evictedEntries.values().iterator().next().closeTime;
+        }
+        for (int i = 0; i < closed.size(); i++) {
+            notifyEviction(closed.get(i));
+        }
+    }
+
+    private void notifyEviction(V value) {
+        try {
+            evictionListener.accept(value);
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, "Error during eviction of cache entry", ex);
+        }
+    }
+
+    /**
+     * A cache entry.
+     *
+     * @param <K> The key type
+     * @param <V> The value type
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+        private volatile long lastAccess;
+        // The last access when the entry was put into the access queue, guarded by the access queue
+        private long queuedAccess;
+        // The time at which an evicted entry is closed, guarded by the evicted entries
+        private long closeTime;
+
+        Entry(K key, V value, long lastAccess) {
+            this.key = key;
+            this.value = value;
+            this.lastAccess = lastAccess;
+            this.queuedAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+/**
+ * Statistics of a cache maintained by a {@link NotificationJobContext}.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public interface CacheStatistics {
+
+    /**
+     * Returns the number of lookups that were served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups that required the creation of a new cache entry.
+     *
+     * @return the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of entries that were evicted because of the size or idle time bounds.
+     *
+     * @return the number of evictions
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the current number of entries.
+     *
+     * @return the current number of entries
+     */
+    int getSize();
+}
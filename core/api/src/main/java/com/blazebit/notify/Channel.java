@@ -48,4 +48,13 @@ public interface Channel<R extends NotificationRecipient<?>, M extends Notificat
      */
     Object sendNotificationMessage(R recipient, M message);
 
+    /**
+     * Returns the client side rate limiter for this channel or <code>null</code> if sends aren't rate limited.
+     *
+     * @return the rate limiter or <code>null</code>
+     */
+    default RateLimiter getRateLimiter() {
+        return null;
+    }
+
 }
@@ -17,6 +17,8 @@ package com.blazebit.notify;
 
 import com.blazebit.job.ConfigurationSource;
 
+import java.util.Set;
+
 /**
  * A factory for channels of a specific type.
  *
@@ -33,6 +35,18 @@ public interface ChannelFactory<C extends Channel<? extends NotificationRecipien
      */
     ChannelKey<C> getChannelType();
 
+    /**
+     * Returns the configuration property keys on which the channels created by this factory depend.
+     * A {@link NotificationJobContext} shares a channel between all configuration sources that agree on the values of these properties,
+     * and passes a configuration source to {@link #createChannel(NotificationJobContext, ConfigurationSource)} that only contains these properties.
+     * Returns <code>null</code> by default, which means that a channel might depend on any property of a configuration source.
+     *
+     * @return the configuration property keys on which the channels depend or <code>null</code>
+     */
+    default Set<String> getConfigurationPropertyKeys() {
+        return null;
+    }
+
     /**
      * Creates a channel for the given notification job context and the given configuration source.
      *
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+import com.blazebit.job.ConfigurationSource;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of configuration properties that computes its hash code only once.
+ * Instances are well suited as cache keys, especially after being interned via {@link #intern()},
+ * because equal interned instances are identical and can be compared by reference.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class FrozenConfigurationSource implements ConfigurationSource {
+
+    private static final ConcurrentMap<InternKey, InternReference> INTERNED = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<FrozenConfigurationSource> INTERNED_QUEUE = new ReferenceQueue<>();
+
+    private final Map<String, Object> properties;
+    private final int hashCode;
+    private volatile FrozenConfigurationSource interned;
+    private volatile ConcurrentMap<Collection<String>, FrozenConfigurationSource> snapshots;
+
+    /**
+     * Creates a snapshot of the given properties. Properties with a <code>null</code> value are omitted.
+     *
+     * @param properties The properties
+     */
+    protected FrozenConfigurationSource(Map<String, ?> properties) {
+        Map<String, Object> map = new HashMap<>(properties.size());
+        for (Map.Entry<String, ?> entry : properties.entrySet()) {
+            if (entry.getValue() != null) {
+                map.put(entry.getKey(), entry.getValue());
+            }
+        }
+        this.properties = Collections.unmodifiableMap(map);
+        this.hashCode = map.hashCode();
+    }
+
+    /**
+     * Creates a snapshot of the given properties. Properties with a <code>null</code> value are omitted.
+     *
+     * @param properties The properties
+     * @return the snapshot
+     */
+    public static FrozenConfigurationSource of(Map<String, ?> properties) {
+        return new FrozenConfigurationSource(properties);
+    }
+
+    /**
+     * Creates a snapshot of the values of the given property keys of the given configuration source.
+     * The snapshot of a {@link FrozenConfigurationSource} is interned and reused for the same property keys.
+     *
+     * @param configurationSource The configuration source
+     * @param propertyKeys The property keys to capture
+     * @return the snapshot
+     */
+    public static FrozenConfigurationSource of(ConfigurationSource configurationSource, Collection<String> propertyKeys) {
+        if (configurationSource instanceof FrozenConfigurationSource) {
+            return ((FrozenConfigurationSource) configurationSource).snapshot(propertyKeys);
+        }
+        return new FrozenConfigurationSource(extract(configurationSource, propertyKeys));
+    }
+
+    private static Map<String, Object> extract(ConfigurationSource configurationSource, Collection<String> propertyKeys) {
+        Map<String, Object> properties = new HashMap<>(propertyKeys.size());
+        for (String propertyKey : propertyKeys) {
+            properties.put(propertyKey, configurationSource.getProperty(propertyKey));
+        }
+        return properties;
+    }
+
+    private FrozenConfigurationSource snapshot(Collection<String> propertyKeys) {
+        // Snapshots are immutable, so the interned snapshot of a subset of the properties can be reused
+        ConcurrentMap<Collection<String>, FrozenConfigurationSource> snapshots = this.snapshots;
+        if (snapshots == null) {
+            snapshots = new ConcurrentHashMap<>();
+            this.snapshots = snapshots;
+        }
+        FrozenConfigurationSource snapshot = snapshots.get(propertyKeys);
+        if (snapshot == null) {
+            snapshot = new FrozenConfigurationSource(extract(this, propertyKeys)).intern();
+            snapshots.putIfAbsent(propertyKeys, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the canonical instance for the properties of this snapshot.
+     * Canonical instances are only weakly referenced and vanish when no longer used.
+     *
+     * @return the canonical instance
+     */
+    public FrozenConfigurationSource intern() {
+        FrozenConfigurationSource interned = this.interned;
+        if (interned != null) {
+            return interned;
+        }
+        expungeInterned();
+        InternKey key = new InternKey(properties, hashCode);
+        InternReference reference = INTERNED.get(key);
+        while (true) {
+            if (reference != null) {
+                interned = reference.get();
+                if (interned != null) {
+                    this.interned = interned;
+                    return interned;
+                }
+                INTERNED.remove(key, reference);
+            }
+            reference = INTERNED.putIfAbsent(key, new InternReference(this, key));
+            if (reference == null) {
+                this.interned = this;
+                return this;
+            }
+        }
+    }
+
+    private static void expungeInterned() {
+        InternReference reference;
+        while ((reference = (InternReference) INTERNED_QUEUE.poll()) != null) {
+            INTERNED.remove(reference.key, reference);
+        }
+    }
+
+    /**
+     * Returns the unmodifiable properties of this snapshot.
+     *
+     * @return the properties
+     */
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    @Override
+    public Object getProperty(String property) {
+        return properties.get(property);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FrozenConfigurationSource)) {
+            return false;
+        }
+
+        FrozenConfigurationSource that = (FrozenConfigurationSource) o;
+
+        return hashCode == that.hashCode && properties.equals(that.properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenConfigurationSource" + properties.keySet();
+    }
+
+    /**
+     * The key of an interned snapshot that doesn't keep the snapshot alive.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class InternKey {
+
+        private final Map<String, Object> properties;
+        private final int hashCode;
+
+        private InternKey(Map<String, Object> properties, int hashCode) {
+            this.properties = properties;
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof InternKey)) {
+                return false;
+            }
+
+            InternKey that = (InternKey) o;
+
+            return hashCode == that.hashCode && properties.equals(that.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A weak reference to an interned snapshot that remembers its key for removal.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class InternReference extends WeakReference<FrozenConfigurationSource> {
+
+        private final InternKey key;
+
+        private InternReference(FrozenConfigurationSource referent, InternKey key) {
+            super(referent, INTERNED_QUEUE);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+
+/**
+ * An iterator that loads recipients page by page, each page starting after the identifier of the last recipient of the previous page.
+ * At most one page of recipients is held in memory at a time.
+ *
+ * @param <X> The recipient type
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class KeysetPagedRecipientIterator<X extends NotificationRecipient<?>> implements Iterator<X> {
+
+    private final int pageSize;
+    private final BiFunction<Object, Integer, List<X>> pageLoader;
+    private Object lastId;
+    private List<X> page;
+    private int index;
+    private boolean lastPage;
+
+    /**
+     * Creates a new iterator.
+     *
+     * @param startAfter The identifier after which to start or <code>null</code> to start at the beginning
+     * @param pageSize The maximum number of recipients to load per page
+     * @param pageLoader The function to load at most the given number of recipients ordered by identifier after the given identifier
+     */
+    KeysetPagedRecipientIterator(Object startAfter, int pageSize, BiFunction<Object, Integer, List<X>> pageLoader) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+        this.lastId = startAfter;
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page != null && index < page.size()) {
+            return true;
+        }
+        if (lastPage) {
+            return false;
+        }
+        page = pageLoader.apply(lastId, pageSize);
+        index = 0;
+        // A short page means there is nothing left, so we can spare the query for an empty page
+        lastPage = page.size() < pageSize;
+        return !page.isEmpty();
+    }
+
+    @Override
+    public X next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        X recipient = page.get(index++);
+        lastId = recipient.getId();
+        return recipient;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+/**
+ * A metrics implementation that discards everything.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class NoopNotificationMetrics implements NotificationMetrics {
+
+    static final NoopNotificationMetrics INSTANCE = new NoopNotificationMetrics();
+
+    private NoopNotificationMetrics() {
+    }
+
+    @Override
+    public void recordLatency(String channelType, Stage stage, long nanos) {
+    }
+
+    @Override
+    public void recordOutcome(String channelType, Outcome outcome, long count) {
+    }
+
+    @Override
+    public void recordGauge(String channelType, Gauge gauge, long value) {
+    }
+}
@@ -31,11 +31,23 @@ import com.blazebit.job.spi.PartitionKeyProvider;
 import com.blazebit.notify.spi.NotificationPartitionKeyProvider;
 import com.blazebit.notify.spi.NotificationPartitionKeyProviderFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A closable context in which notification jobs and normal jobs can run.
@@ -45,6 +57,66 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public interface NotificationJobContext extends JobContext {
 
+    /**
+     * The configuration property for enabling the dispatch of channel sends to a thread pool instead of running them on the worker threads of the scheduler.
+     */
+    String DISPATCH_THREAD_POOL_PROPERTY = "notification.processor.dispatch_thread_pool";
+    /**
+     * The configuration property for the maximum number of sends that are dispatched at the same time, which is also the maximum number of platform threads of the dispatch thread pool.
+     */
+    String DISPATCH_THREAD_POOL_MAX_IN_FLIGHT_PROPERTY = "notification.processor.dispatch_thread_pool.max_in_flight";
+    /**
+     * The configuration property for the {@link java.util.concurrent.ExecutorService} to dispatch channel sends to instead of a pool of platform threads,
+     * for example a virtual thread per task executor on Java 21 or newer. The executor is not shut down by the context.
+     */
+    String DISPATCH_EXECUTOR_SERVICE_PROPERTY = "notification.processor.dispatch_thread_pool.executor_service";
+    /**
+     * The configuration property prefix for the maximum number of concurrent sends of a channel type.
+     * The channel type is appended to the prefix separated by a dot.
+     */
+    String CHANNEL_CONCURRENCY_LIMIT_PROPERTY = "notification.channel.max_concurrency";
+    /**
+     * The configuration property for the maximum number of cached channels.
+     */
+    String CHANNEL_CACHE_MAX_SIZE_PROPERTY = "notification.context.channel_cache.max_size";
+    /**
+     * The configuration property for the amount of milliseconds after which an unused cached channel is closed.
+     */
+    String CHANNEL_CACHE_MAX_IDLE_PROPERTY = "notification.context.channel_cache.max_idle_millis";
+    /**
+     * The configuration property for the amount of milliseconds after which an evicted channel is closed.
+     * Sends that obtained the channel before its eviction can finish within that time.
+     */
+    String CHANNEL_CACHE_CLOSE_DELAY_PROPERTY = "notification.context.channel_cache.close_delay_millis";
+    /**
+     * The configuration property for the maximum number of cached message resolvers.
+     */
+    String MESSAGE_RESOLVER_CACHE_MAX_SIZE_PROPERTY = "notification.context.message_resolver_cache.max_size";
+    /**
+     * The configuration property for the amount of milliseconds after which an unused cached message resolver is evicted.
+     */
+    String MESSAGE_RESOLVER_CACHE_MAX_IDLE_PROPERTY = "notification.context.message_resolver_cache.max_idle_millis";
+    /**
+     * The configuration property for the amount of milliseconds after which an evicted message resolver is closed.
+     */
+    String MESSAGE_RESOLVER_CACHE_CLOSE_DELAY_PROPERTY = "notification.context.message_resolver_cache.close_delay_millis";
+    /**
+     * The configuration property for the channel types to create and warm up during startup.
+     * The value is either a collection of channel types or a comma separated string of channel types.
+     */
+    String WARM_UP_CHANNELS_PROPERTY = "notification.context.warm_up.channels";
+    /**
+     * The configuration property for the notification message types whose message resolvers to create and warm up during startup.
+     * The value is either a collection of notification message classes or class names, or a comma separated string of class names.
+     */
+    String WARM_UP_MESSAGE_TYPES_PROPERTY = "notification.context.warm_up.message_types";
+    /**
+     * The configuration property for the locales for which to warm up locale specific resources like templates.
+     * The value is either a collection of locales or language tags, or a comma separated string of language tags.
+     * Defaults to the default locale of the JVM.
+     */
+    String WARM_UP_LOCALES_PROPERTY = "notification.context.warm_up.locales";
+
     /**
      * Returns the resolver for recipients of a notification job instance.
      *
@@ -124,6 +196,27 @@ public interface NotificationJobContext extends JobContext {
      */
     <T extends Channel<? extends NotificationRecipient<?>, ? extends NotificationMessage>> T getChannel(ChannelKey<T> channelKey, ConfigurationSource configurationSource);
 
+    /**
+     * Returns the statistics of the cache for channels.
+     *
+     * @return the statistics of the cache for channels
+     */
+    CacheStatistics getChannelCacheStatistics();
+
+    /**
+     * Returns the statistics of the cache for message resolvers.
+     *
+     * @return the statistics of the cache for message resolvers
+     */
+    CacheStatistics getMessageResolverCacheStatistics();
+
+    /**
+     * Returns the metrics of the notification pipeline.
+     *
+     * @return the metrics of the notification pipeline, never <code>null</code>
+     */
+    NotificationMetrics getMetrics();
+
     /**
      * Returns a builder for a notification job context.
      *
@@ -149,6 +242,7 @@ public interface NotificationJobContext extends JobContext {
         private NotificationJobProcessorFactory notificationJobProcessorFactory;
         private NotificationJobInstanceProcessorFactory notificationJobInstanceProcessorFactory;
         private NotificationProcessorFactory notificationProcessorFactory;
+        private NotificationMetrics notificationMetrics;
         private final Map<String, ChannelFactory<?>> channelFactories = new HashMap<>();
         private final Map<Class<? extends NotificationMessage>, NotificationMessageResolverFactory<?>> messageResolverFactories = new HashMap<>();
 
@@ -160,6 +254,7 @@ public interface NotificationJobContext extends JobContext {
             notificationJobProcessorFactory = loadFirstServiceOrNone(NotificationJobProcessorFactory.class);
             notificationJobInstanceProcessorFactory = loadFirstServiceOrNone(NotificationJobInstanceProcessorFactory.class);
             notificationProcessorFactory = loadFirstServiceOrNone(NotificationProcessorFactory.class);
+            notificationMetrics = loadFirstServiceOrNone(NotificationMetrics.class);
             for (ChannelFactory channelFactory : loadServices(ChannelFactory.class)) {
                 channelFactories.put(channelFactory.getChannelType().getChannelType(), channelFactory);
             }
@@ -222,7 +317,8 @@ public interface NotificationJobContext extends JobContext {
                 getRecipientResolver(),
                 getChannelFactories(),
                 getMessageResolverFactories(),
-                channelPartitionKeys
+                channelPartitionKeys,
+                getNotificationMetrics()
             );
         }
 
@@ -418,6 +514,26 @@ public interface NotificationJobContext extends JobContext {
             return this;
         }
 
+        /**
+         * Returns the configured notification metrics.
+         *
+         * @return the configured notification metrics
+         */
+        public NotificationMetrics getNotificationMetrics() {
+            return notificationMetrics;
+        }
+
+        /**
+         * Sets the given notification metrics.
+         *
+         * @param notificationMetrics The notification metrics
+         * @return this for chaining
+         */
+        public Builder withNotificationMetrics(NotificationMetrics notificationMetrics) {
+            this.notificationMetrics = notificationMetrics;
+            return this;
+        }
+
         /**
          * Returns the configured channel factories.
          *
@@ -438,6 +554,67 @@ public interface NotificationJobContext extends JobContext {
             return this;
         }
 
+        /**
+         * Returns whether channel sends are dispatched to a thread pool.
+         *
+         * @return whether channel sends are dispatched to a thread pool
+         */
+        public boolean isDispatchThreadPool() {
+            Object value = getProperty(DISPATCH_THREAD_POOL_PROPERTY);
+            return value instanceof Boolean ? (Boolean) value : value != null && Boolean.parseBoolean(value.toString());
+        }
+
+        /**
+         * Sets whether channel sends should be dispatched to a thread pool rather than run on the worker threads of the scheduler.
+         * This allows more blocking sends to be in flight than the scheduler has worker threads.
+         * By default, the pool consists of at most {@link #withDispatchThreadPoolMaxInFlight(int) max in-flight} platform threads.
+         *
+         * @param dispatchThreadPool Whether to dispatch channel sends to a thread pool
+         * @return this for chaining
+         */
+        public Builder withDispatchThreadPool(boolean dispatchThreadPool) {
+            return withProperty(DISPATCH_THREAD_POOL_PROPERTY, dispatchThreadPool);
+        }
+
+        /**
+         * Sets the maximum number of sends that are dispatched at the same time.
+         *
+         * @param maxInFlight The maximum number of dispatched sends
+         * @return this for chaining
+         */
+        public Builder withDispatchThreadPoolMaxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("Invalid maximum number of in-flight sends: " + maxInFlight);
+            }
+            return withProperty(DISPATCH_THREAD_POOL_MAX_IN_FLIGHT_PROPERTY, maxInFlight);
+        }
+
+        /**
+         * Sets the executor service to dispatch channel sends to instead of a pool of platform threads,
+         * for example <code>Executors.newVirtualThreadPerTaskExecutor()</code> on Java 21 or newer.
+         * The executor service is not shut down when the context stops.
+         *
+         * @param executorService The executor service to dispatch channel sends to
+         * @return this for chaining
+         */
+        public Builder withDispatchExecutorService(ExecutorService executorService) {
+            return withProperty(DISPATCH_EXECUTOR_SERVICE_PROPERTY, executorService);
+        }
+
+        /**
+         * Sets the maximum number of concurrent sends for the given channel type.
+         *
+         * @param channelType The channel type
+         * @param maxConcurrency The maximum number of concurrent sends
+         * @return this for chaining
+         */
+        public Builder withChannelConcurrencyLimit(String channelType, int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("Invalid maximum concurrency for channel type " + channelType + ": " + maxConcurrency);
+            }
+            return withProperty(CHANNEL_CONCURRENCY_LIMIT_PROPERTY + "." + channelType, maxConcurrency);
+        }
+
         /**
          * Returns the configured message resolver factories.
          *
@@ -518,25 +695,162 @@ public interface NotificationJobContext extends JobContext {
          */
         private static final class DefaultNotificationJobContext extends JobContext.Builder.DefaultJobContext implements NotificationJobContext {
 
+            private static final int DEFAULT_CHANNEL_CACHE_MAX_SIZE = 128;
+            private static final int DEFAULT_MESSAGE_RESOLVER_CACHE_MAX_SIZE = 1024;
+            private static final long DEFAULT_CACHE_MAX_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+            private static final long DEFAULT_CACHE_CLOSE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+            private static final Logger LOG = Logger.getLogger(DefaultNotificationJobContext.class.getName());
+
             private final NotificationProcessorFactory notificationProcessorFactory;
             private final NotificationRecipientResolver recipientResolver;
             private final Map<String, ChannelFactory<?>> channelFactories;
             private final Map<Class<? extends NotificationMessage>, NotificationMessageResolverFactory<?>> messageResolverFactories;
             private final Map<String, PartitionKey> channelPartitionKeys;
-            private final Map<ChannelMapKey, Channel<?, ?>> channels = new ConcurrentHashMap<>();
-            private final Map<MessageResolverMapKey, NotificationMessageResolver<?>> messageResolvers = new ConcurrentHashMap<>();
+            private final BoundedCache<ChannelMapKey, Channel<?, ?>> channels;
+            private final BoundedCache<MessageResolverMapKey, NotificationMessageResolver<?>> messageResolvers;
+            private final Map<String, ConfigurationSource> channelConfigurationSources = new ConcurrentHashMap<>();
+            private final NotificationMetrics metrics;
 
             protected DefaultNotificationJobContext(JobContext.BuilderBase<?> builder, NotificationProcessorFactory notificationProcessorFactory, NotificationRecipientResolver recipientResolver,
-                                                    Map<String, ChannelFactory<?>> channelFactories, Map<Class<? extends NotificationMessage>, NotificationMessageResolverFactory<?>> messageResolverFactories, Map<String, PartitionKey> channelPartitionKeys) {
+                                                    Map<String, ChannelFactory<?>> channelFactories, Map<Class<? extends NotificationMessage>, NotificationMessageResolverFactory<?>> messageResolverFactories, Map<String, PartitionKey> channelPartitionKeys,
+                                                    NotificationMetrics metrics) {
                 super(builder);
+                this.metrics = metrics == null ? NotificationMetrics.noop() : metrics;
                 this.notificationProcessorFactory = notificationProcessorFactory;
                 this.recipientResolver = recipientResolver;
                 this.channelFactories = channelFactories;
                 this.messageResolverFactories = messageResolverFactories;
                 this.channelPartitionKeys = channelPartitionKeys;
+                this.channels = new BoundedCache<>(
+                    getPropertyOrDefault(CHANNEL_CACHE_MAX_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> DEFAULT_CHANNEL_CACHE_MAX_SIZE),
+                    getPropertyOrDefault(CHANNEL_CACHE_MAX_IDLE_PROPERTY, Long.class, Long::valueOf, o -> DEFAULT_CACHE_MAX_IDLE_MILLIS),
+                    getPropertyOrDefault(CHANNEL_CACHE_CLOSE_DELAY_PROPERTY, Long.class, Long::valueOf, o -> DEFAULT_CACHE_CLOSE_DELAY_MILLIS),
+                    DefaultNotificationJobContext::close
+                );
+                this.messageResolvers = new BoundedCache<>(
+                    getPropertyOrDefault(MESSAGE_RESOLVER_CACHE_MAX_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> DEFAULT_MESSAGE_RESOLVER_CACHE_MAX_SIZE),
+                    getPropertyOrDefault(MESSAGE_RESOLVER_CACHE_MAX_IDLE_PROPERTY, Long.class, Long::valueOf, o -> DEFAULT_CACHE_MAX_IDLE_MILLIS),
+                    getPropertyOrDefault(MESSAGE_RESOLVER_CACHE_CLOSE_DELAY_PROPERTY, Long.class, Long::valueOf, o -> DEFAULT_CACHE_CLOSE_DELAY_MILLIS),
+                    DefaultNotificationJobContext::close
+                );
+                warmUp();
                 start();
             }
 
+            private void warmUp() {
+                List<Callable<Void>> tasks = new ArrayList<>();
+                Collection<Locale> locales = getLocales(WARM_UP_LOCALES_PROPERTY);
+                for (Object channelType : getValues(WARM_UP_CHANNELS_PROPERTY)) {
+                    String type = channelType.toString();
+                    tasks.add(() -> warmUp(type, getChannel(type), locales));
+                }
+                for (Object messageType : getValues(WARM_UP_MESSAGE_TYPES_PROPERTY)) {
+                    Class<? extends NotificationMessage> messageClass = getMessageClass(messageType);
+                    tasks.add(() -> warmUp(null, getNotificationMessageResolver(messageClass), locales));
+                }
+                if (tasks.isEmpty()) {
+                    return;
+                }
+
+                long start = System.nanoTime();
+                ExecutorService executorService = Executors.newFixedThreadPool(Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+                try {
+                    for (Future<Void> future : executorService.invokeAll(tasks)) {
+                        try {
+                            future.get();
+                        } catch (ExecutionException ex) {
+                            LOG.log(Level.WARNING, "Couldn't warm up notification job context component", ex.getCause());
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new NotificationException("Interrupted during warm up", ex);
+                } finally {
+                    executorService.shutdown();
+                }
+                long nanos = System.nanoTime() - start;
+                metrics.recordLatency(null, NotificationMetrics.Stage.WARM_UP, nanos);
+                LOG.log(Level.INFO, "Warmed up {0} notification job context components for locales {1} in {2}ms", new Object[]{ tasks.size(), locales, TimeUnit.NANOSECONDS.toMillis(nanos) });
+            }
+
+            private Void warmUp(String channelType, Object component, Collection<Locale> locales) {
+                if (component instanceof Warmable) {
+                    long start = System.nanoTime();
+                    ((Warmable) component).warmUp(locales);
+                    metrics.recordLatency(channelType, NotificationMetrics.Stage.WARM_UP, System.nanoTime() - start);
+                }
+                return null;
+            }
+
+            private Collection<Object> getValues(String property) {
+                return getPropertyOrDefault(property, Collection.class, s -> s.isEmpty() ? Collections.emptyList() : Arrays.asList((Object[]) s.split("\\s*,\\s*")), o -> Collections.emptyList());
+            }
+
+            private Collection<Locale> getLocales(String property) {
+                Collection<Object> values = getValues(property);
+                if (values.isEmpty()) {
+                    return Collections.singletonList(Locale.getDefault());
+                }
+                List<Locale> locales = new ArrayList<>(values.size());
+                for (Object value : values) {
+                    locales.add(value instanceof Locale ? (Locale) value : Locale.forLanguageTag(value.toString()));
+                }
+                return locales;
+            }
+
+            private Class<? extends NotificationMessage> getMessageClass(Object messageType) {
+                if (messageType instanceof Class<?>) {
+                    return (Class<? extends NotificationMessage>) messageType;
+                }
+                for (Class<? extends NotificationMessage> messageClass : messageResolverFactories.keySet()) {
+                    if (messageClass.getName().equals(messageType.toString())) {
+                        return messageClass;
+                    }
+                }
+                throw new NotificationException("No message resolver factory registered for the notification message type configured for warm up: " + messageType);
+            }
+
+            private static void close(Object object) {
+                if (object instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) object).close();
+                    } catch (Exception ex) {
+                        throw new NotificationException("Couldn't close object " + object, ex);
+                    }
+                }
+            }
+
+            @Override
+            public void stop() {
+                super.stop();
+                close(notificationProcessorFactory);
+                channels.clear();
+                messageResolvers.clear();
+            }
+
+            @Override
+            public void stop(long timeout, TimeUnit unit) throws InterruptedException {
+                super.stop(timeout, unit);
+                close(notificationProcessorFactory);
+                channels.clear();
+                messageResolvers.clear();
+            }
+
+            @Override
+            public CacheStatistics getChannelCacheStatistics() {
+                return channels;
+            }
+
+            @Override
+            public CacheStatistics getMessageResolverCacheStatistics() {
+                return messageResolvers;
+            }
+
+            @Override
+            public NotificationMetrics getMetrics() {
+                return metrics;
+            }
+
             @Override
             protected void afterConstruct() {
                 // Wait until we are done with our construction
@@ -547,6 +861,9 @@ public interface NotificationJobContext extends JobContext {
                 if (NotificationRecipientResolver.class == serviceClass) {
                     return (T) getRecipientResolver();
                 }
+                if (NotificationMetrics.class == serviceClass) {
+                    return (T) metrics;
+                }
                 return super.getService(serviceClass);
             }
 
@@ -618,20 +935,29 @@ public interface NotificationJobContext extends JobContext {
                 if (channelKey == null) {
                     throw new IllegalArgumentException("Illegal null channel key!");
                 }
+                ChannelFactory<?> channelFactory = channelFactories.get(channelKey);
+                if (channelFactory == null) {
+                    throw new NotificationException("No channel factory for channel key available: " + channelKey);
+                }
+                Set<String> propertyKeys = channelFactory.getConfigurationPropertyKeys();
+                // Share channels between configuration sources that agree on the properties the channel depends on
+                ConfigurationSource channelConfigurationSource;
+                if (propertyKeys == null) {
+                    channelConfigurationSource = configurationSource;
+                } else if (configurationSource == this) {
+                    // The context configuration doesn't change, so its snapshot per channel type is reused
+                    channelConfigurationSource = channelConfigurationSources.computeIfAbsent(channelKey, k -> FrozenConfigurationSource.of(this, propertyKeys).intern());
+                } else {
+                    channelConfigurationSource = FrozenConfigurationSource.of(configurationSource, propertyKeys);
+                }
                 return (T) channels.computeIfAbsent(
-                    new ChannelMapKey(channelKey, configurationSource),
-                    k -> {
-                        ChannelFactory<?> channelFactory = channelFactories.get(channelKey);
-                        if (channelFactory == null) {
-                            throw new NotificationException("No channel factory for channel key available: " + channelKey);
+                    new ChannelMapKey(channelKey, channelConfigurationSource),
+                    k -> channelFactory.createChannel(this, (key) -> {
+                        if (Channel.SERVICE_PROVIDER_PROPERTY.equals(key)) {
+                            return this;
                         }
-                        return channelFactory.createChannel(this, (key) -> {
-                            if (Channel.SERVICE_PROVIDER_PROPERTY.equals(key)) {
-                                return this;
-                            }
-                            return configurationSource.getProperty(key);
-                        });
-                    }
+                        return channelConfigurationSource.getProperty(key);
+                    })
                 );
             }
 
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+/**
+ * A service provider interface for recording metrics of the notification pipeline.
+ * Implementations must be cheap and thread safe as they are invoked for every notification.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public interface NotificationMetrics {
+
+    /**
+     * Records the latency of a stage of the notification pipeline.
+     *
+     * @param channelType The channel type or <code>null</code> if the stage is not bound to a channel type
+     * @param stage The stage
+     * @param nanos The latency in nanoseconds
+     */
+    void recordLatency(String channelType, Stage stage, long nanos);
+
+    /**
+     * Records the given number of notifications with the given outcome.
+     *
+     * @param channelType The channel type
+     * @param outcome The outcome
+     * @param count The number of notifications
+     */
+    void recordOutcome(String channelType, Outcome outcome, long count);
+
+    /**
+     * Records the current value of a gauge.
+     *
+     * @param channelType The channel type
+     * @param gauge The gauge
+     * @param value The current value
+     */
+    void recordGauge(String channelType, Gauge gauge, long value);
+
+    /**
+     * Returns a metrics implementation that discards everything.
+     *
+     * @return a metrics implementation that discards everything
+     */
+    static NotificationMetrics noop() {
+        return NoopNotificationMetrics.INSTANCE;
+    }
+
+    /**
+     * The stages of the notification pipeline for which latencies are recorded.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    enum Stage {
+        /**
+         * The resolution of the recipients of a notification job instance.
+         */
+        RECIPIENT_RESOLUTION,
+        /**
+         * The resolution of a notification message, including the rendering of templates.
+         */
+        MESSAGE_RESOLUTION,
+        /**
+         * The wait for a pooled connection of a channel.
+         */
+        POOL_WAIT,
+        /**
+         * The send of a notification message through a channel.
+         */
+        SEND,
+        /**
+         * The warm up of a channel or message resolver during the startup of a {@link NotificationJobContext}.
+         */
+        WARM_UP
+    }
+
+    /**
+     * The outcomes of a notification send.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    enum Outcome {
+        /**
+         * The notification was sent.
+         */
+        SENT,
+        /**
+         * The notification failed to be sent.
+         */
+        FAILED,
+        /**
+         * The notification was deferred due to a rate limit.
+         */
+        RATE_LIMITED,
+        /**
+         * The notification was skipped by a channel filter.
+         */
+        FILTERED
+    }
+
+    /**
+     * The gauges of a channel that are recorded when their value changes.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    enum Gauge {
+        /**
+         * The current limit of concurrent sends of an {@link AdaptiveConcurrencyLimiter}.
+         */
+        CONCURRENCY_LIMIT
+    }
+}
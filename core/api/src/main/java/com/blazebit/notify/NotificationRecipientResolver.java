@@ -19,7 +19,9 @@ import com.blazebit.job.JobInstanceProcessingContext;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * A resolver for determining the recipients for notifications that should be generated for a {@link NotificationJobInstance}.
@@ -38,6 +40,65 @@ public interface NotificationRecipientResolver {
      */
     List<? extends NotificationRecipient<?>> resolveNotificationRecipients(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobProcessingContext);
 
+    /**
+     * Resolves the notification recipients for which notifications should be generated for as iterator that is consumed incrementally.
+     * Implementations for large audiences should override this to load recipients lazily, for example with {@link #keysetPaged(Object, int, BiFunction)},
+     * starting after the {@link NotificationJobInstance#getRecipientCursor() recipient cursor}, so that memory stays bounded.
+     * If the returned iterator implements {@link AutoCloseable}, it is closed by the consumer after use.
+     * The default implementation iterates the result of {@link #resolveNotificationRecipients(NotificationJobInstance, JobInstanceProcessingContext)}
+     * after the recipient cursor as determined by {@link #afterCursor(List, Object)}.
+     *
+     * @param jobInstance The notification job instance
+     * @param jobProcessingContext The job instance processing context
+     * @return The iterator of resolved notification recipients
+     */
+    default Iterator<? extends NotificationRecipient<?>> resolveNotificationRecipientIterator(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobProcessingContext) {
+        return afterCursor(resolveNotificationRecipients(jobInstance, jobProcessingContext), jobInstance.getRecipientCursor());
+    }
+
+    /**
+     * Returns an iterator over the given recipients that skips the recipients up to the given recipient cursor,
+     * i.e. the identifier of the last processed recipient, so that a job instance that is processed in multiple chunks continues where the previous chunk stopped.
+     * The recipients are expected to be ordered by identifier. Iteration starts after the recipient with the cursor identifier
+     * or, if that recipient isn't resolved anymore, at the first recipient with a {@link Comparable} identifier greater than the cursor.
+     *
+     * @param recipients The recipients ordered by identifier
+     * @param recipientCursor The identifier of the last processed recipient or <code>null</code> to start at the beginning
+     * @param <X> The recipient type
+     * @return an iterator over the recipients after the cursor
+     */
+    static <X extends NotificationRecipient<?>> Iterator<X> afterCursor(List<X> recipients, Object recipientCursor) {
+        if (recipientCursor == null) {
+            return recipients.iterator();
+        }
+        int size = recipients.size();
+        for (int i = 0; i < size; i++) {
+            Object id = recipients.get(i).getId();
+            if (recipientCursor.equals(id)) {
+                return recipients.subList(i + 1, size).iterator();
+            }
+            if (id instanceof Comparable<?> && id.getClass() == recipientCursor.getClass() && ((Comparable<Object>) id).compareTo(recipientCursor) > 0) {
+                return recipients.subList(i, size).iterator();
+            }
+        }
+        return Collections.emptyIterator();
+    }
+
+    /**
+     * Returns an iterator that loads recipients page by page with the given page loader, so that at most one page is held in memory.
+     * The page loader is invoked with the identifier of the last returned recipient, or the given start identifier for the first page,
+     * and must return at most the given number of recipients ordered by identifier that come after that identifier.
+     *
+     * @param startAfter The identifier after which to start or <code>null</code> to start at the beginning
+     * @param pageSize The maximum number of recipients to load per page
+     * @param pageLoader The function to load a page of recipients after an identifier
+     * @param <X> The recipient type
+     * @return an iterator over all recipients after the start identifier
+     */
+    static <X extends NotificationRecipient<?>> Iterator<X> keysetPaged(Object startAfter, int pageSize, BiFunction<Object, Integer, List<X>> pageLoader) {
+        return new KeysetPagedRecipientIterator<>(startAfter, pageSize, pageLoader);
+    }
+
     /**
      * Returns a {@link NotificationRecipientResolver} that statically always resolves the given recipients.
      *
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+import com.blazebit.job.ConfigurationSource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket based client side rate limiter for channels.
+ * Permits are refilled with a sustained rate up to a maximum burst.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class RateLimiter {
+
+    private final double permitsPerNano;
+    private final int burst;
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    /**
+     * Creates a new rate limiter that starts with a full bucket.
+     *
+     * @param permitsPerSecond The sustained rate of permits per second
+     * @param burst The maximum number of permits that can be acquired at once after a pause
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Invalid permits per second: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Invalid burst: " + burst);
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.availablePermits = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Creates a rate limiter from the given configuration properties or returns <code>null</code> if no rate is configured.
+     * The burst defaults to the permits per second, but at least 1.
+     *
+     * @param configurationSource The configuration source
+     * @param permitsPerSecondProperty The property for the sustained rate of permits per second
+     * @param burstProperty The property for the burst
+     * @return the rate limiter or <code>null</code>
+     */
+    public static RateLimiter fromConfigurationSource(ConfigurationSource configurationSource, String permitsPerSecondProperty, String burstProperty) {
+        return of(getPermitsPerSecond(configurationSource, permitsPerSecondProperty), getBurst(configurationSource, burstProperty));
+    }
+
+    /**
+     * Creates a rate limiter for the given rate or returns <code>null</code> if the rate is not positive.
+     * A burst lower than 1 defaults to the permits per second, but at least 1.
+     *
+     * @param permitsPerSecond The sustained rate of permits per second
+     * @param burst The maximum number of permits that can be acquired at once after a pause
+     * @return the rate limiter or <code>null</code>
+     */
+    public static RateLimiter of(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            return null;
+        }
+        return new RateLimiter(permitsPerSecond, burst < 1 ? Math.max(1, (int) Math.ceil(permitsPerSecond)) : burst);
+    }
+
+    /**
+     * Returns the sustained rate of permits per second given by the configuration property or 0 if no rate is configured.
+     *
+     * @param configurationSource The configuration source
+     * @param permitsPerSecondProperty The property for the sustained rate of permits per second
+     * @return the sustained rate of permits per second or 0
+     */
+    public static double getPermitsPerSecond(ConfigurationSource configurationSource, String permitsPerSecondProperty) {
+        return configurationSource.getPropertyOrDefault(permitsPerSecondProperty, Double.class, Double::valueOf, o -> {
+            if (o instanceof Number) {
+                return ((Number) o).doubleValue();
+            } else if (o != null) {
+                throw new NotificationException("Invalid permits per second given via property '" + permitsPerSecondProperty + "': " + o);
+            }
+            return 0D;
+        });
+    }
+
+    /**
+     * Returns the burst given by the configuration property or 0 if no burst is configured.
+     *
+     * @param configurationSource The configuration source
+     * @param burstProperty The property for the burst
+     * @return the burst or 0
+     */
+    public static int getBurst(ConfigurationSource configurationSource, String burstProperty) {
+        return configurationSource.getPropertyOrDefault(burstProperty, Integer.class, Integer::valueOf, o -> 0);
+    }
+
+    /**
+     * Returns the maximum number of permits that can be acquired at once.
+     *
+     * @return the maximum number of permits that can be acquired at once
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Acquires up to the given number of permits without waiting.
+     *
+     * @param permits The number of permits to acquire
+     * @return the number of acquired permits which might be lower than requested or 0
+     */
+    public synchronized int tryAcquireUpTo(int permits) {
+        refill();
+        int acquired = Math.min(permits, (int) availablePermits);
+        availablePermits -= acquired;
+        return acquired;
+    }
+
+    /**
+     * Returns the amount of milliseconds after which the given number of permits will be available.
+     *
+     * @param permits The number of permits
+     * @return the amount of milliseconds after which the given number of permits will be available
+     */
+    public synchronized long getWaitMillis(int permits) {
+        refill();
+        double missingPermits = Math.min(permits, burst) - availablePermits;
+        if (missingPermits <= 0) {
+            return 0L;
+        }
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis((long) Math.ceil(missingPermits / permitsPerNano)));
+    }
+
+    /**
+     * Empties the bucket after the remote side throttled a send and returns the amount of milliseconds to back off.
+     * The back off is the time to refill the whole burst, so it is always positive even if permits were available.
+     *
+     * @return the amount of milliseconds to back off
+     */
+    public synchronized long onThrottled() {
+        refill();
+        availablePermits = 0;
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis((long) Math.ceil(burst / permitsPerNano)));
+    }
+
+    /**
+     * Returns the given number of unused permits to the bucket.
+     *
+     * @param permits The number of permits to release
+     */
+    public synchronized void release(int permits) {
+        availablePermits = Math.min(burst, availablePermits + permits);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        availablePermits = Math.min(burst, availablePermits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
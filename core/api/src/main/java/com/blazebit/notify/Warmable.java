@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * A component that can prepare expensive resources like connections or compiled templates ahead of its first use.
+ * The {@link NotificationJobContext} warms up the configured channels and message resolvers that implement this interface during startup.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public interface Warmable {
+
+    /**
+     * Prepares the resources of this component for the given locales.
+     * Implementations should not throw if a resource can't be prepared, as warming up is only an optimization.
+     *
+     * @param locales The locales for which to prepare locale specific resources
+     */
+    void warmUp(Collection<Locale> locales);
+}
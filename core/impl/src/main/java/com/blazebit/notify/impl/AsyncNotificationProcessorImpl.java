@@ -0,0 +1,255 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.impl;
+
+import com.blazebit.job.ConfigurationSource;
+import com.blazebit.job.JobContext;
+import com.blazebit.job.JobInstance;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobInstanceState;
+import com.blazebit.job.JobRateLimitException;
+import com.blazebit.job.JobTemporaryException;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.notify.AsyncChannel;
+import com.blazebit.notify.Channel;
+import com.blazebit.notify.Notification;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationMessage;
+import com.blazebit.notify.NotificationMetrics;
+import com.blazebit.notify.NotificationRecipient;
+
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class AsyncNotificationProcessorImpl<N extends Notification<?>> extends NotificationProcessorImpl<N> {
+
+    public static final String MAX_IN_FLIGHT_PROPERTY = "notification.processor.max_in_flight";
+    public static final String DISPATCH_TIMEOUT_MILLIS_PROPERTY = "notification.processor.dispatch_timeout_millis";
+    public static final long DEFAULT_DISPATCH_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5L);
+
+    private static final Logger LOG = Logger.getLogger(AsyncNotificationProcessorImpl.class.getName());
+
+    private final int maxInFlight;
+    private final long dispatchTimeoutMillis;
+    // Sends that were handed off by a worker and didn't complete yet
+    private final Semaphore inFlight;
+    // The earliest time at which the lost sends of a partition are looked up again
+    private final ConcurrentMap<String, AtomicLong> nextLostSendChecks = new ConcurrentHashMap<>();
+
+    public AsyncNotificationProcessorImpl(int maxInFlight) {
+        this(maxInFlight, DEFAULT_DISPATCH_TIMEOUT_MILLIS);
+    }
+
+    public AsyncNotificationProcessorImpl(int maxInFlight, long dispatchTimeoutMillis) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of in-flight sends: " + maxInFlight);
+        }
+        if (dispatchTimeoutMillis < 1L) {
+            throw new IllegalArgumentException("Invalid dispatch timeout: " + dispatchTimeoutMillis);
+        }
+        this.maxInFlight = maxInFlight;
+        this.dispatchTimeoutMillis = dispatchTimeoutMillis;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    static long getDispatchTimeoutMillis(ConfigurationSource configurationSource) {
+        return configurationSource.getPropertyOrDefault(DISPATCH_TIMEOUT_MILLIS_PROPERTY, Long.class, Long::valueOf, o -> DEFAULT_DISPATCH_TIMEOUT_MILLIS);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public long getDispatchTimeoutMillis() {
+        return dispatchTimeoutMillis;
+    }
+
+    @Override
+    public void processWithoutResult(N notification, JobInstanceProcessingContext<Object> context) {
+        NotificationJobContext notificationJobContext = (NotificationJobContext) context.getJobContext();
+        Channel<NotificationRecipient<?>, NotificationMessage> channel = notificationJobContext.getChannel(notification.getChannelType());
+        AsyncChannel<NotificationRecipient<?>, NotificationMessage> asyncChannel = getAsyncChannel(notification.getChannelType(), channel);
+        if (asyncChannel == null) {
+            super.processWithoutResult(notification, context);
+            return;
+        }
+        rescheduleLostSends(notificationJobContext, context);
+        // Permits are acquired first, so that rate limited notifications are deferred without resolving their message
+        acquirePermits(notificationJobContext, asyncChannel, notification, 1);
+        PendingSend send;
+        try {
+            send = new PendingSend(notificationJobContext, asyncChannel, notification, context, getRecipient(notification), resolveNotificationMessage(notificationJobContext, asyncChannel, notification));
+        } catch (RuntimeException ex) {
+            releasePermits(asyncChannel, 1);
+            throw ex;
+        }
+        // The worker doesn't wait for the send, the notification stays running until the completion callback marks it done, failed or deferred
+        notification.markRunning(context);
+        // While running, the schedule time is the deadline after which a send is considered lost and the notification is scheduled again
+        notification.setScheduleTime(Instant.now().plusMillis(dispatchTimeoutMillis));
+        // Only send once the running state is committed, so that a rollback can't lead to a send of a notification that is processed again
+        notificationJobContext.getTransactionSupport().registerPostCommitListener(() -> dispatch(send));
+    }
+
+    protected AsyncChannel<NotificationRecipient<?>, NotificationMessage> getAsyncChannel(String channelType, Channel<NotificationRecipient<?>, NotificationMessage> channel) {
+        if (channel instanceof AsyncChannel<?, ?>) {
+            return (AsyncChannel<NotificationRecipient<?>, NotificationMessage>) channel;
+        }
+        return null;
+    }
+
+    private void dispatch(PendingSend send) {
+        // Waiting for a slot only blocks the worker when maxInFlight sends are outstanding
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            complete(send, null, new JobTemporaryException("Interrupted while waiting for an in-flight send to complete", ex));
+            return;
+        }
+        sendAsync(send).orTimeout(dispatchTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((result, failure) -> {
+            inFlight.release();
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof TimeoutException) {
+                cause = new JobTemporaryException("The send of notification " + send.notification.getId() + " didn't complete within " + dispatchTimeoutMillis + "ms", cause);
+            }
+            complete(send, result, cause);
+        });
+    }
+
+    // Schedules notifications again whose send never completed, for example because the process stopped after handing off the send
+    private void rescheduleLostSends(JobContext jobContext, JobInstanceProcessingContext<Object> context) {
+        PartitionKey partitionKey = context.getPartitionKey();
+        String partition = (partitionKey == null ? "" : partitionKey.getName()) + "/" + context.getPartitionId();
+        AtomicLong nextLostSendCheck = nextLostSendChecks.computeIfAbsent(partition, k -> new AtomicLong());
+        long now = System.currentTimeMillis();
+        long nextCheck = nextLostSendCheck.get();
+        if (now < nextCheck || !nextLostSendCheck.compareAndSet(nextCheck, now + dispatchTimeoutMillis)) {
+            return;
+        }
+        Instant deadline = Instant.ofEpochMilli(now);
+        for (JobInstance<?> jobInstance : jobContext.getJobManager().getRunningJobInstances(context.getPartitionId(), context.getPartitionCount(), partitionKey)) {
+            if (jobInstance instanceof Notification<?> && jobInstance.getState() == JobInstanceState.RUNNING && jobInstance.getScheduleTime() != null && !jobInstance.getScheduleTime().isAfter(deadline)) {
+                LOG.log(Level.WARNING, "Scheduling notification " + jobInstance.getId() + " again because its send didn't complete within " + dispatchTimeoutMillis + "ms");
+                jobInstance.markDeferred(context, deadline);
+                jobContext.getJobManager().updateJobInstance(jobInstance);
+            }
+        }
+    }
+
+    private CompletableFuture<Object> sendAsync(PendingSend send) {
+        try {
+            NotificationMetrics metrics = send.notificationJobContext.getMetrics();
+            String channelType = send.notification.getChannelType();
+            long start = System.nanoTime();
+            return send.channel.sendNotificationMessageAsync(send.recipient, send.message).toCompletableFuture().whenComplete((result, failure) -> {
+                if (failure == null) {
+                    metrics.recordLatency(channelType, NotificationMetrics.Stage.SEND, System.nanoTime() - start);
+                    metrics.recordOutcome(channelType, NotificationMetrics.Outcome.SENT, 1);
+                } else {
+                    recordFailure(metrics, channelType, failure instanceof CompletionException ? failure.getCause() : failure, 1);
+                }
+            });
+        } catch (RuntimeException ex) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+            return future;
+        }
+    }
+
+    // Applies the outcome of a send like the scheduler does for notifications that are processed synchronously
+    private void complete(PendingSend send, Object result, Throwable failure) {
+        JobContext jobContext = send.notificationJobContext;
+        N notification = send.notification;
+        JobInstanceProcessingContext<Object> context = send.context;
+        if (failure instanceof JobTemporaryException) {
+            long deferMillis = getDeferMillis(jobContext, (JobTemporaryException) failure);
+            // Deferring makes a running notification schedulable again, so the retry is owned by the scheduler and survives a restart
+            Boolean dropped = transactional(jobContext, () -> {
+                notification.markDeferred(context, Instant.now().plusMillis(deferMillis));
+                jobContext.getJobManager().updateJobInstance(notification);
+                return notification.getState() == JobInstanceState.DROPPED;
+            });
+            if (Boolean.TRUE.equals(dropped)) {
+                jobContext.forEachJobInstanceListeners(listener -> listener.onJobInstanceError(notification, context));
+            } else if (dropped != null) {
+                jobContext.refreshJobInstanceSchedules(notification);
+            }
+            return;
+        }
+        transactional(jobContext, () -> {
+            if (failure == null) {
+                notification.markDone(context, result);
+            } else {
+                notification.markFailed(context, failure);
+            }
+            jobContext.getJobManager().updateJobInstance(notification);
+            return null;
+        });
+        if (failure == null) {
+            jobContext.forEachJobInstanceListeners(listener -> listener.onJobInstanceSuccess(notification, context));
+        } else {
+            jobContext.forEachJobInstanceListeners(listener -> listener.onJobInstanceError(notification, context));
+        }
+    }
+
+    private static long getDeferMillis(JobContext jobContext, JobTemporaryException failure) {
+        if (failure.getDeferMillis() > 0L) {
+            return failure.getDeferMillis();
+        }
+        if (failure instanceof JobRateLimitException) {
+            return TimeUnit.SECONDS.toMillis(jobContext.getRateLimitBackoffSeconds());
+        }
+        return TimeUnit.SECONDS.toMillis(jobContext.getTemporaryErrorBackoffSeconds());
+    }
+
+    private static <T> T transactional(JobContext jobContext, Callable<T> callable) {
+        return jobContext.getTransactionSupport().transactional(jobContext, jobContext.getTransactionTimeoutMillis(), false, callable, t -> {
+            LOG.log(Level.SEVERE, "Couldn't apply the outcome of a notification send", t);
+        });
+    }
+
+    // A send that was handed off by a worker along with everything needed to complete the notification
+    private final class PendingSend {
+
+        private final NotificationJobContext notificationJobContext;
+        private final AsyncChannel<NotificationRecipient<?>, NotificationMessage> channel;
+        private final N notification;
+        private final JobInstanceProcessingContext<Object> context;
+        private final NotificationRecipient<?> recipient;
+        private final NotificationMessage message;
+
+        public PendingSend(NotificationJobContext notificationJobContext, AsyncChannel<NotificationRecipient<?>, NotificationMessage> channel, N notification, JobInstanceProcessingContext<Object> context, NotificationRecipient<?> recipient, NotificationMessage message) {
+            this.notificationJobContext = notificationJobContext;
+            this.channel = channel;
+            this.notification = notification;
+            this.context = context;
+            this.recipient = recipient;
+            this.message = message;
+        }
+    }
+}
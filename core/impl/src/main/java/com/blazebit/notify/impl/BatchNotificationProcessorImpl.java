@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.impl;
+
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.notify.BatchChannel;
+import com.blazebit.notify.Channel;
+import com.blazebit.notify.Notification;
+import com.blazebit.notify.NotificationException;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationMessage;
+import com.blazebit.notify.NotificationMetrics;
+import com.blazebit.notify.NotificationRecipient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+public class BatchNotificationProcessorImpl<N extends Notification<?>> extends NotificationProcessorImpl<N> {
+
+    public static final String BATCH_SIZE_PROPERTY = "notification.processor.batch_size";
+    public static final String BATCH_LINGER_PROPERTY = "notification.processor.batch_linger_millis";
+    public static final long DEFAULT_BATCH_LINGER_MILLIS = 5L;
+
+    private final int batchSize;
+    private final long lingerNanos;
+    // The notifications are claimed and completed by the scheduler, batches only group the sends of the workers that process them concurrently
+    private final ConcurrentMap<String, SendQueue> sendQueues = new ConcurrentHashMap<>();
+
+    public BatchNotificationProcessorImpl(int batchSize) {
+        this(batchSize, DEFAULT_BATCH_LINGER_MILLIS);
+    }
+
+    public BatchNotificationProcessorImpl(int batchSize, long lingerMillis) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("Invalid batch linger time: " + lingerMillis);
+        }
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void processWithoutResult(N notification, JobInstanceProcessingContext<Object> context) {
+        NotificationJobContext notificationJobContext = (NotificationJobContext) context.getJobContext();
+        Channel<NotificationRecipient<?>, NotificationMessage> channel = notificationJobContext.getChannel(notification.getChannelType());
+        if (batchSize == 1 || !(channel instanceof BatchChannel<?, ?>)) {
+            super.processWithoutResult(notification, context);
+            return;
+        }
+        // Permits are acquired first, so that rate limited notifications are deferred without resolving their message
+        acquirePermits(notificationJobContext, channel, notification, 1);
+        PendingSend send;
+        try {
+            send = new PendingSend(getRecipient(notification), resolveNotificationMessage(notificationJobContext, channel, notification));
+        } catch (RuntimeException ex) {
+            releasePermits(channel, 1);
+            throw ex;
+        }
+        SendQueue sendQueue = sendQueues.computeIfAbsent(notification.getChannelType(), k -> new SendQueue());
+        Object result = sendQueue.send((BatchChannel<NotificationRecipient<?>, NotificationMessage>) channel, notificationJobContext.getMetrics(), notification.getChannelType(), send);
+        if (result instanceof RuntimeException) {
+            throw (RuntimeException) result;
+        } else if (result instanceof Throwable) {
+            throw new NotificationException((Throwable) result);
+        }
+        notification.markDone(context, result);
+    }
+
+    private void recordBatchMetrics(NotificationMetrics metrics, String channelType, List<Object> results, long nanos) {
+        // Channels send batches as a whole, so every message is attributed an equal share of the latency
+        long nanosPerMessage = results.isEmpty() ? nanos : nanos / results.size();
+        long sent = 0L;
+        for (int i = 0; i < results.size(); i++) {
+            Object result = results.get(i);
+            metrics.recordLatency(channelType, NotificationMetrics.Stage.SEND, nanosPerMessage);
+            if (result instanceof Throwable) {
+                recordFailure(metrics, channelType, (Throwable) result, 1);
+            } else {
+                sent++;
+            }
+        }
+        metrics.recordOutcome(channelType, NotificationMetrics.Outcome.SENT, sent);
+    }
+
+    // A message that waits to be sent as part of a batch, guarded by the monitor of the send queue
+    private static final class PendingSend {
+
+        private final NotificationRecipient<?> recipient;
+        private final NotificationMessage message;
+        private boolean leading;
+        private boolean done;
+        // The send identifier or the failure of the send
+        private Object result;
+
+        public PendingSend(NotificationRecipient<?> recipient, NotificationMessage message) {
+            this.recipient = recipient;
+            this.message = message;
+        }
+    }
+
+    // Group commit of the sends of a channel type, one worker sends the messages queued by the others while they wait for the outcome
+    private final class SendQueue {
+
+        private final ArrayDeque<PendingSend> pending = new ArrayDeque<>();
+        private boolean sending;
+
+        public Object send(BatchChannel<NotificationRecipient<?>, NotificationMessage> channel, NotificationMetrics metrics, String channelType, PendingSend send) {
+            List<PendingSend> batch;
+            synchronized (this) {
+                pending.add(send);
+                if (sending) {
+                    notifyAll();
+                    awaitTurn(send);
+                    if (send.done) {
+                        return send.result;
+                    }
+                } else {
+                    sending = true;
+                }
+                linger();
+                batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+                while (batch.size() < batchSize && !pending.isEmpty()) {
+                    batch.add(pending.poll());
+                }
+            }
+            try {
+                sendBatch(channel, metrics, channelType, batch);
+            } finally {
+                synchronized (this) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        PendingSend batchSend = batch.get(i);
+                        if (!batchSend.done) {
+                            batchSend.done = true;
+                            batchSend.result = new NotificationException("The batch send was aborted");
+                        }
+                    }
+                    // The next waiting worker sends the messages that were queued in the meantime
+                    PendingSend next = pending.peek();
+                    if (next == null) {
+                        sending = false;
+                    } else {
+                        next.leading = true;
+                    }
+                    notifyAll();
+                }
+            }
+            return send.result;
+        }
+
+        // The queued message may already be part of a batch, so waiting can't be abandoned on interruption
+        private void awaitTurn(PendingSend send) {
+            boolean interrupted = false;
+            while (!send.done && !send.leading) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Gives other workers the chance to queue their messages before a batch is sent
+        private void linger() {
+            long deadline = System.nanoTime() + lingerNanos;
+            long remaining;
+            while (pending.size() < batchSize && (remaining = deadline - System.nanoTime()) > 0L) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void sendBatch(BatchChannel<NotificationRecipient<?>, NotificationMessage> channel, NotificationMetrics metrics, String channelType, List<PendingSend> batch) {
+            List<NotificationRecipient<?>> recipients = new ArrayList<>(batch.size());
+            List<NotificationMessage> messages = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                recipients.add(batch.get(i).recipient);
+                messages.add(batch.get(i).message);
+            }
+            long start = System.nanoTime();
+            List<Object> results;
+            try {
+                results = channel.sendNotificationMessages(recipients, messages);
+                if (results.size() != batch.size()) {
+                    throw new NotificationException("The channel " + channel + " returned " + results.size() + " results for a batch of " + batch.size() + " messages");
+                }
+            } catch (RuntimeException ex) {
+                // A failure of the whole batch is reported for every notification, so that the scheduler handles them individually
+                recordFailure(metrics, channelType, ex, batch.size());
+                synchronized (this) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).done = true;
+                        batch.get(i).result = ex;
+                    }
+                }
+                return;
+            }
+            recordBatchMetrics(metrics, channelType, results, System.nanoTime() - start);
+            synchronized (this) {
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).done = true;
+                    batch.get(i).result = results.get(i);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.impl;
+
+import com.blazebit.apt.service.ServiceProvider;
+import com.blazebit.notify.NotificationMetrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@ServiceProvider(NotificationMetrics.class)
+public class NotificationMetricsImpl implements NotificationMetrics {
+
+    // Stages that are not bound to a channel type are recorded under this key
+    private static final String NO_CHANNEL_TYPE = "";
+
+    private final ConcurrentMap<String, ChannelMetrics> channelMetrics = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordLatency(String channelType, Stage stage, long nanos) {
+        getChannelMetrics(channelType).histograms.get(stage).record(nanos);
+    }
+
+    @Override
+    public void recordOutcome(String channelType, Outcome outcome, long count) {
+        getChannelMetrics(channelType).counters.get(outcome).add(count);
+    }
+
+    @Override
+    public void recordGauge(String channelType, Gauge gauge, long value) {
+        getChannelMetrics(channelType).gauges.get(gauge).set(value);
+    }
+
+    public Set<String> getChannelTypes() {
+        return Collections.unmodifiableSet(channelMetrics.keySet());
+    }
+
+    public LatencyHistogram getLatencyHistogram(String channelType, Stage stage) {
+        return getChannelMetrics(channelType).histograms.get(stage);
+    }
+
+    public long getCount(String channelType, Outcome outcome) {
+        return getChannelMetrics(channelType).counters.get(outcome).sum();
+    }
+
+    public long getGauge(String channelType, Gauge gauge) {
+        return getChannelMetrics(channelType).gauges.get(gauge).get();
+    }
+
+    private ChannelMetrics getChannelMetrics(String channelType) {
+        String key = channelType == null ? NO_CHANNEL_TYPE : channelType;
+        // Avoid the locking of computeIfAbsent on the hot path
+        ChannelMetrics metrics = channelMetrics.get(key);
+        if (metrics == null) {
+            metrics = channelMetrics.computeIfAbsent(key, k -> new ChannelMetrics());
+        }
+        return metrics;
+    }
+
+    private static final class ChannelMetrics {
+        // The maps are fully populated upfront and never modified afterwards so they can be read without synchronization
+        private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+        private final Map<Outcome, LongAdder> counters = new EnumMap<>(Outcome.class);
+        private final Map<Gauge, AtomicLong> gauges = new EnumMap<>(Gauge.class);
+
+        ChannelMetrics() {
+            for (Stage stage : Stage.values()) {
+                histograms.put(stage, new LatencyHistogram());
+            }
+            for (Outcome outcome : Outcome.values()) {
+                counters.put(outcome, new LongAdder());
+            }
+            for (Gauge gauge : Gauge.values()) {
+                gauges.put(gauge, new AtomicLong());
+            }
+        }
+    }
+}
@@ -17,16 +17,100 @@
 package com.blazebit.notify.impl;
 
 import com.blazebit.apt.service.ServiceProvider;
+import com.blazebit.notify.AsyncChannel;
+import com.blazebit.notify.Channel;
 import com.blazebit.notify.Notification;
+import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.NotificationJobContext;
 import com.blazebit.notify.NotificationProcessor;
 import com.blazebit.notify.NotificationProcessorFactory;
 
+import java.util.concurrent.ExecutorService;
+
 @ServiceProvider(NotificationProcessorFactory.class)
-public class NotificationProcessorFactoryImpl implements NotificationProcessorFactory {
+public class NotificationProcessorFactoryImpl implements NotificationProcessorFactory, AutoCloseable {
+
+    private volatile BatchNotificationProcessorImpl<Notification<?>> batchNotificationProcessor;
+    private volatile AsyncNotificationProcessorImpl<Notification<?>> asyncNotificationProcessor;
+    private volatile ThreadPoolDispatchNotificationProcessorImpl<Notification<?>> threadPoolDispatchNotificationProcessor;
 
     @Override
     public <N extends Notification<?>> NotificationProcessor<N> createNotificationProcessor(NotificationJobContext jobContext, N notification) {
-        return (NotificationProcessor<N>) NotificationProcessorImpl.INSTANCE;
+        if (jobContext.getPropertyOrDefault(NotificationJobContext.DISPATCH_THREAD_POOL_PROPERTY, Boolean.class, Boolean::valueOf, o -> false)) {
+            return (NotificationProcessor<N>) getThreadPoolDispatchNotificationProcessor(jobContext);
+        }
+        Channel<?, ?> channel = jobContext.getChannel(notification.getChannelType());
+        if (channel instanceof AsyncChannel<?, ?>) {
+            AsyncNotificationProcessorImpl<Notification<?>> processor = getAsyncNotificationProcessor(jobContext);
+            if (processor.getMaxInFlight() > 1) {
+                return (NotificationProcessor<N>) processor;
+            }
+        }
+        BatchNotificationProcessorImpl<Notification<?>> processor = getBatchNotificationProcessor(jobContext);
+        if (processor.getBatchSize() == 1) {
+            return (NotificationProcessor<N>) NotificationProcessorImpl.INSTANCE;
+        }
+        return (NotificationProcessor<N>) processor;
+    }
+
+    private BatchNotificationProcessorImpl<Notification<?>> getBatchNotificationProcessor(NotificationJobContext jobContext) {
+        BatchNotificationProcessorImpl<Notification<?>> processor = batchNotificationProcessor;
+        if (processor == null) {
+            synchronized (this) {
+                processor = batchNotificationProcessor;
+                if (processor == null) {
+                    int batchSize = jobContext.getPropertyOrDefault(BatchNotificationProcessorImpl.BATCH_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> 1);
+                    long lingerMillis = jobContext.getPropertyOrDefault(BatchNotificationProcessorImpl.BATCH_LINGER_PROPERTY, Long.class, Long::valueOf, o -> BatchNotificationProcessorImpl.DEFAULT_BATCH_LINGER_MILLIS);
+                    processor = new BatchNotificationProcessorImpl<>(batchSize, lingerMillis);
+                    batchNotificationProcessor = processor;
+                }
+            }
+        }
+        return processor;
+    }
+
+    private AsyncNotificationProcessorImpl<Notification<?>> getAsyncNotificationProcessor(NotificationJobContext jobContext) {
+        AsyncNotificationProcessorImpl<Notification<?>> processor = asyncNotificationProcessor;
+        if (processor == null) {
+            synchronized (this) {
+                processor = asyncNotificationProcessor;
+                if (processor == null) {
+                    int maxInFlight = jobContext.getPropertyOrDefault(AsyncNotificationProcessorImpl.MAX_IN_FLIGHT_PROPERTY, Integer.class, Integer::valueOf, o -> 1);
+                    processor = new AsyncNotificationProcessorImpl<>(maxInFlight, AsyncNotificationProcessorImpl.getDispatchTimeoutMillis(jobContext));
+                    asyncNotificationProcessor = processor;
+                }
+            }
+        }
+        return processor;
+    }
+
+    private ThreadPoolDispatchNotificationProcessorImpl<Notification<?>> getThreadPoolDispatchNotificationProcessor(NotificationJobContext jobContext) {
+        ThreadPoolDispatchNotificationProcessorImpl<Notification<?>> processor = threadPoolDispatchNotificationProcessor;
+        if (processor == null) {
+            synchronized (this) {
+                processor = threadPoolDispatchNotificationProcessor;
+                if (processor == null) {
+                    int maxInFlight = jobContext.getPropertyOrDefault(NotificationJobContext.DISPATCH_THREAD_POOL_MAX_IN_FLIGHT_PROPERTY, Integer.class, Integer::valueOf, o -> ThreadPoolDispatchNotificationProcessorImpl.DEFAULT_MAX_IN_FLIGHT);
+                    Object executorService = jobContext.getProperty(NotificationJobContext.DISPATCH_EXECUTOR_SERVICE_PROPERTY);
+                    if (executorService instanceof ExecutorService) {
+                        processor = new ThreadPoolDispatchNotificationProcessorImpl<>(maxInFlight, jobContext, (ExecutorService) executorService);
+                    } else if (executorService == null) {
+                        processor = new ThreadPoolDispatchNotificationProcessorImpl<>(maxInFlight, jobContext);
+                    } else {
+                        throw new NotificationException("Invalid executor service given via property '" + NotificationJobContext.DISPATCH_EXECUTOR_SERVICE_PROPERTY + "': " + executorService);
+                    }
+                    threadPoolDispatchNotificationProcessor = processor;
+                }
+            }
+        }
+        return processor;
+    }
+
+    @Override
+    public void close() {
+        ThreadPoolDispatchNotificationProcessorImpl<Notification<?>> processor = threadPoolDispatchNotificationProcessor;
+        if (processor != null) {
+            processor.close();
+        }
     }
 }
@@ -17,6 +17,7 @@
 package com.blazebit.notify.impl;
 
 import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobRateLimitException;
 import com.blazebit.notify.Channel;
 import com.blazebit.notify.ConfigurationSourceProvider;
 import com.blazebit.notify.Notification;
@@ -24,8 +25,10 @@ import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.NotificationJobContext;
 import com.blazebit.notify.NotificationMessage;
 import com.blazebit.notify.NotificationMessageResolver;
+import com.blazebit.notify.NotificationMetrics;
 import com.blazebit.notify.NotificationProcessor;
 import com.blazebit.notify.NotificationRecipient;
+import com.blazebit.notify.RateLimiter;
 
 public class NotificationProcessorImpl<N extends Notification<?>> implements NotificationProcessor<N> {
 
@@ -38,11 +41,78 @@ public class NotificationProcessorImpl<N extends Notification<?>> implements Not
     public void processWithoutResult(N notification, JobInstanceProcessingContext<Object> context) {
         NotificationJobContext notificationJobContext = (NotificationJobContext) context.getJobContext();
         Channel<NotificationRecipient<?>, NotificationMessage> channel = notificationJobContext.getChannel(notification.getChannelType());
-        NotificationRecipient<?> recipient = notification.getRecipient();
+        // Permits are acquired first, so that rate limited notifications are deferred without resolving their message
+        acquirePermits(notificationJobContext, channel, notification, 1);
+        NotificationRecipient<?> recipient;
+        NotificationMessage notificationMessage;
+        try {
+            recipient = getRecipient(notification);
+            notificationMessage = resolveNotificationMessage(notificationJobContext, channel, notification);
+        } catch (RuntimeException ex) {
+            releasePermits(channel, 1);
+            throw ex;
+        }
+        NotificationMetrics metrics = notificationJobContext.getMetrics();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = channel.sendNotificationMessage(recipient, notificationMessage);
+        } catch (RuntimeException ex) {
+            recordFailure(metrics, notification.getChannelType(), ex, 1);
+            throw ex;
+        }
+        metrics.recordLatency(notification.getChannelType(), NotificationMetrics.Stage.SEND, System.nanoTime() - start);
+        metrics.recordOutcome(notification.getChannelType(), NotificationMetrics.Outcome.SENT, 1);
+        notification.markDone(context, result);
+    }
+
+    // Defers the notification through the scheduler if the channel has no permit available
+    protected int acquirePermits(NotificationJobContext notificationJobContext, Channel<?, ?> channel, N notification, int permits) {
+        RateLimiter rateLimiter = channel.getRateLimiter();
+        if (rateLimiter == null) {
+            return permits;
+        }
+        int acquired = rateLimiter.tryAcquireUpTo(permits);
+        if (acquired == 0) {
+            notificationJobContext.getMetrics().recordOutcome(notification.getChannelType(), NotificationMetrics.Outcome.RATE_LIMITED, 1);
+            throw new JobRateLimitException("Client side rate limit for channel " + notification.getChannelType() + " reached", Math.max(1L, rateLimiter.getWaitMillis(1)));
+        }
+        return acquired;
+    }
+
+    protected void releasePermits(Channel<?, ?> channel, int permits) {
+        RateLimiter rateLimiter = channel.getRateLimiter();
+        if (rateLimiter != null && permits > 0) {
+            rateLimiter.release(permits);
+        }
+    }
+
+    protected void recordFailure(NotificationMetrics metrics, String channelType, Throwable failure, long count) {
+        if (failure instanceof JobRateLimitException) {
+            metrics.recordOutcome(channelType, NotificationMetrics.Outcome.RATE_LIMITED, count);
+        } else {
+            metrics.recordOutcome(channelType, NotificationMetrics.Outcome.FAILED, count);
+        }
+    }
 
+    protected NotificationRecipient<?> getRecipient(N notification) {
+        NotificationRecipient<?> recipient = notification.getRecipient();
         if (recipient == null) {
             throw new NotificationException("No recipient can be resolved from: " + notification);
         }
+        return recipient;
+    }
+
+    protected NotificationMessage resolveNotificationMessage(NotificationJobContext notificationJobContext, Channel<?, ?> channel, N notification) {
+        long start = System.nanoTime();
+        try {
+            return doResolveNotificationMessage(notificationJobContext, channel, notification);
+        } finally {
+            notificationJobContext.getMetrics().recordLatency(notification.getChannelType(), NotificationMetrics.Stage.MESSAGE_RESOLUTION, System.nanoTime() - start);
+        }
+    }
+
+    private NotificationMessage doResolveNotificationMessage(NotificationJobContext notificationJobContext, Channel<?, ?> channel, N notification) {
         NotificationMessageResolver<NotificationMessage> notificationMessageResolver;
         if (notification instanceof ConfigurationSourceProvider) {
             notificationMessageResolver = notificationJobContext.getNotificationMessageResolver((Class<NotificationMessage>) channel.getNotificationMessageType(), ((ConfigurationSourceProvider) notification).getConfigurationSource(notificationJobContext));
@@ -62,7 +132,6 @@ public class NotificationProcessorImpl<N extends Notification<?>> implements Not
         if (notificationMessage == null) {
             throw new NotificationException("No notification message can be resolved from: " + notification);
         }
-        Object result = channel.sendNotificationMessage(recipient, notificationMessage);
-        notification.markDone(context, result);
+        return notificationMessage;
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.impl;
+
+import com.blazebit.job.ConfigurationSource;
+import com.blazebit.notify.AsyncChannel;
+import com.blazebit.notify.Channel;
+import com.blazebit.notify.Notification;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationMessage;
+import com.blazebit.notify.NotificationRecipient;
+import com.blazebit.notify.RateLimiter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A notification processor that dispatches the blocking sends of channels to a bounded pool of platform threads,
+ * so that more sends can be in flight than the scheduler has worker threads.
+ * Alternatively, an {@link ExecutorService} can be configured via {@link NotificationJobContext#DISPATCH_EXECUTOR_SERVICE_PROPERTY},
+ * for example a virtual thread per task executor on Java 21 or newer.
+ *
+ * @param <N> The notification type
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public class ThreadPoolDispatchNotificationProcessorImpl<N extends Notification<?>> extends AsyncNotificationProcessorImpl<N> implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    private final ConfigurationSource configurationSource;
+    private final ExecutorService executorService;
+    private final boolean closeExecutorService;
+    private final ConcurrentMap<String, ChannelPermits> channelPermits = new ConcurrentHashMap<>();
+
+    public ThreadPoolDispatchNotificationProcessorImpl(int maxInFlight, ConfigurationSource configurationSource) {
+        this(maxInFlight, configurationSource, createDispatchThreadPool(maxInFlight), true);
+    }
+
+    public ThreadPoolDispatchNotificationProcessorImpl(int maxInFlight, ConfigurationSource configurationSource, ExecutorService executorService) {
+        this(maxInFlight, configurationSource, executorService, false);
+    }
+
+    private ThreadPoolDispatchNotificationProcessorImpl(int maxInFlight, ConfigurationSource configurationSource, ExecutorService executorService, boolean closeExecutorService) {
+        super(maxInFlight, getDispatchTimeoutMillis(configurationSource));
+        this.configurationSource = configurationSource;
+        this.executorService = executorService;
+        this.closeExecutorService = closeExecutorService;
+    }
+
+    private static ExecutorService createDispatchThreadPool(int maxInFlight) {
+        // At most maxInFlight sends are dispatched at once, so the pool never needs more threads than that
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "notification-dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public void close() {
+        if (closeExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
+    @Override
+    protected AsyncChannel<NotificationRecipient<?>, NotificationMessage> getAsyncChannel(String channelType, Channel<NotificationRecipient<?>, NotificationMessage> channel) {
+        // Even natively asynchronous channels are dispatched so that the concurrency limit applies uniformly
+        return new DispatchChannel(channel, channelPermits.computeIfAbsent(channelType, this::createPermits));
+    }
+
+    private ChannelPermits createPermits(String channelType) {
+        int maxConcurrency = configurationSource.getPropertyOrDefault(NotificationJobContext.CHANNEL_CONCURRENCY_LIMIT_PROPERTY + "." + channelType, Integer.class, Integer::valueOf, o -> Integer.MAX_VALUE);
+        return new ChannelPermits(maxConcurrency, executorService);
+    }
+
+    // Queues the sends of a channel type until a permit is available, so that a slow channel can't occupy the dispatch threads while waiting for permits
+    private static final class ChannelPermits {
+
+        private final Semaphore permits;
+        private final ConcurrentLinkedQueue<DispatchTask> waiting = new ConcurrentLinkedQueue<>();
+        private final ExecutorService executorService;
+
+        public ChannelPermits(int maxConcurrency, ExecutorService executorService) {
+            this.permits = new Semaphore(maxConcurrency);
+            this.executorService = executorService;
+        }
+
+        public void submit(DispatchTask task) {
+            waiting.add(task);
+            drain();
+        }
+
+        public void release() {
+            permits.release();
+            drain();
+        }
+
+        private void drain() {
+            // Either the thread that queues a task or the one that releases a permit sees both, so no task is left waiting
+            while (!waiting.isEmpty() && permits.tryAcquire()) {
+                DispatchTask task = waiting.poll();
+                if (task == null) {
+                    permits.release();
+                } else {
+                    try {
+                        executorService.execute(task);
+                    } catch (RejectedExecutionException ex) {
+                        permits.release();
+                        task.future.completeExceptionally(ex);
+                    }
+                }
+            }
+        }
+    }
+
+    // A blocking send that runs on the dispatch executor once a permit of its channel type was acquired
+    private static final class DispatchTask implements Runnable {
+
+        private final Channel<NotificationRecipient<?>, NotificationMessage> channel;
+        private final ChannelPermits permits;
+        private final NotificationRecipient<?> recipient;
+        private final NotificationMessage message;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        public DispatchTask(Channel<NotificationRecipient<?>, NotificationMessage> channel, ChannelPermits permits, NotificationRecipient<?> recipient, NotificationMessage message) {
+            this.channel = channel;
+            this.permits = permits;
+            this.recipient = recipient;
+            this.message = message;
+        }
+
+        @Override
+        public void run() {
+            Object result;
+            try {
+                result = channel.sendNotificationMessage(recipient, message);
+            } catch (Throwable t) {
+                permits.release();
+                future.completeExceptionally(t);
+                return;
+            }
+            // Release the permit before the completion callbacks run, which apply the outcome in a transaction
+            permits.release();
+            future.complete(result);
+        }
+    }
+
+    // Runs the blocking send of a channel on the dispatch executor while respecting the concurrency limit of the channel type
+    private static final class DispatchChannel implements AsyncChannel<NotificationRecipient<?>, NotificationMessage> {
+
+        private final Channel<NotificationRecipient<?>, NotificationMessage> channel;
+        private final ChannelPermits permits;
+
+        public DispatchChannel(Channel<NotificationRecipient<?>, NotificationMessage> channel, ChannelPermits permits) {
+            this.channel = channel;
+            this.permits = permits;
+        }
+
+        @Override
+        public CompletionStage<Object> sendNotificationMessageAsync(NotificationRecipient<?> recipient, NotificationMessage message) {
+            DispatchTask task = new DispatchTask(channel, permits, recipient, message);
+            permits.submit(task);
+            return task.future;
+        }
+
+        @Override
+        public Class<NotificationMessage> getNotificationMessageType() {
+            return channel.getNotificationMessageType();
+        }
+
+        @Override
+        public RateLimiter getRateLimiter() {
+            return channel.getRateLimiter();
+        }
+
+        @Override
+        public void close() {
+            // The wrapped channel is owned by the notification job context
+        }
+    }
+}
@@ -17,25 +17,34 @@ package com.blazebit.notify.email.message;
 
 import com.blazebit.job.ConfigurationSource;
 import com.blazebit.job.ServiceProvider;
+import com.blazebit.notify.BoundedCache;
 import com.blazebit.notify.Notification;
 import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.NotificationJobContext;
 import com.blazebit.notify.NotificationMessageResolver;
 import com.blazebit.notify.NotificationMessageResolverModelCustomizer;
 import com.blazebit.notify.NotificationRecipient;
+import com.blazebit.notify.Warmable;
 import com.blazebit.notify.template.api.TemplateContext;
 import com.blazebit.notify.template.api.TemplateProcessor;
 import com.blazebit.notify.template.api.TemplateProcessorFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TimeZone;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A message resolver for E-Mail notification messages.
@@ -43,7 +52,7 @@ import java.util.function.Function;
  * @author Christian Beikov
  * @since 1.0.0
  */
-public class EmailNotificationMessageResolver implements NotificationMessageResolver<EmailNotificationMessage> {
+public class EmailNotificationMessageResolver implements NotificationMessageResolver<EmailNotificationMessage>, Warmable {
 
     /**
      * The configuration property for the E-Mail from address.
@@ -105,6 +114,19 @@ public class EmailNotificationMessageResolver implements NotificationMessageReso
      * The configuration property for the E-Mail attachment templates.
      */
     public static final String EMAIL_MESSAGE_ATTACHMENT_TEMPLATES_PROPERTY = "message.email.attachment.templates";
+    /**
+     * The configuration property for the keys of the model entries that the subject and body templates read.
+     * Declaring them marks the templates as independent of the recipient, so rendered results are reused for models
+     * that agree on the values of these entries and the locale.
+     */
+    public static final String EMAIL_MESSAGE_MODEL_KEYS_PROPERTY = "message.email.model_keys";
+    /**
+     * The configuration property for the maximum number of cached rendering results.
+     */
+    public static final String EMAIL_MESSAGE_RENDER_CACHE_SIZE_PROPERTY = "message.email.render_cache.max_size";
+
+    private static final int DEFAULT_RENDER_CACHE_SIZE = 256;
+    private static final Logger LOG = Logger.getLogger(EmailNotificationMessageResolver.class.getName());
 
     private final NotificationJobContext notificationJobContext;
     private final String from;
@@ -118,6 +140,8 @@ public class EmailNotificationMessageResolver implements NotificationMessageReso
     private final TemplateProcessor<String> htmlBodyTemplateProcessor;
     private final List<TemplateProcessor<Attachment>> attachmentProcessors;
     private final List<NotificationMessageResolverModelCustomizer> modelCustomizers;
+    private final Set<String> modelKeys;
+    private final BoundedCache<RenderKey, String> renderCache;
 
     /**
      * Creates a new message resolver from the given notification job context and configuration source.
@@ -187,6 +211,21 @@ public class EmailNotificationMessageResolver implements NotificationMessageReso
         }
         this.attachmentProcessors = attachmentProcessors;
         this.modelCustomizers = modelCustomizers == null ? Collections.emptyList() : modelCustomizers;
+        Object modelKeys = configurationSource.getProperty(EMAIL_MESSAGE_MODEL_KEYS_PROPERTY);
+        if (modelKeys instanceof Collection<?>) {
+            Set<String> keys = new HashSet<>();
+            for (Object element : (Collection<?>) modelKeys) {
+                keys.add(element.toString());
+            }
+            this.modelKeys = keys;
+        } else if (modelKeys instanceof String) {
+            this.modelKeys = modelKeysByString((String) modelKeys);
+        } else if (modelKeys != null) {
+            throw new NotificationException("Invalid model keys given via property '" + EMAIL_MESSAGE_MODEL_KEYS_PROPERTY + "': " + modelKeys);
+        } else {
+            this.modelKeys = null;
+        }
+        this.renderCache = createRenderCache(configurationSource.getPropertyOrDefault(EMAIL_MESSAGE_RENDER_CACHE_SIZE_PROPERTY, Integer.class, Integer::valueOf, value -> DEFAULT_RENDER_CACHE_SIZE));
     }
 
     /**
@@ -216,12 +255,30 @@ public class EmailNotificationMessageResolver implements NotificationMessageReso
         this.replyTo = replyTo;
         this.replyToDisplayName = replyToDisplayName;
         this.envelopeFrom = envelopeFrom;
-        this.resourceBundleAccessor = resourceBundleByName(resourceBundleName);
+        this.resourceBundleAccessor = resourceBundleName == null ? null : resourceBundleByName(resourceBundleName);
         this.subjectTemplateProcessor = subjectTemplateProcessor;
         this.textBodyTemplateProcessor = textBodyTemplateProcessor;
         this.htmlBodyTemplateProcessor = htmlBodyTemplateProcessor;
         this.attachmentProcessors = attachmentProcessors == null ? Collections.emptyList() : attachmentProcessors;
         this.modelCustomizers = modelCustomizers == null ? Collections.emptyList() : modelCustomizers;
+        this.modelKeys = null;
+        this.renderCache = createRenderCache(DEFAULT_RENDER_CACHE_SIZE);
+    }
+
+    private static Set<String> modelKeysByString(String modelKeys) {
+        Set<String> keys = new HashSet<>();
+        for (String key : modelKeys.split(",")) {
+            key = key.trim();
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static BoundedCache<RenderKey, String> createRenderCache(int maxSize) {
+        // Rendering results hold no resources, so evicted results are simply dropped
+        return new BoundedCache<>(maxSize, 0L, 0L, result -> { });
     }
 
     private static Function<Locale, ResourceBundle> resourceBundleByName(String name) {
@@ -241,26 +298,52 @@ public class EmailNotificationMessageResolver implements NotificationMessageReso
         return templateProcessorFactory.createTemplateProcessor(templateContext, templateName, configurationSource::getProperty, serviceProvider);
     }
 
+    @Override
+    public void warmUp(Collection<Locale> locales) {
+        for (Locale locale : locales) {
+            if (resourceBundleAccessor != null) {
+                try {
+                    resourceBundleAccessor.apply(locale);
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Couldn't load resource bundle for locale " + locale, e);
+                }
+            }
+            warmUp(subjectTemplateProcessor, locale);
+            warmUp(textBodyTemplateProcessor, locale);
+            warmUp(htmlBodyTemplateProcessor, locale);
+            for (TemplateProcessor<Attachment> attachmentProcessor : attachmentProcessors) {
+                warmUp(attachmentProcessor, locale);
+            }
+        }
+    }
+
+    private static void warmUp(TemplateProcessor<?> templateProcessor, Locale locale) {
+        if (templateProcessor != null) {
+            templateProcessor.warmUp(locale);
+        }
+    }
+
     @Override
     public EmailNotificationMessage resolveNotificationMessage(Notification<?> notification) {
         Map<String, Object> model = new HashMap<>(notification.getJobConfiguration().getParameters());
         NotificationRecipient<?> notificationRecipient = notification.getRecipient();
         Locale locale = notificationRecipient.getLocale();
+        TimeZone timeZone = notificationRecipient.getTimeZone();
         if (resourceBundleAccessor != null) {
             ResourceBundle resourceBundle = resourceBundleAccessor.apply(locale);
             model.put("resourceBundle", resourceBundle);
         }
         model.put("locale", locale);
-        model.put("timeZone", notificationRecipient.getTimeZone());
+        model.put("timeZone", timeZone);
         model.put("recipient", notificationRecipient);
         for (NotificationMessageResolverModelCustomizer modelCustomizer : modelCustomizers) {
             modelCustomizer.customize(model, notification, notificationJobContext);
         }
         model = Collections.unmodifiableMap(model);
 
-        String subjectString = subjectTemplateProcessor == null ? null : subjectTemplateProcessor.processTemplate(model);
-        String textBodyString = textBodyTemplateProcessor == null ? null : textBodyTemplateProcessor.processTemplate(model);
-        String htmlBodyString = htmlBodyTemplateProcessor == null ? null : htmlBodyTemplateProcessor.processTemplate(model);
+        String subjectString = render(subjectTemplateProcessor, model, locale, timeZone);
+        String textBodyString = render(textBodyTemplateProcessor, model, locale, timeZone);
+        String htmlBodyString = render(htmlBodyTemplateProcessor, model, locale, timeZone);
         EmailSubject subject = subjectString == null ? null : new EmailSubject(subjectString);
         EmailBody textBody = textBodyString == null ? null : new EmailBody(textBodyString);
         EmailBody htmlBody = htmlBodyString == null ? null : new EmailBody(htmlBodyString);
@@ -279,4 +362,72 @@ public class EmailNotificationMessageResolver implements NotificationMessageReso
         }
         return new EmailNotificationMessage(from, fromDisplayName, replyTo, replyToDisplayName, envelopeFrom, subject, textBody, htmlBody, attachments);
     }
+
+    private String render(TemplateProcessor<String> templateProcessor, Map<String, Object> model, Locale locale, TimeZone timeZone) {
+        if (templateProcessor == null) {
+            return null;
+        }
+        Set<String> templateModelKeys = templateProcessor.getModelKeys();
+        if (templateModelKeys == null) {
+            templateModelKeys = modelKeys;
+        }
+        // Templates that don't declare the model entries they read might depend on the recipient, and static templates need no caching
+        if (templateModelKeys == null || templateModelKeys.isEmpty() && templateProcessor.getModelKeys() != null) {
+            return templateProcessor.processTemplate(model);
+        }
+        Object[] values = new Object[templateModelKeys.size()];
+        int i = 0;
+        for (String key : templateModelKeys) {
+            values[i++] = model.get(key);
+        }
+        return renderCache.computeIfAbsent(new RenderKey(templateProcessor, locale, timeZone, templateModelKeys, values), k -> templateProcessor.processTemplate(model));
+    }
+
+    /**
+     * The key for a rendering result.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class RenderKey {
+
+        private final TemplateProcessor<?> templateProcessor;
+        private final Locale locale;
+        private final TimeZone timeZone;
+        private final Set<String> modelKeys;
+        private final Object[] values;
+        private final int hashCode;
+
+        public RenderKey(TemplateProcessor<?> templateProcessor, Locale locale, TimeZone timeZone, Set<String> modelKeys, Object[] values) {
+            this.templateProcessor = templateProcessor;
+            this.locale = locale;
+            this.timeZone = timeZone;
+            this.modelKeys = modelKeys;
+            this.values = values;
+            int hashCode = System.identityHashCode(templateProcessor);
+            hashCode = 31 * hashCode + Objects.hashCode(locale);
+            hashCode = 31 * hashCode + Objects.hashCode(timeZone);
+            hashCode = 31 * hashCode + Arrays.hashCode(values);
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RenderKey)) {
+                return false;
+            }
+            RenderKey that = (RenderKey) o;
+            // The model keys are compared by identity since the iteration order determines the meaning of the values
+            return templateProcessor == that.templateProcessor && modelKeys == that.modelKeys && hashCode == that.hashCode
+                && Objects.equals(locale, that.locale) && Objects.equals(timeZone, that.timeZone) && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.email.message;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.DataSource;
+import jakarta.mail.Header;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.internet.MimePart;
+import jakarta.mail.internet.MimeUtility;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * The immutable, transfer encoded MIME body of an {@link EmailNotificationMessage}, consisting of the text and html body parts and the attachments.
+ * The body is encoded once and can then be written after the per recipient headers of many messages.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class EncodedMimeBody {
+
+    private static final String CHARSET_UTF8 = "UTF-8";
+    private static final String HTML_MIME_TYPE = "text/html; charset=" + CHARSET_UTF8;
+    private static final String[] CONTENT_HEADERS = {"Content-Type", "Content-Transfer-Encoding"};
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final List<String> headerLines;
+    private final byte[] content;
+
+    private EncodedMimeBody(List<String> headerLines, byte[] content) {
+        this.headerLines = headerLines;
+        this.content = content;
+    }
+
+    /**
+     * Encodes the body parts and attachments of the given message.
+     *
+     * @param message The message
+     * @return the encoded MIME body
+     * @throws MessagingException if the encoding fails
+     */
+    public static EncodedMimeBody encode(EmailNotificationMessage message) throws MessagingException {
+        MimeMessage msg = new MimeMessage((Session) null);
+        EmailBody textBody = message.getTextBody();
+        EmailBody htmlBody = message.getHtmlBody();
+        boolean hasAttachments = !message.getAttachments().isEmpty();
+        if (textBody != null && htmlBody != null || hasAttachments) {
+            Multipart multipart = new MimeMultipart("alternative");
+            if (textBody != null) {
+                MimeBodyPart textPart = new MimeBodyPart();
+                textPart.setText(textBody.getBody(), CHARSET_UTF8);
+                multipart.addBodyPart(textPart);
+            }
+
+            if (htmlBody != null) {
+                MimeBodyPart htmlPart = new MimeBodyPart();
+                htmlPart.setContent(htmlBody.getBody(), HTML_MIME_TYPE);
+                multipart.addBodyPart(htmlPart);
+            }
+
+            for (Attachment attachment : message.getAttachments()) {
+                multipart.addBodyPart(createAttachmentBodyPart(attachment.getName(), attachment.getDataSource()));
+            }
+
+            msg.setContent(multipart);
+        } else if (textBody != null) {
+            msg.setText(textBody.getBody(), CHARSET_UTF8);
+        } else if (htmlBody != null) {
+            msg.setContent(htmlBody.getBody(), HTML_MIME_TYPE);
+        }
+        msg.saveChanges();
+
+        List<String> ignoredHeaders = new ArrayList<>();
+        for (Enumeration<Header> headers = msg.getAllHeaders(); headers.hasMoreElements(); ) {
+            ignoredHeaders.add(headers.nextElement().getName());
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            // Without headers, only the separating line and the encoded content is written
+            msg.writeTo(outputStream, ignoredHeaders.toArray(new String[0]));
+        } catch (IOException ex) {
+            throw new MessagingException("Failed to encode the message body", ex);
+        }
+        byte[] bytes = outputStream.toByteArray();
+        return new EncodedMimeBody(Collections.list(msg.getMatchingHeaderLines(CONTENT_HEADERS)), Arrays.copyOfRange(bytes, CRLF.length, bytes.length));
+    }
+
+    private static MimeBodyPart createAttachmentBodyPart(String attachmentFilename, DataSource dataSource) throws MessagingException {
+        try {
+            MimeBodyPart mimeBodyPart = new MimeBodyPart();
+            mimeBodyPart.setDisposition(MimeBodyPart.ATTACHMENT);
+            mimeBodyPart.setFileName(MimeUtility.encodeText(attachmentFilename));
+            mimeBodyPart.setDataHandler(new DataHandler(dataSource));
+            return mimeBodyPart;
+        } catch (UnsupportedEncodingException ex) {
+            throw new MessagingException("Failed to encode attachment filename", ex);
+        }
+    }
+
+    /**
+     * Adds the content headers, like <code>Content-Type</code>, of this body to the given part.
+     *
+     * @param part The part
+     * @throws MessagingException if adding the headers fails
+     */
+    public void addContentHeaders(MimePart part) throws MessagingException {
+        for (String headerLine : headerLines) {
+            part.addHeaderLine(headerLine);
+        }
+    }
+
+    /**
+     * Returns the size of the encoded content in bytes.
+     *
+     * @return the size of the encoded content
+     */
+    public int getSize() {
+        return content.length;
+    }
+
+    /**
+     * Returns a stream of the encoded content.
+     *
+     * @return a stream of the encoded content
+     */
+    public InputStream getContentStream() {
+        return new ByteArrayInputStream(content);
+    }
+
+    /**
+     * Writes the headers of the given part, which should include the {@link #addContentHeaders(MimePart) content headers} of this body,
+     * followed by the encoded content to the given stream.
+     *
+     * @param part         The part providing the headers
+     * @param outputStream The output stream
+     * @param ignoreList   The headers to skip or <code>null</code>
+     * @throws IOException        if writing fails
+     * @throws MessagingException if retrieving the headers fails
+     */
+    public void writeTo(MimePart part, OutputStream outputStream, String[] ignoreList) throws IOException, MessagingException {
+        for (Enumeration<String> headerLines = part.getNonMatchingHeaderLines(ignoreList); headerLines.hasMoreElements(); ) {
+            outputStream.write(headerLines.nextElement().getBytes(StandardCharsets.UTF_8));
+            outputStream.write(CRLF);
+        }
+        outputStream.write(CRLF);
+        outputStream.write(content);
+        outputStream.flush();
+    }
+}
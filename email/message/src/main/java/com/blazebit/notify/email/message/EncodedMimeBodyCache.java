@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.email.message;
+
+import jakarta.mail.MessagingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of {@link EncodedMimeBody} instances keyed by the body parts and attachments of a message.
+ * When many recipients receive the same rendered content, the body is encoded only once.
+ * Attachments don't implement equals, so only messages sharing the very same attachment objects share an encoded body.
+ * Bodies larger than {@link #MAX_CACHED_BODY_SIZE} bytes are not cached.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class EncodedMimeBodyCache {
+
+    /**
+     * The maximum size in bytes of an encoded body to be cached.
+     */
+    public static final int MAX_CACHED_BODY_SIZE = 1024 * 1024;
+
+    private final Map<Key, EncodedMimeBody> cache;
+
+    /**
+     * Creates a new cache for the given number of encoded bodies.
+     *
+     * @param maxSize The maximum number of cached bodies, or 0 to disable caching
+     */
+    public EncodedMimeBodyCache(int maxSize) {
+        if (maxSize > 0) {
+            this.cache = new LinkedHashMap<Key, EncodedMimeBody>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, EncodedMimeBody> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Returns the encoded body for the given message, encoding it if it isn't cached yet.
+     *
+     * @param message The message
+     * @return the encoded body
+     * @throws MessagingException if the encoding fails
+     */
+    public EncodedMimeBody get(EmailNotificationMessage message) throws MessagingException {
+        if (cache == null) {
+            return EncodedMimeBody.encode(message);
+        }
+        Key key = new Key(message);
+        EncodedMimeBody body;
+        synchronized (cache) {
+            body = cache.get(key);
+        }
+        if (body == null) {
+            body = EncodedMimeBody.encode(message);
+            if (body.getSize() <= MAX_CACHED_BODY_SIZE) {
+                synchronized (cache) {
+                    cache.put(key, body);
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * The cache key consisting of the bodies and attachments of a message.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class Key {
+        private final Object[] values;
+        private final int hashCode;
+
+        public Key(EmailNotificationMessage message) {
+            this.values = new Object[]{
+                message.getTextBody() == null ? null : message.getTextBody().getBody(),
+                message.getHtmlBody() == null ? null : message.getHtmlBody().getBody(),
+                new ArrayList<>(message.getAttachments())
+            };
+            this.hashCode = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
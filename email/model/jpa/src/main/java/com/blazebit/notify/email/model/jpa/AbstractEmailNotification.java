@@ -25,9 +25,11 @@ import com.blazebit.notify.jpa.model.base.AbstractNotification;
 import com.blazebit.notify.template.api.TemplateProcessor;
 import jakarta.persistence.Access;
 import jakarta.persistence.AccessType;
+import java.io.Serializable;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import jakarta.persistence.Column;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
@@ -87,6 +89,11 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      * {@link Attachment} by a {@link TemplateProcessor}.
      */
     public static final String ATTACHMENT_TEMPLATES_PARAMETER = "attachmentTemplates";
+    /**
+     * The parameter name for the keys of the model entries that the subject and body templates read,
+     * which is a collection of plain {@link String}s. Declaring them marks the templates as independent of the recipient.
+     */
+    public static final String MODEL_KEYS_PARAMETER = "modelKeys";
     private static final long serialVersionUID = 1L;
 
     private Long fromId;
@@ -101,6 +108,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
     private EmailNotificationDeliveryState deliveryState;
     // The state of the mail job. Normally, mail jobs don't need to be reviewed, but when they bounce for no reason, they should be reviewed
     private EmailNotificationReviewState reviewState = EmailNotificationReviewState.UNNECESSARY;
+    private transient ConfigurationSource configurationSource;
 
     /**
      * Creates an empty notification.
@@ -126,7 +134,33 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
 
     @Override
     public ConfigurationSource getConfigurationSource(NotificationJobContext context) {
-        return new EmailNotificationConfigurationSource(this);
+        // The snapshot is interned to stay identical to the snapshots of notifications with the same configuration
+        // and is rebuilt only after a setter changed the parameters or the from address
+        ConfigurationSource configurationSource = this.configurationSource;
+        if (configurationSource == null) {
+            configurationSource = this.configurationSource = new EmailNotificationConfigurationSource(this).intern();
+        }
+        return configurationSource;
+    }
+
+    /**
+     * Discards the cached configuration source snapshot so that the next call to {@link #getConfigurationSource(NotificationJobContext)}
+     * builds it from the current state. Subclasses must call this when changing the from address.
+     */
+    protected void invalidateConfigurationSource() {
+        this.configurationSource = null;
+    }
+
+    @Override
+    public void setParameters(Map<String, Serializable> parameters) {
+        super.setParameters(parameters);
+        invalidateConfigurationSource();
+    }
+
+    @Override
+    protected void setParameterSerializable(Serializable parameterSerializable) {
+        super.setParameterSerializable(parameterSerializable);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -146,6 +180,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setTemplateProcessorType(String templateProcessorType) {
         getJobConfiguration().getParameters().put(TEMPLATE_PROCESSOR_TYPE_PARAMETER, templateProcessorType);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -165,6 +200,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setSubjectTemplateName(String subjectTemplateName) {
         getJobConfiguration().getParameters().put(SUBJECT_TEMPLATE_PARAMETER, subjectTemplateName);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -184,6 +220,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setSubject(String subject) {
         getJobConfiguration().getParameters().put(SUBJECT_PARAMETER, subject);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -203,6 +240,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setBodyTextTemplateName(String bodyTextTemplateName) {
         getJobConfiguration().getParameters().put(BODY_TEXT_TEMPLATE_PARAMETER, bodyTextTemplateName);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -222,6 +260,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setBodyText(String bodyText) {
         getJobConfiguration().getParameters().put(BODY_TEXT_PARAMETER, bodyText);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -241,6 +280,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setBodyHtmlTemplateName(String bodyHtmlTemplateName) {
         getJobConfiguration().getParameters().put(BODY_HTML_TEMPLATE_PARAMETER, bodyHtmlTemplateName);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -260,6 +300,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setBodyHtml(String bodyHtml) {
         getJobConfiguration().getParameters().put(BODY_HTML_PARAMETER, bodyHtml);
+        invalidateConfigurationSource();
     }
 
     /**
@@ -279,6 +320,28 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setAttachmentTemplates(List<String> attachmentTemplates) {
         getJobConfiguration().getParameters().put(ATTACHMENT_TEMPLATES_PARAMETER, new ArrayList<>(attachmentTemplates));
+        invalidateConfigurationSource();
+    }
+
+    /**
+     * Returns the keys of the model entries that the subject and body templates read.
+     *
+     * @return the keys of the model entries that the subject and body templates read
+     */
+    @Transient
+    public List<String> getModelKeys() {
+        return (List<String>) getJobConfiguration().getParameters().get(MODEL_KEYS_PARAMETER);
+    }
+
+    /**
+     * Sets the keys of the model entries that the subject and body templates read.
+     * This marks the templates as independent of the recipient, so rendering results are reused across recipients.
+     *
+     * @param modelKeys The keys of the model entries that the subject and body templates read
+     */
+    public void setModelKeys(List<String> modelKeys) {
+        getJobConfiguration().getParameters().put(MODEL_KEYS_PARAMETER, new ArrayList<>(modelKeys));
+        invalidateConfigurationSource();
     }
 
     /**
@@ -306,6 +369,7 @@ public abstract class AbstractEmailNotification<ID> extends AbstractNotification
      */
     public void setFromId(Long fromId) {
         this.fromId = fromId;
+        invalidateConfigurationSource();
     }
 
     /**
@@ -15,20 +15,18 @@
  */
 package com.blazebit.notify.email.model.jpa;
 
-import com.blazebit.job.ConfigurationSource;
+import com.blazebit.notify.FrozenConfigurationSource;
 import com.blazebit.notify.email.message.EmailNotificationMessageResolver;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * An {@link AbstractEmailNotification} based {@link ConfigurationSource}.
+ * An {@link AbstractEmailNotification} based {@link com.blazebit.job.ConfigurationSource} snapshot.
  *
  * @author Christian Beikov
  * @since 1.0.0
  */
-public class EmailNotificationConfigurationSource implements ConfigurationSource {
-
-    private final Map<String, Object> properties;
+public class EmailNotificationConfigurationSource extends FrozenConfigurationSource {
 
     /**
      * Creates a configuration source from the given {@link AbstractEmailNotification}.
@@ -36,6 +34,10 @@ public class EmailNotificationConfigurationSource implements ConfigurationSource
      * @param emailNotification The E-Mail notification
      */
     public EmailNotificationConfigurationSource(AbstractEmailNotification<?> emailNotification) {
+        super(createProperties(emailNotification));
+    }
+
+    private static Map<String, Object> createProperties(AbstractEmailNotification<?> emailNotification) {
         Map<String, Object> properties = new HashMap<>();
         properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_FROM_PROPERTY, emailNotification.getFrom().getEmail());
         properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_FROM_NAME_PROPERTY, emailNotification.getFrom().getName());
@@ -54,30 +56,7 @@ public class EmailNotificationConfigurationSource implements ConfigurationSource
         properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_HTML_PROPERTY, emailNotification.getJobConfiguration().getParameters().get(AbstractEmailNotification.BODY_HTML_PARAMETER));
         properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_HTML_TEMPLATE_PROPERTY, emailNotification.getJobConfiguration().getParameters().get(AbstractEmailNotification.BODY_HTML_TEMPLATE_PARAMETER));
         properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_ATTACHMENT_TEMPLATES_PROPERTY, emailNotification.getJobConfiguration().getParameters().get(AbstractEmailNotification.ATTACHMENT_TEMPLATES_PARAMETER));
-        this.properties = properties;
-    }
-
-    @Override
-    public Object getProperty(String property) {
-        return properties.get(property);
-    }
-
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if (!(o instanceof EmailNotificationConfigurationSource)) {
-            return false;
-        }
-
-        EmailNotificationConfigurationSource that = (EmailNotificationConfigurationSource) o;
-
-        return properties.equals(that.properties);
-    }
-
-    @Override
-    public int hashCode() {
-        return properties.hashCode();
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_MODEL_KEYS_PROPERTY, emailNotification.getJobConfiguration().getParameters().get(AbstractEmailNotification.MODEL_KEYS_PARAMETER));
+        return properties;
     }
 }
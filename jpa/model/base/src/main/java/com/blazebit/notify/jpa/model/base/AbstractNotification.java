@@ -17,6 +17,7 @@
 package com.blazebit.notify.jpa.model.base;
 
 import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobInstanceState;
 import com.blazebit.job.jpa.model.AbstractJobInstance;
 import com.blazebit.job.jpa.model.JobConfiguration;
 import com.blazebit.job.jpa.model.TimeFrame;
@@ -185,6 +186,15 @@ public abstract class AbstractNotification<ID> extends AbstractJobInstance<ID> i
         return this;
     }
 
+    @Override
+    public void markDeferred(JobInstanceProcessingContext<?> processingContext, Instant newScheduleTime) {
+        super.markDeferred(processingContext, newScheduleTime);
+        // A notification is running while its send is in flight, so it must become schedulable again when the send is deferred
+        if (getState() == JobInstanceState.RUNNING) {
+            setState(JobInstanceState.NEW);
+        }
+    }
+
     @Override
     public void onChunkSuccess(JobInstanceProcessingContext<?> processingContext) {
     }
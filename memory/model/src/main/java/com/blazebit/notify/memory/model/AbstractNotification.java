@@ -17,11 +17,14 @@
 package com.blazebit.notify.memory.model;
 
 import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobInstanceState;
 import com.blazebit.job.memory.model.AbstractJobInstance;
 import com.blazebit.job.memory.model.JobConfiguration;
 import com.blazebit.notify.Notification;
 import com.blazebit.notify.NotificationJobInstance;
 
+import java.time.Instant;
+
 /**
  * An abstract base class implementing the {@link com.blazebit.notify.Notification} interface that is based on a {@link NotificationJobInstance}.
  *
@@ -73,6 +76,15 @@ public abstract class AbstractNotification<ID> extends AbstractJobInstance<ID> i
         this.jobConfiguration = jobConfiguration;
     }
 
+    @Override
+    public void markDeferred(JobInstanceProcessingContext<?> processingContext, Instant newScheduleTime) {
+        super.markDeferred(processingContext, newScheduleTime);
+        // A notification is running while its send is in flight, so it must become schedulable again when the send is deferred
+        if (getState() == JobInstanceState.RUNNING) {
+            setState(JobInstanceState.NEW);
+        }
+    }
+
     @Override
     public void onChunkSuccess(JobInstanceProcessingContext<?> processingContext) {
     }
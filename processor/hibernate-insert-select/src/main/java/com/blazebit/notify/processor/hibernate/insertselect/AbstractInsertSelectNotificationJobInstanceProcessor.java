@@ -20,22 +20,51 @@ import com.blazebit.expression.ExpressionService;
 import com.blazebit.expression.Predicate;
 import com.blazebit.job.JobInstanceProcessingContext;
 import com.blazebit.job.processor.hibernate.insertselect.AbstractInsertSelectJobInstanceProcessor;
+import com.blazebit.job.JobContext;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.NotificationJobContext;
 import com.blazebit.notify.NotificationJobInstance;
 import com.blazebit.notify.NotificationJobInstanceProcessor;
+import com.blazebit.notify.NotificationMetrics;
 import com.blazebit.notify.NotificationRecipient;
 import com.blazebit.notify.NotificationRecipientResolver;
 import com.blazebit.notify.recipient.resolver.expression.AbstractPredicatingExpressionNotificationRecipientResolver;
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.blazebit.persistence.InsertCriteriaBuilder;
 import com.blazebit.persistence.ReturningResult;
 import com.blazebit.persistence.WhereBuilder;
+import jakarta.persistence.EntityManager;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * An abstract notification job instance processor implementation that produces target entities via a INSERT-SELECT statement.
  *
+ * By default, recipients are processed in ascending id order from a single cursor. When the {@link #RECIPIENT_RANGES_PROPERTY recipient range count}
+ * is greater than one, the recipient id space is split into {@link RecipientRanges} that are processed concurrently, each in a separate transaction.
+ * The ranges are stored on the job instance via {@link #getRecipientRanges(NotificationJobInstance)} and
+ * {@link #setRecipientRanges(NotificationJobInstance, RecipientRanges)}, which subclasses must override to use that mode
+ * along with {@link #getNotificationIdJobInstanceIdPath(NotificationJobInstance)}.
+ * The cursor of a range is the highest recipient id of the notifications that were produced for the range,
+ * which a range transaction determines before its insert. The cursor thus always matches the committed notifications,
+ * even if the transaction that stores the ranges on the job instance rolls back.
+ * The last processed id of a chunk is the {@link RecipientRanges#getLastCursor() highest cursor} of all ranges,
+ * so it doesn't depend on the order in which the ranges finish.
+ * Since the ranges are processed on separate threads, the {@link EntityManager} service must be bound to the current transaction,
+ * like a container managed entity manager is.
+ *
  * @param <ID> The job instance cursor type
  * @param <T>  The result type of the processing
  * @param <I>  The job instance type
@@ -45,6 +74,193 @@ import java.util.List;
  */
 public abstract class AbstractInsertSelectNotificationJobInstanceProcessor<ID, T, I extends NotificationJobInstance<Long, ID>, R extends NotificationRecipient<?>> extends AbstractInsertSelectJobInstanceProcessor<ID, T, I> implements NotificationJobInstanceProcessor<ID, I> {
 
+    /**
+     * The configuration property for the number of recipient id ranges to process concurrently.
+     */
+    public static final String RECIPIENT_RANGES_PROPERTY = "notification.processor.recipient_ranges";
+    /**
+     * The configuration property for the {@link ExecutorService} on which recipient ranges are processed.
+     * In a container, this should be a managed executor service so that the range transactions can be started.
+     * If absent, the processor uses a dedicated pool of daemon threads that are only kept while ranges are processed.
+     */
+    public static final String RECIPIENT_RANGES_EXECUTOR_SERVICE_PROPERTY = "notification.processor.recipient_ranges.executor_service";
+
+    private static final Logger LOG = Logger.getLogger(AbstractInsertSelectNotificationJobInstanceProcessor.class.getName());
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+    private static final String JOB_INSTANCE_ALIAS = "jobInstance";
+
+    private volatile ExecutorService executorService;
+
+    @Override
+    public ID process(I jobInstance, JobInstanceProcessingContext<ID> context) {
+        RecipientRanges ranges = getRecipientRanges(jobInstance);
+        if (ranges == null) {
+            int rangeCount = getRecipientRangeCount(jobInstance, context);
+            if (rangeCount < 2) {
+                return super.process(jobInstance, context);
+            }
+            ranges = splitRecipientRanges(jobInstance, context, rangeCount);
+            if (ranges == null) {
+                markDone(jobInstance, context);
+                return null;
+            }
+            setRecipientRanges(jobInstance, ranges);
+        }
+        return processRanges(jobInstance, context, ranges);
+    }
+
+    private RecipientRanges splitRecipientRanges(I jobInstance, JobInstanceProcessingContext<ID> context, int rangeCount) {
+        CriteriaBuilderFactory criteriaBuilderFactory = getCriteriaBuilderFactory(context);
+        EntityManager entityManager = getEntityManager(context);
+        if (criteriaBuilderFactory == null || entityManager == null) {
+            throw new NotificationException("No CriteriaBuilderFactory or EntityManager given!");
+        }
+        String recipientIdPath = "recipient." + getNotificationRecipientIdPath(jobInstance);
+        Object[] bounds = criteriaBuilderFactory.create(entityManager, Object[].class)
+            .from(getNotificationRecipientEntityClass(jobInstance), "recipient")
+            .select("MIN(" + recipientIdPath + ")")
+            .select("MAX(" + recipientIdPath + ")")
+            .getSingleResult();
+        if (bounds[0] == null) {
+            return null;
+        }
+        return RecipientRanges.split(toLong(bounds[0]), toLong(bounds[1]), rangeCount);
+    }
+
+    private ID processRanges(I jobInstance, JobInstanceProcessingContext<ID> context, RecipientRanges ranges) {
+        List<Integer> pendingRanges = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            if (!ranges.isDone(i)) {
+                pendingRanges.add(i);
+            }
+        }
+        ExecutorService executorService = getRecipientRangeExecutorService(context);
+        List<Future<RecipientRangeResult>> futures = new ArrayList<>(pendingRanges.size());
+        try {
+            for (Integer range : pendingRanges) {
+                futures.add(executorService.submit(() -> processRangeInTransaction(jobInstance, context, ranges, range)));
+            }
+            RecipientRanges newRanges = ranges;
+            RuntimeException firstFailure = null;
+            for (int i = 0; i < futures.size(); i++) {
+                int range = pendingRanges.get(i);
+                try {
+                    RecipientRangeResult result = futures.get(i).get();
+                    newRanges = newRanges.withCursor(range, result.cursor, result.done);
+                } catch (ExecutionException ex) {
+                    // The other ranges committed independently, so keep their progress and retry this range with the next chunk
+                    LOG.log(Level.WARNING, "Couldn't process recipient range " + range + " of notification job instance " + jobInstance.getId(), ex.getCause());
+                    if (firstFailure == null) {
+                        firstFailure = ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : new NotificationException(ex.getCause());
+                    }
+                }
+            }
+            ID lastProcessed = toId(newRanges.getLastCursor(), getNotificationRecipientIdClass(jobInstance));
+            // Returning null marks the job instance as done, so a chunk must fail if ranges failed before any recipient was processed
+            if (firstFailure != null && (newRanges == ranges || lastProcessed == null)) {
+                throw firstFailure;
+            }
+            setRecipientRanges(jobInstance, newRanges);
+            if (newRanges.isDone()) {
+                markDone(jobInstance, context);
+            }
+            return lastProcessed;
+        } catch (InterruptedException ex) {
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new NotificationException("Interrupted while processing recipient ranges", ex);
+        }
+    }
+
+    /**
+     * Returns the executor service on which the recipient ranges are processed.
+     * The default implementation returns the executor service configured via {@link #RECIPIENT_RANGES_EXECUTOR_SERVICE_PROPERTY}
+     * or otherwise a pool of daemon threads that is shared by all job instances of this processor.
+     *
+     * @param context The processing context
+     * @return the executor service
+     */
+    protected ExecutorService getRecipientRangeExecutorService(JobInstanceProcessingContext<?> context) {
+        Object configuredExecutorService = context.getJobContext().getProperty(RECIPIENT_RANGES_EXECUTOR_SERVICE_PROPERTY);
+        if (configuredExecutorService instanceof ExecutorService) {
+            return (ExecutorService) configuredExecutorService;
+        } else if (configuredExecutorService != null) {
+            throw new NotificationException("Invalid executor service given via property '" + RECIPIENT_RANGES_EXECUTOR_SERVICE_PROPERTY + "': " + configuredExecutorService);
+        }
+        ExecutorService executorService = this.executorService;
+        if (executorService == null) {
+            synchronized (this) {
+                executorService = this.executorService;
+                if (executorService == null) {
+                    this.executorService = executorService = createExecutorService();
+                }
+            }
+        }
+        return executorService;
+    }
+
+    private static ExecutorService createExecutorService() {
+        String threadNamePrefix = "notification-recipient-range-" + POOL_COUNTER.incrementAndGet() + "-worker-";
+        AtomicInteger threadCount = new AtomicInteger();
+        // The number of threads is bounded by the ranges in process, and idle threads terminate so that no threads are kept between chunks
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, threadNamePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private RecipientRangeResult processRangeInTransaction(I jobInstance, JobInstanceProcessingContext<ID> context, RecipientRanges ranges, int range) throws Exception {
+        JobContext jobContext = context.getJobContext();
+        Throwable[] failure = new Throwable[1];
+        RecipientRangeResult result = jobContext.getTransactionSupport().transactional(jobContext, jobContext.getTransactionTimeoutMillis(), false, () -> processRange(jobInstance, context, ranges, range), t -> failure[0] = t);
+        if (failure[0] instanceof Exception) {
+            throw (Exception) failure[0];
+        } else if (failure[0] != null) {
+            throw new NotificationException(failure[0]);
+        }
+        return result;
+    }
+
+    private RecipientRangeResult processRange(I jobInstance, JobInstanceProcessingContext<ID> context, RecipientRanges ranges, int range) {
+        CriteriaBuilderFactory criteriaBuilderFactory = getCriteriaBuilderFactory(context);
+        EntityManager entityManager = getEntityManager(context);
+        Class<ID> idClass = getNotificationRecipientIdClass(jobInstance);
+        // Determine the cursor in the transaction of the insert, so that a chunk never produces notifications for recipients twice
+        Long cursor = getRangeCursor(criteriaBuilderFactory, entityManager, jobInstance, ranges, range);
+        RecipientRangeProcessingContext<ID> rangeContext = new RecipientRangeProcessingContext<>(context, toId(cursor, idClass), toId(ranges.getLowerBound(range), idClass), toId(ranges.getUpperBound(range), idClass));
+        InsertCriteriaBuilder<T> insertCriteriaBuilder = criteriaBuilderFactory.insert(entityManager, getTargetEntityClass(jobInstance))
+            .from(getJobInstanceEntityClass(jobInstance), JOB_INSTANCE_ALIAS);
+        insertCriteriaBuilder.where(JOB_INSTANCE_ALIAS + "." + getJobInstanceIdPath(jobInstance)).eq(jobInstance.getId());
+        insertCriteriaBuilder.setMaxResults(rangeContext.getProcessCount());
+        bindTargetAttributes(insertCriteriaBuilder, jobInstance, rangeContext, JOB_INSTANCE_ALIAS);
+        ReturningResult<ID> returningResult = insertCriteriaBuilder.executeWithReturning(getNotificationIdRecipientIdPath(jobInstance), idClass);
+        if (!returningResult.getResultList().isEmpty()) {
+            cursor = toLong(returningResult.getLastResult());
+        }
+        return new RecipientRangeResult(cursor, returningResult.getUpdateCount() != rangeContext.getProcessCount());
+    }
+
+    private Long getRangeCursor(CriteriaBuilderFactory criteriaBuilderFactory, EntityManager entityManager, I jobInstance, RecipientRanges ranges, int range) {
+        String recipientIdPath = "notification." + getNotificationIdRecipientIdPath(jobInstance);
+        CriteriaBuilder<Object> criteriaBuilder = criteriaBuilderFactory.create(entityManager, Object.class)
+            .from(getNotificationEntityClass(jobInstance), "notification")
+            .select("MAX(" + recipientIdPath + ")")
+            .where("notification." + getNotificationIdJobInstanceIdPath(jobInstance)).eq(jobInstance.getId());
+        Long lowerBound = ranges.getLowerBound(range);
+        if (lowerBound != null) {
+            criteriaBuilder.where(recipientIdPath).ge(toId(lowerBound, getNotificationRecipientIdClass(jobInstance)));
+        }
+        Long upperBound = ranges.getUpperBound(range);
+        if (upperBound != null) {
+            criteriaBuilder.where(recipientIdPath).lt(toId(upperBound, getNotificationRecipientIdClass(jobInstance)));
+        }
+        Object cursor = criteriaBuilder.getSingleResult();
+        return cursor == null ? null : toLong(cursor);
+    }
+
     @Override
     protected void bindTargetAttributes(InsertCriteriaBuilder<T> insertCriteriaBuilder, I jobInstance, JobInstanceProcessingContext<ID> context, String jobInstanceAlias) {
         String recipientAlias = "recipient";
@@ -54,10 +270,21 @@ public abstract class AbstractInsertSelectNotificationJobInstanceProcessor<ID, T
         if (context.getLastProcessed() != null) {
             insertCriteriaBuilder.where(recipientIdPath).gt(context.getLastProcessed());
         }
+        if (context instanceof RecipientRangeProcessingContext<?>) {
+            RecipientRangeProcessingContext<?> rangeContext = (RecipientRangeProcessingContext<?>) context;
+            if (context.getLastProcessed() == null && rangeContext.lowerBound != null) {
+                insertCriteriaBuilder.where(recipientIdPath).ge(rangeContext.lowerBound);
+            }
+            if (rangeContext.upperBound != null) {
+                insertCriteriaBuilder.where(recipientIdPath).lt(rangeContext.upperBound);
+            }
+        }
         insertCriteriaBuilder.orderByAsc(recipientIdPath);
         NotificationRecipientResolver recipientResolver = context.getJobContext().getService(NotificationRecipientResolver.class);
 
         if (recipientResolver != null) {
+            NotificationMetrics metrics = context.getJobContext().getService(NotificationMetrics.class);
+            long start = System.nanoTime();
             if (recipientResolver instanceof AbstractPredicatingExpressionNotificationRecipientResolver) {
                 Predicate predicate = ((AbstractPredicatingExpressionNotificationRecipientResolver) recipientResolver).resolveNotificationRecipientPredicate(jobInstance, context);
                 if (predicate != null) {
@@ -74,6 +301,9 @@ public abstract class AbstractInsertSelectNotificationJobInstanceProcessor<ID, T
                 }
                 insertCriteriaBuilder.where(recipientIdPath).in(ids);
             }
+            if (metrics != null) {
+                metrics.recordLatency(getTargetChannelType(), NotificationMetrics.Stage.RECIPIENT_RESOLUTION, System.nanoTime() - start);
+            }
         }
 
         Instant earliestNewNotificationSchedule = bindNotificationAttributes(insertCriteriaBuilder, jobInstance, context, recipientAlias, jobInstanceAlias);
@@ -97,6 +327,49 @@ public abstract class AbstractInsertSelectNotificationJobInstanceProcessor<ID, T
         return null;
     }
 
+    /**
+     * Returns the number of recipient id ranges to process concurrently for the given job instance.
+     * A value smaller than two disables the range partitioning. Only used when no ranges were stored on the job instance yet.
+     *
+     * @param jobInstance The notification job instance
+     * @param context     The processing context
+     * @return the number of recipient ranges
+     */
+    protected int getRecipientRangeCount(I jobInstance, JobInstanceProcessingContext<ID> context) {
+        return context.getJobContext().getPropertyOrDefault(RECIPIENT_RANGES_PROPERTY, Integer.class, Integer::valueOf, o -> 1);
+    }
+
+    /**
+     * Returns the recipient ranges stored on the given job instance or <code>null</code> if the ranges weren't split yet.
+     *
+     * @param jobInstance The notification job instance
+     * @return the recipient ranges or <code>null</code>
+     */
+    protected RecipientRanges getRecipientRanges(I jobInstance) {
+        return null;
+    }
+
+    /**
+     * Stores the given recipient ranges on the given job instance.
+     *
+     * @param jobInstance The notification job instance
+     * @param ranges      The recipient ranges
+     */
+    protected void setRecipientRanges(I jobInstance, RecipientRanges ranges) {
+        throw new UnsupportedOperationException("The processor " + getClass().getName() + " doesn't support storing recipient ranges on the job instance");
+    }
+
+    /**
+     * Returns the notification job instance id attribute path for the notification entity type.
+     * Only needed when recipient ranges are processed concurrently, to determine the cursor of a range.
+     *
+     * @param jobInstance The notification job instance
+     * @return the id attribute path
+     */
+    protected String getNotificationIdJobInstanceIdPath(I jobInstance) {
+        throw new UnsupportedOperationException("The processor " + getClass().getName() + " doesn't support recipient ranges");
+    }
+
     /**
      * Returns the serializer context for applying the notification recipient predicate.
      *
@@ -211,4 +484,90 @@ public abstract class AbstractInsertSelectNotificationJobInstanceProcessor<ID, T
      */
     protected abstract Class<ID> getNotificationRecipientIdClass(I jobInstance);
 
+    private static long toLong(Object id) {
+        if (id instanceof Long || id instanceof Integer || id instanceof Short) {
+            return ((Number) id).longValue();
+        }
+        throw new NotificationException("Recipient ranges require an integral recipient id but got: " + id);
+    }
+
+    private static <ID> ID toId(Long value, Class<ID> idClass) {
+        if (value == null || idClass == Long.class) {
+            return idClass.cast(value);
+        } else if (idClass == Integer.class) {
+            return idClass.cast(value.intValue());
+        } else if (idClass == Short.class) {
+            return idClass.cast(value.shortValue());
+        }
+        throw new NotificationException("Recipient ranges require an integral recipient id but got: " + idClass.getName());
+    }
+
+    /**
+     * The result of processing a chunk of a recipient range.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static class RecipientRangeResult {
+
+        private final Long cursor;
+        private final boolean done;
+
+        public RecipientRangeResult(Long cursor, boolean done) {
+            this.cursor = cursor;
+            this.done = done;
+        }
+    }
+
+    /**
+     * A processing context for a single recipient range that exposes the range cursor as last processed id.
+     *
+     * @param <ID> The recipient id type
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static class RecipientRangeProcessingContext<ID> implements JobInstanceProcessingContext<ID> {
+
+        private final JobInstanceProcessingContext<ID> delegate;
+        private final ID lastProcessed;
+        private final ID lowerBound;
+        private final ID upperBound;
+
+        public RecipientRangeProcessingContext(JobInstanceProcessingContext<ID> delegate, ID lastProcessed, ID lowerBound, ID upperBound) {
+            this.delegate = delegate;
+            this.lastProcessed = lastProcessed;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+        }
+
+        @Override
+        public JobContext getJobContext() {
+            return delegate.getJobContext();
+        }
+
+        @Override
+        public ID getLastProcessed() {
+            return lastProcessed;
+        }
+
+        @Override
+        public int getProcessCount() {
+            return delegate.getProcessCount();
+        }
+
+        @Override
+        public int getPartitionId() {
+            return delegate.getPartitionId();
+        }
+
+        @Override
+        public int getPartitionCount() {
+            return delegate.getPartitionCount();
+        }
+
+        @Override
+        public PartitionKey getPartitionKey() {
+            return delegate.getPartitionKey();
+        }
+    }
 }
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.processor.hibernate.insertselect;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An immutable partitioning of the recipient id space into contiguous ranges with one cursor per range.
+ *
+ * Range {@code i} covers the ids from {@link #getLowerBound(int)} inclusive up to {@link #getUpperBound(int)} exclusive.
+ * The first range has no lower bound and the last range has no upper bound, so recipients created after the split are still covered.
+ * The {@link #toString() string representation} can be parsed with {@link #valueOf(String)} which allows to store the ranges in a single column.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class RecipientRanges implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] splitPoints;
+    private final Long[] cursors;
+    private final boolean[] done;
+
+    private RecipientRanges(long[] splitPoints, Long[] cursors, boolean[] done) {
+        this.splitPoints = splitPoints;
+        this.cursors = cursors;
+        this.done = done;
+    }
+
+    /**
+     * Splits the recipient id space between the given minimum and maximum id into at most the given number of ranges.
+     * The ranges differ in size by at most one id, so every range contains at least one id between the minimum and maximum id.
+     *
+     * @param minId      The minimum recipient id
+     * @param maxId      The maximum recipient id
+     * @param rangeCount The desired number of ranges
+     * @return the recipient ranges
+     */
+    public static RecipientRanges split(long minId, long maxId, int rangeCount) {
+        if (rangeCount < 1) {
+            throw new IllegalArgumentException("Invalid range count: " + rangeCount);
+        }
+        if (maxId < minId) {
+            throw new IllegalArgumentException("The maximum id " + maxId + " is smaller than the minimum id " + minId);
+        }
+        // The difference is unsigned, so the id space may span all long values without overflowing
+        long difference = maxId - minId;
+        int count = Long.compareUnsigned(difference, rangeCount) < 0 ? (int) difference + 1 : rangeCount;
+        // The number of ids is difference + 1 = step * count + remainder where the first remainder ranges get one more id
+        long step = Long.divideUnsigned(difference, count);
+        long remainder = Long.remainderUnsigned(difference, count) + 1;
+        if (remainder == count) {
+            step++;
+            remainder = 0;
+        }
+        long[] splitPoints = new long[count - 1];
+        long splitPoint = minId;
+        for (int i = 0; i < splitPoints.length; i++) {
+            splitPoint += i < remainder ? step + 1 : step;
+            splitPoints[i] = splitPoint;
+        }
+        return new RecipientRanges(splitPoints, new Long[count], new boolean[count]);
+    }
+
+    /**
+     * Parses the given string representation as produced by {@link #toString()}.
+     *
+     * @param value The string representation
+     * @return the recipient ranges
+     */
+    public static RecipientRanges valueOf(String value) {
+        String[] parts = value.split(",", -1);
+        long[] splitPoints = new long[parts.length - 1];
+        Long[] cursors = new Long[parts.length];
+        boolean[] done = new boolean[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String[] rangeParts = parts[i].split(":", -1);
+            if (rangeParts.length != 3 || (i == 0) != rangeParts[0].isEmpty()) {
+                throw new IllegalArgumentException("Invalid recipient ranges: " + value);
+            }
+            if (i != 0) {
+                splitPoints[i - 1] = Long.parseLong(rangeParts[0]);
+            }
+            cursors[i] = rangeParts[1].isEmpty() ? null : Long.valueOf(rangeParts[1]);
+            done[i] = "done".equals(rangeParts[2]);
+        }
+        return new RecipientRanges(splitPoints, cursors, done);
+    }
+
+    /**
+     * Returns the number of ranges.
+     *
+     * @return the number of ranges
+     */
+    public int size() {
+        return cursors.length;
+    }
+
+    /**
+     * Returns the inclusive lower bound of the given range or <code>null</code> if the range is unbounded.
+     *
+     * @param range The range index
+     * @return the inclusive lower bound or <code>null</code>
+     */
+    public Long getLowerBound(int range) {
+        return range == 0 ? null : splitPoints[range - 1];
+    }
+
+    /**
+     * Returns the exclusive upper bound of the given range or <code>null</code> if the range is unbounded.
+     *
+     * @param range The range index
+     * @return the exclusive upper bound or <code>null</code>
+     */
+    public Long getUpperBound(int range) {
+        return range == splitPoints.length ? null : splitPoints[range];
+    }
+
+    /**
+     * Returns the id of the last recipient processed in the given range or <code>null</code> if none was processed yet.
+     *
+     * @param range The range index
+     * @return the cursor or <code>null</code>
+     */
+    public Long getCursor(int range) {
+        return cursors[range];
+    }
+
+    /**
+     * Returns the highest cursor of all ranges or <code>null</code> if no recipient was processed in any range yet.
+     * Since the ranges are contiguous and ascending, this is the cursor of the last range that has one,
+     * regardless of the order in which the ranges were processed.
+     *
+     * @return the highest cursor or <code>null</code>
+     */
+    public Long getLastCursor() {
+        for (int i = cursors.length - 1; i >= 0; i--) {
+            if (cursors[i] != null) {
+                return cursors[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether all recipients of the given range were processed.
+     *
+     * @param range The range index
+     * @return whether the range is done
+     */
+    public boolean isDone(int range) {
+        return done[range];
+    }
+
+    /**
+     * Returns whether all ranges are done.
+     *
+     * @return whether all ranges are done
+     */
+    public boolean isDone() {
+        for (boolean rangeDone : done) {
+            if (!rangeDone) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a copy of these ranges with the given cursor and done state for the given range.
+     *
+     * @param range  The range index
+     * @param cursor The new cursor
+     * @param done   Whether the range is done
+     * @return the new recipient ranges
+     */
+    public RecipientRanges withCursor(int range, Long cursor, boolean done) {
+        Long[] newCursors = cursors.clone();
+        boolean[] newDone = this.done.clone();
+        newCursors[range] = cursor;
+        newDone[range] = done;
+        return new RecipientRanges(splitPoints, newCursors, newDone);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RecipientRanges)) {
+            return false;
+        }
+        RecipientRanges that = (RecipientRanges) o;
+        return Arrays.equals(splitPoints, that.splitPoints) && Arrays.equals(cursors, that.cursors) && Arrays.equals(done, that.done);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(splitPoints);
+        result = 31 * result + Arrays.hashCode(cursors);
+        result = 31 * result + Arrays.hashCode(done);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cursors.length; i++) {
+            if (i != 0) {
+                sb.append(',').append(splitPoints[i - 1]);
+            }
+            sb.append(':');
+            if (cursors[i] != null) {
+                sb.append(cursors[i]);
+            }
+            sb.append(':').append(done[i] ? "done" : "open");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.processor.hibernate.insertselect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecipientRangesTest {
+
+    @Test
+    public void testSplit() {
+        RecipientRanges ranges = RecipientRanges.split(1L, 100L, 4);
+        assertEquals(4, ranges.size());
+        assertNull(ranges.getLowerBound(0));
+        assertEquals(Long.valueOf(26L), ranges.getUpperBound(0));
+        assertEquals(Long.valueOf(26L), ranges.getLowerBound(1));
+        assertEquals(Long.valueOf(51L), ranges.getUpperBound(1));
+        assertEquals(Long.valueOf(76L), ranges.getLowerBound(3));
+        assertNull(ranges.getUpperBound(3));
+        assertFalse(ranges.isDone());
+        assertNull(ranges.getLastCursor());
+    }
+
+    @Test
+    public void testEveryIdIsInExactlyOneNonEmptyRange() {
+        for (int idCount = 1; idCount <= 40; idCount++) {
+            for (int rangeCount = 1; rangeCount <= 12; rangeCount++) {
+                RecipientRanges ranges = RecipientRanges.split(10L, 10L + idCount - 1, rangeCount);
+                assertEquals(Math.min(idCount, rangeCount), ranges.size());
+                int[] idsPerRange = new int[ranges.size()];
+                for (long id = 10L; id < 10L + idCount; id++) {
+                    int matchingRanges = 0;
+                    for (int range = 0; range < ranges.size(); range++) {
+                        if (contains(ranges, range, id)) {
+                            matchingRanges++;
+                            idsPerRange[range]++;
+                        }
+                    }
+                    assertEquals(1, matchingRanges);
+                }
+                for (int range = 0; range < ranges.size(); range++) {
+                    // The ranges are balanced, so also the last range contains existing ids
+                    assertTrue(idsPerRange[range] >= idCount / ranges.size());
+                    assertTrue(idsPerRange[range] <= idCount / ranges.size() + 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSplitWithFewerIdsThanRanges() {
+        RecipientRanges ranges = RecipientRanges.split(10L, 12L, 5);
+        assertEquals(3, ranges.size());
+        assertEquals(Long.valueOf(11L), ranges.getUpperBound(0));
+        assertEquals(Long.valueOf(12L), ranges.getUpperBound(1));
+
+        RecipientRanges singleRange = RecipientRanges.split(5L, 5L, 3);
+        assertEquals(1, singleRange.size());
+        assertNull(singleRange.getLowerBound(0));
+        assertNull(singleRange.getUpperBound(0));
+    }
+
+    @Test
+    public void testSplitWholeIdSpace() {
+        RecipientRanges ranges = RecipientRanges.split(Long.MIN_VALUE, Long.MAX_VALUE, 2);
+        assertEquals(2, ranges.size());
+        assertEquals(Long.valueOf(0L), ranges.getUpperBound(0));
+
+        ranges = RecipientRanges.split(Long.MIN_VALUE, Long.MAX_VALUE, 4);
+        assertEquals(Long.valueOf(Long.MIN_VALUE / 2), ranges.getUpperBound(0));
+        assertEquals(Long.valueOf(0L), ranges.getUpperBound(1));
+        assertEquals(Long.valueOf(Long.MAX_VALUE / 2 + 1), ranges.getUpperBound(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRangeCount() {
+        RecipientRanges.split(1L, 10L, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIdBounds() {
+        RecipientRanges.split(10L, 1L, 2);
+    }
+
+    @Test
+    public void testCursorsAreIndependentOfCompletionOrder() {
+        RecipientRanges ranges = RecipientRanges.split(1L, 100L, 4);
+        RecipientRanges inOrder = ranges.withCursor(0, 10L, false).withCursor(2, 60L, false).withCursor(3, null, true);
+        RecipientRanges outOfOrder = ranges.withCursor(3, null, true).withCursor(2, 60L, false).withCursor(0, 10L, false);
+        assertEquals(inOrder, outOfOrder);
+        assertEquals(inOrder.hashCode(), outOfOrder.hashCode());
+        // The last cursor is the highest processed id, even if a higher range finished without processing recipients
+        assertEquals(Long.valueOf(60L), outOfOrder.getLastCursor());
+        assertTrue(outOfOrder.isDone(3));
+        assertFalse(outOfOrder.isDone());
+
+        // The ranges are immutable
+        assertNull(ranges.getCursor(0));
+        assertFalse(ranges.isDone(3));
+    }
+
+    @Test
+    public void testDoneRangeKeepsCursor() {
+        RecipientRanges ranges = RecipientRanges.split(1L, 100L, 2)
+            .withCursor(1, 80L, false)
+            .withCursor(0, 50L, true)
+            .withCursor(1, 80L, true);
+        assertTrue(ranges.isDone());
+        assertEquals(Long.valueOf(50L), ranges.getCursor(0));
+        assertEquals(Long.valueOf(80L), ranges.getLastCursor());
+    }
+
+    @Test
+    public void testStringRepresentation() {
+        RecipientRanges ranges = RecipientRanges.split(1L, 100L, 4).withCursor(0, 10L, false).withCursor(3, null, true);
+        assertEquals(":10:open,26::open,51::open,76::done", ranges.toString());
+        assertEquals(ranges, RecipientRanges.valueOf(ranges.toString()));
+        assertEquals(RecipientRanges.split(5L, 5L, 1), RecipientRanges.valueOf("::open"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStringRepresentation() {
+        RecipientRanges.valueOf("1:10:open");
+    }
+
+    private static boolean contains(RecipientRanges ranges, int range, long id) {
+        Long lowerBound = ranges.getLowerBound(range);
+        Long upperBound = ranges.getUpperBound(range);
+        return (lowerBound == null || id >= lowerBound) && (upperBound == null || id < upperBound);
+    }
+}
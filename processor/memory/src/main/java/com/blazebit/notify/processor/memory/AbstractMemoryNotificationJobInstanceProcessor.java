@@ -19,17 +19,22 @@ import com.blazebit.job.JobContext;
 import com.blazebit.job.JobInstance;
 import com.blazebit.job.JobInstanceProcessingContext;
 import com.blazebit.job.processor.memory.AbstractMemoryJobInstanceProcessor;
+import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.NotificationJobInstance;
 import com.blazebit.notify.NotificationJobInstanceProcessor;
+import com.blazebit.notify.NotificationMetrics;
 import com.blazebit.notify.NotificationRecipient;
 import com.blazebit.notify.NotificationRecipientResolver;
 
-import java.util.List;
+import java.util.Iterator;
 import java.util.concurrent.BlockingQueue;
 import java.util.function.BiConsumer;
 
 /**
  * An abstract notification job instance processor implementation that writes into a sink.
+ * The processor returns the {@link #getRecipientCursor(NotificationRecipient) identifier of the last consumed recipient} as cursor,
+ * which becomes the {@link NotificationJobInstance#getRecipientCursor() recipient cursor} after which the next chunk continues.
+ * Recipients without identifier can't be continued after, so they are processed in a single chunk.
  *
  * @param <ID> The job instance cursor type
  * @param <T>  The result type of the processing
@@ -68,23 +73,62 @@ public abstract class AbstractMemoryNotificationJobInstanceProcessor<ID, T, I ex
     @Override
     public ID process(I jobInstance, JobInstanceProcessingContext<ID> context) {
         JobContext jobContext = context.getJobContext();
-        List<? extends NotificationRecipient<?>> recipientBatch = jobContext.getService(NotificationRecipientResolver.class).resolveNotificationRecipients(jobInstance, context);
+        NotificationMetrics metrics = jobContext.getService(NotificationMetrics.class);
+        long start = System.nanoTime();
+        Iterator<? extends NotificationRecipient<?>> recipients = jobContext.getService(NotificationRecipientResolver.class).resolveNotificationRecipientIterator(jobInstance, context);
+        // Lazy resolvers do their work while being consumed, so the time spent in the iterator counts towards the resolution
+        long resolutionNanos = System.nanoTime() - start;
 
-        ID lastNotificationProcessed = null;
-        for (int i = 0; i < recipientBatch.size(); i++) {
-            T jobResult = produceNotification(context, jobInstance, (R) recipientBatch.get(i));
-            if (jobResult == null) {
-                break;
+        ID recipientCursor = null;
+        boolean done = false;
+        try {
+            // Recipients are consumed one by one, so memory stays bounded by what the resolver holds.
+            // We stop after a batch if the next chunk can continue after the last consumed recipient
+            int processCount = context.getProcessCount();
+            for (int i = 0; i < processCount || recipientCursor == null; i++) {
+                long recipientStart = System.nanoTime();
+                R recipient = recipients.hasNext() ? (R) recipients.next() : null;
+                resolutionNanos += System.nanoTime() - recipientStart;
+                if (recipient == null) {
+                    done = true;
+                    break;
+                }
+                T jobResult = produceNotification(context, jobInstance, recipient);
+                if (jobResult == null) {
+                    break;
+                }
+                sink.accept(jobContext, jobResult);
+                recipientCursor = getRecipientCursor(recipient);
+            }
+        } finally {
+            if (recipients instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) recipients).close();
+                } catch (Exception ex) {
+                    throw new NotificationException("Couldn't close recipient iterator", ex);
+                }
+            }
+            if (metrics != null) {
+                metrics.recordLatency(null, NotificationMetrics.Stage.RECIPIENT_RESOLUTION, resolutionNanos);
             }
-            sink.accept(jobContext, jobResult);
-            lastNotificationProcessed = getProcessingResultId(jobResult);
         }
 
-        if (lastNotificationProcessed == context.getLastProcessed()) {
-            lastNotificationProcessed = null;
+        if (done || recipientCursor == null || recipientCursor.equals(context.getLastProcessed())) {
+            return null;
         }
 
-        return lastNotificationProcessed;
+        return recipientCursor;
+    }
+
+    /**
+     * Returns the cursor for the given consumed recipient, i.e. the value the {@link NotificationRecipientResolver} continues after in the next chunk.
+     * The default implementation returns the recipient identifier, which the resolvers expect as {@link NotificationJobInstance#getRecipientCursor() recipient cursor}.
+     *
+     * @param recipient The consumed recipient
+     * @return the recipient cursor or <code>null</code> if processing can't continue after the recipient
+     */
+    protected ID getRecipientCursor(R recipient) {
+        return (ID) recipient.getId();
     }
 
     @Override
@@ -16,18 +16,27 @@
 package com.blazebit.notify.recipient.resolver.expression;
 
 import com.blazebit.domain.runtime.model.DomainType;
-import com.blazebit.expression.ExpressionCompiler;
 import com.blazebit.expression.ExpressionInterpreter;
 import com.blazebit.expression.ExpressionInterpreterContext;
 import com.blazebit.expression.ExpressionService;
 import com.blazebit.expression.Predicate;
 import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.notify.NotificationException;
 import com.blazebit.notify.NotificationJobInstance;
 import com.blazebit.notify.NotificationRecipient;
 import com.blazebit.notify.NotificationRecipientResolver;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 /**
  * A recipient resolver that uses Blaze-Expression interpretation.
@@ -37,34 +46,260 @@ import java.util.Map;
  */
 public abstract class AbstractInterpretingExpressionNotificationRecipientResolver implements NotificationRecipientResolver {
 
+    /**
+     * The configuration property for the minimum number of recipients from which on the predicate is evaluated in parallel.
+     * A value lower than 1 disables parallel evaluation.
+     */
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "recipient_resolver.expression.parallel_threshold";
+    /**
+     * The default minimum number of recipients from which on the predicate is evaluated in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
+    /**
+     * The configuration property for the {@link ForkJoinPool} on which the predicate is evaluated in parallel.
+     * If absent, the resolver uses a dedicated pool with {@link #PARALLELISM_PROPERTY} worker threads.
+     */
+    public static final String FORK_JOIN_POOL_PROPERTY = "recipient_resolver.expression.fork_join_pool";
+    /**
+     * The configuration property for the parallelism of the dedicated pool on which the predicate is evaluated in parallel.
+     * Defaults to the number of available processors.
+     */
+    public static final String PARALLELISM_PROPERTY = "recipient_resolver.expression.parallelism";
+    /**
+     * The configuration property for the number of recipients that are loaded per page when recipients are resolved incrementally.
+     */
+    public static final String RECIPIENT_PAGE_SIZE_PROPERTY = "recipient_resolver.expression.page_size";
+    /**
+     * The default number of recipients that are loaded per page when recipients are resolved incrementally.
+     */
+    public static final int DEFAULT_RECIPIENT_PAGE_SIZE = 1000;
+    /**
+     * The default maximum number of cached compiled predicates.
+     */
+    public static final int DEFAULT_PREDICATE_CACHE_MAX_SIZE = 256;
+
+    private static final int MIN_PARALLEL_SLICE_SIZE = 1024;
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final PredicateCache predicateCache;
+    private volatile ForkJoinPool forkJoinPool;
+
+    /**
+     * Creates a new resolver that caches up to {@value #DEFAULT_PREDICATE_CACHE_MAX_SIZE} compiled predicates.
+     */
+    protected AbstractInterpretingExpressionNotificationRecipientResolver() {
+        this(DEFAULT_PREDICATE_CACHE_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new resolver that caches up to the given number of compiled predicates.
+     *
+     * @param predicateCacheMaxSize The maximum number of cached compiled predicates
+     */
+    protected AbstractInterpretingExpressionNotificationRecipientResolver(int predicateCacheMaxSize) {
+        this.predicateCache = new PredicateCache(predicateCacheMaxSize);
+    }
+
+    /**
+     * Resolves the recipients for which the recipient predicate evaluates to <code>true</code>, in the order of {@link #getAllRecipients(JobInstanceProcessingContext)}.
+     * If a {@link #getSegmentIndex(JobInstanceProcessingContext) segment index} is available and can answer the predicate,
+     * the recipients are resolved via {@link #getRecipients(JobInstanceProcessingContext, BitSet)} without interpreting the predicate.
+     * If the number of recipients reaches the {@link #PARALLEL_THRESHOLD_PROPERTY parallel threshold}, the predicate is evaluated in parallel
+     * on the {@link #getForkJoinPool(JobInstanceProcessingContext) fork join pool}, with a separate interpreter context per slice of recipients.
+     *
+     * @param jobInstance The notification job instance
+     * @param jobContext The processing context
+     * @return The list of resolved notification recipients
+     */
     @Override
     public List<? extends NotificationRecipient<?>> resolveNotificationRecipients(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
+        RecipientFilter filter = createFilter(jobInstance, jobContext);
+        if (filter == null) {
+            return getAllRecipients(jobContext);
+        }
+        RecipientSegmentIndex segmentIndex = getSegmentIndex(jobContext);
+        if (segmentIndex != null) {
+            BitSet recipientIds = segmentIndex.evaluate(filter.predicate);
+            if (recipientIds != null) {
+                return getRecipients(jobContext, recipientIds);
+            }
+        }
+        List<? extends NotificationRecipient<?>> allRecipients = getAllRecipients(jobContext);
+        int parallelThreshold = jobContext.getJobContext().getPropertyOrDefault(PARALLEL_THRESHOLD_PROPERTY, Integer.class, Integer::valueOf, o -> DEFAULT_PARALLEL_THRESHOLD);
+        if (parallelThreshold > 0 && allRecipients.size() >= parallelThreshold) {
+            return filter.filterParallel(allRecipients, getForkJoinPool(jobContext));
+        }
+        List<NotificationRecipient<?>> recipientList = new ArrayList<>(allRecipients.size());
+        RecipientEvaluator evaluator = filter.createEvaluator();
+        for (NotificationRecipient<?> recipient : allRecipients) {
+            if (evaluator.matches(recipient)) {
+                recipientList.add(recipient);
+            }
+        }
+        return recipientList;
+    }
+
+    /**
+     * Resolves the recipients after the {@link NotificationJobInstance#getRecipientCursor() recipient cursor} for which the recipient predicate evaluates to <code>true</code>.
+     * If the recipients can be {@link #getRecipientPage(JobInstanceProcessingContext, Object, int) loaded page by page}, they are loaded and filtered incrementally.
+     * Otherwise the recipients are resolved via {@link #resolveNotificationRecipients(NotificationJobInstance, JobInstanceProcessingContext)},
+     * which can make use of the segment index and parallel evaluation, and the recipients up to the cursor are skipped.
+     *
+     * @param jobInstance The notification job instance
+     * @param jobContext The processing context
+     * @return The iterator of resolved notification recipients
+     */
+    @Override
+    public Iterator<? extends NotificationRecipient<?>> resolveNotificationRecipientIterator(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
+        Iterator<? extends NotificationRecipient<?>> recipients = getRecipients(jobInstance, jobContext);
+        if (recipients == null) {
+            return NotificationRecipientResolver.afterCursor(resolveNotificationRecipients(jobInstance, jobContext), jobInstance.getRecipientCursor());
+        }
+        RecipientFilter filter = createFilter(jobInstance, jobContext);
+        if (filter == null) {
+            return recipients;
+        }
+        return new FilteringRecipientIterator(recipients, filter.createEvaluator());
+    }
+
+    private RecipientFilter createFilter(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
         ExpressionService expressionService = jobContext.getJobContext().getService(ExpressionService.class);
-        ExpressionInterpreter interpreter = expressionService.createInterpreter();
-        ExpressionCompiler compiler = expressionService.createCompiler();
         Map<String, DomainType> rootDomainTypes = getRootDomainTypes(jobContext);
         Map<String, Object> rootDomainObjects = getRootDomainObjects(jobContext);
-        ExpressionCompiler.Context compilerContext = compiler.createContext(rootDomainTypes);
-        ExpressionInterpreterContext<?> context = ExpressionInterpreterContext.create(expressionService);
-        rootDomainObjects.forEach(context::withRoot);
         String recipientPredicateExpression = getRecipientPredicateExpression(jobInstance, jobContext);
-        List<? extends NotificationRecipient<?>> allRecipients = getAllRecipients(jobContext);
         if (recipientPredicateExpression != null && !recipientPredicateExpression.isEmpty()) {
-            Predicate predicate = compiler.createPredicate(recipientPredicateExpression, compilerContext);
-            List<NotificationRecipient<?>> recipientList = new ArrayList<>(allRecipients.size());
-            for (NotificationRecipient<?> recipient : allRecipients) {
-                if (Boolean.TRUE.equals(interpreter.evaluate(predicate, context))) {
+            Predicate predicate = predicateCache.getPredicate(expressionService, recipientPredicateExpression, rootDomainTypes);
+            return new RecipientFilter(expressionService, predicate, rootDomainObjects);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the recipients of the job instance as iterator that is consumed incrementally or <code>null</code> if recipients can't be loaded incrementally.
+     * The default implementation loads the recipients after the {@link NotificationJobInstance#getRecipientCursor() recipient cursor}
+     * page by page via {@link #getRecipientPage(JobInstanceProcessingContext, Object, int)}, with pages of
+     * {@link #RECIPIENT_PAGE_SIZE_PROPERTY} recipients, so that at most one page is held in memory,
+     * and returns <code>null</code> if the first page is <code>null</code>.
+     * The predicate is evaluated sequentially for incrementally loaded recipients.
+     *
+     * @param jobInstance The notification job instance
+     * @param jobContext The processing context
+     * @return the recipients or <code>null</code>
+     */
+    protected Iterator<? extends NotificationRecipient<?>> getRecipients(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
+        int pageSize = jobContext.getJobContext().getPropertyOrDefault(RECIPIENT_PAGE_SIZE_PROPERTY, Integer.class, Integer::valueOf, o -> DEFAULT_RECIPIENT_PAGE_SIZE);
+        Object recipientCursor = jobInstance.getRecipientCursor();
+        List<? extends NotificationRecipient<?>> firstPage = getRecipientPage(jobContext, recipientCursor, pageSize);
+        if (firstPage == null) {
+            return null;
+        }
+        return NotificationRecipientResolver.keysetPaged(recipientCursor, pageSize, new RecipientPageLoader(jobContext, firstPage));
+    }
+
+    /**
+     * Returns at most the given number of recipients ordered by identifier that come after the given recipient identifier.
+     * Implementations should push the keyset condition and limit down to the data source,
+     * e.g. <code>WHERE id &gt; :lastRecipientId ORDER BY id LIMIT :pageSize</code>.
+     * The default implementation returns <code>null</code>, which means that recipients are resolved via {@link #getAllRecipients(JobInstanceProcessingContext)}.
+     *
+     * @param jobContext The processing context
+     * @param lastRecipientId The identifier of the last recipient of the previous page or <code>null</code> for the first page
+     * @param pageSize The maximum number of recipients to return
+     * @return the page of recipients or <code>null</code> if recipients can't be loaded page by page
+     */
+    protected List<? extends NotificationRecipient<?>> getRecipientPage(JobInstanceProcessingContext<?> jobContext, Object lastRecipientId, int pageSize) {
+        return null;
+    }
+
+    /**
+     * Returns the segment index that answers recipient predicates with bitmap operations or <code>null</code> if there is none.
+     * The resolver doesn't populate the index, subclasses that return one must keep it up to date with the recipients.
+     * The default implementation returns <code>null</code>.
+     *
+     * @param jobContext The processing context
+     * @return the segment index or <code>null</code>
+     */
+    protected RecipientSegmentIndex getSegmentIndex(JobInstanceProcessingContext<?> jobContext) {
+        return null;
+    }
+
+    /**
+     * Returns the recipients with the given ids as determined by the {@link #getSegmentIndex(JobInstanceProcessingContext) segment index}.
+     * The default implementation filters {@link #getAllRecipients(JobInstanceProcessingContext)} by id.
+     * Subclasses that can look up recipients by id should override this, so that the resolution time depends on the number of matching recipients only.
+     *
+     * @param jobContext The processing context
+     * @param recipientIds The bitmap of recipient ids
+     * @return the recipients with the given ids
+     */
+    protected List<? extends NotificationRecipient<?>> getRecipients(JobInstanceProcessingContext<?> jobContext, BitSet recipientIds) {
+        List<? extends NotificationRecipient<?>> allRecipients = getAllRecipients(jobContext);
+        List<NotificationRecipient<?>> recipientList = new ArrayList<>(recipientIds.cardinality());
+        for (NotificationRecipient<?> recipient : allRecipients) {
+            Object id = recipient.getId();
+            if (id instanceof Number) {
+                long index = ((Number) id).longValue();
+                if (index >= 0 && index <= Integer.MAX_VALUE && recipientIds.get((int) index)) {
                     recipientList.add(recipient);
                 }
             }
+        }
+        return recipientList;
+    }
 
-            return recipientList;
+    /**
+     * Returns the fork join pool on which the predicate is evaluated in parallel for large numbers of recipients.
+     * The default implementation returns the pool configured via {@link #FORK_JOIN_POOL_PROPERTY}
+     * or otherwise a pool dedicated to this resolver with {@link #PARALLELISM_PROPERTY} daemon worker threads,
+     * so that the evaluation does not compete with other users of the common pool.
+     *
+     * @param jobContext The processing context
+     * @return the fork join pool
+     */
+    protected ForkJoinPool getForkJoinPool(JobInstanceProcessingContext<?> jobContext) {
+        Object configuredForkJoinPool = jobContext.getJobContext().getProperty(FORK_JOIN_POOL_PROPERTY);
+        if (configuredForkJoinPool instanceof ForkJoinPool) {
+            return (ForkJoinPool) configuredForkJoinPool;
+        } else if (configuredForkJoinPool != null) {
+            throw new NotificationException("Invalid fork join pool given via property '" + FORK_JOIN_POOL_PROPERTY + "': " + configuredForkJoinPool);
         }
-        return allRecipients;
+        ForkJoinPool forkJoinPool = this.forkJoinPool;
+        if (forkJoinPool == null) {
+            synchronized (this) {
+                forkJoinPool = this.forkJoinPool;
+                if (forkJoinPool == null) {
+                    int parallelism = jobContext.getJobContext().getPropertyOrDefault(PARALLELISM_PROPERTY, Integer.class, Integer::valueOf, o -> Runtime.getRuntime().availableProcessors());
+                    this.forkJoinPool = forkJoinPool = createForkJoinPool(parallelism);
+                }
+            }
+        }
+        return forkJoinPool;
+    }
+
+    private static ForkJoinPool createForkJoinPool(int parallelism) {
+        String threadNamePrefix = "expression-recipient-resolver-" + POOL_COUNTER.incrementAndGet() + "-worker-";
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(threadNamePrefix + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
     }
 
     /**
-     * Returns all recipients.
+     * Binds the given recipient to the interpreter context before the predicate is evaluated for it, for example as root object.
+     * Every slice of a parallel evaluation uses its own interpreter context, so implementations may mutate the context.
+     * The default implementation does nothing.
+     *
+     * @param context The interpreter context
+     * @param recipient The recipient
+     */
+    protected void bindRecipient(ExpressionInterpreterContext<?> context, NotificationRecipient<?> recipient) {
+    }
+
+    /**
+     * Returns all recipients ordered by identifier.
      *
      * @param jobContext The processing context
      * @return all recipients
@@ -95,4 +330,186 @@ public abstract class AbstractInterpretingExpressionNotificationRecipientResolve
      * @return the recipient predicate expression
      */
     protected abstract String getRecipientPredicateExpression(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext);
+
+    /**
+     * The compiled predicate along with everything needed to create interpreter contexts for evaluating it.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private final class RecipientFilter {
+
+        private final ExpressionService expressionService;
+        private final Predicate predicate;
+        private final Map<String, Object> rootDomainObjects;
+
+        public RecipientFilter(ExpressionService expressionService, Predicate predicate, Map<String, Object> rootDomainObjects) {
+            this.expressionService = expressionService;
+            this.predicate = predicate;
+            this.rootDomainObjects = rootDomainObjects;
+        }
+
+        public RecipientEvaluator createEvaluator() {
+            ExpressionInterpreterContext<?> context = ExpressionInterpreterContext.create(expressionService);
+            rootDomainObjects.forEach(context::withRoot);
+            return new RecipientEvaluator(expressionService.createInterpreter(), predicate, context);
+        }
+
+        public List<NotificationRecipient<?>> filterParallel(List<? extends NotificationRecipient<?>> recipients, ForkJoinPool forkJoinPool) {
+            boolean[] matches = new boolean[recipients.size()];
+            int sliceSize = Math.max(MIN_PARALLEL_SLICE_SIZE, recipients.size() / (forkJoinPool.getParallelism() * 4));
+            forkJoinPool.invoke(new PredicateEvaluationTask(this, recipients, matches, 0, recipients.size(), sliceSize));
+            // Collecting the matches afterwards retains the recipient order, which the recipient cursor relies on
+            List<NotificationRecipient<?>> recipientList = new ArrayList<>();
+            for (int i = 0; i < matches.length; i++) {
+                if (matches[i]) {
+                    recipientList.add(recipients.get(i));
+                }
+            }
+            return recipientList;
+        }
+    }
+
+    /**
+     * Evaluates the predicate for recipients with an interpreter context that must not be shared between threads.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private final class RecipientEvaluator {
+
+        private final ExpressionInterpreter interpreter;
+        private final Predicate predicate;
+        private final ExpressionInterpreterContext<?> context;
+
+        public RecipientEvaluator(ExpressionInterpreter interpreter, Predicate predicate, ExpressionInterpreterContext<?> context) {
+            this.interpreter = interpreter;
+            this.predicate = predicate;
+            this.context = context;
+        }
+
+        public boolean matches(NotificationRecipient<?> recipient) {
+            bindRecipient(context, recipient);
+            return Boolean.TRUE.equals(interpreter.evaluate(predicate, context));
+        }
+    }
+
+    /**
+     * A task that evaluates the predicate for a range of recipients, splitting the range until it is small enough.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class PredicateEvaluationTask extends RecursiveAction {
+
+        private final RecipientFilter filter;
+        private final List<? extends NotificationRecipient<?>> recipients;
+        private final boolean[] matches;
+        private final int from;
+        private final int to;
+        private final int sliceSize;
+
+        public PredicateEvaluationTask(RecipientFilter filter, List<? extends NotificationRecipient<?>> recipients, boolean[] matches, int from, int to, int sliceSize) {
+            this.filter = filter;
+            this.recipients = recipients;
+            this.matches = matches;
+            this.from = from;
+            this.to = to;
+            this.sliceSize = sliceSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= sliceSize) {
+                RecipientEvaluator evaluator = filter.createEvaluator();
+                for (int i = from; i < to; i++) {
+                    matches[i] = evaluator.matches(recipients.get(i));
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                    new PredicateEvaluationTask(filter, recipients, matches, from, middle, sliceSize),
+                    new PredicateEvaluationTask(filter, recipients, matches, middle, to, sliceSize)
+                );
+            }
+        }
+    }
+
+    /**
+     * A page loader that returns the already loaded first page before loading further pages via {@link #getRecipientPage(JobInstanceProcessingContext, Object, int)}.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private final class RecipientPageLoader implements BiFunction<Object, Integer, List<NotificationRecipient<?>>> {
+
+        private final JobInstanceProcessingContext<?> jobContext;
+        private List<? extends NotificationRecipient<?>> firstPage;
+
+        public RecipientPageLoader(JobInstanceProcessingContext<?> jobContext, List<? extends NotificationRecipient<?>> firstPage) {
+            this.jobContext = jobContext;
+            this.firstPage = firstPage;
+        }
+
+        @Override
+        public List<NotificationRecipient<?>> apply(Object lastRecipientId, Integer pageSize) {
+            List<? extends NotificationRecipient<?>> page = firstPage;
+            if (page == null) {
+                page = getRecipientPage(jobContext, lastRecipientId, pageSize);
+                if (page == null) {
+                    throw new NotificationException("Recipient page after " + lastRecipientId + " is null although the first page was not");
+                }
+            } else {
+                firstPage = null;
+            }
+            return Collections.unmodifiableList(page);
+        }
+    }
+
+    /**
+     * An iterator that only returns the recipients for which the predicate evaluates to <code>true</code>.
+     * Closing it closes the underlying iterator if that is closeable.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class FilteringRecipientIterator implements Iterator<NotificationRecipient<?>>, AutoCloseable {
+
+        private final Iterator<? extends NotificationRecipient<?>> recipients;
+        private final RecipientEvaluator evaluator;
+        private NotificationRecipient<?> next;
+
+        public FilteringRecipientIterator(Iterator<? extends NotificationRecipient<?>> recipients, RecipientEvaluator evaluator) {
+            this.recipients = recipients;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && recipients.hasNext()) {
+                NotificationRecipient<?> recipient = recipients.next();
+                if (evaluator.matches(recipient)) {
+                    next = recipient;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public NotificationRecipient<?> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            NotificationRecipient<?> recipient = next;
+            next = null;
+            return recipient;
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (recipients instanceof AutoCloseable) {
+                ((AutoCloseable) recipients).close();
+            }
+        }
+    }
 }
@@ -16,7 +16,6 @@
 package com.blazebit.notify.recipient.resolver.expression;
 
 import com.blazebit.domain.runtime.model.DomainType;
-import com.blazebit.expression.ExpressionCompiler;
 import com.blazebit.expression.ExpressionService;
 import com.blazebit.expression.Predicate;
 import com.blazebit.job.JobInstanceProcessingContext;
@@ -34,6 +33,29 @@ import java.util.Map;
  */
 public abstract class AbstractPredicatingExpressionNotificationRecipientResolver implements NotificationRecipientResolver {
 
+    /**
+     * The default maximum number of cached compiled predicates.
+     */
+    public static final int DEFAULT_PREDICATE_CACHE_MAX_SIZE = 256;
+
+    private final PredicateCache predicateCache;
+
+    /**
+     * Creates a new resolver that caches up to {@value #DEFAULT_PREDICATE_CACHE_MAX_SIZE} compiled predicates.
+     */
+    protected AbstractPredicatingExpressionNotificationRecipientResolver() {
+        this(DEFAULT_PREDICATE_CACHE_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new resolver that caches up to the given number of compiled predicates.
+     *
+     * @param predicateCacheMaxSize The maximum number of cached compiled predicates
+     */
+    protected AbstractPredicatingExpressionNotificationRecipientResolver(int predicateCacheMaxSize) {
+        this.predicateCache = new PredicateCache(predicateCacheMaxSize);
+    }
+
     @Override
     public List<? extends NotificationRecipient<?>> resolveNotificationRecipients(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
         throw new UnsupportedOperationException("Please resolve a predicate with the method " + AbstractPredicatingExpressionNotificationRecipientResolver.class.getName() + "#resolveNotificationRecipientPredicate");
@@ -41,6 +63,7 @@ public abstract class AbstractPredicatingExpressionNotificationRecipientResolver
 
     /**
      * Returns the recipient predicate for the job instance.
+     * Compiled predicates are cached by expression and root domain types until the domain model of the expression service changes.
      *
      * @param jobInstance The notification job instance
      * @param jobContext  The processing context
@@ -48,12 +71,10 @@ public abstract class AbstractPredicatingExpressionNotificationRecipientResolver
      */
     public Predicate resolveNotificationRecipientPredicate(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
         ExpressionService expressionService = jobContext.getJobContext().getService(ExpressionService.class);
-        ExpressionCompiler compiler = expressionService.createCompiler();
         Map<String, DomainType> rootDomainTypes = getRootDomainTypes(jobContext);
-        ExpressionCompiler.Context context = compiler.createContext(rootDomainTypes);
         String recipientPredicateExpression = getRecipientPredicateExpression(jobInstance, jobContext);
         if (recipientPredicateExpression != null && !recipientPredicateExpression.isEmpty()) {
-            return compiler.createPredicate(recipientPredicateExpression, context);
+            return predicateCache.getPredicate(expressionService, recipientPredicateExpression, rootDomainTypes);
         }
         return null;
     }
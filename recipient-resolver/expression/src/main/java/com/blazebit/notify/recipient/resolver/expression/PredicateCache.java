@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.recipient.resolver.expression;
+
+import com.blazebit.domain.runtime.model.DomainModel;
+import com.blazebit.domain.runtime.model.DomainType;
+import com.blazebit.expression.ExpressionCompiler;
+import com.blazebit.expression.ExpressionService;
+import com.blazebit.expression.Predicate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded least recently used cache of compiled predicates keyed by expression text and root domain types.
+ * Since a domain model is immutable, a changed domain model is a new instance, which invalidates all cached predicates.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class PredicateCache {
+
+    private final Map<Key, Predicate> predicates;
+    private volatile DomainModel domainModel;
+
+    /**
+     * Creates a new predicate cache.
+     *
+     * @param maxSize The maximum number of cached predicates
+     */
+    PredicateCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum cache size: " + maxSize);
+        }
+        this.predicates = Collections.synchronizedMap(new LinkedHashMap<Key, Predicate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Predicate> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Returns the compiled predicate for the given expression and root domain types, compiling it if necessary.
+     *
+     * @param expressionService The expression service
+     * @param expression The predicate expression
+     * @param rootDomainTypes The root domain types
+     * @return the compiled predicate
+     */
+    Predicate getPredicate(ExpressionService expressionService, String expression, Map<String, DomainType> rootDomainTypes) {
+        DomainModel currentDomainModel = expressionService.getDomainModel();
+        if (currentDomainModel != domainModel) {
+            // Predicates compiled against the old domain model can't be used anymore
+            synchronized (predicates) {
+                if (currentDomainModel != domainModel) {
+                    predicates.clear();
+                    domainModel = currentDomainModel;
+                }
+            }
+        }
+        Key key = new Key(currentDomainModel, expression, rootDomainTypes);
+        Predicate predicate = predicates.get(key);
+        if (predicate == null) {
+            ExpressionCompiler compiler = expressionService.createCompiler();
+            predicate = compiler.createPredicate(expression, compiler.createContext(rootDomainTypes));
+            predicates.put(key, predicate);
+        }
+        return predicate;
+    }
+
+    /**
+     * Returns the number of cached predicates.
+     *
+     * @return the number of cached predicates
+     */
+    int size() {
+        return predicates.size();
+    }
+
+    /**
+     * The key for a compiled predicate.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class Key {
+
+        private final DomainModel domainModel;
+        private final String expression;
+        private final Map<String, DomainType> rootDomainTypes;
+        private final int hashCode;
+
+        public Key(DomainModel domainModel, String expression, Map<String, DomainType> rootDomainTypes) {
+            this.domainModel = domainModel;
+            this.expression = expression;
+            this.rootDomainTypes = new HashMap<>(rootDomainTypes);
+            this.hashCode = 31 * (31 * System.identityHashCode(domainModel) + expression.hashCode()) + rootDomainTypes.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            // The domain model is compared by identity, so that a predicate is never reused across domain model versions
+            return domainModel == key.domainModel && expression.equals(key.expression) && rootDomainTypes.equals(key.rootDomainTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.recipient.resolver.expression;
+
+import com.blazebit.domain.runtime.model.EntityDomainTypeAttribute;
+import com.blazebit.expression.ArithmeticExpression;
+import com.blazebit.expression.ComparisonOperator;
+import com.blazebit.expression.ComparisonPredicate;
+import com.blazebit.expression.CompoundPredicate;
+import com.blazebit.expression.ExpressionPredicate;
+import com.blazebit.expression.Literal;
+import com.blazebit.expression.Path;
+import com.blazebit.expression.Predicate;
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of recipient segments that answers recipient predicates with bitmap operations instead of interpreting them per recipient.
+ * For every indexed attribute of the recipient root, it holds a bitmap of recipient ids per attribute value.
+ * Predicates that only consist of conjunctions, disjunctions and negations of equality comparisons between an indexed attribute and a literal,
+ * or of boolean indexed attributes, can be answered by the index. For all other predicates, {@link #evaluate(Predicate)} returns <code>null</code>.
+ * Comparisons with <code>null</code> are unknown and compound predicates short circuit from left to right like in the interpreter,
+ * so the index returns exactly the recipients for which the interpreter returns <code>true</code>.
+ * Negations only ever contain indexed recipients, i.e. the universe of a negation are the recipients added via {@link #put(long, Map)}.
+ *
+ * The index must be kept up to date by calling {@link #put(long, Map)} and {@link #remove(long)} whenever recipients change.
+ * Recipient ids are used as bitmap positions and must be between 0 and {@link Integer#MAX_VALUE}.
+ * The index is thread safe.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class RecipientSegmentIndex {
+
+    private final String rootAlias;
+    private final Map<String, AttributeIndex> attributeIndexes;
+    private final BitSet recipients = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a new index for the given attributes of the given recipient root.
+     *
+     * @param rootAlias The alias of the recipient root in predicates e.g. <code>user</code>
+     * @param attributes The names of the attributes to index
+     */
+    public RecipientSegmentIndex(String rootAlias, Collection<String> attributes) {
+        this.rootAlias = rootAlias;
+        this.attributeIndexes = new HashMap<>(attributes.size());
+        for (String attribute : attributes) {
+            attributeIndexes.put(attribute, new AttributeIndex());
+        }
+    }
+
+    /**
+     * Adds the recipient with the given id or replaces the indexed attribute values of it.
+     * Indexed attributes that are missing in the given map are considered <code>null</code>.
+     *
+     * @param recipientId The recipient id
+     * @param attributeValues The attribute values of the recipient
+     */
+    public void put(long recipientId, Map<String, ?> attributeValues) {
+        int index = toIndex(recipientId);
+        lock.writeLock().lock();
+        try {
+            recipients.set(index);
+            for (Map.Entry<String, AttributeIndex> entry : attributeIndexes.entrySet()) {
+                entry.getValue().set(index, normalize(attributeValues.get(entry.getKey())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the recipient with the given id.
+     *
+     * @param recipientId The recipient id
+     */
+    public void remove(long recipientId) {
+        int index = toIndex(recipientId);
+        lock.writeLock().lock();
+        try {
+            recipients.clear(index);
+            for (AttributeIndex attributeIndex : attributeIndexes.values()) {
+                attributeIndex.set(index, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed recipients.
+     *
+     * @return the number of indexed recipients
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return recipients.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the recipients for which the given predicate is <code>true</code>,
+     * or <code>null</code> if the predicate can't be answered by this index.
+     *
+     * @param predicate The predicate
+     * @return the bitmap of matching recipient ids or <code>null</code>
+     */
+    public BitSet evaluate(Predicate predicate) {
+        lock.readLock().lock();
+        try {
+            Segment segment = evaluateSegment(predicate);
+            return segment == null ? null : segment.matching;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Segment evaluateSegment(Predicate predicate) {
+        Segment segment;
+        if (predicate instanceof CompoundPredicate) {
+            segment = evaluateCompound((CompoundPredicate) predicate);
+        } else if (predicate instanceof ComparisonPredicate) {
+            segment = evaluateComparison((ComparisonPredicate) predicate);
+        } else if (predicate instanceof ExpressionPredicate && ((ExpressionPredicate) predicate).getExpression() instanceof ArithmeticExpression) {
+            // A boolean attribute used as predicate
+            segment = evaluateEquality((ArithmeticExpression) ((ExpressionPredicate) predicate).getExpression(), Boolean.TRUE);
+        } else {
+            return null;
+        }
+        if (segment != null && predicate.isNegated()) {
+            return segment.negate();
+        }
+        return segment;
+    }
+
+    private Segment evaluateCompound(CompoundPredicate predicate) {
+        // Like the interpreter, operands are evaluated from left to right until one decides the result or is unknown,
+        // so an unknown operand makes the compound unknown for recipients that no earlier operand decided
+        BitSet undecided = (BitSet) recipients.clone();
+        BitSet decided = new BitSet();
+        for (Predicate p : predicate.getPredicates()) {
+            Segment segment = evaluateSegment(p);
+            if (segment == null) {
+                return null;
+            }
+            BitSet deciding = predicate.isConjunction() ? segment.notMatching : segment.matching;
+            deciding.and(undecided);
+            decided.or(deciding);
+            undecided.and(predicate.isConjunction() ? segment.matching : segment.notMatching);
+        }
+        // Recipients for which all operands are true for a conjunction, or false for a disjunction, remain undecided
+        return predicate.isConjunction() ? new Segment(undecided, decided) : new Segment(decided, undecided);
+    }
+
+    private Segment evaluateComparison(ComparisonPredicate predicate) {
+        ComparisonOperator operator = predicate.getOperator();
+        if (operator != ComparisonOperator.EQUAL && operator != ComparisonOperator.NOT_EQUAL) {
+            return null;
+        }
+        Segment segment;
+        if (predicate.getRight() instanceof Literal) {
+            segment = evaluateEquality(predicate.getLeft(), ((Literal) predicate.getRight()).getValue());
+        } else if (predicate.getLeft() instanceof Literal) {
+            segment = evaluateEquality(predicate.getRight(), ((Literal) predicate.getLeft()).getValue());
+        } else {
+            return null;
+        }
+        if (segment != null && operator == ComparisonOperator.NOT_EQUAL) {
+            return segment.negate();
+        }
+        return segment;
+    }
+
+    private Segment evaluateEquality(ArithmeticExpression expression, Object value) {
+        if (!(expression instanceof Path)) {
+            return null;
+        }
+        Path path = (Path) expression;
+        List<EntityDomainTypeAttribute> attributes = path.getAttributes();
+        if (path.getBase() != null || !rootAlias.equals(path.getAlias()) || attributes.size() != 1) {
+            return null;
+        }
+        AttributeIndex attributeIndex = attributeIndexes.get(attributes.get(0).getName());
+        if (attributeIndex == null) {
+            return null;
+        }
+        if (value == null) {
+            // A comparison with null is unknown for every recipient
+            return new Segment(new BitSet(), new BitSet());
+        }
+        BitSet matching = attributeIndex.get(normalize(value));
+        BitSet notMatching = (BitSet) attributeIndex.nonNull.clone();
+        notMatching.andNot(matching);
+        return new Segment(matching, notMatching);
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Number && !(value instanceof BigDecimal)) {
+            value = new BigDecimal(value.toString());
+        }
+        if (value instanceof BigDecimal) {
+            // Literals and attribute values might differ in their scale
+            return ((BigDecimal) value).stripTrailingZeros();
+        }
+        return value;
+    }
+
+    private static int toIndex(long recipientId) {
+        if (recipientId < 0 || recipientId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Recipient id out of the supported range for the segment index: " + recipientId);
+        }
+        return (int) recipientId;
+    }
+
+    /**
+     * The bitmaps of the recipients for which a predicate is <code>true</code> and <code>false</code>.
+     * Recipients in neither of the bitmaps are those for which the predicate is unknown.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class Segment {
+
+        private final BitSet matching;
+        private final BitSet notMatching;
+
+        public Segment(BitSet matching, BitSet notMatching) {
+            this.matching = matching;
+            this.notMatching = notMatching;
+        }
+
+        public Segment negate() {
+            return new Segment(notMatching, matching);
+        }
+    }
+
+    /**
+     * The bitmaps of recipient ids per value of an attribute.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class AttributeIndex {
+
+        private final Map<Object, BitSet> valueBitmaps = new HashMap<>();
+        private final BitSet nonNull = new BitSet();
+
+        public BitSet get(Object value) {
+            BitSet bitmap = valueBitmaps.get(value);
+            return bitmap == null ? new BitSet() : (BitSet) bitmap.clone();
+        }
+
+        public void set(int index, Object value) {
+            if (nonNull.get(index)) {
+                // Attributes indexed for segments have few distinct values, so looking through all of them is cheap
+                valueBitmaps.values().removeIf(bitmap -> {
+                    bitmap.clear(index);
+                    return bitmap.isEmpty();
+                });
+            }
+            if (value == null) {
+                nonNull.clear(index);
+            } else {
+                nonNull.set(index);
+                valueBitmaps.computeIfAbsent(value, k -> new BitSet()).set(index);
+            }
+        }
+    }
+}
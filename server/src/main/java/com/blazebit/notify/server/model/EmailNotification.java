@@ -117,5 +117,6 @@ public class EmailNotification extends AbstractEmailNotification<Long> implement
 
     public void setFrom(FromEmail from) {
         this.from = from;
+        invalidateConfigurationSource();
     }
 }
@@ -18,6 +18,7 @@ package com.blazebit.notify.server.model;
 
 import com.blazebit.notify.jpa.model.base.AbstractTriggerBasedNotificationJobInstance;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -32,6 +33,8 @@ import jakarta.persistence.SequenceGenerator;
 @SequenceGenerator(name = "idGenerator", sequenceName = "job_instance_seq", allocationSize = 1)
 public class EmailNotificationJobInstance extends AbstractTriggerBasedNotificationJobInstance<Long, Long, EmailNotificationJob, EmailNotificationJobTrigger> {
 
+    private String recipientRanges;
+
     public EmailNotificationJobInstance() {
     }
 
@@ -45,4 +48,13 @@ public class EmailNotificationJobInstance extends AbstractTriggerBasedNotificati
     public Long getId() {
         return id();
     }
+
+    @Column(name = "recipient_ranges", length = 4000)
+    public String getRecipientRanges() {
+        return recipientRanges;
+    }
+
+    public void setRecipientRanges(String recipientRanges) {
+        this.recipientRanges = recipientRanges;
+    }
 }
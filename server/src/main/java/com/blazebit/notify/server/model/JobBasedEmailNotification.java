@@ -119,5 +119,6 @@ public class JobBasedEmailNotification extends AbstractEmailNotification<JobBase
 
     public void setFrom(FromEmail from) {
         this.from = from;
+        invalidateConfigurationSource();
     }
 }
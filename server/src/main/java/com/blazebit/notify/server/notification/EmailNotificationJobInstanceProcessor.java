@@ -24,6 +24,7 @@ import com.blazebit.job.JobInstanceState;
 import com.blazebit.job.Schedule;
 import com.blazebit.notify.email.model.jpa.EmailNotificationReviewState;
 import com.blazebit.notify.processor.hibernate.insertselect.AbstractInsertSelectNotificationJobInstanceProcessor;
+import com.blazebit.notify.processor.hibernate.insertselect.RecipientRanges;
 import com.blazebit.notify.server.model.EmailNotificationJobInstance;
 import com.blazebit.notify.server.model.EmailNotificationRecipient;
 import com.blazebit.notify.server.model.FromEmail;
@@ -87,6 +88,17 @@ public class EmailNotificationJobInstanceProcessor extends AbstractInsertSelectN
         jobInstance.setState(JobInstanceState.DONE);
     }
 
+    @Override
+    protected RecipientRanges getRecipientRanges(EmailNotificationJobInstance jobInstance) {
+        String recipientRanges = jobInstance.getRecipientRanges();
+        return recipientRanges == null ? null : RecipientRanges.valueOf(recipientRanges);
+    }
+
+    @Override
+    protected void setRecipientRanges(EmailNotificationJobInstance jobInstance, RecipientRanges ranges) {
+        jobInstance.setRecipientRanges(ranges.toString());
+    }
+
     @Override
     protected ExpressionSerializer.Context getSerializerContext(EmailNotificationJobInstance jobInstance, JobInstanceProcessingContext<Long> context, String recipientAlias, String jobInstanceAlias) {
         ExpressionService expressionService = context.getJobContext().getService(ExpressionService.class);
@@ -125,6 +137,11 @@ public class EmailNotificationJobInstanceProcessor extends AbstractInsertSelectN
         return "recipientId";
     }
 
+    @Override
+    protected String getNotificationIdJobInstanceIdPath(EmailNotificationJobInstance jobInstance) {
+        return "notificationJobInstanceId";
+    }
+
     @Override
     protected Class<Long> getNotificationRecipientIdClass(EmailNotificationJobInstance jobInstance) {
         return Long.class;
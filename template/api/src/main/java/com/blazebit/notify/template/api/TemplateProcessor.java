@@ -16,7 +16,10 @@
 package com.blazebit.notify.template.api;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A template processor that can be applied on a map model to produce a result.
@@ -35,6 +38,26 @@ public interface TemplateProcessor<R> extends Serializable {
      */
     R processTemplate(Map<String, Object> model);
 
+    /**
+     * Returns the keys of the model entries this template reads or <code>null</code> if unknown.
+     * A template that declares its model keys promises that its result only depends on the values of these entries and the locale,
+     * which allows callers to reuse results for models that agree on these values, for example across recipients.
+     *
+     * @return the keys of the model entries this template reads or <code>null</code>
+     */
+    default Set<String> getModelKeys() {
+        return null;
+    }
+
+    /**
+     * Prepares the template for the given locale ahead of its first use, for example by loading and parsing it.
+     * Implementations should not throw if the template can't be prepared, as the error will surface when processing the template.
+     *
+     * @param locale The locale or <code>null</code> for the default locale
+     */
+    default void warmUp(Locale locale) {
+    }
+
     /**
      * Returns a {@link TemplateProcessor} that statically always processes the given element.
      *
@@ -48,6 +71,11 @@ public interface TemplateProcessor<R> extends Serializable {
             public T processTemplate(Map<String, Object> model) {
                 return element;
             }
+
+            @Override
+            public Set<String> getModelKeys() {
+                return Collections.emptySet();
+            }
         };
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.template.freemarker;
+
+import freemarker.template.Template;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A template lookup that remembers the templates of a delegate lookup per locale, so a template is parsed once per locale.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class CachingFreemarkerTemplateLookup implements FreemarkerTemplateLookup {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FreemarkerTemplateLookup delegate;
+    private transient volatile ConcurrentMap<Locale, Template> templates;
+    private transient volatile Template defaultLocaleTemplate;
+
+    /**
+     * Creates a new caching lookup for the given lookup.
+     *
+     * @param delegate The template lookup to delegate to
+     */
+    CachingFreemarkerTemplateLookup(FreemarkerTemplateLookup delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Template findTemplate(Locale locale) {
+        if (locale == null) {
+            Template template = defaultLocaleTemplate;
+            if (template == null) {
+                template = delegate.findTemplate(null);
+                defaultLocaleTemplate = template;
+            }
+            return template;
+        }
+        ConcurrentMap<Locale, Template> templates = this.templates;
+        if (templates == null) {
+            // The map is transient, so a deserialized lookup starts with a fresh cache
+            templates = new ConcurrentHashMap<>();
+            this.templates = templates;
+        }
+        return templates.computeIfAbsent(locale, delegate::findTemplate);
+    }
+}
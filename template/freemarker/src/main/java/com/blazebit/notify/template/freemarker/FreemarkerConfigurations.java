@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.template.freemarker;
+
+import freemarker.cache.MruCacheStorage;
+import freemarker.template.Configuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The process wide Freemarker configurations that are used when no configuration is given.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+final class FreemarkerConfigurations {
+
+    /**
+     * The number of templates that are strongly referenced by the template cache of a shared configuration.
+     */
+    static final int TEMPLATE_CACHE_STRONG_SIZE = 64;
+    /**
+     * The number of templates that are softly referenced by the template cache of a shared configuration.
+     */
+    static final int TEMPLATE_CACHE_SOFT_SIZE = 512;
+
+    // Keyed by the class whose class loader loads the templates, so configurations go away with the class loader
+    private static final ClassValue<ConcurrentMap<String, Configuration>> CONFIGURATIONS = new ClassValue<ConcurrentMap<String, Configuration>>() {
+        @Override
+        protected ConcurrentMap<String, Configuration> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private FreemarkerConfigurations() {
+    }
+
+    /**
+     * Returns the shared configuration that loads templates with the class loader of the given class and the given encoding.
+     *
+     * @param templateLoadingClass The class whose class loader loads the templates
+     * @param encoding             The default template encoding or <code>null</code>
+     * @return the shared configuration
+     */
+    static Configuration getSharedConfiguration(Class<?> templateLoadingClass, String encoding) {
+        return CONFIGURATIONS.get(templateLoadingClass).computeIfAbsent(encoding == null ? "" : encoding, k -> {
+            Configuration configuration = new Configuration(Configuration.VERSION_2_3_28);
+            configuration.setClassLoaderForTemplateLoading(templateLoadingClass.getClassLoader(), "");
+            configuration.setCacheStorage(new MruCacheStorage(TEMPLATE_CACHE_STRONG_SIZE, TEMPLATE_CACHE_SOFT_SIZE));
+            if (encoding != null) {
+                configuration.setDefaultEncoding(encoding);
+            }
+            return configuration;
+        });
+    }
+}
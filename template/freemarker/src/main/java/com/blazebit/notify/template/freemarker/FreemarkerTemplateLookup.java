@@ -35,4 +35,17 @@ public interface FreemarkerTemplateLookup extends Serializable {
      * @return the template
      */
     public Template findTemplate(Locale locale);
+
+    /**
+     * Returns a lookup that remembers the templates returned by the given lookup per locale.
+     *
+     * @param templateLookup The template lookup
+     * @return the caching template lookup
+     */
+    static FreemarkerTemplateLookup cached(FreemarkerTemplateLookup templateLookup) {
+        if (templateLookup instanceof CachingFreemarkerTemplateLookup) {
+            return templateLookup;
+        }
+        return new CachingFreemarkerTemplateLookup(templateLookup);
+    }
 }
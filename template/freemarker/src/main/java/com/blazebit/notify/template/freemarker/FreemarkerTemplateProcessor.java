@@ -31,6 +31,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A Freemarker based implementation of a template processor.
@@ -66,30 +68,30 @@ public class FreemarkerTemplateProcessor implements TemplateProcessor<String>, S
      */
     public static final String LOCALE_MODEL_KEY = "locale";
 
+    private static final Logger LOG = Logger.getLogger(FreemarkerTemplateProcessor.class.getName());
+
     private final FreemarkerTemplateLookup freemarkerTemplateLookup;
 
     private final TemplateResourceBundleLookup resourceBundleLookup;
 
     /**
      * Creates a new Freemarker template processor from the given configuration source.
+     * Without a configuration, a process wide configuration with a bounded template cache is shared per class loader and encoding.
+     * Templates are looked up once per locale.
      *
      * @param templateName The template name
      * @param configurationSource The configuration source
      */
     public FreemarkerTemplateProcessor(String templateName, ConfigurationSource configurationSource) {
-        Function<String, FreemarkerTemplateLookup> templateAccessor = name -> (Locale locale) -> {
-            Configuration configuration = configurationSource.getPropertyOrDefault(FREEMARKER_CONFIGURATION_PROPERTY, Configuration.class, null, o -> {
-                Configuration c = new Configuration(Configuration.VERSION_2_3_28);
-                c.setClassLoaderForTemplateLoading(getClass().getClassLoader(), "");
-                return c;
-            });
-            String templateEncoding = configurationSource.getPropertyOrDefault(FREEMARKER_ENCODING_PROPERTY, String.class, Function.identity(), o -> null);
+        String templateEncoding = configurationSource.getPropertyOrDefault(FREEMARKER_ENCODING_PROPERTY, String.class, Function.identity(), o -> null);
+        Configuration configuration = configurationSource.getPropertyOrDefault(FREEMARKER_CONFIGURATION_PROPERTY, Configuration.class, null, o -> FreemarkerConfigurations.getSharedConfiguration(getClass(), templateEncoding));
+        Function<String, FreemarkerTemplateLookup> templateAccessor = name -> FreemarkerTemplateLookup.cached((Locale locale) -> {
             try {
                 return configuration.getTemplate(name, locale, templateEncoding);
             } catch (IOException e) {
                 throw new TemplateException("", e);
             }
-        };
+        });
         this.freemarkerTemplateLookup = configurationSource.getPropertyOrDefault(FREEMARKER_TEMPLATE_PROPERTY, FreemarkerTemplateLookup.class, templateAccessor, o -> templateAccessor.apply(templateName));
         Function<String, TemplateResourceBundleLookup> resourceBundleAccessor = name -> (Locale locale) -> ResourceBundle.getBundle(name, locale);
         this.resourceBundleLookup = configurationSource.getPropertyOrDefault(RESOURCE_BUNDLE_MODEL_KEY, TemplateResourceBundleLookup.class, resourceBundleAccessor, o -> locale -> null);
@@ -140,4 +142,14 @@ public class FreemarkerTemplateProcessor implements TemplateProcessor<String>, S
         }
         return stringWriter.toString();
     }
+
+    @Override
+    public void warmUp(Locale locale) {
+        try {
+            resourceBundleLookup.findResourceBundle(locale);
+            freemarkerTemplateLookup.findTemplate(locale);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Couldn't warm up template for locale " + locale, e);
+        }
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.template.freemarker;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FreemarkerTemplateCacheTest {
+
+    @Test
+    public void testSharedConfigurationPerEncoding() {
+        Configuration configuration = FreemarkerConfigurations.getSharedConfiguration(FreemarkerTemplateCacheTest.class, "UTF-8");
+        assertSame(configuration, FreemarkerConfigurations.getSharedConfiguration(FreemarkerTemplateCacheTest.class, "UTF-8"));
+        assertEquals("UTF-8", configuration.getDefaultEncoding());
+        assertNotSame(configuration, FreemarkerConfigurations.getSharedConfiguration(FreemarkerTemplateCacheTest.class, "ISO-8859-1"));
+        assertNotSame(configuration, FreemarkerConfigurations.getSharedConfiguration(FreemarkerTemplateCacheTest.class, null));
+        assertSame(FreemarkerConfigurations.getSharedConfiguration(FreemarkerTemplateCacheTest.class, null), FreemarkerConfigurations.getSharedConfiguration(FreemarkerTemplateCacheTest.class, null));
+    }
+
+    @Test
+    public void testTemplateIsParsedOncePerLocale() {
+        Configuration configuration = FreemarkerConfigurations.getSharedConfiguration(FreemarkerTemplateCacheTest.class, null);
+        AtomicInteger parseCount = new AtomicInteger();
+        FreemarkerTemplateLookup templateLookup = FreemarkerTemplateLookup.cached(locale -> {
+            parseCount.incrementAndGet();
+            try {
+                return new Template("greeting", "Hello ${name}", configuration);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        Template englishTemplate = templateLookup.findTemplate(Locale.ENGLISH);
+        assertSame(englishTemplate, templateLookup.findTemplate(Locale.ENGLISH));
+        assertEquals(1, parseCount.get());
+        assertNotSame(englishTemplate, templateLookup.findTemplate(Locale.GERMAN));
+        assertEquals(2, parseCount.get());
+        Template defaultTemplate = templateLookup.findTemplate(null);
+        assertSame(defaultTemplate, templateLookup.findTemplate(null));
+        assertEquals(3, parseCount.get());
+        assertSame(templateLookup, FreemarkerTemplateLookup.cached(templateLookup));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.template.thymeleaf;
+
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.cache.StandardCache;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.cache.TemplateCacheKey;
+import org.thymeleaf.engine.TemplateModel;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.util.Collections;
+
+/**
+ * Creates and shares Thymeleaf template engines that resolve templates from the class path and cache parsed templates.
+ *
+ * @author Christian Beikov
+ * @since 1.0.0
+ */
+public final class ThymeleafTemplateEngines {
+
+    /**
+     * The default maximum number of parsed templates kept in the template cache.
+     */
+    public static final int DEFAULT_TEMPLATE_CACHE_MAX_SIZE = 200;
+
+    private ThymeleafTemplateEngines() {
+    }
+
+    /**
+     * Returns the process wide template engine that is used when no {@link ITemplateEngine} service is registered.
+     *
+     * @return the shared template engine
+     */
+    public static TemplateEngine getSharedTemplateEngine() {
+        return SharedTemplateEngineHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a new template engine with a bounded template cache that resolves template names against the given class loader.
+     * Templates ending with <code>.txt</code> are processed in the text template mode, others in the HTML template mode.
+     * Names that don't denote a class path resource are processed as template content.
+     *
+     * @param classLoader           The class loader to resolve templates with
+     * @param templateCacheMaxSize The maximum number of parsed templates to keep in the template cache
+     * @return the template engine
+     */
+    public static TemplateEngine createTemplateEngine(ClassLoader classLoader, int templateCacheMaxSize) {
+        ClassLoaderTemplateResolver classLoaderTemplateResolver = new ClassLoaderTemplateResolver(classLoader);
+        classLoaderTemplateResolver.setOrder(1);
+        classLoaderTemplateResolver.setCheckExistence(true);
+        classLoaderTemplateResolver.setCacheable(true);
+        classLoaderTemplateResolver.setCharacterEncoding("UTF-8");
+        classLoaderTemplateResolver.setTemplateMode(TemplateMode.HTML);
+        classLoaderTemplateResolver.setTextTemplateModePatterns(Collections.singleton("*.txt"));
+
+        // Keeps the previous behavior of treating the template name as template content
+        StringTemplateResolver stringTemplateResolver = new StringTemplateResolver();
+        stringTemplateResolver.setOrder(2);
+        stringTemplateResolver.setCacheable(true);
+
+        StandardCacheManager cacheManager = new StandardCacheManager();
+        cacheManager.setTemplateCacheMaxSize(templateCacheMaxSize);
+        cacheManager.setTemplateCacheEnableCounters(true);
+
+        TemplateEngine templateEngine = new TemplateEngine();
+        templateEngine.addTemplateResolver(classLoaderTemplateResolver);
+        templateEngine.addTemplateResolver(stringTemplateResolver);
+        templateEngine.setCacheManager(cacheManager);
+        return templateEngine;
+    }
+
+    /**
+     * Returns the template cache of the given template engine if it keeps statistics like the hit ratio,
+     * which is the case for engines created by {@link #createTemplateEngine(ClassLoader, int)}.
+     *
+     * @param templateEngine The template engine
+     * @return the template cache or <code>null</code>
+     */
+    public static StandardCache<TemplateCacheKey, TemplateModel> getTemplateCache(ITemplateEngine templateEngine) {
+        if (!(templateEngine instanceof TemplateEngine)) {
+            return null;
+        }
+        ICacheManager cacheManager = ((TemplateEngine) templateEngine).getCacheManager();
+        if (cacheManager == null) {
+            return null;
+        }
+        ICache<TemplateCacheKey, TemplateModel> templateCache = cacheManager.getTemplateCache();
+        if (templateCache instanceof StandardCache<?, ?>) {
+            return (StandardCache<TemplateCacheKey, TemplateModel>) templateCache;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the template cache hit ratio of the given template engine.
+     *
+     * @param templateEngine The template engine
+     * @return the hit ratio between 0 and 1 or <code>NaN</code> if the engine keeps no statistics or had no lookups
+     */
+    public static double getTemplateCacheHitRatio(ITemplateEngine templateEngine) {
+        StandardCache<TemplateCacheKey, TemplateModel> templateCache = getTemplateCache(templateEngine);
+        if (templateCache == null || templateCache.getGetCount() == 0) {
+            return Double.NaN;
+        }
+        return templateCache.getHitRatio();
+    }
+
+    /**
+     * Holds the shared template engine, so it is only created when needed.
+     *
+     * @author Christian Beikov
+     * @since 1.0.0
+     */
+    private static final class SharedTemplateEngineHolder {
+        private static final TemplateEngine INSTANCE = createTemplateEngine(ThymeleafTemplateEngines.class.getClassLoader(), DEFAULT_TEMPLATE_CACHE_MAX_SIZE);
+    }
+}
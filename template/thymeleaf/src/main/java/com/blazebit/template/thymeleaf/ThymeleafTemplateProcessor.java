@@ -20,12 +20,16 @@ import com.blazebit.notify.template.api.TemplateException;
 import com.blazebit.notify.template.api.TemplateProcessor;
 import com.blazebit.notify.template.api.TemplateProcessorKey;
 import java.io.Serializable;
+import java.io.Writer;
 import java.util.Locale;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.thymeleaf.ITemplateEngine;
-import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.context.IContext;
+import org.thymeleaf.exceptions.TemplateInputException;
+import org.thymeleaf.exceptions.TemplateProcessingException;
 
 /**
  * A Thymeleaf based implementation of a template processor.
@@ -39,22 +43,72 @@ public class ThymeleafTemplateProcessor implements TemplateProcessor<String>, Se
 
     public static final String LOCALE_MODEL_KEY = "locale";
 
+    private static final Logger LOG = Logger.getLogger(ThymeleafTemplateProcessor.class.getName());
+
     private final ITemplateEngine templateEngine;
     private final String templateName;
 
     /**
      * Creates a new Thymeleaf template processor from the given configuration source.
+     * If the service provider has no {@link ITemplateEngine}, the {@link ThymeleafTemplateEngines#getSharedTemplateEngine() shared template engine} is used.
      *
      * @param templateName The template name
      * @param serviceProvider The service provider of the job context
      *
      */
     public ThymeleafTemplateProcessor(String templateName, ServiceProvider serviceProvider) {
-        ITemplateEngine templateEngine = serviceProvider.getService(ITemplateEngine.class);
-        this.templateEngine = templateEngine == null ? new TemplateEngine() : templateEngine;
+        this(templateName, serviceProvider.getService(ITemplateEngine.class));
+    }
+
+    /**
+     * Creates a new Thymeleaf template processor for the given template engine.
+     *
+     * @param templateName The template name
+     * @param templateEngine The template engine or <code>null</code> for the shared template engine
+     */
+    public ThymeleafTemplateProcessor(String templateName, ITemplateEngine templateEngine) {
+        this.templateEngine = templateEngine == null ? ThymeleafTemplateEngines.getSharedTemplateEngine() : templateEngine;
         this.templateName = templateName;
     }
 
+    /**
+     * Returns the template engine used for processing.
+     *
+     * @return the template engine
+     */
+    public ITemplateEngine getTemplateEngine() {
+        return templateEngine;
+    }
+
+    /**
+     * Parses the template into the template cache of the engine, so that the first processing doesn't have to.
+     *
+     * @throws TemplateException if the template can't be found or parsed
+     */
+    public void precompile() {
+        precompile(Locale.getDefault());
+    }
+
+    @Override
+    public void warmUp(Locale locale) {
+        try {
+            precompile(locale == null ? Locale.getDefault() : locale);
+        } catch (TemplateException e) {
+            LOG.log(Level.WARNING, "Couldn't warm up template " + templateName + " for locale " + locale, e);
+        }
+    }
+
+    private void precompile(Locale locale) {
+        try {
+            // Processing parses and caches the template before evaluating expressions against the empty model
+            templateEngine.process(templateName, new Context(locale), Writer.nullWriter());
+        } catch (TemplateInputException e) {
+            throw new TemplateException(e);
+        } catch (TemplateProcessingException e) {
+            LOG.log(Level.FINEST, "Ignoring processing error after precompiling template " + templateName, e);
+        }
+    }
+
     @Override
     public String processTemplate(Map<String, Object> model) {
         Locale locale = (Locale) model.get(LOCALE_MODEL_KEY);
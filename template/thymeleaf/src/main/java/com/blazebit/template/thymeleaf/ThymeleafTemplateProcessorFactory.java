@@ -31,6 +31,11 @@ import com.blazebit.notify.template.api.TemplateProcessorKey;
 @ServiceProvider(TemplateProcessorFactory.class)
 public class ThymeleafTemplateProcessorFactory  implements TemplateProcessorFactory<String> {
 
+    /**
+     * The configuration property for whether to parse the template into the template cache when creating the processor.
+     */
+    public static final String THYMELEAF_PRECOMPILE_PROPERTY = "thymeleaf.precompile";
+
     @Override
     public TemplateProcessorKey<String> getTemplateProcessorKey() {
         return ThymeleafTemplateProcessor.KEY;
@@ -38,6 +43,10 @@ public class ThymeleafTemplateProcessorFactory  implements TemplateProcessorFact
 
     @Override
     public TemplateProcessor<String> createTemplateProcessor(TemplateContext templateContext, String templateName, ConfigurationSource configurationSource, com.blazebit.job.ServiceProvider serviceProvider) {
-        return new ThymeleafTemplateProcessor(templateName, serviceProvider);
+        ThymeleafTemplateProcessor templateProcessor = new ThymeleafTemplateProcessor(templateName, serviceProvider);
+        if (configurationSource.getPropertyOrDefault(THYMELEAF_PRECOMPILE_PROPERTY, Boolean.class, Boolean::valueOf, o -> false)) {
+            templateProcessor.precompile();
+        }
+        return templateProcessor;
     }
 }
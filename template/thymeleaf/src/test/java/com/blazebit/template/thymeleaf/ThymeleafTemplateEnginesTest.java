@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.template.thymeleaf;
+
+import org.junit.Test;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.cache.StandardCache;
+import org.thymeleaf.cache.TemplateCacheKey;
+import org.thymeleaf.engine.TemplateModel;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ThymeleafTemplateEnginesTest {
+
+    private static final String TEMPLATE_NAME = "templates/greeting.html";
+
+    @Test
+    public void testTemplateIsParsedOnce() {
+        TemplateEngine templateEngine = ThymeleafTemplateEngines.createTemplateEngine(getClass().getClassLoader(), ThymeleafTemplateEngines.DEFAULT_TEMPLATE_CACHE_MAX_SIZE);
+        ThymeleafTemplateProcessor templateProcessor = new ThymeleafTemplateProcessor(TEMPLATE_NAME, templateEngine);
+
+        assertEquals("<p>a</p>", templateProcessor.processTemplate(model(Locale.ENGLISH, "a")).trim());
+        assertEquals("<p>b</p>", templateProcessor.processTemplate(model(Locale.ENGLISH, "b")).trim());
+        assertEquals("<p>a</p>", templateProcessor.processTemplate(model(Locale.GERMAN, "a")).trim());
+
+        // The parsed template doesn't depend on the locale, only messages are resolved per locale
+        StandardCache<TemplateCacheKey, TemplateModel> templateCache = ThymeleafTemplateEngines.getTemplateCache(templateEngine);
+        assertEquals(1, templateCache.size());
+        assertEquals(1, templateCache.getMissCount());
+        assertEquals(2, templateCache.getHitCount());
+    }
+
+    @Test
+    public void testPrecompiledTemplateIsNotParsedAgain() {
+        TemplateEngine templateEngine = ThymeleafTemplateEngines.createTemplateEngine(getClass().getClassLoader(), ThymeleafTemplateEngines.DEFAULT_TEMPLATE_CACHE_MAX_SIZE);
+        ThymeleafTemplateProcessor templateProcessor = new ThymeleafTemplateProcessor(TEMPLATE_NAME, templateEngine);
+        templateProcessor.warmUp(Locale.ENGLISH);
+        templateProcessor.warmUp(Locale.GERMAN);
+
+        templateProcessor.processTemplate(model(Locale.ENGLISH, "a"));
+        StandardCache<TemplateCacheKey, TemplateModel> templateCache = ThymeleafTemplateEngines.getTemplateCache(templateEngine);
+        assertEquals(1, templateCache.getMissCount());
+        assertEquals(1.0 - 1.0 / 3.0, ThymeleafTemplateEngines.getTemplateCacheHitRatio(templateEngine), 0.001);
+    }
+
+    @Test
+    public void testEnginesAreNotSharedBetweenConfigurations() {
+        TemplateEngine templateEngine = ThymeleafTemplateEngines.createTemplateEngine(getClass().getClassLoader(), ThymeleafTemplateEngines.DEFAULT_TEMPLATE_CACHE_MAX_SIZE);
+        TemplateEngine otherTemplateEngine = ThymeleafTemplateEngines.createTemplateEngine(getClass().getClassLoader(), 10);
+        assertNotSame(templateEngine, otherTemplateEngine);
+
+        ThymeleafTemplateProcessor templateProcessor = new ThymeleafTemplateProcessor(TEMPLATE_NAME, templateEngine);
+        ThymeleafTemplateProcessor otherTemplateProcessor = new ThymeleafTemplateProcessor(TEMPLATE_NAME, otherTemplateEngine);
+        assertSame(templateEngine, templateProcessor.getTemplateEngine());
+        assertSame(otherTemplateEngine, otherTemplateProcessor.getTemplateEngine());
+        templateProcessor.processTemplate(model(Locale.ENGLISH, "a"));
+        assertEquals(1, ThymeleafTemplateEngines.getTemplateCache(templateEngine).size());
+        assertEquals(0, ThymeleafTemplateEngines.getTemplateCache(otherTemplateEngine).size());
+
+        // Processors without a configured engine share the process wide engine
+        ThymeleafTemplateProcessor sharedTemplateProcessor = new ThymeleafTemplateProcessor(TEMPLATE_NAME, (TemplateEngine) null);
+        ThymeleafTemplateProcessor otherSharedTemplateProcessor = new ThymeleafTemplateProcessor("other", (TemplateEngine) null);
+        assertSame(ThymeleafTemplateEngines.getSharedTemplateEngine(), sharedTemplateProcessor.getTemplateEngine());
+        assertSame(sharedTemplateProcessor.getTemplateEngine(), otherSharedTemplateProcessor.getTemplateEngine());
+        assertNotSame(templateEngine, ThymeleafTemplateEngines.getSharedTemplateEngine());
+    }
+
+    private static Map<String, Object> model(Locale locale, String name) {
+        Map<String, Object> model = new HashMap<>();
+        model.put(ThymeleafTemplateProcessor.LOCALE_MODEL_KEY, locale);
+        model.put("name", name);
+        return model;
+    }
+}
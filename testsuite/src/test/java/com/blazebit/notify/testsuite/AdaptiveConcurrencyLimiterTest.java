@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.job.JobTemporaryException;
+import com.blazebit.notify.AdaptiveConcurrencyLimiter;
+import com.blazebit.notify.NotificationMetrics;
+import com.blazebit.notify.impl.NotificationMetricsImpl;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void testLimitGrowsWhileHealthyAndBacksOffOnCongestion() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, 2);
+        for (int i = 0; i < 100; i++) {
+            int limit = limiter.getLimit();
+            for (int j = 0; j < limit; j++) {
+                limiter.acquire();
+            }
+            for (int j = 0; j < limit; j++) {
+                limiter.onSuccess(0L);
+            }
+        }
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+        limiter.acquire();
+        limiter.onDropped(0L);
+        assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            limiter.onDropped(0L);
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testSlowSendsBackOff() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, 8, AdaptiveConcurrencyLimiter.DEFAULT_BACKOFF_RATIO, 100L);
+        limiter.acquire();
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(50L));
+        assertEquals(8, limiter.getLimit());
+        limiter.acquire();
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(200L));
+        assertEquals(4, limiter.getLimit());
+        limiter.acquire();
+        limiter.onIgnored();
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void testConcurrentDropsCutTheLimitOnce() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, 8);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        Thread.sleep(5L);
+        // All sends were in flight when the first drop cut the limit, so they observed the same congestion
+        for (int i = 0; i < 4; i++) {
+            limiter.onDropped(System.nanoTime() - start);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        limiter.acquire();
+        limiter.onDropped(0L);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testAcquireTimesOut() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, AdaptiveConcurrencyLimiter.DEFAULT_BACKOFF_RATIO, 0L, 50L, null, null);
+        limiter.acquire();
+        long start = System.nanoTime();
+        try {
+            limiter.acquire();
+            fail("Expected the acquire to time out");
+        } catch (JobTemporaryException ex) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50L);
+        }
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLimitIsReportedAsGauge() {
+        NotificationMetricsImpl metrics = new NotificationMetricsImpl();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, 4, AdaptiveConcurrencyLimiter.DEFAULT_BACKOFF_RATIO, 0L, 50L, metrics, "smtp");
+        assertEquals(4L, metrics.getGauge("smtp", NotificationMetrics.Gauge.CONCURRENCY_LIMIT));
+        limiter.acquire();
+        limiter.onDropped(0L);
+        assertEquals(2L, metrics.getGauge("smtp", NotificationMetrics.Gauge.CONCURRENCY_LIMIT));
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+            limiter.acquire();
+            limiter.onSuccess(0L);
+            limiter.onSuccess(0L);
+        }
+        assertEquals(limiter.getLimit(), metrics.getGauge("smtp", NotificationMetrics.Gauge.CONCURRENCY_LIMIT));
+        assertTrue(limiter.getLimit() > 2);
+    }
+}
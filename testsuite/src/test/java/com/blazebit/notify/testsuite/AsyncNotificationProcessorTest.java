@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.actor.scheduler.executor.ExecutorServiceScheduler;
+import com.blazebit.job.JobInstance;
+import com.blazebit.job.JobInstanceListener;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobTemporaryException;
+import com.blazebit.job.JobTrigger;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.notify.AsyncChannel;
+import com.blazebit.notify.NotificationMessage;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.impl.AsyncNotificationProcessorImpl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncNotificationProcessorTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private final ScheduledExecutorService completionExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Map<SimpleNotificationRecipient, AtomicInteger> sendCounts = new ConcurrentHashMap<>();
+    private final Map<SimpleNotificationRecipient, AtomicInteger> successCounts = new ConcurrentHashMap<>();
+    private final JobInstanceListener successCounter = new JobInstanceListener() {
+        @Override
+        public void onJobInstanceChunkSuccess(JobInstance<?> jobInstance, JobInstanceProcessingContext<?> context) {
+        }
+
+        @Override
+        public void onJobInstanceError(JobInstance<?> jobInstance, JobInstanceProcessingContext<?> context) {
+        }
+
+        @Override
+        public void onJobInstanceSuccess(JobInstance<?> jobInstance, JobInstanceProcessingContext<?> context) {
+            if (jobInstance instanceof SimpleNotification) {
+                successCounts.computeIfAbsent(((SimpleNotification) jobInstance).getRecipient(), k -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+    };
+    // The first send to this recipient fails temporarily or never completes
+    private volatile SimpleNotificationRecipient failingRecipient;
+    private volatile boolean failingSendCompletes;
+
+    public AsyncNotificationProcessorTest() {
+        this.channel = new AsyncChannel<SimpleNotificationRecipient, SimpleNotificationMessage>() {
+            @Override
+            public CompletionStage<Object> sendNotificationMessageAsync(SimpleNotificationRecipient recipient, SimpleNotificationMessage message) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                int sendCount = sendCounts.computeIfAbsent(recipient, k -> new AtomicInteger()).incrementAndGet();
+                CompletableFuture<Object> future = new CompletableFuture<>();
+                if (recipient == failingRecipient && sendCount == 1) {
+                    inFlight.decrementAndGet();
+                    if (failingSendCompletes) {
+                        future.completeExceptionally(new JobTemporaryException("Temporary failure", 10L));
+                    }
+                    return future;
+                }
+                completionExecutor.schedule(() -> {
+                    inFlight.decrementAndGet();
+                    sink.add(message);
+                    future.complete(null);
+                }, 50, TimeUnit.MILLISECONDS);
+                return future;
+            }
+
+            @Override
+            public Class<SimpleNotificationMessage> getNotificationMessageType() {
+                return (Class<SimpleNotificationMessage>) (Class<?>) NotificationMessage.class;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @After
+    public void shutdownCompletionExecutor() {
+        completionExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testAsyncSend() throws Exception {
+        // We expect the trigger, job instance and 5 notifications to run
+        this.jobContext = builder(7)
+            .withProperty("notification.processor.max_in_flight", 10)
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[5];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await();
+        jobContext.stop(1, TimeUnit.MINUTES);
+        assertEquals(5, sink.size());
+        assertTrue("Expected multiple sends in flight but got " + maxInFlight.get(), maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void testConcurrentWorkersSendEveryNotificationOnce() throws Exception {
+        int notificationCount = 20;
+        // The scheduler hands 10 notifications per run to two workers which hand off up to 4 sends each
+        this.jobContext = builder(notificationCount + 2)
+            .withPartitionKey(new PartitionKey() {
+                @Override
+                public String getName() {
+                    return "jobInstance";
+                }
+
+                @Override
+                public int getProcessCount() {
+                    return 10;
+                }
+
+                @Override
+                public boolean matches(JobInstance<?> jobInstance) {
+                    return !(jobInstance instanceof JobTrigger);
+                }
+            })
+            .withProperty(ExecutorServiceScheduler.EXECUTOR_SERVICE_PROPERTY + ".jobInstanceScheduler/jobInstance/processor", Executors.newScheduledThreadPool(2))
+            .withProperty("notification.processor.max_in_flight", 4)
+            .withJobInstanceListener(successCounter)
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[notificationCount];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await(10L, TimeUnit.SECONDS);
+        jobContext.stop(1, TimeUnit.MINUTES);
+        assertEquals(notificationCount, sink.size());
+        for (SimpleNotificationRecipient recipient : recipients) {
+            assertEquals(1, sendCounts.get(recipient).get());
+        }
+        // The completion callback completes every notification once
+        assertEquals(notificationCount, successCounts.size());
+        for (AtomicInteger successCount : successCounts.values()) {
+            assertEquals(1, successCount.get());
+        }
+    }
+
+    @Test
+    public void testDeferredSendIsScheduledAgain() throws Exception {
+        failingSendCompletes = true;
+        SimpleNotificationRecipient[] recipients = sendToFailingRecipient(AsyncNotificationProcessorImpl.DEFAULT_DISPATCH_TIMEOUT_MILLIS);
+        assertEquals(recipients.length, sink.size());
+        assertEquals(2, sendCounts.get(failingRecipient).get());
+        assertEquals(recipients.length, successCounts.size());
+    }
+
+    @Test
+    public void testSendThatNeverCompletesIsScheduledAgain() throws Exception {
+        failingSendCompletes = false;
+        SimpleNotificationRecipient[] recipients = sendToFailingRecipient(200L);
+        assertEquals(recipients.length, sink.size());
+        assertEquals(2, sendCounts.get(failingRecipient).get());
+        assertEquals(recipients.length, successCounts.size());
+    }
+
+    private SimpleNotificationRecipient[] sendToFailingRecipient(long dispatchTimeoutMillis) throws Exception {
+        // We expect the trigger, job instance and 5 notifications to run, the failed send is retried by the scheduler
+        this.jobContext = builder(7)
+            .withProperty(AsyncNotificationProcessorImpl.MAX_IN_FLIGHT_PROPERTY, 10)
+            .withProperty(AsyncNotificationProcessorImpl.DISPATCH_TIMEOUT_MILLIS_PROPERTY, dispatchTimeoutMillis)
+            .withJobInstanceListener(successCounter)
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[5];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        failingRecipient = recipients[0];
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await(10L, TimeUnit.SECONDS);
+        jobContext.stop(1, TimeUnit.MINUTES);
+        return recipients;
+    }
+}
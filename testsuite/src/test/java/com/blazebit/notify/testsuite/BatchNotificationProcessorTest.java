@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.actor.scheduler.executor.ExecutorServiceScheduler;
+import com.blazebit.job.JobInstance;
+import com.blazebit.job.JobInstanceListener;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobTrigger;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchNotificationProcessorTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private final AtomicInteger batchCount = new AtomicInteger();
+    private final Map<SimpleNotificationRecipient, AtomicInteger> sendCounts = new ConcurrentHashMap<>();
+    private final Map<SimpleNotificationRecipient, AtomicInteger> successCounts = new ConcurrentHashMap<>();
+    private final JobInstanceListener successCounter = new JobInstanceListener() {
+        @Override
+        public void onJobInstanceChunkSuccess(JobInstance<?> jobInstance, JobInstanceProcessingContext<?> context) {
+        }
+
+        @Override
+        public void onJobInstanceError(JobInstance<?> jobInstance, JobInstanceProcessingContext<?> context) {
+        }
+
+        @Override
+        public void onJobInstanceSuccess(JobInstance<?> jobInstance, JobInstanceProcessingContext<?> context) {
+            if (jobInstance instanceof SimpleNotification) {
+                successCounts.computeIfAbsent(((SimpleNotification) jobInstance).getRecipient(), k -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+    };
+
+    public BatchNotificationProcessorTest() {
+        this.channel = new MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage>(sink) {
+            @Override
+            public List<Object> sendNotificationMessages(List<SimpleNotificationRecipient> recipients, List<SimpleNotificationMessage> messages) {
+                batchCount.incrementAndGet();
+                for (SimpleNotificationRecipient recipient : recipients) {
+                    sendCounts.computeIfAbsent(recipient, k -> new AtomicInteger()).incrementAndGet();
+                }
+                return super.sendNotificationMessages(recipients, messages);
+            }
+        };
+    }
+
+    @Test
+    public void testBatchSend() throws Exception {
+        // We expect the trigger, job instance and 5 notifications to run
+        // Batches group the sends of the workers that process notifications concurrently
+        this.jobContext = builder(7)
+            .withProperty(ExecutorServiceScheduler.EXECUTOR_SERVICE_PROPERTY + ".jobInstanceScheduler/jobInstance/processor", Executors.newScheduledThreadPool(5))
+            .withProperty("notification.processor.batch_size", 5)
+            .withProperty("notification.processor.batch_linger_millis", 100L)
+            .withJobInstanceListener(successCounter)
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[5];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await();
+        jobContext.stop(1, TimeUnit.MINUTES);
+        assertEquals(5, sink.size());
+        assertTrue("Expected less batches than notifications but got " + batchCount.get(), batchCount.get() < 5);
+        // Every notification is completed once by the scheduler
+        assertEquals(5, successCounts.size());
+        for (AtomicInteger successCount : successCounts.values()) {
+            assertEquals(1, successCount.get());
+        }
+    }
+
+    @Test
+    public void testConcurrentBatchesSendEveryNotificationOnce() throws Exception {
+        int notificationCount = 20;
+        // The scheduler hands 10 notifications per run to two workers whose sends are grouped into batches
+        this.jobContext = builder(notificationCount + 2)
+            .withPartitionKey(new PartitionKey() {
+                @Override
+                public String getName() {
+                    return "jobInstance";
+                }
+
+                @Override
+                public int getProcessCount() {
+                    return 10;
+                }
+
+                @Override
+                public boolean matches(JobInstance<?> jobInstance) {
+                    return !(jobInstance instanceof JobTrigger);
+                }
+            })
+            .withProperty(ExecutorServiceScheduler.EXECUTOR_SERVICE_PROPERTY + ".jobInstanceScheduler/jobInstance/processor", Executors.newScheduledThreadPool(2))
+            .withProperty("notification.processor.batch_size", 3)
+            .withProperty("notification.processor.batch_linger_millis", 100L)
+            .withJobInstanceListener(successCounter)
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[notificationCount];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await(10L, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (sink.size() < notificationCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        jobContext.stop(1, TimeUnit.MINUTES);
+        assertEquals(notificationCount, sink.size());
+        for (SimpleNotificationRecipient recipient : recipients) {
+            assertEquals(1, sendCounts.get(recipient).get());
+        }
+        assertEquals(notificationCount, successCounts.size());
+        for (AtomicInteger successCount : successCounts.values()) {
+            assertEquals(1, successCount.get());
+        }
+        assertTrue("Expected less batches than notifications but got " + batchCount.get(), batchCount.get() < notificationCount);
+    }
+}
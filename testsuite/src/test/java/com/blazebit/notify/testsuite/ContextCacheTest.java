@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.job.ConfigurationSource;
+import com.blazebit.notify.CacheStatistics;
+import com.blazebit.notify.Channel;
+import com.blazebit.notify.ChannelFactory;
+import com.blazebit.notify.ChannelKey;
+import com.blazebit.notify.FrozenConfigurationSource;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ContextCacheTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private final AtomicInteger closedChannels = new AtomicInteger();
+
+    @Test
+    public void testChannelEviction() {
+        this.jobContext = builder()
+            .withChannelFactory(new ClosingChannelFactory())
+            .withProperty(NotificationJobContext.CHANNEL_CACHE_MAX_SIZE_PROPERTY, 2)
+            .withProperty(NotificationJobContext.CHANNEL_CACHE_CLOSE_DELAY_PROPERTY, 0L)
+            .createContext();
+
+        ConfigurationSource configurationSource = new SimpleConfigurationSource("a");
+        Channel<?, ?> channel = jobContext.getChannel(channelKey.getChannelType(), configurationSource);
+        assertSame(channel, jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("a")));
+        jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("b"));
+        jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("c"));
+
+        CacheStatistics statistics = jobContext.getChannelCacheStatistics();
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(3, statistics.getMissCount());
+        assertEquals(1, statistics.getEvictionCount());
+        assertEquals(2, statistics.getSize());
+        assertEquals(1, closedChannels.get());
+
+        jobContext.stop();
+        jobContext = null;
+        assertEquals(3, closedChannels.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedChannelIsEvicted() {
+        this.jobContext = builder()
+            .withChannelFactory(new ClosingChannelFactory())
+            .withProperty(NotificationJobContext.CHANNEL_CACHE_MAX_SIZE_PROPERTY, 2)
+            .createContext();
+
+        Channel<?, ?> channelA = jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("a"));
+        Channel<?, ?> channelB = jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("b"));
+        // Accessing a makes b the least recently used channel
+        jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("a"));
+        jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("c"));
+
+        assertEquals(1, jobContext.getChannelCacheStatistics().getEvictionCount());
+        assertSame(channelA, jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("a")));
+        assertEquals(3, jobContext.getChannelCacheStatistics().getMissCount());
+        // The evicted channel is put back into the cache within the close delay instead of being recreated
+        assertSame(channelB, jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("b")));
+        assertEquals(0, closedChannels.get());
+    }
+
+    @Test
+    public void testEvictedChannelIsClosedAfterDelay() throws Exception {
+        this.jobContext = builder()
+            .withChannelFactory(new ClosingChannelFactory())
+            .withProperty(NotificationJobContext.CHANNEL_CACHE_MAX_SIZE_PROPERTY, 1)
+            .withProperty(NotificationJobContext.CHANNEL_CACHE_CLOSE_DELAY_PROPERTY, 50L)
+            .createContext();
+
+        jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("a"));
+        jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("b"));
+        // The evicted channel may still be in use by a send that obtained it before the eviction
+        assertEquals(1, jobContext.getChannelCacheStatistics().getEvictionCount());
+        assertEquals(0, closedChannels.get());
+
+        Thread.sleep(100L);
+        jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("b"));
+        assertEquals(1, closedChannels.get());
+
+        jobContext.stop();
+        jobContext = null;
+        assertEquals(2, closedChannels.get());
+    }
+
+    @Test
+    public void testChannelSharedByDeclaredProperties() {
+        this.jobContext = builder()
+            .withChannelFactory(new ChannelFactory<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>>() {
+                @Override
+                public ChannelKey<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>> getChannelType() {
+                    return (ChannelKey<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>>) channelKey;
+                }
+
+                @Override
+                public Set<String> getConfigurationPropertyKeys() {
+                    return Collections.singleton("value");
+                }
+
+                @Override
+                public Channel<SimpleNotificationRecipient, SimpleNotificationMessage> createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
+                    assertNull(configurationSource.getProperty("other"));
+                    return new MemoryChannel<>(sink);
+                }
+            })
+            .createContext();
+
+        Channel<?, ?> channel = jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("a", "1"));
+        assertSame(channel, jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("a", "2")));
+        assertNotSame(channel, jobContext.getChannel(channelKey.getChannelType(), new SimpleConfigurationSource("b", "1")));
+        assertEquals(2, jobContext.getChannelCacheStatistics().getSize());
+    }
+
+    @Test
+    public void testFrozenConfigurationSourceInterning() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("value", "a");
+        properties.put("other", null);
+        FrozenConfigurationSource configurationSource = FrozenConfigurationSource.of(properties).intern();
+        FrozenConfigurationSource otherConfigurationSource = FrozenConfigurationSource.of(Collections.singletonMap("value", "a"));
+        assertEquals(configurationSource, otherConfigurationSource);
+        assertSame(configurationSource, otherConfigurationSource.intern());
+        assertSame(configurationSource, FrozenConfigurationSource.of(new SimpleConfigurationSource("a"), Arrays.asList("value", "other")).intern());
+    }
+
+    @Test
+    public void testFrozenConfigurationSourceSnapshotIsReused() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("value", "a");
+        properties.put("other", "b");
+        FrozenConfigurationSource configurationSource = FrozenConfigurationSource.of(properties).intern();
+        List<String> propertyKeys = Collections.singletonList("value");
+        FrozenConfigurationSource snapshot = FrozenConfigurationSource.of(configurationSource, propertyKeys);
+        assertSame(snapshot, FrozenConfigurationSource.of(configurationSource, propertyKeys));
+        assertSame(snapshot, FrozenConfigurationSource.of(Collections.singletonMap("value", "a")).intern());
+        assertSame(configurationSource, FrozenConfigurationSource.of(properties).intern());
+    }
+
+    private class ClosingChannelFactory implements ChannelFactory<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>> {
+
+        @Override
+        public ChannelKey<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>> getChannelType() {
+            return (ChannelKey<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>>) channelKey;
+        }
+
+        @Override
+        public Channel<SimpleNotificationRecipient, SimpleNotificationMessage> createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
+            return new MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage>(sink) {
+                @Override
+                public void close() {
+                    closedChannels.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    private static class SimpleConfigurationSource implements ConfigurationSource {
+
+        private final String value;
+        private final String other;
+
+        public SimpleConfigurationSource(String value) {
+            this(value, null);
+        }
+
+        public SimpleConfigurationSource(String value, String other) {
+            this.value = value;
+            this.other = other;
+        }
+
+        @Override
+        public Object getProperty(String property) {
+            switch (property) {
+                case "value":
+                    return value;
+                case "other":
+                    return other;
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SimpleConfigurationSource)) {
+                return false;
+            }
+            SimpleConfigurationSource that = (SimpleConfigurationSource) o;
+            return value.equals(that.value) && Objects.equals(other, that.other);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * value.hashCode() + Objects.hashCode(other);
+        }
+    }
+}
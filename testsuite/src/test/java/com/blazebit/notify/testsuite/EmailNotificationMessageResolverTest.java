@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.job.ServiceProvider;
+import com.blazebit.notify.FrozenConfigurationSource;
+import com.blazebit.notify.NotificationException;
+import com.blazebit.notify.email.message.EmailNotificationMessage;
+import com.blazebit.notify.email.message.EmailNotificationMessageResolver;
+import com.blazebit.notify.template.api.ConfigurationSource;
+import com.blazebit.notify.template.api.TemplateContext;
+import com.blazebit.notify.template.api.TemplateProcessor;
+import com.blazebit.notify.template.api.TemplateProcessorFactory;
+import com.blazebit.notify.template.api.TemplateProcessorKey;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class EmailNotificationMessageResolverTest {
+
+    private final CountingTemplateProcessor subjectTemplateProcessor = new CountingTemplateProcessor(null);
+
+    @Test
+    public void testRenderingIsReusedAcrossRecipients() {
+        CountingTemplateProcessor templateProcessor = new CountingTemplateProcessor(Collections.singleton("name"));
+        EmailNotificationMessageResolver resolver = resolver(templateProcessor);
+
+        EmailNotificationMessage message = resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        assertEquals("Hello a", message.getSubject().getSubject());
+        assertEquals("Hello a", resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "2")).getSubject().getSubject());
+        assertEquals(1, templateProcessor.count);
+    }
+
+    @Test
+    public void testRenderingDiffersByDeclaredModelValue() {
+        CountingTemplateProcessor templateProcessor = new CountingTemplateProcessor(Collections.singleton("name"));
+        EmailNotificationMessageResolver resolver = resolver(templateProcessor);
+
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        EmailNotificationMessage message = resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "b", "1"));
+        assertEquals("Hello b", message.getSubject().getSubject());
+        assertEquals(2, templateProcessor.count);
+    }
+
+    @Test
+    public void testRenderingDiffersByLocale() {
+        CountingTemplateProcessor templateProcessor = new CountingTemplateProcessor(Collections.singleton("name"));
+        EmailNotificationMessageResolver resolver = resolver(templateProcessor);
+
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        resolver.resolveNotificationMessage(notification(Locale.GERMAN, "a", "1"));
+        resolver.resolveNotificationMessage(notification(Locale.GERMAN, "a", "2"));
+        assertEquals(2, templateProcessor.count);
+    }
+
+    @Test
+    public void testRenderingWithoutDeclaredModelKeysIsNotReused() {
+        CountingTemplateProcessor templateProcessor = new CountingTemplateProcessor(null);
+        EmailNotificationMessageResolver resolver = resolver(templateProcessor);
+
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        assertEquals(2, templateProcessor.count);
+    }
+
+    @Test
+    public void testStaticTemplateIsNotCached() {
+        CountingTemplateProcessor templateProcessor = new CountingTemplateProcessor(Collections.emptySet());
+        EmailNotificationMessageResolver resolver = resolver(templateProcessor);
+
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        assertEquals(2, templateProcessor.count);
+    }
+
+    @Test
+    public void testModelKeysFromString() {
+        EmailNotificationMessageResolver resolver = resolver("name, ,other");
+
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        assertEquals(1, subjectTemplateProcessor.count);
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "2"));
+        assertEquals(2, subjectTemplateProcessor.count);
+    }
+
+    @Test
+    public void testModelKeysFromCollection() {
+        EmailNotificationMessageResolver resolver = resolver(Arrays.asList("name"));
+
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "1"));
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "a", "2"));
+        assertEquals(1, subjectTemplateProcessor.count);
+        resolver.resolveNotificationMessage(notification(Locale.ENGLISH, "b", "2"));
+        assertEquals(2, subjectTemplateProcessor.count);
+    }
+
+    @Test(expected = NotificationException.class)
+    public void testInvalidModelKeys() {
+        resolver(1);
+    }
+
+    private static EmailNotificationMessageResolver resolver(TemplateProcessor<String> subjectTemplateProcessor) {
+        return new EmailNotificationMessageResolver(null, "from@test.com", null, null, null, null, null, subjectTemplateProcessor, null, null, null, null);
+    }
+
+    private EmailNotificationMessageResolver resolver(Object modelKeys) {
+        TemplateProcessorFactory<String> templateProcessorFactory = new TemplateProcessorFactory<String>() {
+            @Override
+            public TemplateProcessorKey<String> getTemplateProcessorKey() {
+                return TemplateProcessorKey.of("counting", String.class);
+            }
+
+            @Override
+            public TemplateProcessor<String> createTemplateProcessor(TemplateContext templateContext, String templateName, ConfigurationSource configurationSource, ServiceProvider serviceProvider) {
+                return subjectTemplateProcessor;
+            }
+        };
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_FROM_PROPERTY, "from@test.com");
+        properties.put(EmailNotificationMessageResolver.EMAIL_TEMPLATE_CONTEXT_PROPERTY, TemplateContext.builder().withTemplateProcessorFactory(templateProcessorFactory).createContext());
+        properties.put(EmailNotificationMessageResolver.EMAIL_TEMPLATE_PROCESSOR_TYPE_PROPERTY, templateProcessorFactory);
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_SUBJECT_TEMPLATE_PROPERTY, "subject");
+        properties.put(EmailNotificationMessageResolver.EMAIL_MESSAGE_MODEL_KEYS_PROPERTY, modelKeys);
+        return new EmailNotificationMessageResolver(null, FrozenConfigurationSource.of(properties), null);
+    }
+
+    private static SimpleNotification notification(Locale locale, String name, String other) {
+        SimpleNotification notification = new SimpleNotification();
+        notification.setRecipient(new SimpleNotificationRecipient(locale));
+        notification.getJobConfiguration().getParameters().put("name", name);
+        notification.getJobConfiguration().getParameters().put("other", other);
+        return notification;
+    }
+
+    private static class CountingTemplateProcessor implements TemplateProcessor<String> {
+
+        private final Set<String> modelKeys;
+        private int count;
+
+        public CountingTemplateProcessor(Set<String> modelKeys) {
+            this.modelKeys = modelKeys;
+        }
+
+        @Override
+        public String processTemplate(Map<String, Object> model) {
+            count++;
+            return "Hello " + model.get("name");
+        }
+
+        @Override
+        public Set<String> getModelKeys() {
+            return modelKeys;
+        }
+    }
+}
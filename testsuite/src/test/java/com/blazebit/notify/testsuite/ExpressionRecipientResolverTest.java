@@ -0,0 +1,387 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.domain.Domain;
+import com.blazebit.domain.boot.model.MetadataDefinition;
+import com.blazebit.domain.boot.model.MetadataDefinitionHolder;
+import com.blazebit.domain.runtime.model.DomainModel;
+import com.blazebit.domain.runtime.model.DomainType;
+import com.blazebit.expression.ExpressionInterpreterContext;
+import com.blazebit.expression.ExpressionService;
+import com.blazebit.expression.Expressions;
+import com.blazebit.expression.spi.AttributeAccessor;
+import com.blazebit.job.JobContext;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationJobInstance;
+import com.blazebit.notify.NotificationRecipient;
+import com.blazebit.notify.recipient.resolver.expression.AbstractInterpretingExpressionNotificationRecipientResolver;
+import com.blazebit.notify.recipient.resolver.expression.RecipientSegmentIndex;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExpressionRecipientResolverTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private static final int RECIPIENT_COUNT = 10;
+    private static final int PAGE_SIZE = 2;
+    private static final int PREDICATE_RECIPIENT_COUNT = 20000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final ExpressionService EXPRESSION_SERVICE = Expressions.forModel(createDomainModel());
+
+    private final List<Object> loadedPagesAfter = new ArrayList<>();
+    private final Set<String> evaluatingThreads = ConcurrentHashMap.newKeySet();
+    private final PredicateResolver resolver = new PredicateResolver();
+
+    @Test
+    public void testRecipientsAreLoadedByKeyset() {
+        this.jobContext = builder()
+            .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.RECIPIENT_PAGE_SIZE_PROPERTY, PAGE_SIZE)
+            .createContext();
+        SimpleNotificationJobInstance jobInstance = new SimpleNotificationJobInstance();
+        jobInstance.setRecipientCursor(3L);
+
+        Iterator<? extends NotificationRecipient<?>> iterator = new PagingResolver().resolveNotificationRecipientIterator(jobInstance, new ProcessingContext(jobContext));
+        assertEquals(4L, iterator.next().getId());
+        assertEquals(5L, iterator.next().getId());
+        assertEquals(6L, iterator.next().getId());
+        // Only the pages needed for the consumed recipients are loaded, starting after the recipient cursor
+        assertEquals(2, loadedPagesAfter.size());
+        assertEquals(3L, loadedPagesAfter.get(0));
+        assertEquals(5L, loadedPagesAfter.get(1));
+
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        // The short page after the second to last recipient ends the iteration without loading another page
+        assertEquals(4, loadedPagesAfter.size());
+        assertEquals(9L, loadedPagesAfter.get(3));
+    }
+
+    @Test
+    public void testRecipientsAreLoadedFromStartWithoutCursor() {
+        this.jobContext = builder()
+            .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.RECIPIENT_PAGE_SIZE_PROPERTY, PAGE_SIZE)
+            .createContext();
+
+        Iterator<? extends NotificationRecipient<?>> iterator = new PagingResolver().resolveNotificationRecipientIterator(new SimpleNotificationJobInstance(), new ProcessingContext(jobContext));
+        int count = 0;
+        while (iterator.hasNext()) {
+            assertEquals((long) ++count, iterator.next().getId());
+        }
+        assertEquals(RECIPIENT_COUNT, count);
+        assertNull(loadedPagesAfter.get(0));
+    }
+
+    @Test
+    public void testParallelEvaluationMatchesSequentialEvaluation() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("test-pool-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        try {
+            List<? extends NotificationRecipient<?>> sequentialRecipients = resolveByPredicate(builder()
+                .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.PARALLEL_THRESHOLD_PROPERTY, 0));
+            assertEquals(Collections.singleton(Thread.currentThread().getName()), evaluatingThreads);
+
+            evaluatingThreads.clear();
+            List<? extends NotificationRecipient<?>> parallelRecipients = resolveByPredicate(builder()
+                .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.PARALLEL_THRESHOLD_PROPERTY, 1)
+                .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.FORK_JOIN_POOL_PROPERTY, forkJoinPool));
+            for (String threadName : evaluatingThreads) {
+                assertTrue(threadName, threadName.startsWith("test-pool-"));
+            }
+
+            assertEquals(PREDICATE_RECIPIENT_COUNT / 2 - 1000, sequentialRecipients.size());
+            assertEquals(ids(sequentialRecipients), ids(parallelRecipients));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelEvaluationUsesDedicatedPool() {
+        evaluatingThreads.clear();
+        List<? extends NotificationRecipient<?>> recipients = resolveByPredicate(builder()
+            .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.PARALLEL_THRESHOLD_PROPERTY, 1)
+            .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.PARALLELISM_PROPERTY, 2));
+        assertEquals(PREDICATE_RECIPIENT_COUNT / 2 - 1000, recipients.size());
+        assertFalse(evaluatingThreads.isEmpty());
+        for (String threadName : evaluatingThreads) {
+            assertTrue(threadName, threadName.startsWith("expression-recipient-resolver-"));
+        }
+    }
+
+    @Test
+    public void testMemoryProcessorUsesSegmentIndex() {
+        RecipientSegmentIndex segmentIndex = new RecipientSegmentIndex("user", Collections.singleton("country"));
+        for (long id = 1; id <= PREDICATE_RECIPIENT_COUNT; id++) {
+            segmentIndex.put(id, Collections.singletonMap("country", country(id)));
+        }
+        List<Long> processedIds = processByCountry(new CountryResolver(segmentIndex), builder());
+
+        // The index answers the predicate, so no recipient is bound for interpretation
+        assertTrue(evaluatingThreads.isEmpty());
+        assertCountryRecipients(processedIds);
+    }
+
+    @Test
+    public void testMemoryProcessorEvaluatesLargeAudienceInParallel() {
+        List<Long> processedIds = processByCountry(new CountryResolver(null), builder()
+            .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.PARALLEL_THRESHOLD_PROPERTY, PREDICATE_RECIPIENT_COUNT / 2)
+            .withProperty(AbstractInterpretingExpressionNotificationRecipientResolver.PARALLELISM_PROPERTY, 2));
+
+        assertFalse(evaluatingThreads.isEmpty());
+        for (String threadName : evaluatingThreads) {
+            assertTrue(threadName, threadName.startsWith("expression-recipient-resolver-"));
+        }
+        assertCountryRecipients(processedIds);
+    }
+
+    private List<Long> processByCountry(CountryResolver countryResolver, NotificationJobContext.Builder builder) {
+        this.jobContext = builder.withService(ExpressionService.class, EXPRESSION_SERVICE)
+            .withRecipientResolver(countryResolver)
+            .createContext();
+        BlockingQueue<Long> results = new ArrayBlockingQueue<>(PREDICATE_RECIPIENT_COUNT);
+        StreamingRecipientResolutionTest.RecipientIdProcessor processor = new StreamingRecipientResolutionTest.RecipientIdProcessor(results);
+        SimpleNotificationJobInstance jobInstance = new SimpleNotificationJobInstance();
+
+        // Every chunk continues after the last consumed recipient like the scheduler does via the recipient cursor
+        Long lastProcessed = null;
+        do {
+            jobInstance.setRecipientCursor(lastProcessed);
+            lastProcessed = processor.process(jobInstance, new StreamingRecipientResolutionTest.ProcessingContext(jobContext, lastProcessed, CHUNK_SIZE));
+        } while (lastProcessed != null);
+        return new ArrayList<>(results);
+    }
+
+    private static void assertCountryRecipients(List<Long> processedIds) {
+        List<Long> expectedIds = new ArrayList<>(PREDICATE_RECIPIENT_COUNT / 4);
+        for (long id = 4; id <= PREDICATE_RECIPIENT_COUNT; id += 4) {
+            expectedIds.add(id);
+        }
+        assertEquals(expectedIds, processedIds);
+    }
+
+    private static String country(long id) {
+        return id % 4 == 0 ? "AT" : "DE";
+    }
+
+    private List<? extends NotificationRecipient<?>> resolveByPredicate(NotificationJobContext.Builder builder) {
+        NotificationJobContext jobContext = builder.withService(ExpressionService.class, EXPRESSION_SERVICE).createContext();
+        try {
+            return resolver.resolveNotificationRecipients(new SimpleNotificationJobInstance(), new ProcessingContext(jobContext));
+        } finally {
+            jobContext.stop();
+        }
+    }
+
+    private static List<Object> ids(List<? extends NotificationRecipient<?>> recipients) {
+        List<Object> ids = new ArrayList<>(recipients.size());
+        for (NotificationRecipient<?> recipient : recipients) {
+            ids.add(recipient.getId());
+        }
+        return ids;
+    }
+
+    private static DomainModel createDomainModel() {
+        MetadataDefinition<AttributeAccessor> attributeAccessor = new MetadataDefinition<AttributeAccessor>() {
+            @Override
+            public Class<AttributeAccessor> getJavaType() {
+                return AttributeAccessor.class;
+            }
+
+            @Override
+            public AttributeAccessor build(MetadataDefinitionHolder definitionHolder) {
+                return (context, value, attribute) -> ((Map<?, ?>) value).get(attribute.getName());
+            }
+        };
+        return Domain.getDefaultProvider().createDefaultBuilder()
+            .createEntityType("Recipient")
+                .addAttribute("country", "String", attributeAccessor)
+            .build()
+            .build();
+    }
+
+    private class CountryResolver extends AbstractInterpretingExpressionNotificationRecipientResolver {
+
+        private final RecipientSegmentIndex segmentIndex;
+
+        public CountryResolver(RecipientSegmentIndex segmentIndex) {
+            this.segmentIndex = segmentIndex;
+        }
+
+        @Override
+        protected RecipientSegmentIndex getSegmentIndex(JobInstanceProcessingContext<?> jobContext) {
+            return segmentIndex;
+        }
+
+        @Override
+        protected List<? extends NotificationRecipient<?>> getAllRecipients(JobInstanceProcessingContext<?> jobContext) {
+            List<NotificationRecipient<Long>> recipients = new ArrayList<>(PREDICATE_RECIPIENT_COUNT);
+            for (long id = 1; id <= PREDICATE_RECIPIENT_COUNT; id++) {
+                recipients.add(NotificationRecipient.of(id, Locale.ENGLISH, null));
+            }
+            return recipients;
+        }
+
+        @Override
+        protected Map<String, DomainType> getRootDomainTypes(JobInstanceProcessingContext<?> jobContext) {
+            return Collections.singletonMap("user", EXPRESSION_SERVICE.getDomainModel().getEntityType("Recipient"));
+        }
+
+        @Override
+        protected Map<String, Object> getRootDomainObjects(JobInstanceProcessingContext<?> jobContext) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        protected void bindRecipient(ExpressionInterpreterContext<?> context, NotificationRecipient<?> recipient) {
+            evaluatingThreads.add(Thread.currentThread().getName());
+            context.withRoot("user", Collections.singletonMap("country", country((Long) recipient.getId())));
+        }
+
+        @Override
+        protected String getRecipientPredicateExpression(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
+            return "user.country = 'AT'";
+        }
+    }
+
+    private class PredicateResolver extends AbstractInterpretingExpressionNotificationRecipientResolver {
+
+        @Override
+        protected List<? extends NotificationRecipient<?>> getAllRecipients(JobInstanceProcessingContext<?> jobContext) {
+            List<NotificationRecipient<Long>> recipients = new ArrayList<>(PREDICATE_RECIPIENT_COUNT);
+            for (long id = 1; id <= PREDICATE_RECIPIENT_COUNT; id++) {
+                recipients.add(NotificationRecipient.of(id, Locale.ENGLISH, null));
+            }
+            return recipients;
+        }
+
+        @Override
+        protected Map<String, DomainType> getRootDomainTypes(JobInstanceProcessingContext<?> jobContext) {
+            return Collections.singletonMap("id", EXPRESSION_SERVICE.getDomainModel().getType("Integer"));
+        }
+
+        @Override
+        protected Map<String, Object> getRootDomainObjects(JobInstanceProcessingContext<?> jobContext) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        protected void bindRecipient(ExpressionInterpreterContext<?> context, NotificationRecipient<?> recipient) {
+            evaluatingThreads.add(Thread.currentThread().getName());
+            context.withRoot("id", BigInteger.valueOf((Long) recipient.getId()));
+        }
+
+        @Override
+        protected String getRecipientPredicateExpression(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
+            return "id > 1000 AND id <= " + PREDICATE_RECIPIENT_COUNT / 2;
+        }
+    }
+
+    private class PagingResolver extends AbstractInterpretingExpressionNotificationRecipientResolver {
+
+        @Override
+        protected List<? extends NotificationRecipient<?>> getRecipientPage(JobInstanceProcessingContext<?> jobContext, Object lastRecipientId, int pageSize) {
+            loadedPagesAfter.add(lastRecipientId);
+            List<NotificationRecipient<Long>> page = new ArrayList<>(pageSize);
+            for (long id = lastRecipientId == null ? 1L : (Long) lastRecipientId + 1; id <= RECIPIENT_COUNT && page.size() < pageSize; id++) {
+                page.add(NotificationRecipient.of(id, Locale.ENGLISH, null));
+            }
+            return page;
+        }
+
+        @Override
+        protected List<? extends NotificationRecipient<?>> getAllRecipients(JobInstanceProcessingContext<?> jobContext) {
+            throw new UnsupportedOperationException("Recipients must be loaded by keyset");
+        }
+
+        @Override
+        protected Map<String, DomainType> getRootDomainTypes(JobInstanceProcessingContext<?> jobContext) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        protected Map<String, Object> getRootDomainObjects(JobInstanceProcessingContext<?> jobContext) {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        protected String getRecipientPredicateExpression(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobContext) {
+            return null;
+        }
+    }
+
+    private static class ProcessingContext implements JobInstanceProcessingContext<Long> {
+
+        private final JobContext jobContext;
+
+        public ProcessingContext(JobContext jobContext) {
+            this.jobContext = jobContext;
+        }
+
+        @Override
+        public JobContext getJobContext() {
+            return jobContext;
+        }
+
+        @Override
+        public Long getLastProcessed() {
+            return null;
+        }
+
+        @Override
+        public int getProcessCount() {
+            return RECIPIENT_COUNT;
+        }
+
+        @Override
+        public int getPartitionId() {
+            return 0;
+        }
+
+        @Override
+        public int getPartitionCount() {
+            return 1;
+        }
+
+        @Override
+        public PartitionKey getPartitionKey() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.expression.ExpressionSerializer;
+import com.blazebit.job.JobContext;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobInstanceState;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.job.spi.TransactionSupport;
+import com.blazebit.notify.NotificationRecipient;
+import com.blazebit.notify.processor.hibernate.insertselect.AbstractInsertSelectNotificationJobInstanceProcessor;
+import com.blazebit.notify.processor.hibernate.insertselect.RecipientRanges;
+import com.blazebit.persistence.Criteria;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.InsertCriteriaBuilder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Persistence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InsertSelectRecipientRangesTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private static final long JOB_INSTANCE_ID = 1L;
+    private static final int RECIPIENT_COUNT = 1000;
+    private static final int RANGE_COUNT = 4;
+    private static final int CHUNK_SIZE = 100;
+
+    private final RangeNotificationJobInstanceProcessor processor = new RangeNotificationJobInstanceProcessor();
+    private EntityManagerFactory entityManagerFactory;
+    private ThreadLocalTransactionSupport transactionSupport;
+    private EntityManager entityManager;
+    private ThreadPoolExecutor executorService;
+
+    @Before
+    public void setUp() {
+        entityManagerFactory = Persistence.createEntityManagerFactory("recipient-ranges");
+        transactionSupport = new ThreadLocalTransactionSupport(entityManagerFactory);
+        entityManager = transactionSupport.createEntityManagerProxy();
+        executorService = new ThreadPoolExecutor(RANGE_COUNT, RANGE_COUNT, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        CriteriaBuilderFactory criteriaBuilderFactory = Criteria.getDefault().createCriteriaBuilderFactory(entityManagerFactory);
+        List<NotificationRecipient<?>> recipients = new ArrayList<>(RECIPIENT_COUNT);
+        for (long i = 1; i <= RECIPIENT_COUNT; i++) {
+            recipients.add(new RangeRecipient(i));
+        }
+        this.jobContext = builder()
+            .withRecipientResolver((jobInstance, context) -> recipients)
+            .withTransactionSupport(transactionSupport)
+            .withService(EntityManager.class, entityManager)
+            .withService(CriteriaBuilderFactory.class, criteriaBuilderFactory)
+            .withProperty(AbstractInsertSelectNotificationJobInstanceProcessor.RECIPIENT_RANGES_PROPERTY, RANGE_COUNT)
+            .withProperty(AbstractInsertSelectNotificationJobInstanceProcessor.RECIPIENT_RANGES_EXECUTOR_SERVICE_PROPERTY, executorService)
+            .createContext();
+        inTransaction(() -> {
+            for (NotificationRecipient<?> recipient : recipients) {
+                entityManager.persist(recipient);
+            }
+            entityManager.persist(new RangeNotificationJobInstance(JOB_INSTANCE_ID));
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        entityManagerFactory.close();
+    }
+
+    @Test
+    public void testRangesProduceNotificationForEachRecipientOnce() {
+        int chunks = processUntilDone();
+
+        assertEachRecipientNotifiedOnce();
+        // Each range holds about a quarter of the recipients, so it needs three chunks
+        assertEquals(3, chunks);
+        assertTrue(executorService.getTaskCount() >= RANGE_COUNT);
+    }
+
+    @Test
+    public void testRolledBackChunkDoesNotProduceDuplicates() {
+        Long lastProcessed = processChunk(null, true);
+
+        // The ranges committed independently of the rolled back chunk
+        assertEquals(Long.valueOf(RANGE_COUNT * CHUNK_SIZE), countNotifications());
+        RangeNotificationJobInstance jobInstance = inTransaction(() -> entityManager.find(RangeNotificationJobInstance.class, JOB_INSTANCE_ID));
+        assertNull(jobInstance.getRecipientRanges());
+        assertNull(jobInstance.getRecipientCursor());
+        assertTrue(lastProcessed > CHUNK_SIZE);
+
+        processUntilDone();
+
+        assertEachRecipientNotifiedOnce();
+    }
+
+    private int processUntilDone() {
+        int chunks = 0;
+        while (true) {
+            RangeNotificationJobInstance jobInstance = inTransaction(() -> entityManager.find(RangeNotificationJobInstance.class, JOB_INSTANCE_ID));
+            if (jobInstance.getState() == JobInstanceState.DONE) {
+                return chunks;
+            }
+            assertTrue("Recipient ranges didn't finish", chunks < RECIPIENT_COUNT / CHUNK_SIZE);
+            processChunk(jobInstance.getRecipientCursor(), false);
+            chunks++;
+        }
+    }
+
+    private Long processChunk(Long lastProcessed, boolean rollback) {
+        return inTransaction(() -> {
+            RangeNotificationJobInstance jobInstance = entityManager.find(RangeNotificationJobInstance.class, JOB_INSTANCE_ID);
+            ProcessingContext context = new ProcessingContext(jobContext, lastProcessed);
+            context.lastProcessed = processor.process(jobInstance, context);
+            jobInstance.onChunkSuccess(context);
+            if (rollback) {
+                entityManager.getTransaction().setRollbackOnly();
+            }
+            return context.lastProcessed;
+        });
+    }
+
+    private Long countNotifications() {
+        return inTransaction(() -> entityManager.createQuery("SELECT COUNT(*) FROM RangeNotification", Long.class).getSingleResult());
+    }
+
+    private void assertEachRecipientNotifiedOnce() {
+        List<Long> recipientIds = inTransaction(() -> entityManager.createQuery("SELECT n.recipientId FROM RangeNotification n WHERE n.notificationJobInstanceId = :id ORDER BY n.recipientId", Long.class)
+            .setParameter("id", JOB_INSTANCE_ID)
+            .getResultList());
+        assertEquals(RECIPIENT_COUNT, recipientIds.size());
+        for (int i = 0; i < RECIPIENT_COUNT; i++) {
+            assertEquals(Long.valueOf(i + 1), recipientIds.get(i));
+        }
+    }
+
+    private <T> T inTransaction(Callable<T> callable) {
+        Throwable[] failure = new Throwable[1];
+        T result = transactionSupport.transactional(jobContext, 0L, false, callable, t -> failure[0] = t);
+        if (failure[0] != null) {
+            throw new AssertionError("Transaction failed", failure[0]);
+        }
+        return result;
+    }
+
+    private static class RangeNotificationJobInstanceProcessor extends AbstractInsertSelectNotificationJobInstanceProcessor<Long, RangeNotification, RangeNotificationJobInstance, RangeRecipient> {
+
+        @Override
+        protected Instant bindNotificationAttributes(InsertCriteriaBuilder<RangeNotification> insertCriteriaBuilder, RangeNotificationJobInstance jobInstance, JobInstanceProcessingContext<Long> context, String recipientAlias, String jobInstanceAlias) {
+            insertCriteriaBuilder.bind("recipientId").select(recipientAlias + ".id")
+                .bind("notificationJobInstanceId").select(jobInstanceAlias + ".id");
+            return Instant.now();
+        }
+
+        @Override
+        protected void markDone(RangeNotificationJobInstance jobInstance, JobInstanceProcessingContext<Long> context) {
+            jobInstance.markDone(context, null);
+        }
+
+        @Override
+        protected RecipientRanges getRecipientRanges(RangeNotificationJobInstance jobInstance) {
+            String recipientRanges = jobInstance.getRecipientRanges();
+            return recipientRanges == null ? null : RecipientRanges.valueOf(recipientRanges);
+        }
+
+        @Override
+        protected void setRecipientRanges(RangeNotificationJobInstance jobInstance, RecipientRanges ranges) {
+            jobInstance.setRecipientRanges(ranges.toString());
+        }
+
+        @Override
+        protected String getNotificationIdJobInstanceIdPath(RangeNotificationJobInstance jobInstance) {
+            return "notificationJobInstanceId";
+        }
+
+        @Override
+        protected ExpressionSerializer.Context getSerializerContext(RangeNotificationJobInstance jobInstance, JobInstanceProcessingContext<Long> context, String recipientAlias, String jobInstanceAlias) {
+            return null;
+        }
+
+        @Override
+        protected Class<RangeNotification> getNotificationEntityClass(RangeNotificationJobInstance jobInstance) {
+            return RangeNotification.class;
+        }
+
+        @Override
+        protected Class<RangeNotificationJobInstance> getNotificationJobInstanceEntityClass(RangeNotificationJobInstance jobInstance) {
+            return RangeNotificationJobInstance.class;
+        }
+
+        @Override
+        protected String getNotificationJobInstanceIdPath(RangeNotificationJobInstance jobInstance) {
+            return "id";
+        }
+
+        @Override
+        protected Class<RangeRecipient> getNotificationRecipientEntityClass(RangeNotificationJobInstance jobInstance) {
+            return RangeRecipient.class;
+        }
+
+        @Override
+        protected String getNotificationIdRecipientIdPath(RangeNotificationJobInstance jobInstance) {
+            return "recipientId";
+        }
+
+        @Override
+        protected String getNotificationRecipientIdPath(RangeNotificationJobInstance jobInstance) {
+            return "id";
+        }
+
+        @Override
+        protected Class<Long> getNotificationRecipientIdClass(RangeNotificationJobInstance jobInstance) {
+            return Long.class;
+        }
+    }
+
+    private static class ProcessingContext implements JobInstanceProcessingContext<Long> {
+
+        private final JobContext jobContext;
+        private Long lastProcessed;
+
+        public ProcessingContext(JobContext jobContext, Long lastProcessed) {
+            this.jobContext = jobContext;
+            this.lastProcessed = lastProcessed;
+        }
+
+        @Override
+        public JobContext getJobContext() {
+            return jobContext;
+        }
+
+        @Override
+        public Long getLastProcessed() {
+            return lastProcessed;
+        }
+
+        @Override
+        public int getProcessCount() {
+            return CHUNK_SIZE;
+        }
+
+        @Override
+        public int getPartitionId() {
+            return 0;
+        }
+
+        @Override
+        public int getPartitionCount() {
+            return 1;
+        }
+
+        @Override
+        public PartitionKey getPartitionKey() {
+            return null;
+        }
+    }
+
+    // Binds a resource local entity manager to the thread of a transaction, like a container managed entity manager is
+    private static class ThreadLocalTransactionSupport implements TransactionSupport {
+
+        private final EntityManagerFactory entityManagerFactory;
+        private final ThreadLocal<EntityManager> entityManager = new ThreadLocal<>();
+        private final ThreadLocal<List<Runnable>> postCommitListeners = new ThreadLocal<>();
+
+        public ThreadLocalTransactionSupport(EntityManagerFactory entityManagerFactory) {
+            this.entityManagerFactory = entityManagerFactory;
+        }
+
+        public EntityManager createEntityManagerProxy() {
+            return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(), new Class<?>[]{ EntityManager.class }, (proxy, method, args) -> {
+                EntityManager currentEntityManager = entityManager.get();
+                if (currentEntityManager == null) {
+                    throw new IllegalStateException("No transaction active");
+                }
+                try {
+                    return method.invoke(currentEntityManager, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            });
+        }
+
+        @Override
+        public <T> T transactional(JobContext context, long transactionTimeoutMillis, boolean joinIfPossible, Callable<T> callable, Consumer<Throwable> exceptionHandler) {
+            EntityManager previousEntityManager = entityManager.get();
+            if (joinIfPossible && previousEntityManager != null) {
+                try {
+                    return callable.call();
+                } catch (Throwable t) {
+                    exceptionHandler.accept(t);
+                    return null;
+                }
+            }
+            List<Runnable> previousPostCommitListeners = postCommitListeners.get();
+            EntityManager currentEntityManager = entityManagerFactory.createEntityManager();
+            List<Runnable> currentPostCommitListeners = new ArrayList<>();
+            entityManager.set(currentEntityManager);
+            postCommitListeners.set(currentPostCommitListeners);
+            EntityTransaction transaction = currentEntityManager.getTransaction();
+            try {
+                transaction.begin();
+                T result = callable.call();
+                if (transaction.getRollbackOnly()) {
+                    transaction.rollback();
+                } else {
+                    transaction.commit();
+                    currentPostCommitListeners.forEach(Runnable::run);
+                }
+                return result;
+            } catch (Throwable t) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                exceptionHandler.accept(t);
+                return null;
+            } finally {
+                currentEntityManager.close();
+                entityManager.set(previousEntityManager);
+                postCommitListeners.set(previousPostCommitListeners);
+            }
+        }
+
+        @Override
+        public void registerPostCommitListener(Runnable o) {
+            List<Runnable> currentPostCommitListeners = postCommitListeners.get();
+            if (currentPostCommitListeners == null) {
+                o.run();
+            } else {
+                currentPostCommitListeners.add(o);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.notify.NotificationMetrics;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.impl.LatencyHistogram;
+import com.blazebit.notify.impl.NotificationMetricsImpl;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NotificationMetricsTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    @Test
+    public void testPipelineIsMeasured() throws Exception {
+        NotificationMetricsImpl metrics = new NotificationMetricsImpl();
+        // We expect the trigger, job instance and 5 notifications to run
+        this.jobContext = builder(7)
+            .withNotificationMetrics(metrics)
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[5];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await();
+        jobContext.stop(1, TimeUnit.MINUTES);
+
+        String channelType = channelKey.getChannelType();
+        assertEquals(5, sink.size());
+        assertTrue(metrics.getChannelTypes().contains(channelType));
+        assertEquals(5L, metrics.getCount(channelType, NotificationMetrics.Outcome.SENT));
+        assertEquals(0L, metrics.getCount(channelType, NotificationMetrics.Outcome.FAILED));
+        assertEquals(5L, metrics.getLatencyHistogram(channelType, NotificationMetrics.Stage.SEND).getCount());
+        assertEquals(5L, metrics.getLatencyHistogram(channelType, NotificationMetrics.Stage.MESSAGE_RESOLUTION).getCount());
+        assertEquals(1L, metrics.getLatencyHistogram(null, NotificationMetrics.Stage.RECIPIENT_RESOLUTION).getCount());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(1000L, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), histogram.getMaxNanos());
+        long median = histogram.getPercentileNanos(50);
+        long p99 = histogram.getPercentileNanos(99);
+        assertTrue("Unexpected median " + median, median >= TimeUnit.MICROSECONDS.toNanos(500) && median <= TimeUnit.MICROSECONDS.toNanos(625));
+        assertTrue("Unexpected 99th percentile " + p99, p99 >= TimeUnit.MICROSECONDS.toNanos(990) && p99 <= TimeUnit.MICROSECONDS.toNanos(1000));
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+@Entity
+public class RangeNotification {
+
+    // The recipient id is the primary key, so producing a notification for a recipient twice fails the insert
+    @Id
+    private Long recipientId;
+    @Column(nullable = false)
+    private Long notificationJobInstanceId;
+
+    public Long getRecipientId() {
+        return recipientId;
+    }
+
+    public Long getNotificationJobInstanceId() {
+        return notificationJobInstanceId;
+    }
+}
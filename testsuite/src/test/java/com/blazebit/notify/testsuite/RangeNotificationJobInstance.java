@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.job.JobConfiguration;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.JobInstanceState;
+import com.blazebit.notify.NotificationJobInstance;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import java.time.Instant;
+
+@Entity
+public class RangeNotificationJobInstance implements NotificationJobInstance<Long, Long> {
+
+    @Id
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    private JobInstanceState state = JobInstanceState.NEW;
+    private int deferCount;
+    private Instant creationTime;
+    private Instant scheduleTime;
+    private Instant lastExecutionTime;
+    private Long recipientCursor;
+    @Column(length = 4000)
+    private String recipientRanges;
+
+    protected RangeNotificationJobInstance() {
+    }
+
+    public RangeNotificationJobInstance(Long id) {
+        this.id = id;
+        this.creationTime = Instant.now();
+        this.scheduleTime = creationTime;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public Long getPartitionKey() {
+        return null;
+    }
+
+    @Override
+    public JobInstanceState getState() {
+        return state;
+    }
+
+    @Override
+    public int getDeferCount() {
+        return deferCount;
+    }
+
+    @Override
+    public void incrementDeferCount() {
+        deferCount++;
+    }
+
+    @Override
+    public Instant getScheduleTime() {
+        return scheduleTime;
+    }
+
+    @Override
+    public void setScheduleTime(Instant scheduleTime) {
+        this.scheduleTime = scheduleTime;
+    }
+
+    @Override
+    public Instant getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public Instant getLastExecutionTime() {
+        return lastExecutionTime;
+    }
+
+    @Override
+    public void setLastExecutionTime(Instant lastExecutionTime) {
+        this.lastExecutionTime = lastExecutionTime;
+    }
+
+    @Override
+    public Long getLastProcessed() {
+        return recipientCursor;
+    }
+
+    @Override
+    public Long getRecipientCursor() {
+        return recipientCursor;
+    }
+
+    public String getRecipientRanges() {
+        return recipientRanges;
+    }
+
+    public void setRecipientRanges(String recipientRanges) {
+        this.recipientRanges = recipientRanges;
+    }
+
+    @Override
+    public void onChunkSuccess(JobInstanceProcessingContext<?> processingContext) {
+        recipientCursor = (Long) processingContext.getLastProcessed();
+    }
+
+    @Override
+    public JobConfiguration getJobConfiguration() {
+        return null;
+    }
+
+    @Override
+    public void markRunning(JobInstanceProcessingContext<?> processingContext) {
+        state = JobInstanceState.RUNNING;
+    }
+
+    @Override
+    public void markDone(JobInstanceProcessingContext<?> processingContext, Object result) {
+        state = JobInstanceState.DONE;
+    }
+
+    @Override
+    public void markFailed(JobInstanceProcessingContext<?> processingContext, Throwable t) {
+        state = JobInstanceState.FAILED;
+    }
+
+    @Override
+    public void markDeadlineReached(JobInstanceProcessingContext<?> processingContext) {
+        state = JobInstanceState.DEADLINE_REACHED;
+    }
+
+    @Override
+    public void markDropped(JobInstanceProcessingContext<?> processingContext) {
+        state = JobInstanceState.DROPPED;
+    }
+}
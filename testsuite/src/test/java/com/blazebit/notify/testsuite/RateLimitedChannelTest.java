@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.job.ConfigurationSource;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationMessage;
+import com.blazebit.notify.NotificationMessageResolver;
+import com.blazebit.notify.NotificationMessageResolverFactory;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.RateLimiter;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimitedChannelTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private final RateLimiter rateLimiter = new RateLimiter(4, 1);
+    private final AtomicInteger resolvedMessages = new AtomicInteger();
+
+    public RateLimitedChannelTest() {
+        this.channel = new MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage>(sink) {
+            @Override
+            public RateLimiter getRateLimiter() {
+                return rateLimiter;
+            }
+        };
+    }
+
+    @Test
+    public void testSendsAreDeferredWhenRateLimitIsReached() throws Exception {
+        // We expect the trigger, job instance and 5 notifications to run
+        this.jobContext = builder(7)
+            .withMessageResolverFactory(new NotificationMessageResolverFactory<NotificationMessage>() {
+                @Override
+                public Class getNotificationMessageType() {
+                    return NotificationMessage.class;
+                }
+
+                @Override
+                public NotificationMessageResolver<NotificationMessage> createNotificationMessageResolver(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
+                    return notification -> {
+                        resolvedMessages.incrementAndGet();
+                        return new SimpleNotificationMessage();
+                    };
+                }
+            })
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[5];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        long start = System.nanoTime();
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await(10L, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        jobContext.stop(1, TimeUnit.MINUTES);
+        assertEquals(5, sink.size());
+        // Deferred notifications are rate limited before their message is resolved
+        assertEquals(5, resolvedMessages.get());
+        // The first send uses the burst, the remaining 4 sends need a permit each at a rate of 4 per second
+        assertTrue("Expected the sends to be spread over at least 900ms but took " + elapsedMillis + "ms", elapsedMillis >= 900L);
+    }
+
+    @Test
+    public void testThrottledSendsBackOff() {
+        RateLimiter rateLimiter = new RateLimiter(1000, 5);
+        // A full bucket has no wait time, but a throttled send must never be retried right away
+        assertEquals(0L, rateLimiter.getWaitMillis(rateLimiter.getBurst()));
+        assertTrue(rateLimiter.onThrottled() > 0L);
+        assertEquals(0, rateLimiter.tryAcquireUpTo(1));
+    }
+}
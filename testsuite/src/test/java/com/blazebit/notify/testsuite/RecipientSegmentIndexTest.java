@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.domain.Domain;
+import com.blazebit.domain.boot.model.MetadataDefinition;
+import com.blazebit.domain.boot.model.MetadataDefinitionHolder;
+import com.blazebit.domain.runtime.model.DomainModel;
+import com.blazebit.expression.ExpressionCompiler;
+import com.blazebit.expression.ExpressionInterpreterContext;
+import com.blazebit.expression.ExpressionService;
+import com.blazebit.expression.Expressions;
+import com.blazebit.expression.Predicate;
+import com.blazebit.expression.spi.AttributeAccessor;
+import com.blazebit.notify.recipient.resolver.expression.RecipientSegmentIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RecipientSegmentIndexTest {
+
+    private static final ExpressionService EXPRESSION_SERVICE = Expressions.forModel(createDomainModel());
+
+    private final Map<Long, Map<String, Object>> recipients = new TreeMap<>();
+    private final RecipientSegmentIndex index = new RecipientSegmentIndex("user", Arrays.asList("country", "active"));
+
+    @Before
+    public void setUp() {
+        put(1L, "AT", true);
+        put(2L, "DE", false);
+        put(3L, null, true);
+        put(4L, "AT", null);
+        put(5L, "DE", true);
+        put(7L, null, null);
+    }
+
+    @Test
+    public void testEquality() {
+        assertEquals(bits(1, 4), evaluate("user.country = 'AT'"));
+        assertEquals(bits(1, 3, 5), evaluate("user.active"));
+        assertEquals(bits(2), evaluate("user.active = false"));
+    }
+
+    @Test
+    public void testUnknownIsExcludedFromNegation() {
+        // Recipients without a country are unknown for both the comparison and its negation
+        assertEquals(bits(2, 5), evaluate("user.country <> 'AT'"));
+        assertEquals(bits(2, 5), evaluate("NOT(user.country = 'AT')"));
+        assertEquals(bits(2), evaluate("NOT user.active"));
+    }
+
+    @Test
+    public void testUnknownOperandMakesCompoundUnknown() {
+        // The interpreter stops at the first operand that decides the result or is unknown,
+        // so recipient 3 doesn't match although it is active, because it has no country
+        assertEquals(bits(1, 4, 5), evaluate("user.country = 'AT' OR user.active"));
+        assertEquals(bits(1, 3, 5), evaluate("user.active OR user.country = 'AT'"));
+        // Recipients 3 and 4 are unknown for the conjunction and thus also for its negation
+        assertEquals(bits(2, 5), evaluate("NOT(user.country = 'AT' AND user.active)"));
+    }
+
+    @Test
+    public void testNegationIsLimitedToIndexedRecipients() {
+        index.remove(5L);
+        recipients.remove(5L);
+        assertEquals(5, index.size());
+        assertEquals(bits(2), evaluate("NOT(user.country = 'AT')"));
+        assertEquals(bits(2), evaluate("NOT(user.country = 'AT' OR user.country = 'XX')"));
+    }
+
+    @Test
+    public void testPutReplacesAttributeValues() {
+        put(1L, "DE", null);
+        assertEquals(bits(4), evaluate("user.country = 'AT'"));
+        assertEquals(bits(1, 2, 5), evaluate("user.country = 'DE'"));
+        assertEquals(bits(3, 5), evaluate("user.active"));
+    }
+
+    @Test
+    public void testMatchesInterpreter() {
+        String[] expressions = {
+            "user.country = 'AT' OR user.active = false",
+            "NOT(user.country = 'DE' OR user.active) AND user.country <> 'AT'",
+            "user.active AND (user.country = 'AT' OR NOT user.active)",
+            "NOT(NOT(user.country = 'AT'))",
+            "user.country = 'AT' OR user.active",
+            "NOT(user.active AND user.country = 'AT')"
+        };
+        for (String expression : expressions) {
+            assertEquals(expression, interpret(expression), evaluate(expression));
+        }
+    }
+
+    @Test
+    public void testUnsupportedPredicateIsNotAnswered() {
+        assertNull(index.evaluate(compile("user.age = 1")));
+        assertNull(index.evaluate(compile("user.country = 'AT' AND user.age > 1")));
+        assertNull(index.evaluate(compile("user.country IS NULL")));
+    }
+
+    private void put(long id, String country, Boolean active) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("country", country);
+        attributes.put("active", active);
+        recipients.put(id, attributes);
+        index.put(id, attributes);
+    }
+
+    private BitSet evaluate(String expression) {
+        return index.evaluate(compile(expression));
+    }
+
+    private BitSet interpret(String expression) {
+        Predicate predicate = compile(expression);
+        BitSet matching = new BitSet();
+        for (Map.Entry<Long, Map<String, Object>> entry : recipients.entrySet()) {
+            ExpressionInterpreterContext<?> context = ExpressionInterpreterContext.create(EXPRESSION_SERVICE);
+            context.withRoot("user", entry.getValue());
+            if (Boolean.TRUE.equals(EXPRESSION_SERVICE.createInterpreter().evaluate(predicate, context))) {
+                matching.set(entry.getKey().intValue());
+            }
+        }
+        return matching;
+    }
+
+    private static Predicate compile(String expression) {
+        ExpressionCompiler compiler = EXPRESSION_SERVICE.createCompiler();
+        return compiler.createPredicate(expression, compiler.createContext(Collections.singletonMap("user", EXPRESSION_SERVICE.getDomainModel().getEntityType("Recipient"))));
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bitSet = new BitSet();
+        for (int index : indexes) {
+            bitSet.set(index);
+        }
+        return bitSet;
+    }
+
+    private static DomainModel createDomainModel() {
+        MetadataDefinition<AttributeAccessor> attributeAccessor = new MetadataDefinition<AttributeAccessor>() {
+            @Override
+            public Class<AttributeAccessor> getJavaType() {
+                return AttributeAccessor.class;
+            }
+
+            @Override
+            public AttributeAccessor build(MetadataDefinitionHolder definitionHolder) {
+                return (context, value, attribute) -> ((Map<?, ?>) value).get(attribute.getName());
+            }
+        };
+        return Domain.getDefaultProvider().createDefaultBuilder()
+            .createEntityType("Recipient")
+                .addAttribute("country", "String", attributeAccessor)
+                .addAttribute("active", "Boolean", attributeAccessor)
+                .addAttribute("age", "Integer", attributeAccessor)
+            .build()
+            .build();
+    }
+}
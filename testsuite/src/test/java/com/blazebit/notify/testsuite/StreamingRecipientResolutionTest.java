@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.job.JobContext;
+import com.blazebit.job.JobInstanceProcessingContext;
+import com.blazebit.job.PartitionKey;
+import com.blazebit.notify.NotificationJobInstance;
+import com.blazebit.notify.NotificationRecipient;
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.processor.memory.AbstractMemoryNotificationJobInstanceProcessor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class StreamingRecipientResolutionTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private static final int RECIPIENT_COUNT = 10;
+    private static final int PAGE_SIZE = 2;
+
+    private final AtomicInteger loadedRecipients = new AtomicInteger();
+
+    @Test
+    public void testRecipientsAreConsumedIncrementally() {
+        this.jobContext = builder()
+            .withRecipientResolver(new NotificationRecipientResolver() {
+                @Override
+                public List<? extends NotificationRecipient<?>> resolveNotificationRecipients(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobProcessingContext) {
+                    throw new UnsupportedOperationException("Recipients must be resolved incrementally");
+                }
+
+                @Override
+                public Iterator<? extends NotificationRecipient<?>> resolveNotificationRecipientIterator(NotificationJobInstance<Long, ?> jobInstance, JobInstanceProcessingContext<?> jobProcessingContext) {
+                    return NotificationRecipientResolver.keysetPaged(jobInstance.getRecipientCursor(), PAGE_SIZE, StreamingRecipientResolutionTest.this::loadPage);
+                }
+            })
+            .createContext();
+        BlockingQueue<Long> results = new ArrayBlockingQueue<>(RECIPIENT_COUNT);
+        RecipientIdProcessor processor = new RecipientIdProcessor(results);
+        SimpleNotificationJobInstance jobInstance = new SimpleNotificationJobInstance();
+
+        Long lastProcessed = processor.process(jobInstance, new ProcessingContext(jobContext, null, 3));
+        assertEquals(Long.valueOf(3L), lastProcessed);
+        assertEquals(3, results.size());
+        // Only the pages needed for the batch are loaded
+        assertEquals(4, loadedRecipients.get());
+
+        int chunks = 1;
+        while (lastProcessed != null) {
+            jobInstance.setRecipientCursor(lastProcessed);
+            lastProcessed = processor.process(jobInstance, new ProcessingContext(jobContext, lastProcessed, 3));
+            chunks++;
+        }
+
+        List<Long> ids = new ArrayList<>(results);
+        for (int i = 0; i < RECIPIENT_COUNT; i++) {
+            assertEquals(Long.valueOf(i + 1), ids.get(i));
+        }
+        // The chunk that exhausts the recipients ends the processing
+        assertEquals(4, chunks);
+        assertNull(processor.process(jobInstance, new ProcessingContext(jobContext, (long) RECIPIENT_COUNT, 3)));
+    }
+
+    @Test
+    public void testKeysetPagedIteratorStopsAfterShortPage() {
+        Iterator<NotificationRecipient<Long>> iterator = NotificationRecipientResolver.keysetPaged(7L, PAGE_SIZE, this::loadPage);
+        assertEquals(Long.valueOf(8L), iterator.next().getId());
+        assertEquals(Long.valueOf(9L), iterator.next().getId());
+        assertEquals(Long.valueOf(10L), iterator.next().getId());
+        assertFalse(iterator.hasNext());
+        assertEquals(3, loadedRecipients.get());
+    }
+
+    private List<NotificationRecipient<Long>> loadPage(Object lastId, int pageSize) {
+        List<NotificationRecipient<Long>> page = new ArrayList<>(pageSize);
+        for (long id = lastId == null ? 1L : (Long) lastId + 1; id <= RECIPIENT_COUNT && page.size() < pageSize; id++) {
+            page.add(NotificationRecipient.of(id, Locale.ENGLISH, null));
+        }
+        loadedRecipients.addAndGet(page.size());
+        return page;
+    }
+
+    static class RecipientIdProcessor extends AbstractMemoryNotificationJobInstanceProcessor<Long, Long, SimpleNotificationJobInstance, NotificationRecipient<Long>> {
+
+        public RecipientIdProcessor(BlockingQueue<Long> sink) {
+            super(sink);
+        }
+
+        @Override
+        protected Long produceNotification(JobInstanceProcessingContext<Long> context, SimpleNotificationJobInstance notificationJob, NotificationRecipient<Long> recipient) {
+            return recipient.getId();
+        }
+
+        @Override
+        protected Long getProcessingResultId(Long processingResult) {
+            return processingResult;
+        }
+    }
+
+    static class ProcessingContext implements JobInstanceProcessingContext<Long> {
+
+        private final JobContext jobContext;
+        private final Long lastProcessed;
+        private final int processCount;
+
+        public ProcessingContext(JobContext jobContext, Long lastProcessed, int processCount) {
+            this.jobContext = jobContext;
+            this.lastProcessed = lastProcessed;
+            this.processCount = processCount;
+        }
+
+        @Override
+        public JobContext getJobContext() {
+            return jobContext;
+        }
+
+        @Override
+        public Long getLastProcessed() {
+            return lastProcessed;
+        }
+
+        @Override
+        public int getProcessCount() {
+            return processCount;
+        }
+
+        @Override
+        public int getPartitionId() {
+            return 0;
+        }
+
+        @Override
+        public int getPartitionCount() {
+            return 1;
+        }
+
+        @Override
+        public PartitionKey getPartitionKey() {
+            return null;
+        }
+    }
+}
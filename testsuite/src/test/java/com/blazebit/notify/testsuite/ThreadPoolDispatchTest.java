@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.notify.NotificationRecipientResolver;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadPoolDispatchTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private static final int NOTIFICATION_COUNT = 10_000;
+    private static final int CONCURRENCY_LIMIT = 200;
+
+    private final AtomicInteger concurrentSends = new AtomicInteger();
+    private final AtomicInteger maxConcurrentSends = new AtomicInteger();
+
+    public ThreadPoolDispatchTest() {
+        this.sink = new LinkedBlockingQueue<>();
+        this.channel = new MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage>(sink) {
+            @Override
+            public Object sendNotificationMessage(SimpleNotificationRecipient recipient, SimpleNotificationMessage message) {
+                maxConcurrentSends.accumulateAndGet(concurrentSends.incrementAndGet(), Math::max);
+                try {
+                    // Simulate the network latency of a remote provider
+                    Thread.sleep(1L);
+                    return super.sendNotificationMessage(recipient, message);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    concurrentSends.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testCompareWithPlatformWorker() throws Exception {
+        send(false, NOTIFICATION_COUNT);
+        assertEquals(1, maxConcurrentSends.get());
+
+        maxConcurrentSends.set(0);
+        send(true, NOTIFICATION_COUNT);
+        assertTrue("Expected concurrent sends but got " + maxConcurrentSends.get(), maxConcurrentSends.get() > 1);
+        assertTrue("Expected at most " + CONCURRENCY_LIMIT + " concurrent sends but got " + maxConcurrentSends.get(), maxConcurrentSends.get() <= CONCURRENCY_LIMIT);
+    }
+
+    @Test
+    public void testDispatchThreadsStopWithContext() throws Exception {
+        send(true, 100);
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (hasDispatchThreads() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertFalse("Expected the dispatch threads to stop with the context", hasDispatchThreads());
+    }
+
+    private static boolean hasDispatchThreads() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("notification-dispatch")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void send(boolean dispatchThreadPool, int notificationCount) throws Exception {
+        sink.clear();
+        // We expect the trigger, job instance and all notifications to run
+        this.jobContext = builder(notificationCount + 2)
+            .withDispatchThreadPool(dispatchThreadPool)
+            .withDispatchThreadPoolMaxInFlight(CONCURRENCY_LIMIT)
+            .withChannelConcurrencyLimit(channelKey.getChannelType(), CONCURRENCY_LIMIT)
+            .createContext();
+        SimpleNotificationRecipient[] recipients = new SimpleNotificationRecipient[notificationCount];
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = new SimpleNotificationRecipient(Locale.GERMAN);
+        }
+        jobContext.getJobManager().addJobInstance(new SimpleNotificationJobTrigger(channel, NotificationRecipientResolver.of(recipients), new OnceSchedule(), new OnceSchedule(), Collections.emptyMap()));
+        await(5L, TimeUnit.MINUTES);
+        jobContext.stop(1, TimeUnit.MINUTES);
+        jobContext = null;
+        assertEquals(notificationCount, sink.size());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 - 2025 Blazebit.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.blazebit.notify.testsuite;
+
+import com.blazebit.job.ConfigurationSource;
+import com.blazebit.notify.Channel;
+import com.blazebit.notify.ChannelFactory;
+import com.blazebit.notify.ChannelKey;
+import com.blazebit.notify.Notification;
+import com.blazebit.notify.NotificationJobContext;
+import com.blazebit.notify.NotificationMessageResolver;
+import com.blazebit.notify.NotificationMessageResolverFactory;
+import com.blazebit.notify.NotificationMetrics;
+import com.blazebit.notify.Warmable;
+import com.blazebit.notify.channel.memory.MemoryChannel;
+import com.blazebit.notify.impl.NotificationMetricsImpl;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WarmUpTest extends AbstractNotificationJobTest<SimpleNotificationRecipient, SimpleNotificationMessage> {
+
+    private final List<Collection<Locale>> warmedChannels = new CopyOnWriteArrayList<>();
+    private final List<Collection<Locale>> warmedMessageResolvers = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testWarmUpBeforeStart() {
+        NotificationMetricsImpl metrics = new NotificationMetricsImpl();
+        this.jobContext = builder()
+            .withChannelFactory(new WarmableChannelFactory())
+            .withMessageResolverFactory(new WarmableMessageResolverFactory())
+            .withNotificationMetrics(metrics)
+            .withProperty(NotificationJobContext.WARM_UP_CHANNELS_PROPERTY, channelKey.getChannelType())
+            .withProperty(NotificationJobContext.WARM_UP_MESSAGE_TYPES_PROPERTY, SimpleNotificationMessage.class.getName())
+            .withProperty(NotificationJobContext.WARM_UP_LOCALES_PROPERTY, "en, de-AT")
+            .createContext();
+
+        List<Locale> locales = Arrays.asList(Locale.ENGLISH, Locale.forLanguageTag("de-AT"));
+        assertEquals(1, warmedChannels.size());
+        assertEquals(locales, warmedChannels.get(0));
+        assertEquals(1, warmedMessageResolvers.size());
+        assertEquals(locales, warmedMessageResolvers.get(0));
+        // Warmed up components are cached and reused
+        assertEquals(1, jobContext.getChannelCacheStatistics().getSize());
+        assertEquals(1, jobContext.getMessageResolverCacheStatistics().getSize());
+        assertEquals(1L, metrics.getLatencyHistogram(channelKey.getChannelType(), NotificationMetrics.Stage.WARM_UP).getCount());
+        // One for the message resolver and one for the whole warm up
+        assertEquals(2L, metrics.getLatencyHistogram(null, NotificationMetrics.Stage.WARM_UP).getCount());
+    }
+
+    @Test
+    public void testWarmUpFailureDoesNotPreventStart() {
+        this.jobContext = builder()
+            .withChannelFactory(new WarmableChannelFactory())
+            .withProperty(NotificationJobContext.WARM_UP_CHANNELS_PROPERTY, Arrays.asList("unknown", channelKey.getChannelType()))
+            .withProperty(NotificationJobContext.WARM_UP_LOCALES_PROPERTY, Arrays.asList(Locale.GERMAN))
+            .createContext();
+
+        assertEquals(1, warmedChannels.size());
+        assertTrue(warmedChannels.get(0).contains(Locale.GERMAN));
+    }
+
+    private class WarmableChannelFactory implements ChannelFactory<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>> {
+
+        @Override
+        public ChannelKey<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>> getChannelType() {
+            return (ChannelKey<Channel<SimpleNotificationRecipient, SimpleNotificationMessage>>) channelKey;
+        }
+
+        @Override
+        public Channel<SimpleNotificationRecipient, SimpleNotificationMessage> createChannel(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
+            return new WarmableMemoryChannel();
+        }
+    }
+
+    private class WarmableMemoryChannel extends MemoryChannel<SimpleNotificationRecipient, SimpleNotificationMessage> implements Warmable {
+
+        public WarmableMemoryChannel() {
+            super(sink);
+        }
+
+        @Override
+        public void warmUp(Collection<Locale> locales) {
+            warmedChannels.add(locales);
+        }
+    }
+
+    private class WarmableMessageResolverFactory implements NotificationMessageResolverFactory<SimpleNotificationMessage> {
+
+        @Override
+        public Class<SimpleNotificationMessage> getNotificationMessageType() {
+            return SimpleNotificationMessage.class;
+        }
+
+        @Override
+        public NotificationMessageResolver<SimpleNotificationMessage> createNotificationMessageResolver(NotificationJobContext jobContext, ConfigurationSource configurationSource) {
+            return new WarmableMessageResolver();
+        }
+    }
+
+    private class WarmableMessageResolver implements NotificationMessageResolver<SimpleNotificationMessage>, Warmable {
+
+        @Override
+        public SimpleNotificationMessage resolveNotificationMessage(Notification<?> notification) {
+            return new SimpleNotificationMessage();
+        }
+
+        @Override
+        public void warmUp(Collection<Locale> locales) {
+            warmedMessageResolvers.add(locales);
+        }
+    }
+}